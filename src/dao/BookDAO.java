@@ -2,8 +2,10 @@ package dao;
 
 import model.Book;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * BookDAO defines the interface for accessing and managing book data.
@@ -40,4 +42,70 @@ public interface BookDAO {
      * @return A list of all books.
      */
     List<Book> findAll();
+
+    /**
+     * Saves several new books as one batch. The whole batch is validated before
+     * anything is written; implementations apply it with a single write and flush.
+     * @param books The books to save.
+     * @throws IllegalArgumentException if the batch is null, contains nulls or duplicate IDs.
+     */
+    default void saveAll(Collection<Book> books) {
+        BulkOperations.validateBatch(books, Book::getIsbn, "Book");
+        for (Book book : books) {
+            save(book);
+        }
+    }
+
+    /**
+     * Updates several existing books as one batch.
+     * @param books The updated books.
+     * @throws IllegalArgumentException if the batch is null, contains nulls or duplicate IDs.
+     */
+    default void updateAll(Collection<Book> books) {
+        BulkOperations.validateBatch(books, Book::getIsbn, "Book");
+        for (Book book : books) {
+            update(book);
+        }
+    }
+
+    /**
+     * Deletes several books by ID as one batch. Unknown IDs are ignored.
+     * @param bookIds The IDs of the books to delete.
+     * @throws IllegalArgumentException if the batch is null or contains nulls.
+     */
+    default void deleteAll(Collection<String> bookIds) {
+        BulkOperations.validateIds(bookIds, "Book");
+        for (String bookId : bookIds) {
+            delete(bookId);
+        }
+    }
+
+    /**
+     * Streams all books without first collecting them into a list. The stream may
+     * hold resources such as a database cursor, so callers should close it, e.g. with
+     * try-with-resources.
+     * @return A stream of all books.
+     */
+    default Stream<Book> streamAll() {
+        return findAll().stream();
+    }
+
+    /**
+     * Returns the next page of books ordered by ID (keyset pagination).
+     * @param afterId The last ID of the previous page, or null for the first page.
+     * @param limit   The maximum number of books to return (> 0).
+     * @return Up to {@code limit} books whose ID sorts after {@code afterId}.
+     */
+    default List<Book> findPage(String afterId, int limit) {
+        return Paging.page(streamAll(), Book::getIsbn, afterId, limit);
+    }
+
+    /**
+     * Returns the secondary indexes of the data source, if it has any. Decorators return
+     * the indexes of the DAO they wrap.
+     * @return The indexed lookups, or empty if every lookup needs a scan.
+     */
+    default Optional<IndexedBookDAO> indexes() {
+        return Optional.empty();
+    }
 }
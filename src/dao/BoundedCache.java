@@ -0,0 +1,213 @@
+package dao;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * BoundedCache is a size-bounded, thread-safe cache with a frequency-aware eviction
+ * policy. Entries are kept in least-recently-used order, and a small count-min sketch
+ * estimates how often each key has been requested recently. When the cache is full, a
+ * new key is only admitted if it has been requested more often than the LRU victim
+ * it would replace, so a burst of one-off lookups (for example a full catalog scan)
+ * cannot flush the frequently used entries.
+ *
+ * The sketch is halved periodically, so old popularity fades out over time.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class BoundedCache<K, V> {
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int MAX_FREQUENCY = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final int capacity;
+    private final LinkedHashMap<K, V> entries;
+    private final int[] sketch;
+    private final int sketchMask;
+    private final int resetThreshold;
+    private int sketchAdditions;
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    /**
+     * Creates a cache.
+     * @param capacity The maximum number of entries (> 0).
+     */
+    public BoundedCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Cache capacity must be greater than 0.");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        int width = Integer.highestOneBit(Math.max(16, capacity * 2 - 1)) << 1;
+        this.sketch = new int[SKETCH_DEPTH * width];
+        this.sketchMask = width - 1;
+        this.resetThreshold = capacity * 10;
+    }
+
+    /**
+     * Returns the cached value for a key and records the access.
+     * @param key The key to look up.
+     * @return The cached value, or null if the key is not cached.
+     */
+    public synchronized V get(K key) {
+        recordAccess(key);
+        V value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Returns the current write generation. Pass it to {@link #putIfUnchanged} to cache a
+     * value loaded from the backing store only if no invalidation happened meanwhile.
+     * @return The current generation.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Caches a value unless any key was invalidated since {@code expectedGeneration} was
+     * read, which would mean the value may already be stale.
+     * @param key                The key.
+     * @param value              The value (non-null).
+     * @param expectedGeneration The generation read before the value was loaded.
+     */
+    public synchronized void putIfUnchanged(K key, V value, long expectedGeneration) {
+        if (generation == expectedGeneration) {
+            put(key, value);
+        }
+    }
+
+    /**
+     * Caches a value, subject to the admission policy when the cache is full.
+     * @param key   The key.
+     * @param value The value (non-null).
+     */
+    public synchronized void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Cache key and value cannot be null.");
+        }
+        if (entries.containsKey(key) || entries.size() < capacity) {
+            entries.put(key, value);
+            return;
+        }
+        Iterator<Map.Entry<K, V>> lru = entries.entrySet().iterator();
+        K victim = lru.next().getKey();
+        if (frequency(key) <= frequency(victim)) {
+            rejections++;
+            return;
+        }
+        lru.remove();
+        evictions++;
+        entries.put(key, value);
+    }
+
+    /**
+     * Removes a key from the cache.
+     * @param key The key to remove.
+     */
+    public synchronized void invalidate(K key) {
+        generation++;
+        entries.remove(key);
+    }
+
+    /**
+     * Removes every entry from the cache.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized long hitCount() {
+        return hits;
+    }
+
+    public synchronized long missCount() {
+        return misses;
+    }
+
+    public synchronized long evictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns how many values were not cached because they were requested less often
+     * than the entry they would have evicted.
+     * @return The number of rejected admissions.
+     */
+    public synchronized long rejectionCount() {
+        return rejections;
+    }
+
+    /**
+     * Returns the fraction of lookups that were served from the cache.
+     * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+     */
+    public synchronized double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BoundedCache{size=" + entries.size() + ", capacity=" + capacity
+                + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "}";
+    }
+
+    // Count-min sketch; callers must hold the monitor.
+    private void recordAccess(K key) {
+        int hash = spread(key);
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            int index = indexOf(row, hash);
+            if (sketch[index] < MAX_FREQUENCY) {
+                sketch[index]++;
+            }
+        }
+        if (++sketchAdditions >= resetThreshold) {
+            for (int i = 0; i < sketch.length; i++) {
+                sketch[i] >>>= 1;
+            }
+            sketchAdditions /= 2;
+        }
+    }
+
+    private int frequency(K key) {
+        int hash = spread(key);
+        int min = MAX_FREQUENCY;
+        for (int row = 0; row < SKETCH_DEPTH; row++) {
+            min = Math.min(min, sketch[indexOf(row, hash)]);
+        }
+        return min;
+    }
+
+    private int indexOf(int row, int hash) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % SKETCH_DEPTH];
+        h ^= h >>> 16;
+        return row * (sketchMask + 1) + (h & sketchMask);
+    }
+
+    private static int spread(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
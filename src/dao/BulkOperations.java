@@ -0,0 +1,60 @@
+package dao;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * BulkOperations holds the up-front validation shared by the bulk DAO methods
+ * ({@code saveAll}, {@code updateAll}, {@code deleteAll}), so a batch is rejected
+ * as a whole before any of it is written.
+ */
+public final class BulkOperations {
+
+    private BulkOperations() {
+    }
+
+    /**
+     * Checks that a batch is non-null, has no null elements and no two elements with the same ID.
+     *
+     * @param items     The batch to validate.
+     * @param idOf      Extracts the ID of an element.
+     * @param itemName  The element name used in error messages (e.g. "Book").
+     * @param <T>       The element type.
+     * @throws IllegalArgumentException if the batch is invalid.
+     */
+    public static <T> void validateBatch(Collection<? extends T> items, Function<T, String> idOf, String itemName) {
+        if (items == null) {
+            throw new IllegalArgumentException(itemName + " batch cannot be null.");
+        }
+        Set<String> ids = new HashSet<>(items.size() * 2);
+        for (T item : items) {
+            if (item == null) {
+                throw new IllegalArgumentException(itemName + " batch cannot contain null elements.");
+            }
+            String id = idOf.apply(item);
+            if (!ids.add(id)) {
+                throw new IllegalArgumentException(itemName + " batch contains ID " + id + " more than once.");
+            }
+        }
+    }
+
+    /**
+     * Checks that a batch of IDs is non-null and has no null elements.
+     *
+     * @param ids      The IDs to validate.
+     * @param itemName The element name used in error messages (e.g. "Book").
+     * @throws IllegalArgumentException if the batch is invalid.
+     */
+    public static void validateIds(Collection<String> ids, String itemName) {
+        if (ids == null) {
+            throw new IllegalArgumentException(itemName + " ID batch cannot be null.");
+        }
+        for (String id : ids) {
+            if (id == null) {
+                throw new IllegalArgumentException(itemName + " ID batch cannot contain null elements.");
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package dao;
+
+import model.Book;
+import model.Isbn;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * CachingBookDAO is a read-through cache in front of another {@link BookDAO}.
+ * {@link #findById(String)} is served from a {@link BoundedCache} when possible and
+ * loads from the backing DAO otherwise. Every write goes straight to the backing DAO
+ * and then invalidates the affected ISBNs, so a cached book is never older than the
+ * last write made through this decorator.
+ *
+ * Books are mutable and the cache hands out the instance it holds, so every caller
+ * looking up an ISBN shares one object: a change made to it is seen by other readers
+ * at once, before it is written with {@link #update(Book)}, and is lost from the cache
+ * without ever reaching the backing DAO if it is never written. Callers that need an
+ * isolated version should copy the book (see {@link Book#Book(Book)}).
+ */
+public class CachingBookDAO implements BookDAO {
+
+    private final BookDAO delegate;
+    private final ReadThroughCache<Book> cache;
+
+    /**
+     * Creates a caching decorator.
+     * @param delegate The backing DAO.
+     * @param capacity The maximum number of cached books (> 0).
+     */
+    public CachingBookDAO(BookDAO delegate, int capacity) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Backing BookDAO cannot be null.");
+        }
+        this.delegate = delegate;
+        this.cache = new ReadThroughCache<>(capacity, Book::getIsbn, Isbn::canonical);
+    }
+
+    @Override
+    public void save(Book book) {
+        delegate.save(book);
+        cache.invalidate(book);
+    }
+
+    @Override
+    public void delete(String bookId) {
+        delegate.delete(bookId);
+        cache.invalidateId(bookId);
+    }
+
+    @Override
+    public void update(Book book) {
+        try {
+            delegate.update(book);
+        } finally {
+            cache.invalidate(book);
+        }
+    }
+
+    @Override
+    public Optional<Book> findById(String bookId) {
+        return cache.find(bookId, delegate::findById);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        delegate.saveAll(books);
+        cache.invalidateAll(books);
+    }
+
+    @Override
+    public void updateAll(Collection<Book> books) {
+        try {
+            delegate.updateAll(books);
+        } finally {
+            cache.invalidateAll(books);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> bookIds) {
+        try {
+            delegate.deleteAll(bookIds);
+        } finally {
+            cache.invalidateIds(bookIds);
+        }
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Book> findPage(String afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<IndexedBookDAO> indexes() {
+        return delegate.indexes();
+    }
+
+    /**
+     * Returns the cache, e.g. to read its hit, miss and eviction statistics.
+     * @return The cache.
+     */
+    public BoundedCache<String, Book> cache() {
+        return cache.cache();
+    }
+}
@@ -0,0 +1,108 @@
+package dao;
+
+import model.Patron;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * CachingPatronDAO is a read-through cache in front of another {@link PatronDAO},
+ * aimed at the repeated {@link #findById(String)} calls made on every login and
+ * before every patron write. Writes go straight to the backing DAO and then
+ * invalidate the affected patron IDs, and cached patrons are shared instances, as in
+ * {@link CachingBookDAO}.
+ */
+public class CachingPatronDAO implements PatronDAO {
+
+    private final PatronDAO delegate;
+    private final ReadThroughCache<Patron> cache;
+
+    /**
+     * Creates a caching decorator.
+     * @param delegate The backing DAO.
+     * @param capacity The maximum number of cached patrons (> 0).
+     */
+    public CachingPatronDAO(PatronDAO delegate, int capacity) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Backing PatronDAO cannot be null.");
+        }
+        this.delegate = delegate;
+        this.cache = new ReadThroughCache<>(capacity, Patron::getPatronId, UnaryOperator.identity());
+    }
+
+    @Override
+    public void save(Patron patron) {
+        delegate.save(patron);
+        cache.invalidate(patron);
+    }
+
+    @Override
+    public void delete(String patronId) {
+        delegate.delete(patronId);
+        cache.invalidateId(patronId);
+    }
+
+    @Override
+    public void update(Patron patron) {
+        try {
+            delegate.update(patron);
+        } finally {
+            cache.invalidate(patron);
+        }
+    }
+
+    @Override
+    public Optional<Patron> findById(String patronId) {
+        return cache.find(patronId, delegate::findById);
+    }
+
+    @Override
+    public List<Patron> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public void saveAll(Collection<Patron> patrons) {
+        delegate.saveAll(patrons);
+        cache.invalidateAll(patrons);
+    }
+
+    @Override
+    public void updateAll(Collection<Patron> patrons) {
+        try {
+            delegate.updateAll(patrons);
+        } finally {
+            cache.invalidateAll(patrons);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> patronIds) {
+        try {
+            delegate.deleteAll(patronIds);
+        } finally {
+            cache.invalidateIds(patronIds);
+        }
+    }
+
+    @Override
+    public Stream<Patron> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Patron> findPage(String afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    /**
+     * Returns the cache, e.g. to read its hit, miss and eviction statistics.
+     * @return The cache.
+     */
+    public BoundedCache<String, Patron> cache() {
+        return cache.cache();
+    }
+}
@@ -0,0 +1,75 @@
+package dao;
+
+/**
+ * ChangeEvent describes one write made through a DAO: what kind of write it was, the
+ * key it affected, and the value before and after it. Values are snapshots taken when
+ * the write was made, so later changes to the stored object do not show through.
+ *
+ * @param <T> The type of the changed value.
+ */
+public final class ChangeEvent<T> {
+
+    /**
+     * The kinds of writes.
+     */
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private final Type type;
+    private final String key;
+    private final T before;
+    private final T after;
+    private final long sequence;
+
+    ChangeEvent(Type type, String key, T before, T after, long sequence) {
+        this.type = type;
+        this.key = key;
+        this.before = before;
+        this.after = after;
+        this.sequence = sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the value before the write.
+     * @return The old value, or null for inserts.
+     */
+    public T getBefore() {
+        return before;
+    }
+
+    /**
+     * Returns the value after the write.
+     * @return The new value, or null for deletes.
+     */
+    public T getAfter() {
+        return after;
+    }
+
+    /**
+     * Returns the position of this write among all writes of its source, starting at 1.
+     * @return The sequence number.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "type=" + type +
+                ", key='" + key + '\'' +
+                ", sequence=" + sequence +
+                '}';
+    }
+}
@@ -0,0 +1,29 @@
+package dao;
+
+/**
+ * ChangeListener receives the {@link ChangeEvent}s of a DAO, one at a time and in the
+ * order the writes were made.
+ *
+ * @param <T> The type of the changed values.
+ */
+@FunctionalInterface
+public interface ChangeListener<T> {
+
+    void onChange(ChangeEvent<T> event);
+
+    /**
+     * Returns a listener that passes each event to this listener and then to another,
+     * e.g. to invalidate a cache only after the index it reads from was updated.
+     * @param next The listener to call second.
+     * @return The combined listener.
+     */
+    default ChangeListener<T> andThen(ChangeListener<T> next) {
+        if (next == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        return event -> {
+            onChange(event);
+            next.onChange(event);
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package dao;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ChangeNotifier delivers {@link ChangeEvent}s to listeners asynchronously.
+ *
+ * Every listener has its own unbounded queue, drained by at most one task at a time on
+ * the notifier's executor. Each listener therefore sees events one at a time and in
+ * publication order, a slow listener delays only itself, and publishing never blocks
+ * the writing thread. A listener that throws is counted in {@link #failedDeliveries()}
+ * and keeps receiving later events.
+ *
+ * @param <T> The type of the changed values.
+ */
+public class ChangeNotifier<T> {
+
+    private static final int EVENTS_PER_TASK = 256;
+    private static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "dao-change-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Executor executor;
+    private final List<Delivery> deliveries = new CopyOnWriteArrayList<>();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final Object idle = new Object();
+
+    /**
+     * Creates a notifier delivering on a shared pool of daemon threads.
+     */
+    public ChangeNotifier() {
+        this(DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * Creates a notifier delivering on the given executor.
+     * @param executor The executor to run deliveries on.
+     */
+    public ChangeNotifier(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null.");
+        }
+        this.executor = executor;
+    }
+
+    /**
+     * Registers a listener for events published from now on.
+     * @param listener The listener.
+     */
+    public void addListener(ChangeListener<T> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null.");
+        }
+        deliveries.add(new Delivery(listener));
+    }
+
+    /**
+     * Unregisters a listener. Events already queued for it are still delivered.
+     * @param listener The listener.
+     */
+    public void removeListener(ChangeListener<T> listener) {
+        deliveries.removeIf(delivery -> delivery.listener == listener);
+    }
+
+    /**
+     * Queues an event for every registered listener and returns immediately.
+     * @param event The event.
+     */
+    public void publish(ChangeEvent<T> event) {
+        for (Delivery delivery : deliveries) {
+            delivery.enqueue(event);
+        }
+    }
+
+    /**
+     * Waits until every published event has been delivered.
+     * @param timeout The maximum time to wait.
+     * @param unit    The unit of the timeout.
+     * @return True if all events were delivered, false if the timeout elapsed first.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean awaitDelivery(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (idle) {
+            while (pending.get() > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of events a listener failed on by throwing.
+     * @return The failure count.
+     */
+    public long failedDeliveries() {
+        return failures.get();
+    }
+
+    private void delivered() {
+        if (pending.decrementAndGet() == 0) {
+            synchronized (idle) {
+                idle.notifyAll();
+            }
+        }
+    }
+
+    private final class Delivery implements Runnable {
+        private final ChangeListener<T> listener;
+        private final Queue<ChangeEvent<T>> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Delivery(ChangeListener<T> listener) {
+            this.listener = listener;
+        }
+
+        private void enqueue(ChangeEvent<T> event) {
+            pending.incrementAndGet();
+            queue.add(event);
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        // Delivers a bounded run of events, then yields the thread and reschedules if more arrived.
+        @Override
+        public void run() {
+            try {
+                for (int i = 0; i < EVENTS_PER_TASK; i++) {
+                    ChangeEvent<T> event = queue.poll();
+                    if (event == null) {
+                        break;
+                    }
+                    try {
+                        listener.onChange(event);
+                    } catch (RuntimeException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        delivered();
+                    }
+                }
+            } finally {
+                scheduled.set(false);
+                if (!queue.isEmpty()) {
+                    schedule();
+                }
+            }
+        }
+    }
+}
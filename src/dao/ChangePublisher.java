@@ -0,0 +1,70 @@
+package dao;
+
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * ChangePublisher orders the writes of an observable DAO by key and publishes their
+ * {@link ChangeEvent}s. A write holds the striped lock of every key it touches while
+ * it reads the before value, writes to the backing DAO and publishes, so the events of
+ * one key are numbered and queued in write order. Writes to keys on other stripes
+ * proceed in parallel.
+ *
+ * @param <T> The type of the changed values.
+ */
+final class ChangePublisher<T> {
+
+    private static final int STRIPES = 64;
+
+    private final ChangeNotifier<T> notifier;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final AtomicLong sequence = new AtomicLong();
+
+    ChangePublisher(ChangeNotifier<T> notifier) {
+        this.notifier = notifier;
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    ChangeNotifier<T> notifier() {
+        return notifier;
+    }
+
+    /**
+     * Runs a write while holding the locks of the given keys, taken in stripe order so
+     * overlapping batches cannot deadlock.
+     */
+    <R> R write(Collection<String> keys, Supplier<R> action) {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (String key : keys) {
+            stripes.add(Math.floorMod(key.hashCode(), STRIPES));
+        }
+        int locked = 0;
+        try {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int stripe : stripes) {
+                if (locked-- == 0) {
+                    break;
+                }
+                locks[stripe].unlock();
+            }
+        }
+    }
+
+    /**
+     * Publishes the event of a write. Callers must hold the lock of the key.
+     */
+    void publish(ChangeEvent.Type type, String key, T before, T after) {
+        notifier.publish(new ChangeEvent<>(type, key, before, after, sequence.incrementAndGet()));
+    }
+}
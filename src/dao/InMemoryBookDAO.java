@@ -0,0 +1,447 @@
+package dao;
+
+import model.Book;
+import model.Isbn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * InMemoryBookDAO is a thread-safe, in-memory implementation of {@link BookDAO}.
+ * Books are stored in a concurrent hash map keyed on ISBN, with secondary indexes
+ * on author and genre, and sorted indexes on publication year, total copies and
+ * available copies that answer range queries in value order.
+ *
+ * Valid ISBNs are keyed in their canonical 13-digit form, so a book saved as
+ * "0-7432-7356-7" is found, updated and deleted as "9780743273565" too. Exact
+ * lookups of valid ISBNs go through a {@link LongKeyMap} on the numeric ISBN key
+ * and never hash the ISBN string.
+ *
+ * Reads never block. Writes are serialized so that the primary map and all
+ * secondary indexes change together; a reader may observe a write in progress
+ * but never an index entry pointing at a book that was not saved.
+ */
+public class InMemoryBookDAO implements BookDAO, IndexedBookDAO {
+
+    /**
+     * The numeric fields with a sorted index.
+     */
+    public enum RangeField {
+        PUBLICATION_YEAR,
+        TOTAL_COPIES,
+        AVAILABLE_COPIES
+    }
+
+    private final Map<String, Entry> books = new ConcurrentHashMap<>();
+    private final LongKeyMap<Entry> booksByIsbnKey = new LongKeyMap<>();
+    private final NavigableSet<String> isbnOrder = new ConcurrentSkipListSet<>();
+    private final Map<String, Set<String>> byAuthor = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> byGenre = new ConcurrentHashMap<>();
+    private final NavigableMap<Integer, Set<String>> byYear = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Integer, Set<String>> byTotalCopies = new ConcurrentSkipListMap<>();
+    private final NavigableMap<Integer, Set<String>> byAvailableCopies = new ConcurrentSkipListMap<>();
+    private final Object writeLock = new Object();
+
+    /**
+     * Saves a new book.
+     * @param book The book to save.
+     * @throws IllegalArgumentException if the book is null or a book with the same ISBN already exists.
+     */
+    @Override
+    public void save(Book book) {
+        validateBook(book);
+        synchronized (writeLock) {
+            Entry entry = new Entry(book);
+            if (books.containsKey(entry.id)) {
+                throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " already exists.");
+            }
+            store(entry);
+        }
+    }
+
+    /**
+     * Deletes a book by its ISBN. Deleting an unknown ISBN has no effect.
+     * @param bookId The ISBN of the book to delete.
+     */
+    @Override
+    public void delete(String bookId) {
+        if (bookId == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            unstore(Isbn.canonical(bookId));
+        }
+    }
+
+    /**
+     * Updates an existing book and re-indexes it.
+     * @param book The updated book.
+     * @throws IllegalArgumentException if the book is null or does not exist.
+     */
+    @Override
+    public void update(Book book) {
+        validateBook(book);
+        synchronized (writeLock) {
+            Entry entry = new Entry(book);
+            Entry previous = books.get(entry.id);
+            if (previous == null) {
+                throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " does not exist.");
+            }
+            removeFromIndexes(previous);
+            store(entry);
+        }
+    }
+
+    /**
+     * Saves a batch of new books under a single write lock. Either every book is saved
+     * or, if any ISBN already exists, none is.
+     * @param batch The books to save.
+     */
+    @Override
+    public void saveAll(Collection<Book> batch) {
+        BulkOperations.validateBatch(batch, Book::getIsbn, "Book");
+        synchronized (writeLock) {
+            List<Entry> entries = new ArrayList<>(batch.size());
+            Set<String> ids = new HashSet<>();
+            for (Book book : batch) {
+                Entry entry = new Entry(book);
+                if (books.containsKey(entry.id) || !ids.add(entry.id)) {
+                    throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " already exists.");
+                }
+                entries.add(entry);
+            }
+            for (Entry entry : entries) {
+                store(entry);
+            }
+        }
+    }
+
+    /**
+     * Updates a batch of existing books under a single write lock. Either every book is
+     * updated or, if any ISBN is unknown, none is.
+     * @param batch The updated books.
+     */
+    @Override
+    public void updateAll(Collection<Book> batch) {
+        BulkOperations.validateBatch(batch, Book::getIsbn, "Book");
+        synchronized (writeLock) {
+            List<Entry> entries = new ArrayList<>(batch.size());
+            for (Book book : batch) {
+                Entry entry = new Entry(book);
+                if (!books.containsKey(entry.id)) {
+                    throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " does not exist.");
+                }
+                entries.add(entry);
+            }
+            for (Entry entry : entries) {
+                removeFromIndexes(books.get(entry.id));
+                store(entry);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> bookIds) {
+        BulkOperations.validateIds(bookIds, "Book");
+        synchronized (writeLock) {
+            for (String bookId : bookIds) {
+                unstore(Isbn.canonical(bookId));
+            }
+        }
+    }
+
+    @Override
+    public Optional<Book> findById(String bookId) {
+        if (bookId == null) {
+            return Optional.empty();
+        }
+        long isbnKey = Isbn.toKey(bookId);
+        Entry entry = isbnKey != Isbn.INVALID_KEY ? booksByIsbnKey.get(isbnKey) : books.get(bookId);
+        return entry == null ? Optional.empty() : Optional.of(entry.book);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        List<Book> result = new ArrayList<>(books.size());
+        for (Entry entry : books.values()) {
+            result.add(entry.book);
+        }
+        return result;
+    }
+
+    /**
+     * Streams the stored books directly from the map, without copying them into a list.
+     * The stream is weakly consistent with concurrent writes.
+     */
+    @Override
+    public Stream<Book> streamAll() {
+        return books.values().stream().map(entry -> entry.book);
+    }
+
+    /**
+     * Returns the next page of books in ISBN order, read from a sorted ISBN index.
+     */
+    @Override
+    public List<Book> findPage(String afterId, int limit) {
+        Paging.validateLimit(limit);
+        Iterable<String> isbns = afterId == null ? isbnOrder : isbnOrder.tailSet(Isbn.canonical(afterId), false);
+        List<Book> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String isbn : isbns) {
+            Entry entry = books.get(isbn);
+            if (entry != null) {
+                page.add(entry.book);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public Optional<IndexedBookDAO> indexes() {
+        return Optional.of(this);
+    }
+
+    /**
+     * Finds all books by the given author (case-insensitive).
+     * @param author The author to look up.
+     * @return The matching books, or an empty list.
+     */
+    @Override
+    public List<Book> findByAuthor(String author) {
+        return resolve(byAuthor.get(normalize(author)));
+    }
+
+    /**
+     * Finds all books in the given genre (case-insensitive).
+     * @param genre The genre to look up.
+     * @return The matching books, or an empty list.
+     */
+    @Override
+    public List<Book> findByGenre(String genre) {
+        return resolve(byGenre.get(normalize(genre)));
+    }
+
+    /**
+     * Finds all books published in the given year.
+     * @param publicationYear The publication year to look up.
+     * @return The matching books, or an empty list.
+     */
+    public List<Book> findByPublicationYear(int publicationYear) {
+        return resolve(byYear.get(publicationYear));
+    }
+
+    /**
+     * Finds the books whose value of a sorted field lies within a range, in order of
+     * that value (books with equal values in ISBN order). The range is read from a
+     * sorted index, so only matching books are visited. Copy counts are those of the
+     * last save or update, since Book is mutable.
+     * @param field      The field to range over.
+     * @param min        The lowest value to include.
+     * @param max        The highest value to include.
+     * @param descending Whether to return the highest values first.
+     * @param limit      The maximum number of books to return (> 0).
+     * @return The matching books, or an empty list.
+     */
+    public List<Book> findRange(RangeField field, int min, int max, boolean descending, int limit) {
+        if (field == null) {
+            throw new IllegalArgumentException("Range field cannot be null.");
+        }
+        Paging.validateLimit(limit);
+        if (min > max) {
+            return Collections.emptyList();
+        }
+        NavigableMap<Integer, Set<String>> range = indexFor(field).subMap(min, true, max, true);
+        if (descending) {
+            range = range.descendingMap();
+        }
+        List<Book> result = new ArrayList<>();
+        for (Set<String> isbns : range.values()) {
+            Iterable<String> ordered = descending ? ((NavigableSet<String>) isbns).descendingSet() : isbns;
+            for (String isbn : ordered) {
+                Entry entry = books.get(isbn);
+                if (entry != null) {
+                    result.add(entry.book);
+                    if (result.size() == limit) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the books published between two years, inclusive, oldest first.
+     * @param fromYear The first year.
+     * @param toYear   The last year.
+     * @return The matching books, or an empty list.
+     */
+    @Override
+    public List<Book> findByPublicationYearBetween(int fromYear, int toYear) {
+        return findRange(RangeField.PUBLICATION_YEAR, fromYear, toYear, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Counts the books whose value of a sorted field lies within a range.
+     * @param field The field to range over.
+     * @param min   The lowest value to include.
+     * @param max   The highest value to include.
+     * @return The number of matching books.
+     */
+    public int countRange(RangeField field, int min, int max) {
+        if (field == null) {
+            throw new IllegalArgumentException("Range field cannot be null.");
+        }
+        if (min > max) {
+            return 0;
+        }
+        int count = 0;
+        for (Set<String> isbns : indexFor(field).subMap(min, true, max, true).values()) {
+            count += isbns.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of books currently stored.
+     * @return The number of books.
+     */
+    public int size() {
+        return books.size();
+    }
+
+    // Storage and index maintenance; callers must hold writeLock.
+    private void store(Entry entry) {
+        books.put(entry.id, entry);
+        isbnOrder.add(entry.id);
+        if (entry.isbnKey != Isbn.INVALID_KEY) {
+            booksByIsbnKey.put(entry.isbnKey, entry);
+        }
+        addToIndexes(entry);
+    }
+
+    private void unstore(String id) {
+        Entry removed = books.remove(id);
+        if (removed != null) {
+            removeFromIndexes(removed);
+            isbnOrder.remove(id);
+            if (removed.isbnKey != Isbn.INVALID_KEY) {
+                booksByIsbnKey.remove(removed.isbnKey);
+            }
+        }
+    }
+
+    private void addToIndexes(Entry entry) {
+        String isbn = entry.id;
+        if (entry.author != null) {
+            byAuthor.computeIfAbsent(entry.author, k -> ConcurrentHashMap.newKeySet()).add(isbn);
+        }
+        if (entry.genre != null) {
+            byGenre.computeIfAbsent(entry.genre, k -> ConcurrentHashMap.newKeySet()).add(isbn);
+        }
+        byYear.computeIfAbsent(entry.year, k -> new ConcurrentSkipListSet<>()).add(isbn);
+        byTotalCopies.computeIfAbsent(entry.totalCopies, k -> new ConcurrentSkipListSet<>()).add(isbn);
+        byAvailableCopies.computeIfAbsent(entry.availableCopies, k -> new ConcurrentSkipListSet<>()).add(isbn);
+    }
+
+    private void removeFromIndexes(Entry entry) {
+        String isbn = entry.id;
+        removeFromIndex(byAuthor, entry.author, isbn);
+        removeFromIndex(byGenre, entry.genre, isbn);
+        removeFromIndex(byYear, entry.year, isbn);
+        removeFromIndex(byTotalCopies, entry.totalCopies, isbn);
+        removeFromIndex(byAvailableCopies, entry.availableCopies, isbn);
+    }
+
+    private NavigableMap<Integer, Set<String>> indexFor(RangeField field) {
+        switch (field) {
+            case PUBLICATION_YEAR:
+                return byYear;
+            case TOTAL_COPIES:
+                return byTotalCopies;
+            default:
+                return byAvailableCopies;
+        }
+    }
+
+    private static <K> void removeFromIndex(Map<K, Set<String>> index, K key, String isbn) {
+        if (key == null) {
+            return;
+        }
+        Set<String> isbns = index.get(key);
+        if (isbns != null) {
+            isbns.remove(isbn);
+            if (isbns.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private List<Book> resolve(Set<String> isbns) {
+        if (isbns == null || isbns.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Book> result = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            Entry entry = books.get(isbn);
+            if (entry != null) {
+                result.add(entry.book);
+            }
+        }
+        return result;
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void validateBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null.");
+        }
+    }
+
+    /**
+     * A stored book together with the keys it was filed under. Book is mutable, so the
+     * keys are captured at write time to be able to remove them again later.
+     */
+    private static final class Entry {
+        private final Book book;
+        private final String id;
+        private final long isbnKey;
+        private final String author;
+        private final String genre;
+        private final int year;
+        private final int totalCopies;
+        private final int availableCopies;
+
+        private Entry(Book book) {
+            this.book = book;
+            this.isbnKey = book.getIsbnKey();
+            this.id = Isbn.canonical(book.getIsbn());
+            this.author = normalize(book.getAuthor());
+            this.genre = normalize(book.getGenre());
+            this.year = book.getPublicationYear();
+            this.totalCopies = book.getTotalCopies();
+            this.availableCopies = book.getAvailableCopies();
+        }
+    }
+}
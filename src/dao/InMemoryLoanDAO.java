@@ -0,0 +1,334 @@
+package dao;
+
+import model.Book;
+import model.Isbn;
+import model.Loan;
+import model.Patron;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * InMemoryLoanDAO is a thread-safe, in-memory implementation of {@link LoanDAO}.
+ * Loans are keyed on {@link Loan#getLoanId()}. A per-ISBN set of active (not yet
+ * returned) loan IDs and a per-patron set of loan IDs are maintained incrementally on
+ * every write, so {@link #isBookCheckedOut(Book)} and {@link #isBookAvailable(Book)} are O(1),
+ * {@link #findActiveLoansByIsbn(String)} is O(k) in the copies on loan, and
+ * {@link #findLoansByPatron(Patron)} is O(k) in the patron's own loans, independent
+ * of the total loan history.
+ */
+public class InMemoryLoanDAO implements LoanDAO {
+
+    private final Map<String, Entry> loans = new ConcurrentHashMap<>();
+    private final NavigableSet<String> loanIdOrder = new ConcurrentSkipListSet<>();
+    private final Map<String, Set<String>> activeLoansByIsbn = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> loansByPatron = new ConcurrentHashMap<>();
+    private final Map<String, Queue<Patron>> reservationsByIsbn = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    /**
+     * Saves a new loan.
+     * @param record The loan to save.
+     * @throws IllegalArgumentException if the loan is null or a loan with the same ID already exists.
+     */
+    @Override
+    public void save(Loan record) {
+        validateLoan(record);
+        synchronized (writeLock) {
+            String loanId = record.getLoanId();
+            if (loans.containsKey(loanId)) {
+                throw new IllegalArgumentException("Loan with ID " + loanId + " already exists.");
+            }
+            Entry entry = new Entry(record);
+            loans.put(loanId, entry);
+            loanIdOrder.add(loanId);
+            addToIndexes(entry);
+        }
+    }
+
+    /**
+     * Deletes a loan by its ID. Deleting an unknown ID has no effect.
+     * @param recordId The ID of the loan to delete.
+     */
+    @Override
+    public void delete(String recordId) {
+        if (recordId == null) {
+            return;
+        }
+        synchronized (writeLock) {
+            Entry removed = loans.remove(recordId);
+            if (removed != null) {
+                removeFromIndexes(removed);
+                loanIdOrder.remove(recordId);
+            }
+        }
+    }
+
+    /**
+     * Updates an existing loan, e.g. after its return date was set.
+     * @param record The updated loan.
+     * @throws IllegalArgumentException if the loan is null or does not exist.
+     */
+    @Override
+    public void update(Loan record) {
+        validateLoan(record);
+        synchronized (writeLock) {
+            String loanId = record.getLoanId();
+            Entry previous = loans.get(loanId);
+            if (previous == null) {
+                throw new IllegalArgumentException("Loan with ID " + loanId + " does not exist.");
+            }
+            Entry entry = new Entry(record);
+            removeFromIndexes(previous);
+            loans.put(loanId, entry);
+            addToIndexes(entry);
+        }
+    }
+
+    /**
+     * Saves a batch of new loans under a single write lock. Either every loan is saved
+     * or, if any loan ID already exists, none is.
+     * @param batch The loans to save.
+     */
+    @Override
+    public void saveAll(Collection<Loan> batch) {
+        BulkOperations.validateBatch(batch, Loan::getLoanId, "Loan");
+        synchronized (writeLock) {
+            for (Loan loan : batch) {
+                if (loans.containsKey(loan.getLoanId())) {
+                    throw new IllegalArgumentException("Loan with ID " + loan.getLoanId() + " already exists.");
+                }
+            }
+            for (Loan loan : batch) {
+                Entry entry = new Entry(loan);
+                loans.put(entry.loanId, entry);
+                loanIdOrder.add(entry.loanId);
+                addToIndexes(entry);
+            }
+        }
+    }
+
+    /**
+     * Updates a batch of existing loans under a single write lock. Either every loan is
+     * updated or, if any loan ID is unknown, none is.
+     * @param batch The updated loans.
+     */
+    @Override
+    public void updateAll(Collection<Loan> batch) {
+        BulkOperations.validateBatch(batch, Loan::getLoanId, "Loan");
+        synchronized (writeLock) {
+            for (Loan loan : batch) {
+                if (!loans.containsKey(loan.getLoanId())) {
+                    throw new IllegalArgumentException("Loan with ID " + loan.getLoanId() + " does not exist.");
+                }
+            }
+            for (Loan loan : batch) {
+                Entry entry = new Entry(loan);
+                removeFromIndexes(loans.get(entry.loanId));
+                loans.put(entry.loanId, entry);
+                addToIndexes(entry);
+            }
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> recordIds) {
+        BulkOperations.validateIds(recordIds, "Loan");
+        synchronized (writeLock) {
+            for (String recordId : recordIds) {
+                Entry removed = loans.remove(recordId);
+                if (removed != null) {
+                    removeFromIndexes(removed);
+                    loanIdOrder.remove(recordId);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Optional<Loan> findById(String recordId) {
+        if (recordId == null) {
+            return Optional.empty();
+        }
+        Entry entry = loans.get(recordId);
+        return entry == null ? Optional.empty() : Optional.of(entry.loan);
+    }
+
+    @Override
+    public List<Loan> findAll() {
+        List<Loan> result = new ArrayList<>(loans.size());
+        for (Entry entry : loans.values()) {
+            result.add(entry.loan);
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Loan> streamAll() {
+        return loans.values().stream().map(entry -> entry.loan);
+    }
+
+    /**
+     * Returns the next page of loans in loan-ID order, read from a sorted ID index.
+     */
+    @Override
+    public List<Loan> findPage(String afterId, int limit) {
+        Paging.validateLimit(limit);
+        Iterable<String> loanIds = afterId == null ? loanIdOrder : loanIdOrder.tailSet(afterId, false);
+        List<Loan> page = new ArrayList<>(Math.min(limit, 1024));
+        for (String loanId : loanIds) {
+            Entry entry = loans.get(loanId);
+            if (entry != null) {
+                page.add(entry.loan);
+                if (page.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return page;
+    }
+
+    @Override
+    public boolean isBookCheckedOut(Book book) {
+        return book != null && countActiveLoans(book.getIsbn()) > 0;
+    }
+
+    @Override
+    public int countActiveLoans(Book book) {
+        return book == null ? 0 : countActiveLoans(book.getIsbn());
+    }
+
+    /**
+     * Returns the active loans of a title from the per-ISBN index; see {@link LoanDAO#findActiveLoansByIsbn(String)}.
+     */
+    @Override
+    public List<Loan> findActiveLoansByIsbn(String isbn) {
+        Set<String> loanIds = isbn == null ? null : activeLoansByIsbn.get(Isbn.canonical(isbn));
+        if (loanIds == null) {
+            return new ArrayList<>();
+        }
+        List<Loan> result = new ArrayList<>(loanIds.size());
+        for (String loanId : loanIds) {
+            Entry entry = loans.get(loanId);
+            if (entry != null && entry.active) {
+                result.add(entry.loan);
+            }
+        }
+        result.sort(ACTIVE_LOAN_ORDER);
+        return result;
+    }
+
+    @Override
+    public List<Loan> findLoansByPatron(Patron patron) {
+        if (patron == null) {
+            return Collections.emptyList();
+        }
+        Set<String> loanIds = loansByPatron.get(patron.getPatronId());
+        if (loanIds == null) {
+            return Collections.emptyList();
+        }
+        List<Loan> result = new ArrayList<>(loanIds.size());
+        for (String loanId : loanIds) {
+            Entry entry = loans.get(loanId);
+            if (entry != null) {
+                result.add(entry.loan);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void reserveBook(Book book, Patron patron) {
+        if (book == null || patron == null) {
+            throw new IllegalArgumentException("Book and Patron cannot be null.");
+        }
+        reservationsByIsbn.computeIfAbsent(book.getIsbn(), k -> new ConcurrentLinkedQueue<>()).add(patron);
+    }
+
+    /**
+     * Returns the patrons waiting for a book, in the order they reserved it.
+     * @param book The reserved book.
+     * @return The waiting patrons, or an empty list.
+     */
+    public List<Patron> findReservations(Book book) {
+        Queue<Patron> queue = book == null ? null : reservationsByIsbn.get(book.getIsbn());
+        return queue == null ? Collections.emptyList() : new ArrayList<>(queue);
+    }
+
+    /**
+     * Returns the number of loans for the given ISBN that have not been returned yet.
+     * @param isbn The ISBN to look up, in any notation.
+     * @return The number of active loans.
+     */
+    public int countActiveLoans(String isbn) {
+        if (isbn == null) {
+            return 0;
+        }
+        Set<String> loanIds = activeLoansByIsbn.get(Isbn.canonical(isbn));
+        return loanIds == null ? 0 : loanIds.size();
+    }
+
+    // Index maintenance; callers must hold writeLock.
+    private void addToIndexes(Entry entry) {
+        if (entry.active) {
+            activeLoansByIsbn.computeIfAbsent(entry.isbn, k -> ConcurrentHashMap.newKeySet()).add(entry.loanId);
+        }
+        loansByPatron.computeIfAbsent(entry.patronId, k -> ConcurrentHashMap.newKeySet()).add(entry.loanId);
+    }
+
+    private void removeFromIndexes(Entry entry) {
+        if (entry.active) {
+            Set<String> active = activeLoansByIsbn.get(entry.isbn);
+            if (active != null) {
+                active.remove(entry.loanId);
+                if (active.isEmpty()) {
+                    activeLoansByIsbn.remove(entry.isbn);
+                }
+            }
+        }
+        Set<String> loanIds = loansByPatron.get(entry.patronId);
+        if (loanIds != null) {
+            loanIds.remove(entry.loanId);
+            if (loanIds.isEmpty()) {
+                loansByPatron.remove(entry.patronId);
+            }
+        }
+    }
+
+    private void validateLoan(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("Loan cannot be null.");
+        }
+    }
+
+    /**
+     * A stored loan together with the index keys and state it was filed under,
+     * captured at write time because Loan, Book and Patron are mutable.
+     */
+    private static final class Entry {
+        private final Loan loan;
+        private final String loanId;
+        private final String isbn;
+        private final String patronId;
+        private final boolean active;
+
+        private Entry(Loan loan) {
+            this.loan = loan;
+            this.loanId = loan.getLoanId();
+            this.isbn = Isbn.canonical(loan.getBook().getIsbn());
+            this.patronId = loan.getPatron().getPatronId();
+            this.active = loan.getReturnDate() == null;
+        }
+    }
+}
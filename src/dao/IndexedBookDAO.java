@@ -0,0 +1,36 @@
+package dao;
+
+import model.Book;
+
+import java.util.List;
+
+/**
+ * IndexedBookDAO is implemented by book DAOs with secondary indexes on author, genre
+ * and publication year. Query planners reach it through {@link BookDAO#indexes()},
+ * which decorators forward to the DAO they wrap, so wrapping an indexed DAO in a
+ * cache or an observer keeps its indexes usable.
+ */
+public interface IndexedBookDAO {
+
+    /**
+     * Finds all books by the given author (case-insensitive).
+     * @param author The author to look up.
+     * @return The matching books, or an empty list.
+     */
+    List<Book> findByAuthor(String author);
+
+    /**
+     * Finds all books in the given genre (case-insensitive).
+     * @param genre The genre to look up.
+     * @return The matching books, or an empty list.
+     */
+    List<Book> findByGenre(String genre);
+
+    /**
+     * Finds the books published between two years, inclusive, oldest first.
+     * @param fromYear The first year.
+     * @param toYear   The last year.
+     * @return The matching books, or an empty list.
+     */
+    List<Book> findByPublicationYearBetween(int fromYear, int toYear);
+}
@@ -1,27 +1,72 @@
 package dao;
 
-
 import model.Book;
 import model.Inventory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * InventoryDAO defines the interface for accessing and managing inventory data.
  */
 public interface InventoryDAO {
 
+    /**
+     * Sets the total and available copies of a stored book.
+     * @param inventory The new copy counts and the ISBN of the book.
+     * @throws IllegalArgumentException if the inventory is null or the book does not exist.
+     */
     void updateInventory(Inventory inventory);
 
+    /**
+     * Finds the copy counts of a book.
+     * @param bookId The ISBN of the book.
+     * @return An Optional containing the inventory, or empty if the book is not found.
+     */
     Optional<Inventory> findInventoryByBookId(String bookId);
 
+    /**
+     * Saves a new book together with its copy counts.
+     * @param book The book to save.
+     */
     void save(Book book);
 
+    /**
+     * Deletes a book and its copy counts by ISBN.
+     * @param isbn The ISBN of the book to delete.
+     */
     void delete(String isbn);
 
+    /**
+     * Updates an existing book and its copy counts.
+     * @param book The updated book.
+     */
     void update(Book book);
 
+    /**
+     * Retrieves all books with their copy counts.
+     * @return A list of all books.
+     */
     List<Book> findAll();
-}
 
+    /**
+     * Streams all books without first collecting them into a list. The stream may
+     * hold resources such as a database cursor, so callers should close it, e.g. with
+     * try-with-resources.
+     * @return A stream of all books.
+     */
+    default Stream<Book> streamAll() {
+        return findAll().stream();
+    }
+
+    /**
+     * Returns the next page of books ordered by ISBN (keyset pagination).
+     * @param afterId The last ISBN of the previous page, or null for the first page.
+     * @param limit   The maximum number of books to return (> 0).
+     * @return Up to {@code limit} books whose ISBN sorts after {@code afterId}.
+     */
+    default List<Book> findPage(String afterId, int limit) {
+        return Paging.page(streamAll(), Book::getIsbn, afterId, limit);
+    }
+}
@@ -0,0 +1,93 @@
+package dao;
+
+import model.Book;
+import model.Loan;
+import model.Patron;
+import model.PatronType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * LoanCodec writes and reads the compact binary form of a {@link Loan} used by the
+ * file-backed loan store. The loan is stored together with the book and patron
+ * fields needed to rebuild it; copy counts and patron fees are not part of a loan
+ * record and are not restored.
+ *
+ * The byte after the dates holds flags for the optional fields that follow it. Records
+ * written before loans had a sequence stored 0 or 1 there, so they read as before.
+ */
+final class LoanCodec {
+
+    private static final int HAS_RETURN_DATE = 1;
+    private static final int HAS_SEQUENCE = 2;
+
+    private LoanCodec() {
+    }
+
+    static void write(DataOutput out, Loan loan) throws IOException {
+        Book book = loan.getBook();
+        out.writeUTF(book.getTitle());
+        out.writeUTF(book.getAuthor());
+        writeNullable(out, book.getGenre());
+        out.writeUTF(book.getIsbn());
+        out.writeInt(book.getPublicationYear());
+        out.writeInt(book.getTotalCopies());
+
+        Patron patron = loan.getPatron();
+        out.writeUTF(patron.getName());
+        out.writeUTF(patron.getPatronId());
+        out.writeByte(patron.getMembershipType().ordinal());
+
+        out.writeLong(loan.getLoanDate().toEpochDay());
+        out.writeLong(loan.getDueDate().toEpochDay());
+        LocalDate returnDate = loan.getReturnDate();
+        int flags = (returnDate != null ? HAS_RETURN_DATE : 0) | (loan.getSequence() != 0 ? HAS_SEQUENCE : 0);
+        out.writeByte(flags);
+        if (returnDate != null) {
+            out.writeLong(returnDate.toEpochDay());
+        }
+        if (loan.getSequence() != 0) {
+            out.writeInt(loan.getSequence());
+        }
+    }
+
+    static Loan read(DataInput in) throws IOException {
+        String title = in.readUTF();
+        String author = in.readUTF();
+        String genre = readNullable(in);
+        String isbn = in.readUTF();
+        int publicationYear = in.readInt();
+        int totalCopies = in.readInt();
+        Book book = new Book(title, author, genre, isbn, publicationYear, totalCopies);
+
+        String name = in.readUTF();
+        String patronId = in.readUTF();
+        PatronType membershipType = PatronType.values()[in.readByte()];
+        Patron patron = new Patron(name, patronId, membershipType);
+
+        LocalDate loanDate = LocalDate.ofEpochDay(in.readLong());
+        LocalDate dueDate = LocalDate.ofEpochDay(in.readLong());
+        int flags = in.readByte();
+        LocalDate returnDate = (flags & HAS_RETURN_DATE) != 0 ? LocalDate.ofEpochDay(in.readLong()) : null;
+        int sequence = (flags & HAS_SEQUENCE) != 0 ? in.readInt() : 0;
+        Loan loan = new Loan(book, patron, loanDate, dueDate, sequence);
+        if (returnDate != null) {
+            loan.setReturnDate(returnDate);
+        }
+        return loan;
+    }
+
+    private static void writeNullable(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
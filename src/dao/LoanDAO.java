@@ -1,30 +1,189 @@
 package dao;
 
 import model.Book;
+import model.Isbn;
 import model.Loan;
 import model.Patron;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
- * LendingDAO defines the interface for managing lending records.
+ * LoanDAO defines the interface for managing lending records.
  */
 public interface LoanDAO {
 
+    /**
+     * The order of {@link #findActiveLoansByIsbn(String)}: by due date, then loan ID, so
+     * the copy that has been out longest comes first.
+     */
+    Comparator<Loan> ACTIVE_LOAN_ORDER = Comparator.comparing(Loan::getDueDate).thenComparing(Loan::getLoanId);
+
+    /**
+     * Saves a new loan to the data source.
+     * @param record The loan to save.
+     * @throws IllegalArgumentException if a loan with the same ID already exists.
+     */
     void save(Loan record);
 
+    /**
+     * Deletes a loan from the data source by its ID.
+     * @param recordId The ID of the loan to delete.
+     */
     void delete(String recordId);
 
+    /**
+     * Updates an existing loan in the data source, e.g. to record its return.
+     * @param record The updated loan.
+     * @throws IllegalArgumentException if no loan with the same ID exists.
+     */
     void update(Loan record);
 
+    /**
+     * Finds a loan by its ID.
+     * @param recordId The ID of the loan to find, see {@link Loan#getLoanId()}.
+     * @return An Optional containing the found loan, or empty if not found.
+     */
     Optional<Loan> findById(String recordId);
 
+    /**
+     * Retrieves all loans, returned or not, from the data source.
+     * @return A list of all loans.
+     */
     List<Loan> findAll();
 
+    /**
+     * Returns whether any copy of a book is on loan.
+     * @param book The book.
+     * @return True if the book has a loan without a return date.
+     */
     boolean isBookCheckedOut(Book book);
 
+    /**
+     * Returns the number of copies of a book that are on loan, i.e. its loans without a
+     * return date, matching the ISBN in any notation. The default scans all loans;
+     * implementations should answer from an index.
+     * @param book The book.
+     * @return The number of active loans, or 0 if the book is null.
+     */
+    default int countActiveLoans(Book book) {
+        if (book == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Loan loan : findAll()) {
+            if (loan.getReturnDate() == null && Isbn.same(book.getIsbn(), loan.getBook().getIsbn())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether a copy of a book can be lent, i.e. fewer of its copies are on loan
+     * than the library owns.
+     * @param book The book.
+     * @return True if a copy is available, false if not or if the book is null.
+     */
+    default boolean isBookAvailable(Book book) {
+        return book != null && countActiveLoans(book) < book.getTotalCopies();
+    }
+
+    /**
+     * Returns the active loans of a title, e.g. to resolve a scanned ISBN to the loan it
+     * ends. The ISBN may be given in any notation. Loans are ordered by due date, then
+     * loan ID, so the copy that has been out longest comes first. The default scans all
+     * loans; implementations should answer from an index.
+     * @param isbn The scanned ISBN.
+     * @return The active loans, or an empty list.
+     */
+    default List<Loan> findActiveLoansByIsbn(String isbn) {
+        List<Loan> result = new ArrayList<>();
+        if (isbn == null) {
+            return result;
+        }
+        for (Loan loan : findAll()) {
+            if (loan.getReturnDate() == null && Isbn.same(isbn, loan.getBook().getIsbn())) {
+                result.add(loan);
+            }
+        }
+        result.sort(ACTIVE_LOAN_ORDER);
+        return result;
+    }
+
+    /**
+     * Finds the loans of a patron, returned or not.
+     * @param patron The patron.
+     * @return The patron's loans, or an empty list.
+     */
     List<Loan> findLoansByPatron(Patron patron);
 
+    /**
+     * Records a patron's reservation of a book.
+     * @param book   The reserved book.
+     * @param patron The patron reserving it.
+     * @throws IllegalArgumentException if the book or patron is null.
+     */
     void reserveBook(Book book, Patron patron);
+
+    /**
+     * Saves several new loans as one batch. The whole batch is validated before
+     * anything is written; implementations may apply it with a single write.
+     * @param loans The loans to save.
+     * @throws IllegalArgumentException if the batch is null, contains nulls or duplicate IDs.
+     */
+    default void saveAll(Collection<Loan> loans) {
+        BulkOperations.validateBatch(loans, Loan::getLoanId, "Loan");
+        for (Loan loan : loans) {
+            save(loan);
+        }
+    }
+
+    /**
+     * Updates several existing loans as one batch.
+     * @param loans The updated loans.
+     * @throws IllegalArgumentException if the batch is null, contains nulls or duplicate IDs.
+     */
+    default void updateAll(Collection<Loan> loans) {
+        BulkOperations.validateBatch(loans, Loan::getLoanId, "Loan");
+        for (Loan loan : loans) {
+            update(loan);
+        }
+    }
+
+    /**
+     * Deletes several loans by ID as one batch.
+     * @param recordIds The IDs of the loans to delete.
+     * @throws IllegalArgumentException if the batch is null or contains nulls.
+     */
+    default void deleteAll(Collection<String> recordIds) {
+        BulkOperations.validateIds(recordIds, "Loan");
+        for (String recordId : recordIds) {
+            delete(recordId);
+        }
+    }
+
+    /**
+     * Streams all loans without first collecting them into a list. The stream may
+     * hold resources such as a database cursor, so callers should close it, e.g. with
+     * try-with-resources.
+     * @return A stream of all loans.
+     */
+    default Stream<Loan> streamAll() {
+        return findAll().stream();
+    }
+
+    /**
+     * Returns the next page of loans ordered by loan ID (keyset pagination).
+     * @param afterId The last loan ID of the previous page, or null for the first page.
+     * @param limit   The maximum number of loans to return (> 0).
+     * @return Up to {@code limit} loans whose ID sorts after {@code afterId}.
+     */
+    default List<Loan> findPage(String afterId, int limit) {
+        return Paging.page(streamAll(), Loan::getLoanId, afterId, limit);
+    }
 }
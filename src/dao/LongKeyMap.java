@@ -0,0 +1,199 @@
+package dao;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * LongKeyMap is a hash map from primitive {@code long} keys to values, using open
+ * addressing with linear probing over parallel arrays. Lookups neither box the key nor
+ * hash a string, which makes it suitable for numeric keys such as {@link model.Isbn}
+ * keys.
+ *
+ * Writes are exclusive. Reads are optimistic: they run without locking and are retried
+ * under a read lock only if a write happened concurrently.
+ *
+ * @param <V> The value type.
+ */
+public final class LongKeyMap<V> {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    public LongKeyMap() {
+        this(16);
+    }
+
+    /**
+     * Creates a map sized for the expected number of keys.
+     * @param expectedSize The expected number of keys (>= 0).
+     */
+    public LongKeyMap(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative.");
+        }
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new Object[capacity];
+    }
+
+    /**
+     * Returns the value for a key.
+     * @param key The key.
+     * @return The value, or null if the key is not present.
+     */
+    public V get(long key) {
+        long stamp = lock.tryOptimisticRead();
+        V value = find(keys, values, key);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(keys, values, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Associates a value with a key.
+     * @param key   The key (not {@link Long#MIN_VALUE}).
+     * @param value The value (non-null).
+     * @return The previous value, or null.
+     */
+    public V put(long key, V value) {
+        if (key == EMPTY || value == null) {
+            throw new IllegalArgumentException("Key cannot be Long.MIN_VALUE and value cannot be null.");
+        }
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    V previous = valueAt(values, slot);
+                    values[slot] = value;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a key.
+     * @param key The key.
+     * @return The removed value, or null if the key was not present.
+     */
+    public V remove(long key) {
+        long stamp = lock.writeLock();
+        try {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY) {
+                if (keys[slot] == key) {
+                    V removed = valueAt(values, slot);
+                    deleteSlot(slot);
+                    size--;
+                    return removed;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Tolerates a torn view of the arrays during an optimistic read; the caller validates.
+    private static <V> V find(long[] keys, Object[] values, long key) {
+        if (keys.length != values.length) {
+            return null;
+        }
+        int mask = keys.length - 1;
+        int slot = mix(key) & mask;
+        for (int probes = 0; probes < keys.length; probes++) {
+            long current = keys[slot];
+            if (current == key) {
+                return valueAt(values, slot);
+            }
+            if (current == EMPTY) {
+                return null;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    // Backward-shift deletion keeps probe sequences intact without tombstones.
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        long[] newKeys = new long[capacity];
+        Arrays.fill(newKeys, EMPTY);
+        Object[] newValues = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (newKeys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                newKeys[slot] = oldKeys[i];
+                newValues[slot] = oldValues[i];
+            }
+        }
+        keys = newKeys;
+        values = newValues;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V valueAt(Object[] values, int slot) {
+        return (V) values[slot];
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,479 @@
+package dao;
+
+import model.Book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * MappedBookDAO is a {@link BookDAO} backed by a memory-mapped file of fixed-width
+ * book records. The catalog lives in the OS page cache rather than on the Java heap:
+ * only an ISBN-to-slot index is kept in memory, {@link #findById(String)} decodes a
+ * single mapped record, and updates are written in place.
+ *
+ * The file is mapped in fixed-size segments, so catalogs larger than 2 GB are
+ * supported and the file grows one segment at a time. Slot 0 holds the file header.
+ * Deleted slots are reused by later saves. Text fields are stored as UTF-8 and
+ * rejected if they do not fit their column.
+ */
+public class MappedBookDAO implements BookDAO, Closeable {
+
+    public static final int MAX_ISBN_BYTES = 32;
+    public static final int MAX_TITLE_BYTES = 256;
+    public static final int MAX_AUTHOR_BYTES = 128;
+    public static final int MAX_GENRE_BYTES = 64;
+
+    private static final int MAGIC = 0x424B5331;
+    private static final int RECORD_SIZE = 512;
+    private static final int SLOTS_PER_SEGMENT = 1 << 17; // 64 MB per mapped segment
+    private static final long SEGMENT_BYTES = (long) SLOTS_PER_SEGMENT * RECORD_SIZE;
+
+    private static final byte STATUS_LIVE = 1;
+    private static final byte STATUS_DELETED = 2;
+
+    // Record layout: status, then length-prefixed text columns, then the numeric columns.
+    private static final int STATUS_OFFSET = 0;
+    private static final int ISBN_OFFSET = 1;
+    private static final int TITLE_OFFSET = ISBN_OFFSET + 2 + MAX_ISBN_BYTES;
+    private static final int AUTHOR_OFFSET = TITLE_OFFSET + 2 + MAX_TITLE_BYTES;
+    private static final int GENRE_OFFSET = AUTHOR_OFFSET + 2 + MAX_AUTHOR_BYTES;
+    private static final int YEAR_OFFSET = GENRE_OFFSET + 2 + MAX_GENRE_BYTES;
+    private static final int TOTAL_COPIES_OFFSET = YEAR_OFFSET + 4;
+    private static final int AVAILABLE_COPIES_OFFSET = TOTAL_COPIES_OFFSET + 4;
+
+    // Header layout in slot 0.
+    private static final int HEADER_MAGIC_OFFSET = 0;
+    private static final int HEADER_RECORD_SIZE_OFFSET = 4;
+    private static final int HEADER_SLOT_COUNT_OFFSET = 8;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final Map<String, Integer> slotsByIsbn = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int slotCount;
+
+    /**
+     * Opens (or creates) a catalog file and maps it.
+     * @param file The catalog file.
+     */
+    public MappedBookDAO(Path file) {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null.");
+        }
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean created = channel.size() == 0;
+            mapSegment(0);
+            MappedByteBuffer header = segments.get(0);
+            if (created) {
+                header.putInt(HEADER_MAGIC_OFFSET, MAGIC);
+                header.putInt(HEADER_RECORD_SIZE_OFFSET, RECORD_SIZE);
+                header.putInt(HEADER_SLOT_COUNT_OFFSET, 1);
+            } else if (header.getInt(HEADER_MAGIC_OFFSET) != MAGIC
+                    || header.getInt(HEADER_RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                throw new IllegalStateException("Unrecognized catalog file " + file);
+            }
+            slotCount = header.getInt(HEADER_SLOT_COUNT_OFFSET);
+            while ((long) segments.size() * SLOTS_PER_SEGMENT < slotCount) {
+                mapSegment(segments.size());
+            }
+            loadIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open catalog file " + file, e);
+        }
+    }
+
+    /**
+     * Saves a new book into a free slot.
+     * @param book The book to save.
+     * @throws IllegalArgumentException if the book is null, too large for a record, or already exists.
+     */
+    @Override
+    public void save(Book book) {
+        validateBook(book);
+        lock.writeLock().lock();
+        try {
+            if (slotsByIsbn.containsKey(book.getIsbn())) {
+                throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " already exists.");
+            }
+            int slot = allocateSlot();
+            writeRecord(slot, book);
+            slotsByIsbn.put(book.getIsbn(), slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes a book by its ISBN and frees its slot. Deleting an unknown ISBN has no effect.
+     * @param bookId The ISBN of the book to delete.
+     */
+    @Override
+    public void delete(String bookId) {
+        if (bookId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsByIsbn.remove(bookId);
+            if (slot != null) {
+                segmentFor(slot).put(positionOf(slot) + STATUS_OFFSET, STATUS_DELETED);
+                freeSlots.push(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites an existing book's record in place.
+     * @param book The updated book.
+     * @throws IllegalArgumentException if the book is null, too large for a record, or does not exist.
+     */
+    @Override
+    public void update(Book book) {
+        validateBook(book);
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotsByIsbn.get(book.getIsbn());
+            if (slot == null) {
+                throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " does not exist.");
+            }
+            writeRecord(slot, book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves a batch of new books under a single write lock. Either every book is saved
+     * or, if any book is invalid or already exists, none is.
+     * @param batch The books to save.
+     */
+    @Override
+    public void saveAll(Collection<Book> batch) {
+        BulkOperations.validateBatch(batch, Book::getIsbn, "Book");
+        for (Book book : batch) {
+            validateBook(book);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Book book : batch) {
+                if (slotsByIsbn.containsKey(book.getIsbn())) {
+                    throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " already exists.");
+                }
+            }
+            for (Book book : batch) {
+                int slot = allocateSlot();
+                writeRecord(slot, book);
+                slotsByIsbn.put(book.getIsbn(), slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites a batch of existing books in place under a single write lock. Either every
+     * book is updated or, if any book is invalid or unknown, none is.
+     * @param batch The updated books.
+     */
+    @Override
+    public void updateAll(Collection<Book> batch) {
+        BulkOperations.validateBatch(batch, Book::getIsbn, "Book");
+        for (Book book : batch) {
+            validateBook(book);
+        }
+        lock.writeLock().lock();
+        try {
+            for (Book book : batch) {
+                if (!slotsByIsbn.containsKey(book.getIsbn())) {
+                    throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " does not exist.");
+                }
+            }
+            for (Book book : batch) {
+                writeRecord(slotsByIsbn.get(book.getIsbn()), book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> bookIds) {
+        BulkOperations.validateIds(bookIds, "Book");
+        lock.writeLock().lock();
+        try {
+            for (String bookId : bookIds) {
+                Integer slot = slotsByIsbn.remove(bookId);
+                if (slot != null) {
+                    segmentFor(slot).put(positionOf(slot) + STATUS_OFFSET, STATUS_DELETED);
+                    freeSlots.push(slot);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Book> findById(String bookId) {
+        if (bookId == null) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            Integer slot = slotsByIsbn.get(bookId);
+            return slot == null ? Optional.empty() : Optional.of(readRecord(slot));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Book> findAll() {
+        lock.readLock().lock();
+        try {
+            List<Book> result = new ArrayList<>(slotsByIsbn.size());
+            for (int slot = 1; slot < slotCount; slot++) {
+                if (segmentFor(slot).get(positionOf(slot) + STATUS_OFFSET) == STATUS_LIVE) {
+                    result.add(readRecord(slot));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Streams the catalog by decoding one mapped record at a time, so the whole catalog
+     * is never materialized. Books saved while the stream is open may or may not be seen.
+     */
+    @Override
+    public Stream<Book> streamAll() {
+        int end;
+        lock.readLock().lock();
+        try {
+            end = slotCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+        return IntStream.range(1, end).mapToObj(this::readIfLive).filter(Objects::nonNull);
+    }
+
+    /**
+     * Overwrites only the available-copies column of a book's record.
+     * @param bookId          The ISBN of the book.
+     * @param availableCopies The new number of available copies (0..totalCopies).
+     * @throws IllegalArgumentException if the book does not exist or the count is out of range.
+     */
+    public void updateAvailableCopies(String bookId, int availableCopies) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = bookId == null ? null : slotsByIsbn.get(bookId);
+            if (slot == null) {
+                throw new IllegalArgumentException("Book with ID " + bookId + " does not exist.");
+            }
+            MappedByteBuffer segment = segmentFor(slot);
+            int position = positionOf(slot);
+            int totalCopies = segment.getInt(position + TOTAL_COPIES_OFFSET);
+            if (availableCopies < 0 || availableCopies > totalCopies) {
+                throw new IllegalArgumentException("Available Copies must be between 0 and " + totalCopies + ".");
+            }
+            segment.putInt(position + AVAILABLE_COPIES_OFFSET, availableCopies);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of books currently stored.
+     * @return The number of books.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotsByIsbn.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes all modified pages of the catalog file to disk.
+     */
+    public void force() {
+        lock.readLock().lock();
+        try {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes the catalog and closes the file. The mappings are released once they
+     * become unreachable.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            segments.clear();
+            slotsByIsbn.clear();
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not close catalog file.", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ---- Slot management -----------------------------------------------------
+
+    private Book readIfLive(int slot) {
+        lock.readLock().lock();
+        try {
+            if (slot >= slotCount || segmentFor(slot).get(positionOf(slot) + STATUS_OFFSET) != STATUS_LIVE) {
+                return null;
+            }
+            return readRecord(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void loadIndex() {
+        for (int slot = 1; slot < slotCount; slot++) {
+            MappedByteBuffer segment = segmentFor(slot);
+            int position = positionOf(slot);
+            byte status = segment.get(position + STATUS_OFFSET);
+            if (status == STATUS_LIVE) {
+                slotsByIsbn.put(readString(segment, position + ISBN_OFFSET), slot);
+            } else {
+                freeSlots.push(slot);
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (!freeSlots.isEmpty()) {
+            return freeSlots.pop();
+        }
+        int slot = slotCount;
+        if (slot / SLOTS_PER_SEGMENT >= segments.size()) {
+            try {
+                mapSegment(segments.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not grow catalog file.", e);
+            }
+        }
+        slotCount++;
+        segments.get(0).putInt(HEADER_SLOT_COUNT_OFFSET, slotCount);
+        return slot;
+    }
+
+    private void mapSegment(int index) throws IOException {
+        segments.add(channel.map(FileChannel.MapMode.READ_WRITE, index * SEGMENT_BYTES, SEGMENT_BYTES));
+    }
+
+    private MappedByteBuffer segmentFor(int slot) {
+        return segments.get(slot / SLOTS_PER_SEGMENT);
+    }
+
+    private static int positionOf(int slot) {
+        return (slot % SLOTS_PER_SEGMENT) * RECORD_SIZE;
+    }
+
+    // ---- Record encoding -----------------------------------------------------
+
+    private void writeRecord(int slot, Book book) {
+        MappedByteBuffer segment = segmentFor(slot);
+        int position = positionOf(slot);
+        writeString(segment, position + ISBN_OFFSET, book.getIsbn());
+        writeString(segment, position + TITLE_OFFSET, book.getTitle());
+        writeString(segment, position + AUTHOR_OFFSET, book.getAuthor());
+        writeString(segment, position + GENRE_OFFSET, book.getGenre());
+        segment.putInt(position + YEAR_OFFSET, book.getPublicationYear());
+        segment.putInt(position + TOTAL_COPIES_OFFSET, book.getTotalCopies());
+        segment.putInt(position + AVAILABLE_COPIES_OFFSET, book.getAvailableCopies());
+        // The status byte is written last so a newly allocated slot only becomes live once complete.
+        segment.put(position + STATUS_OFFSET, STATUS_LIVE);
+    }
+
+    private Book readRecord(int slot) {
+        MappedByteBuffer segment = segmentFor(slot);
+        int position = positionOf(slot);
+        Book book = new Book(
+                readString(segment, position + TITLE_OFFSET),
+                readString(segment, position + AUTHOR_OFFSET),
+                readString(segment, position + GENRE_OFFSET),
+                readString(segment, position + ISBN_OFFSET),
+                segment.getInt(position + YEAR_OFFSET),
+                segment.getInt(position + TOTAL_COPIES_OFFSET));
+        book.setAvailableCopies(segment.getInt(position + AVAILABLE_COPIES_OFFSET));
+        return book;
+    }
+
+    private static void writeString(MappedByteBuffer segment, int position, String value) {
+        if (value == null) {
+            segment.putShort(position, (short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        segment.putShort(position, (short) bytes.length);
+        segment.put(position + 2, bytes);
+    }
+
+    private static String readString(MappedByteBuffer segment, int position) {
+        short length = segment.getShort(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        segment.get(position + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void validateBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null.");
+        }
+        validateLength(book.getIsbn(), "ISBN", MAX_ISBN_BYTES);
+        validateLength(book.getTitle(), "Title", MAX_TITLE_BYTES);
+        validateLength(book.getAuthor(), "Author", MAX_AUTHOR_BYTES);
+        validateLength(book.getGenre(), "Genre", MAX_GENRE_BYTES);
+    }
+
+    private static void validateLength(String value, String fieldName, int maxBytes) {
+        if (value != null && value.getBytes(StandardCharsets.UTF_8).length > maxBytes) {
+            throw new IllegalArgumentException(fieldName + " cannot exceed " + maxBytes + " bytes.");
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package dao;
+
+import model.Book;
+import model.Isbn;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * ObservableBookDAO publishes a {@link ChangeEvent} for every successful write made
+ * through it to another {@link BookDAO}, so indexes, caches and reports can follow the
+ * catalog incrementally instead of re-reading {@link #findAll()}. Keys are canonical
+ * ISBNs.
+ *
+ * The before value of an event is a copy of the book as the backing DAO returned it
+ * just before the write, and the after value a copy of the written book, so later
+ * changes to either object do not show through. A caller that changes the stored
+ * instance itself before calling {@link #update(Book)} has already changed the before
+ * value too; to report the old state, update with a changed copy (see
+ * {@link Book#Book(Book)}) instead.
+ *
+ * Writes to the same ISBN are serialized, so its events are published in write order;
+ * writes to other ISBNs run in parallel, and their events may interleave. Delivery
+ * itself is asynchronous (see {@link ChangeNotifier}). Writes that fail in the backing
+ * DAO publish nothing.
+ */
+public class ObservableBookDAO implements BookDAO {
+
+    private final BookDAO delegate;
+    private final ChangePublisher<Book> publisher;
+
+    public ObservableBookDAO(BookDAO delegate) {
+        this(delegate, new ChangeNotifier<>());
+    }
+
+    /**
+     * Creates an observable decorator.
+     * @param delegate The backing DAO.
+     * @param notifier Delivers the events to listeners.
+     */
+    public ObservableBookDAO(BookDAO delegate, ChangeNotifier<Book> notifier) {
+        if (delegate == null || notifier == null) {
+            throw new IllegalArgumentException("Backing BookDAO and notifier cannot be null.");
+        }
+        this.delegate = delegate;
+        this.publisher = new ChangePublisher<>(notifier);
+    }
+
+    /**
+     * Registers a listener for writes made from now on.
+     * @param listener The listener.
+     */
+    public void addListener(ChangeListener<Book> listener) {
+        publisher.notifier().addListener(listener);
+    }
+
+    public void removeListener(ChangeListener<Book> listener) {
+        publisher.notifier().removeListener(listener);
+    }
+
+    /**
+     * Returns the notifier, e.g. to wait for delivery or read its failure count.
+     * @return The notifier.
+     */
+    public ChangeNotifier<Book> notifier() {
+        return publisher.notifier();
+    }
+
+    @Override
+    public void save(Book book) {
+        validateBook(book);
+        String key = Isbn.canonical(book.getIsbn());
+        publisher.write(Collections.singletonList(key), () -> {
+            delegate.save(book);
+            publisher.publish(ChangeEvent.Type.INSERT, key, null, new Book(book));
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(String bookId) {
+        if (bookId == null) {
+            delegate.delete(null);
+            return;
+        }
+        String key = Isbn.canonical(bookId);
+        publisher.write(Collections.singletonList(key), () -> {
+            Book before = stored(bookId);
+            delegate.delete(bookId);
+            if (before != null) {
+                publisher.publish(ChangeEvent.Type.DELETE, key, before, null);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Book book) {
+        validateBook(book);
+        String key = Isbn.canonical(book.getIsbn());
+        publisher.write(Collections.singletonList(key), () -> {
+            Book before = stored(book.getIsbn());
+            delegate.update(book);
+            publisher.publish(ChangeEvent.Type.UPDATE, key, before, new Book(book));
+            return null;
+        });
+    }
+
+    @Override
+    public void saveAll(Collection<Book> books) {
+        BulkOperations.validateBatch(books, Book::getIsbn, "Book");
+        publisher.write(keys(books), () -> {
+            delegate.saveAll(books);
+            for (Book book : books) {
+                publisher.publish(ChangeEvent.Type.INSERT, Isbn.canonical(book.getIsbn()), null, new Book(book));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void updateAll(Collection<Book> books) {
+        BulkOperations.validateBatch(books, Book::getIsbn, "Book");
+        publisher.write(keys(books), () -> {
+            List<Book> before = new ArrayList<>(books.size());
+            for (Book book : books) {
+                before.add(stored(book.getIsbn()));
+            }
+            delegate.updateAll(books);
+            int i = 0;
+            for (Book book : books) {
+                publisher.publish(ChangeEvent.Type.UPDATE, Isbn.canonical(book.getIsbn()), before.get(i++), new Book(book));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAll(Collection<String> bookIds) {
+        BulkOperations.validateIds(bookIds, "Book");
+        List<String> ids = new ArrayList<>(bookIds);
+        List<String> keys = new ArrayList<>(ids.size());
+        for (String bookId : ids) {
+            keys.add(Isbn.canonical(bookId));
+        }
+        publisher.write(keys, () -> {
+            List<Book> before = new ArrayList<>(ids.size());
+            for (String bookId : ids) {
+                before.add(stored(bookId));
+            }
+            delegate.deleteAll(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                if (before.get(i) != null) {
+                    publisher.publish(ChangeEvent.Type.DELETE, keys.get(i), before.get(i), null);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Book> findById(String bookId) {
+        return delegate.findById(bookId);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Book> findPage(String afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<IndexedBookDAO> indexes() {
+        return delegate.indexes();
+    }
+
+    // A copy of the stored book, or null. Callers must hold the key's lock.
+    private Book stored(String bookId) {
+        return delegate.findById(bookId).map(Book::new).orElse(null);
+    }
+
+    private static List<String> keys(Collection<Book> books) {
+        List<String> keys = new ArrayList<>(books.size());
+        for (Book book : books) {
+            keys.add(Isbn.canonical(book.getIsbn()));
+        }
+        return keys;
+    }
+
+    private static void validateBook(Book book) {
+        if (book == null || book.getIsbn() == null) {
+            throw new IllegalArgumentException("Book and its ISBN cannot be null.");
+        }
+    }
+}
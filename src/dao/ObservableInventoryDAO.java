@@ -0,0 +1,157 @@
+package dao;
+
+import model.Book;
+import model.Inventory;
+import model.Isbn;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * ObservableInventoryDAO publishes a {@link ChangeEvent} of the copy counts for every
+ * successful write made through it to another {@link InventoryDAO}: saving a book is
+ * an insert, updating a book or its inventory an update, and deleting a book a delete.
+ * Keys are canonical ISBNs and values are {@link Inventory} copies, so stock reports
+ * can follow the counts without re-reading {@link #findAll()}.
+ *
+ * The before value is read from the backing DAO just before the write. Ordering and
+ * delivery are as in {@link ObservableBookDAO}: per ISBN in write order, asynchronous,
+ * and nothing is published for a write that fails.
+ */
+public class ObservableInventoryDAO implements InventoryDAO {
+
+    private final InventoryDAO delegate;
+    private final ChangePublisher<Inventory> publisher;
+
+    public ObservableInventoryDAO(InventoryDAO delegate) {
+        this(delegate, new ChangeNotifier<>());
+    }
+
+    /**
+     * Creates an observable decorator.
+     * @param delegate The backing DAO.
+     * @param notifier Delivers the events to listeners.
+     */
+    public ObservableInventoryDAO(InventoryDAO delegate, ChangeNotifier<Inventory> notifier) {
+        if (delegate == null || notifier == null) {
+            throw new IllegalArgumentException("Backing InventoryDAO and notifier cannot be null.");
+        }
+        this.delegate = delegate;
+        this.publisher = new ChangePublisher<>(notifier);
+    }
+
+    /**
+     * Registers a listener for writes made from now on.
+     * @param listener The listener.
+     */
+    public void addListener(ChangeListener<Inventory> listener) {
+        publisher.notifier().addListener(listener);
+    }
+
+    public void removeListener(ChangeListener<Inventory> listener) {
+        publisher.notifier().removeListener(listener);
+    }
+
+    /**
+     * Returns the notifier, e.g. to wait for delivery or read its failure count.
+     * @return The notifier.
+     */
+    public ChangeNotifier<Inventory> notifier() {
+        return publisher.notifier();
+    }
+
+    @Override
+    public void updateInventory(Inventory inventory) {
+        if (inventory == null) {
+            throw new IllegalArgumentException("Inventory cannot be null.");
+        }
+        String key = Isbn.canonical(inventory.getIsbn());
+        publisher.write(Collections.singletonList(key), () -> {
+            Inventory before = stored(inventory.getIsbn());
+            delegate.updateInventory(inventory);
+            publisher.publish(ChangeEvent.Type.UPDATE, key, before, copy(inventory));
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<Inventory> findInventoryByBookId(String bookId) {
+        return delegate.findInventoryByBookId(bookId);
+    }
+
+    @Override
+    public void save(Book book) {
+        validateBook(book);
+        String key = Isbn.canonical(book.getIsbn());
+        publisher.write(Collections.singletonList(key), () -> {
+            delegate.save(book);
+            publisher.publish(ChangeEvent.Type.INSERT, key, null, inventoryOf(book));
+            return null;
+        });
+    }
+
+    @Override
+    public void delete(String isbn) {
+        if (isbn == null) {
+            delegate.delete(null);
+            return;
+        }
+        String key = Isbn.canonical(isbn);
+        publisher.write(Collections.singletonList(key), () -> {
+            Inventory before = stored(isbn);
+            delegate.delete(isbn);
+            if (before != null) {
+                publisher.publish(ChangeEvent.Type.DELETE, key, before, null);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Book book) {
+        validateBook(book);
+        String key = Isbn.canonical(book.getIsbn());
+        publisher.write(Collections.singletonList(key), () -> {
+            Inventory before = stored(book.getIsbn());
+            delegate.update(book);
+            publisher.publish(ChangeEvent.Type.UPDATE, key, before, inventoryOf(book));
+            return null;
+        });
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Book> findPage(String afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    // A copy of the stored inventory, or null. Callers must hold the key's lock.
+    private Inventory stored(String isbn) {
+        return delegate.findInventoryByBookId(isbn).map(ObservableInventoryDAO::copy).orElse(null);
+    }
+
+    private static Inventory copy(Inventory inventory) {
+        return new Inventory(inventory.getIsbn(), inventory.getTotalCopies(), inventory.getAvailableCopies());
+    }
+
+    private static Inventory inventoryOf(Book book) {
+        return new Inventory(book.getIsbn(), book.getTotalCopies(), book.getAvailableCopies());
+    }
+
+    private static void validateBook(Book book) {
+        if (book == null || book.getIsbn() == null) {
+            throw new IllegalArgumentException("Book and its ISBN cannot be null.");
+        }
+    }
+}
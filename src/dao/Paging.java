@@ -0,0 +1,58 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Paging implements keyset pagination for DAOs: a page is the next {@code limit}
+ * entities ordered by ID after a given ID. This fallback selects the page from a
+ * stream with a bounded heap, so it never holds more than {@code limit} entities;
+ * implementations with an ordered index answer pages directly from it.
+ */
+public final class Paging {
+
+    private Paging() {
+    }
+
+    /**
+     * Checks that a page size is positive.
+     * @param limit The requested page size.
+     * @throws IllegalArgumentException if the limit is not positive.
+     */
+    public static void validateLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0.");
+        }
+    }
+
+    /**
+     * Selects the page following {@code afterId} from a stream of entities.
+     * @param items   The entities to page through; closed by this method.
+     * @param idOf    Extracts the ID of an entity.
+     * @param afterId The last ID of the previous page, or null for the first page.
+     * @param limit   The page size (> 0).
+     * @param <T>     The entity type.
+     * @return The page, ordered by ID.
+     */
+    public static <T> List<T> page(Stream<T> items, Function<T, String> idOf, String afterId, int limit) {
+        validateLimit(limit);
+        Comparator<T> byId = Comparator.comparing(idOf);
+        PriorityQueue<T> largestFirst = new PriorityQueue<>(Math.min(limit, 1024) + 1, byId.reversed());
+        try (Stream<T> stream = items) {
+            stream.filter(item -> afterId == null || idOf.apply(item).compareTo(afterId) > 0)
+                    .forEach(item -> {
+                        largestFirst.add(item);
+                        if (largestFirst.size() > limit) {
+                            largestFirst.poll();
+                        }
+                    });
+        }
+        List<T> page = new ArrayList<>(largestFirst);
+        page.sort(byId);
+        return page;
+    }
+}
@@ -2,22 +2,101 @@ package dao;
 
 import model.Patron;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * PatronDAO defines the interface for accessing and managing patron data.
  */
 public interface PatronDAO {
 
+    /**
+     * Saves a new patron to the data source.
+     * @param patron The patron to save.
+     */
     void save(Patron patron);
 
+    /**
+     * Deletes a patron from the data source by their ID.
+     * @param patronId The ID of the patron to delete.
+     */
     void delete(String patronId);
 
+    /**
+     * Updates an existing patron in the data source.
+     * @param patron The updated patron.
+     */
     void update(Patron patron);
 
+    /**
+     * Finds a patron by their ID.
+     * @param patronId The ID of the patron to find.
+     * @return An Optional containing the found patron, or empty if not found.
+     */
     Optional<Patron> findById(String patronId);
 
+    /**
+     * Retrieves all patrons from the data source.
+     * @return A list of all patrons.
+     */
     List<Patron> findAll();
-}
 
+    /**
+     * Saves several new patrons as one batch. The whole batch is validated before
+     * anything is written; implementations may apply it with a single write.
+     * @param patrons The patrons to save.
+     * @throws IllegalArgumentException if the batch is null, contains nulls or duplicate IDs.
+     */
+    default void saveAll(Collection<Patron> patrons) {
+        BulkOperations.validateBatch(patrons, Patron::getPatronId, "Patron");
+        for (Patron patron : patrons) {
+            save(patron);
+        }
+    }
+
+    /**
+     * Updates several existing patrons as one batch.
+     * @param patrons The updated patrons.
+     * @throws IllegalArgumentException if the batch is null, contains nulls or duplicate IDs.
+     */
+    default void updateAll(Collection<Patron> patrons) {
+        BulkOperations.validateBatch(patrons, Patron::getPatronId, "Patron");
+        for (Patron patron : patrons) {
+            update(patron);
+        }
+    }
+
+    /**
+     * Deletes several patrons by ID as one batch.
+     * @param patronIds The IDs of the patrons to delete.
+     * @throws IllegalArgumentException if the batch is null or contains nulls.
+     */
+    default void deleteAll(Collection<String> patronIds) {
+        BulkOperations.validateIds(patronIds, "Patron");
+        for (String patronId : patronIds) {
+            delete(patronId);
+        }
+    }
+
+    /**
+     * Streams all patrons without first collecting them into a list. The stream may
+     * hold resources such as a database cursor, so callers should close it, e.g. with
+     * try-with-resources.
+     * @return A stream of all patrons.
+     */
+    default Stream<Patron> streamAll() {
+        return findAll().stream();
+    }
+
+    /**
+     * Returns the next page of patrons ordered by ID (keyset pagination).
+     * @param afterId The last ID of the previous page, or null for the first page.
+     * @param limit   The maximum number of patrons to return (> 0).
+     * @return Up to {@code limit} patrons whose ID sorts after {@code afterId}.
+     */
+    default List<Patron> findPage(String afterId, int limit) {
+        return Paging.page(streamAll(), Patron::getPatronId, afterId, limit);
+    }
+}
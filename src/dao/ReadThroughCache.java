@@ -0,0 +1,80 @@
+package dao;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * ReadThroughCache is the lookup and invalidation logic shared by the caching DAO
+ * decorators. Records are cached under a normalized form of their ID, so every
+ * notation of an ID hits the same entry. A lookup that misses loads from the backing
+ * DAO and caches the result only if no write invalidated anything in the meantime, so
+ * a load racing a write cannot put back the record the write replaced.
+ *
+ * @param <V> The record type.
+ */
+final class ReadThroughCache<V> {
+
+    private final BoundedCache<String, V> cache;
+    private final Function<V, String> idOf;
+    private final UnaryOperator<String> normalize;
+
+    /**
+     * @param capacity  The maximum number of cached records (> 0).
+     * @param idOf      Returns the ID of a record.
+     * @param normalize Maps an ID to its cache key.
+     */
+    ReadThroughCache(int capacity, Function<V, String> idOf, UnaryOperator<String> normalize) {
+        this.cache = new BoundedCache<>(capacity);
+        this.idOf = idOf;
+        this.normalize = normalize;
+    }
+
+    BoundedCache<String, V> cache() {
+        return cache;
+    }
+
+    Optional<V> find(String id, Function<String, Optional<V>> loader) {
+        if (id == null) {
+            return loader.apply(null);
+        }
+        String key = normalize.apply(id);
+        V cached = cache.get(key);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        long generation = cache.generation();
+        Optional<V> loaded = loader.apply(id);
+        loaded.ifPresent(record -> cache.putIfUnchanged(key, record, generation));
+        return loaded;
+    }
+
+    void invalidateId(String id) {
+        if (id != null) {
+            cache.invalidate(normalize.apply(id));
+        }
+    }
+
+    void invalidate(V record) {
+        if (record != null) {
+            invalidateId(idOf.apply(record));
+        }
+    }
+
+    void invalidateAll(Collection<V> records) {
+        if (records != null) {
+            for (V record : records) {
+                invalidate(record);
+            }
+        }
+    }
+
+    void invalidateIds(Collection<String> ids) {
+        if (ids != null) {
+            for (String id : ids) {
+                invalidateId(id);
+            }
+        }
+    }
+}
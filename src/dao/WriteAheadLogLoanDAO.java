@@ -0,0 +1,671 @@
+package dao;
+
+import model.Book;
+import model.Loan;
+import model.Patron;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * WriteAheadLogLoanDAO is a durable, file-backed implementation of {@link LoanDAO}.
+ *
+ * Every save, update and delete is appended to a binary write-ahead log before the
+ * call returns. Concurrent writers share fsyncs (group commit): whichever writer
+ * reaches the sync first forces everything appended so far, and the writers queued
+ * behind it return without issuing their own sync. Every {@code snapshotInterval}
+ * records the log is rotated and a compact snapshot of all loans is written in the
+ * background; once it is in place, the log segments it covers are deleted. On
+ * startup the snapshot is loaded and only the log tail written after it is replayed.
+ *
+ * Queries are served from an {@link InMemoryLoanDAO} holding the recovered state.
+ * Reservations made through {@link #reserveBook(Book, Patron)} are not loans and
+ * are kept in memory only.
+ */
+public class WriteAheadLogLoanDAO implements LoanDAO, Closeable {
+
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 100_000;
+
+    private static final String SNAPSHOT_FILE = "loans.snapshot";
+    private static final String LOG_PREFIX = "loans-";
+    private static final String LOG_SUFFIX = ".wal";
+    private static final int SNAPSHOT_MAGIC = 0x4C4E5331;
+
+    private static final byte OP_SAVE = 1;
+    private static final byte OP_UPDATE = 2;
+    private static final byte OP_DELETE = 3;
+
+    private final Path directory;
+    private final int snapshotInterval;
+    private final InMemoryLoanDAO loans = new InMemoryLoanDAO();
+    // The last logged encoding of every loan by ID; written under appendLock, read by snapshots without it.
+    private final Map<String, byte[]> logged = new ConcurrentHashMap<>();
+    private final Object appendLock = new Object();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "loan-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by appendLock.
+    private FileChannel log;
+    private long lastSeq;
+    private int recordsSinceSnapshot;
+    private boolean snapshotInProgress;
+    private boolean closed;
+
+    // Guarded by syncLock for writes.
+    private volatile long durableSeq;
+    private volatile UncheckedIOException lastSnapshotFailure;
+
+    /**
+     * Opens (or creates) a loan store in the given directory using the default snapshot interval.
+     * @param directory The directory holding the snapshot and log files.
+     */
+    public WriteAheadLogLoanDAO(Path directory) {
+        this(directory, DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Opens (or creates) a loan store in the given directory, recovering its contents.
+     * @param directory        The directory holding the snapshot and log files.
+     * @param snapshotInterval The number of logged records after which a new snapshot is taken (> 0).
+     */
+    public WriteAheadLogLoanDAO(Path directory, int snapshotInterval) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null.");
+        }
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be greater than 0.");
+        }
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        try {
+            Files.createDirectories(directory);
+            long snapshotSeq = loadSnapshot();
+            lastSeq = replayLog(snapshotSeq);
+            durableSeq = lastSeq;
+            log = openSegment(lastSeq + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open loan store in " + directory, e);
+        }
+    }
+
+    @Override
+    public void save(Loan record) {
+        validateLoan(record);
+        byte[] body = encodeLoan(record);
+        long seq;
+        synchronized (appendLock) {
+            if (loans.findById(record.getLoanId()).isPresent()) {
+                throw new IllegalArgumentException("Loan with ID " + record.getLoanId() + " already exists.");
+            }
+            seq = append(OP_SAVE, body);
+            loans.save(record);
+            logged.put(record.getLoanId(), body);
+            recordsApplied(1);
+        }
+        awaitDurable(seq);
+    }
+
+    @Override
+    public void delete(String recordId) {
+        if (recordId == null) {
+            return;
+        }
+        long seq;
+        synchronized (appendLock) {
+            if (loans.findById(recordId).isEmpty()) {
+                return;
+            }
+            seq = append(OP_DELETE, encodeId(recordId));
+            loans.delete(recordId);
+            logged.remove(recordId);
+            recordsApplied(1);
+        }
+        awaitDurable(seq);
+    }
+
+    @Override
+    public void update(Loan record) {
+        validateLoan(record);
+        byte[] body = encodeLoan(record);
+        long seq;
+        synchronized (appendLock) {
+            if (loans.findById(record.getLoanId()).isEmpty()) {
+                throw new IllegalArgumentException("Loan with ID " + record.getLoanId() + " does not exist.");
+            }
+            seq = append(OP_UPDATE, body);
+            loans.update(record);
+            logged.put(record.getLoanId(), body);
+            recordsApplied(1);
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Logs a batch of new loans with a single write and a single sync. Either every
+     * loan is saved or, if any loan ID already exists, none is.
+     * @param batch The loans to save.
+     */
+    @Override
+    public void saveAll(Collection<Loan> batch) {
+        BulkOperations.validateBatch(batch, Loan::getLoanId, "Loan");
+        List<byte[]> bodies = encodeLoans(batch);
+        long seq;
+        synchronized (appendLock) {
+            for (Loan loan : batch) {
+                if (loans.findById(loan.getLoanId()).isPresent()) {
+                    throw new IllegalArgumentException("Loan with ID " + loan.getLoanId() + " already exists.");
+                }
+            }
+            seq = appendAll(OP_SAVE, bodies);
+            loans.saveAll(batch);
+            remember(batch, bodies);
+            recordsApplied(bodies.size());
+        }
+        awaitDurable(seq);
+    }
+
+    /**
+     * Logs a batch of loan updates with a single write and a single sync. Either every
+     * loan is updated or, if any loan ID is unknown, none is.
+     * @param batch The updated loans.
+     */
+    @Override
+    public void updateAll(Collection<Loan> batch) {
+        BulkOperations.validateBatch(batch, Loan::getLoanId, "Loan");
+        List<byte[]> bodies = encodeLoans(batch);
+        long seq;
+        synchronized (appendLock) {
+            for (Loan loan : batch) {
+                if (loans.findById(loan.getLoanId()).isEmpty()) {
+                    throw new IllegalArgumentException("Loan with ID " + loan.getLoanId() + " does not exist.");
+                }
+            }
+            seq = appendAll(OP_UPDATE, bodies);
+            loans.updateAll(batch);
+            remember(batch, bodies);
+            recordsApplied(bodies.size());
+        }
+        awaitDurable(seq);
+    }
+
+    @Override
+    public void deleteAll(Collection<String> recordIds) {
+        BulkOperations.validateIds(recordIds, "Loan");
+        long seq;
+        synchronized (appendLock) {
+            List<String> existing = new ArrayList<>();
+            List<byte[]> bodies = new ArrayList<>();
+            for (String recordId : recordIds) {
+                if (loans.findById(recordId).isPresent()) {
+                    existing.add(recordId);
+                    bodies.add(encodeId(recordId));
+                }
+            }
+            if (existing.isEmpty()) {
+                return;
+            }
+            seq = appendAll(OP_DELETE, bodies);
+            loans.deleteAll(existing);
+            logged.keySet().removeAll(existing);
+            recordsApplied(bodies.size());
+        }
+        awaitDurable(seq);
+    }
+
+    @Override
+    public Optional<Loan> findById(String recordId) {
+        return loans.findById(recordId);
+    }
+
+    @Override
+    public List<Loan> findAll() {
+        return loans.findAll();
+    }
+
+    @Override
+    public Stream<Loan> streamAll() {
+        return loans.streamAll();
+    }
+
+    @Override
+    public List<Loan> findPage(String afterId, int limit) {
+        return loans.findPage(afterId, limit);
+    }
+
+    @Override
+    public boolean isBookCheckedOut(Book book) {
+        return loans.isBookCheckedOut(book);
+    }
+
+    @Override
+    public int countActiveLoans(Book book) {
+        return loans.countActiveLoans(book);
+    }
+
+    @Override
+    public List<Loan> findActiveLoansByIsbn(String isbn) {
+        return loans.findActiveLoansByIsbn(isbn);
+    }
+
+    @Override
+    public List<Loan> findLoansByPatron(Patron patron) {
+        return loans.findLoansByPatron(patron);
+    }
+
+    @Override
+    public void reserveBook(Book book, Patron patron) {
+        loans.reserveBook(book, patron);
+    }
+
+    /**
+     * Returns the failure of the last background snapshot, if it failed. The log still
+     * holds every record such a snapshot would have covered, so nothing is lost, and
+     * the next snapshot interval retries it.
+     * @return The failure, or null.
+     */
+    public UncheckedIOException lastSnapshotFailure() {
+        return lastSnapshotFailure;
+    }
+
+    /**
+     * Forces all appended records to disk, waits for a running snapshot and closes the log.
+     */
+    @Override
+    public void close() {
+        synchronized (appendLock) {
+            if (snapshotExecutor.isShutdown()) {
+                return;
+            }
+            closed = true;
+            snapshotExecutor.shutdown();
+        }
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (appendLock) {
+            try {
+                log.force(false);
+                log.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not close loan log.", e);
+            }
+        }
+    }
+
+    // ---- Logging -------------------------------------------------------------
+
+    /**
+     * Appends one record to the current segment and returns its sequence number.
+     * Callers must hold appendLock.
+     */
+    private long append(byte op, byte[] body) {
+        return appendAll(op, Collections.singletonList(body));
+    }
+
+    /**
+     * Appends one record per body with a single write and returns the sequence number
+     * of the last one. Callers must hold appendLock.
+     */
+    private long appendAll(byte op, List<byte[]> bodies) {
+        if (closed) {
+            throw new IllegalStateException("Loan store is closed.");
+        }
+        int size = 0;
+        for (byte[] body : bodies) {
+            size += 4 + 4 + 1 + 8 + body.length;
+        }
+        ByteBuffer records = ByteBuffer.allocate(size);
+        long seq = lastSeq;
+        for (byte[] body : bodies) {
+            int start = records.position();
+            records.putInt(1 + 8 + body.length);
+            records.putInt(0); // CRC placeholder
+            records.put(op);
+            records.putLong(++seq);
+            records.put(body);
+            CRC32 crc = new CRC32();
+            crc.update(records.array(), start + 8, 1 + 8 + body.length);
+            records.putInt(start + 4, (int) crc.getValue());
+        }
+        records.flip();
+        try {
+            while (records.hasRemaining()) {
+                log.write(records);
+            }
+        } catch (IOException e) {
+            // A partially written record would hide every later record on replay.
+            closed = true;
+            throw new UncheckedIOException("Could not append to loan log; the store has been closed.", e);
+        }
+        lastSeq = seq;
+        return seq;
+    }
+
+    // Records the logged encoding of each loan of a batch. Callers must hold appendLock.
+    private void remember(Collection<Loan> batch, List<byte[]> bodies) {
+        Iterator<byte[]> body = bodies.iterator();
+        for (Loan loan : batch) {
+            logged.put(loan.getLoanId(), body.next());
+        }
+    }
+
+    /**
+     * Counts applied records towards the snapshot interval. Called after the records
+     * have been applied in memory, so the snapshot reflects them. Callers must hold appendLock.
+     */
+    private void recordsApplied(int count) {
+        recordsSinceSnapshot += count;
+        if (recordsSinceSnapshot >= snapshotInterval && !snapshotInProgress) {
+            startSnapshot();
+        }
+    }
+
+    /**
+     * Blocks until the record with the given sequence number is on disk. The first
+     * waiter forces the log on behalf of every record appended so far.
+     */
+    private void awaitDurable(long seq) {
+        if (durableSeq >= seq) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableSeq >= seq) {
+                return;
+            }
+            FileChannel channel;
+            long target;
+            synchronized (appendLock) {
+                channel = log;
+                target = lastSeq;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // The segment was rotated or closed, both of which force it first.
+            }
+            durableSeq = Math.max(durableSeq, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync loan log.", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private FileChannel openSegment(long firstSeq) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", LOG_PREFIX, firstSeq, LOG_SUFFIX));
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // ---- Snapshots -----------------------------------------------------------
+
+    /**
+     * Rotates the log and starts writing a snapshot in the background. Callers must hold
+     * appendLock, which is released before the snapshot reads any loan.
+     *
+     * The snapshot is built from the encodings last written to the log, never from the
+     * Loan objects callers hold, so changes a caller has not logged with update cannot
+     * reach it. It is fuzzy: a loan written after {@code snapshotSeq} may appear in its
+     * newer state. Every such write is also in the log after {@code snapshotSeq}, and
+     * replaying a save, update or delete sets the loan's whole state, so recovery ends
+     * in the same state either way.
+     */
+    private void startSnapshot() {
+        long snapshotSeq = lastSeq;
+        try {
+            log.force(false);
+            log.close();
+            log = openSegment(snapshotSeq + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not rotate loan log.", e);
+        }
+        recordsSinceSnapshot = 0;
+        snapshotInProgress = true;
+        snapshotExecutor.execute(() -> {
+            try {
+                writeSnapshot(new ArrayList<>(logged.values()), snapshotSeq);
+                deleteSegmentsBefore(snapshotSeq + 1);
+                lastSnapshotFailure = null;
+            } catch (IOException e) {
+                lastSnapshotFailure = new UncheckedIOException("Loan snapshot at " + snapshotSeq + " failed.", e);
+            } finally {
+                synchronized (appendLock) {
+                    snapshotInProgress = false;
+                }
+            }
+        });
+    }
+
+    private void writeSnapshot(List<byte[]> contents, long snapshotSeq) throws IOException {
+        Path target = directory.resolve(SNAPSHOT_FILE);
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            OutputStream stream = new CheckedOutputStream(Channels.newOutputStream(channel), crc);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(snapshotSeq);
+            out.writeInt(contents.size());
+            for (byte[] loan : contents) {
+                out.write(loan);
+            }
+            out.flush();
+            long checksum = crc.getValue();
+            out.writeLong(checksum);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private long loadSnapshot() throws IOException {
+        Path path = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        try (InputStream raw = Files.newInputStream(path)) {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(raw, 1 << 16), crc);
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IllegalStateException("Unrecognized loan snapshot " + path);
+            }
+            long snapshotSeq = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Loan loan = LoanCodec.read(in);
+                loans.save(loan);
+                logged.put(loan.getLoanId(), encodeLoan(loan));
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IllegalStateException("Corrupt loan snapshot " + path);
+            }
+            return snapshotSeq;
+        }
+    }
+
+    // ---- Recovery ------------------------------------------------------------
+
+    /**
+     * Replays every log record newer than the snapshot and returns the last sequence
+     * number seen. A torn record at the end of the newest segment (a crash in the
+     * middle of an append) is truncated away.
+     */
+    private long replayLog(long snapshotSeq) throws IOException {
+        List<Path> segments = listSegments();
+        long seq = snapshotSeq;
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            boolean newest = i == segments.size() - 1;
+            long validLength = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 1 << 16))) {
+                while (true) {
+                    byte[] payload;
+                    try {
+                        int length = in.readInt();
+                        int checksum = in.readInt();
+                        if (length < 9) {
+                            throw new EOFException();
+                        }
+                        payload = new byte[length];
+                        in.readFully(payload);
+                        CRC32 crc = new CRC32();
+                        crc.update(payload);
+                        if ((int) crc.getValue() != checksum) {
+                            throw new EOFException();
+                        }
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    long recordSeq = applyRecord(payload, snapshotSeq);
+                    seq = Math.max(seq, recordSeq);
+                    validLength += 8 + payload.length;
+                }
+            }
+            long actualLength = Files.size(segment);
+            if (validLength < actualLength) {
+                if (!newest) {
+                    throw new IllegalStateException("Corrupt loan log segment " + segment);
+                }
+                try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                    channel.truncate(validLength);
+                    channel.force(true);
+                }
+            }
+        }
+        return seq;
+    }
+
+    private long applyRecord(byte[] payload, long snapshotSeq) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        long seq = in.readLong();
+        if (seq <= snapshotSeq) {
+            return seq;
+        }
+        switch (op) {
+            case OP_SAVE:
+            case OP_UPDATE:
+                Loan loan = LoanCodec.read(in);
+                if (loans.findById(loan.getLoanId()).isPresent()) {
+                    loans.update(loan);
+                } else {
+                    loans.save(loan);
+                }
+                logged.put(loan.getLoanId(), encodeLoan(loan));
+                break;
+            case OP_DELETE:
+                String loanId = in.readUTF();
+                loans.delete(loanId);
+                logged.remove(loanId);
+                break;
+            default:
+                throw new IllegalStateException("Unknown loan log operation " + op);
+        }
+        return seq;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(WriteAheadLogLoanDAO::isSegment).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    private void deleteSegmentsBefore(long firstSeq) throws IOException {
+        for (Path segment : listSegments()) {
+            if (segmentStart(segment) < firstSeq) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(LOG_PREFIX) && name.endsWith(LOG_SUFFIX);
+    }
+
+    private static long segmentStart(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+    }
+
+    // ---- Encoding ------------------------------------------------------------
+
+    private static byte[] encodeLoan(Loan loan) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            LoanCodec.write(out, loan);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<byte[]> encodeLoans(Collection<Loan> batch) {
+        List<byte[]> bodies = new ArrayList<>(batch.size());
+        for (Loan loan : batch) {
+            bodies.add(encodeLoan(loan));
+        }
+        return bodies;
+    }
+
+    private static byte[] encodeId(String recordId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(recordId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void validateLoan(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("Loan cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,530 @@
+package dao;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * WriteBehindBuffer collects saves, updates and deletes for a backing DAO and applies
+ * them asynchronously in batches. It is the shared engine of {@link WriteBehindPatronDAO}
+ * and {@link WriteBehindLoanDAO}.
+ *
+ * Writes are coalesced per key: ten updates to the same loan before the next flush
+ * reach the backing store as one update with the latest state, and a save followed
+ * by a delete reaches it not at all. The number of buffered keys is bounded; once the
+ * bound is reached, writers wait until a flush has made room. Flushes run on a
+ * single background thread every {@code flushIntervalMillis}, as soon as
+ * {@code batchSize} keys are pending, on {@link #flush()}, on {@link #close()}, and
+ * from a JVM shutdown hook so that buffered writes are drained on a normal exit.
+ *
+ * A write rejected by the backing store with an {@link IllegalArgumentException} is
+ * dropped and counted. Any other failure leaves the write buffered to be retried by
+ * the next flush.
+ *
+ * Queries do not have to flush: {@link #readThrough} overlays the buffered writes on
+ * a query of the backing store.
+ *
+ * @param <T> The record type.
+ */
+final class WriteBehindBuffer<T> implements Closeable {
+
+    /**
+     * The bulk write operations of the backing DAO.
+     * @param <T> The record type.
+     */
+    interface Sink<T> {
+        void saveAll(Collection<T> records);
+
+        void updateAll(Collection<T> records);
+
+        void deleteAll(Collection<String> ids);
+    }
+
+    private enum Op { SAVE, UPDATE, DELETE, REPLACE }
+
+    private static final class Pending<T> {
+        private final Op op;
+        private final T record;
+
+        private Pending(Op op, T record) {
+            this.op = op;
+            this.record = record;
+        }
+    }
+
+    private final Sink<T> sink;
+    private final Function<T, String> idOf;
+    private final String itemName;
+    private final int maxPending;
+    private final int batchSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledExecutorService flusher;
+    private final Thread shutdownHook;
+    private Map<String, Pending<T>> pending = new LinkedHashMap<>();
+    private Map<String, Pending<T>> inFlight = new LinkedHashMap<>();
+    // Incremented whenever a drain starts or ends, so readers can tell that the backing
+    // store may have changed under them.
+    private long drainVersion;
+    private boolean flushRequested;
+    private boolean closed;
+    private long flushedWrites;
+    private long coalescedWrites;
+    private long droppedWrites;
+    private RuntimeException lastFailure;
+
+    WriteBehindBuffer(Sink<T> sink, Function<T, String> idOf, String itemName,
+                      int maxPending, int batchSize, long flushIntervalMillis) {
+        if (maxPending <= 0 || batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Buffer size, batch size and flush interval must be greater than 0.");
+        }
+        this.sink = sink;
+        this.idOf = idOf;
+        this.itemName = itemName;
+        this.maxPending = maxPending;
+        this.batchSize = Math.min(batchSize, maxPending);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, itemName.toLowerCase() + "-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+        this.shutdownHook = new Thread(this::drainOnShutdown, itemName.toLowerCase() + "-write-behind-drain");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    void save(T record) {
+        String id = requireId(record);
+        enqueue(id, previous -> {
+            if (previous == null) {
+                return new Pending<>(Op.SAVE, record);
+            }
+            if (previous.op == Op.DELETE) {
+                return new Pending<>(Op.REPLACE, record);
+            }
+            throw new IllegalArgumentException(itemName + " with ID " + id + " already exists.");
+        });
+    }
+
+    void update(T record) {
+        String id = requireId(record);
+        enqueue(id, previous -> {
+            if (previous == null) {
+                return new Pending<>(Op.UPDATE, record);
+            }
+            if (previous.op == Op.DELETE) {
+                throw new IllegalArgumentException(itemName + " with ID " + id + " does not exist.");
+            }
+            return new Pending<>(previous.op, record);
+        });
+    }
+
+    void delete(String id) {
+        if (id == null) {
+            return;
+        }
+        enqueue(id, previous -> previous != null && previous.op == Op.SAVE ? null : new Pending<>(Op.DELETE, null));
+    }
+
+    /**
+     * Looks up a buffered write for the key, including writes currently being flushed.
+     * @param id The record ID.
+     * @return Null if nothing is buffered for the key; otherwise the buffered state,
+     *         which is empty if the record was deleted.
+     */
+    Optional<T> lookup(String id) {
+        lock.lock();
+        try {
+            return lookupLocked(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a query against the backing store and returns its result as if every
+     * buffered write had been applied, without flushing. Records of the result with a
+     * buffered write are replaced by the buffered state, or dropped if it was deleted
+     * or no longer matches the query; buffered records that match but were not in the
+     * result are appended.
+     *
+     * The query is retried if a flush ran while it did, since the backing store may then
+     * hold a mix of old and new state; after a few attempts it runs with flushes held off.
+     *
+     * @param query   The query of the backing store.
+     * @param matches Whether a record belongs to the query's result.
+     * @return The query result with the buffered writes applied.
+     */
+    List<T> readThrough(Supplier<List<T>> query, Predicate<T> matches) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long version;
+            lock.lock();
+            try {
+                version = drainVersion;
+            } finally {
+                lock.unlock();
+            }
+            List<T> result = query.get();
+            lock.lock();
+            try {
+                if (drainVersion == version) {
+                    return overlay(result, matches);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        flushLock.lock();
+        try {
+            List<T> result = query.get();
+            lock.lock();
+            try {
+                return overlay(result, matches);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Callers must hold lock.
+    private List<T> overlay(List<T> stored, Predicate<T> matches) {
+        List<T> result = new ArrayList<>(stored.size());
+        Set<String> seen = new HashSet<>();
+        for (T record : stored) {
+            String id = idOf.apply(record);
+            seen.add(id);
+            Optional<T> buffered = lookupLocked(id);
+            if (buffered == null) {
+                result.add(record);
+            } else if (buffered.isPresent() && matches.test(buffered.get())) {
+                result.add(buffered.get());
+            }
+        }
+        addMatching(pending, seen, matches, result);
+        addMatching(inFlight, seen, matches, result);
+        return result;
+    }
+
+    private void addMatching(Map<String, Pending<T>> writes, Set<String> seen, Predicate<T> matches, List<T> result) {
+        for (Map.Entry<String, Pending<T>> entry : writes.entrySet()) {
+            if (!seen.add(entry.getKey())) {
+                continue;
+            }
+            // A key in both maps is decided by its pending write, which is newer.
+            Optional<T> buffered = lookupLocked(entry.getKey());
+            if (buffered.isPresent() && matches.test(buffered.get())) {
+                result.add(buffered.get());
+            }
+        }
+    }
+
+    // Callers must hold lock.
+    private Optional<T> lookupLocked(String id) {
+        Pending<T> write = pending.get(id);
+        if (write == null) {
+            write = inFlight.get(id);
+        }
+        if (write == null) {
+            return null;
+        }
+        return write.op == Op.DELETE ? Optional.empty() : Optional.of(write.record);
+    }
+
+    /**
+     * Writes every buffered record to the backing store before returning.
+     * @throws IllegalStateException if some writes could not be applied and remain buffered.
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            drain();
+            lock.lock();
+            try {
+                if (!pending.isEmpty() && lastFailure != null) {
+                    throw new IllegalStateException(pending.size() + " buffered " + itemName.toLowerCase()
+                            + " writes could not be flushed: " + lastFailure.getMessage(), lastFailure);
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long flushedCount() {
+        lock.lock();
+        try {
+            return flushedWrites;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long coalescedCount() {
+        lock.lock();
+        try {
+            return coalescedWrites;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long droppedCount() {
+        lock.lock();
+        try {
+            return droppedWrites;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background flusher and writes everything still buffered.
+     * @throws IllegalStateException if some writes could not be applied.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // The JVM is already shutting down and the hook is running or has run.
+        }
+        flush();
+    }
+
+    private void enqueue(String id, Function<Pending<T>, Pending<T>> merge) {
+        boolean triggerFlush = false;
+        lock.lock();
+        try {
+            while (!closed && !pending.containsKey(id) && pending.size() >= maxPending) {
+                requestFlush();
+                notFull.awaitUninterruptibly();
+            }
+            if (closed) {
+                throw new IllegalStateException("Write-behind buffer is closed.");
+            }
+            Pending<T> previous = pending.get(id);
+            if (previous == null) {
+                previous = settled(inFlight.get(id));
+            }
+            Pending<T> next = merge.apply(previous);
+            if (pending.containsKey(id)) {
+                coalescedWrites++;
+            }
+            if (next == null) {
+                pending.remove(id);
+            } else {
+                pending.put(id, next);
+            }
+            triggerFlush = pending.size() >= batchSize;
+        } finally {
+            lock.unlock();
+        }
+        if (triggerFlush) {
+            lock.lock();
+            try {
+                requestFlush();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Describes an in-flight write by the state it leaves behind, so that a new write
+     * to the same key is merged against the record's existence rather than replaying
+     * the in-flight operation.
+     */
+    private static <T> Pending<T> settled(Pending<T> inFlightWrite) {
+        if (inFlightWrite == null || inFlightWrite.op == Op.DELETE) {
+            return inFlightWrite;
+        }
+        return new Pending<>(Op.UPDATE, inFlightWrite.record);
+    }
+
+    // Callers must hold lock.
+    private void requestFlush() {
+        if (!flushRequested && !flusher.isShutdown()) {
+            flushRequested = true;
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        flushLock.lock();
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            // Recorded in lastFailure and retried by the next flush.
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void drainOnShutdown() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Callers must hold flushLock, so at most one batch is in flight at a time.
+    private void drain() {
+        Map<String, Pending<T>> batch;
+        lock.lock();
+        try {
+            flushRequested = false;
+            lastFailure = null;
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            inFlight = batch;
+            drainVersion++;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        Map<String, Pending<T>> retry = new LinkedHashMap<>();
+        List<String> deletes = new ArrayList<>();
+        for (Map.Entry<String, Pending<T>> entry : batch.entrySet()) {
+            Op op = entry.getValue().op;
+            if (op == Op.DELETE || op == Op.REPLACE) {
+                deletes.add(entry.getKey());
+            }
+        }
+        int applied = apply(batch, retry, deletes, sink::deleteAll, id -> id);
+
+        // A replacement whose delete has to be retried must not be saved yet.
+        List<T> saves = new ArrayList<>();
+        List<T> updates = new ArrayList<>();
+        for (Map.Entry<String, Pending<T>> entry : batch.entrySet()) {
+            Pending<T> write = entry.getValue();
+            if (retry.containsKey(entry.getKey())) {
+                continue;
+            }
+            if (write.op == Op.SAVE || write.op == Op.REPLACE) {
+                saves.add(write.record);
+            } else if (write.op == Op.UPDATE) {
+                updates.add(write.record);
+            }
+        }
+        applied += apply(batch, retry, saves, sink::saveAll, idOf)
+                + apply(batch, retry, updates, sink::updateAll, idOf);
+
+        lock.lock();
+        try {
+            flushedWrites += applied;
+            for (Map.Entry<String, Pending<T>> entry : retry.entrySet()) {
+                pending.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+            inFlight = new LinkedHashMap<>();
+            drainVersion++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Applies one group of writes as a single bulk call, falling back to one call per
+     * record so that a single bad record does not hold back the rest of the batch.
+     * @return The number of records applied.
+     */
+    private <R> int apply(Map<String, Pending<T>> batch, Map<String, Pending<T>> retry, List<R> group,
+                          Consumer<Collection<R>> bulk, Function<R, String> keyOf) {
+        if (group.isEmpty()) {
+            return 0;
+        }
+        try {
+            bulk.accept(group);
+            return group.size();
+        } catch (RuntimeException batchFailure) {
+            int applied = 0;
+            for (R item : group) {
+                String key = keyOf.apply(item);
+                try {
+                    bulk.accept(List.of(item));
+                    applied++;
+                } catch (IllegalArgumentException e) {
+                    recordFailure(e, true);
+                } catch (RuntimeException e) {
+                    recordFailure(e, false);
+                    retry.put(key, batch.get(key));
+                }
+            }
+            return applied;
+        }
+    }
+
+    private void recordFailure(RuntimeException failure, boolean dropped) {
+        lock.lock();
+        try {
+            lastFailure = failure;
+            if (dropped) {
+                droppedWrites++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String requireId(T record) {
+        if (record == null) {
+            throw new IllegalArgumentException(itemName + " cannot be null.");
+        }
+        String id = idOf.apply(record);
+        if (id == null) {
+            throw new IllegalArgumentException(itemName + " ID cannot be null.");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,183 @@
+package dao;
+
+import model.Book;
+import model.Isbn;
+import model.Loan;
+import model.Patron;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * WriteBehindLoanDAO acknowledges loan writes, such as the update recorded when a book
+ * is returned, immediately and applies them to a backing {@link LoanDAO}
+ * asynchronously in batches, so a slow store does not add to return-desk latency.
+ * See {@link WriteBehindBuffer} for the coalescing, flushing and failure rules.
+ *
+ * {@link #findById(String)} and the lookups on the lending path (active loans of a
+ * title, loans of a patron) see buffered writes by overlaying them on the backing
+ * DAO's answer, so checkouts and returns never wait for a flush. Full scans
+ * ({@link #findAll()}, {@link #streamAll()}, {@link #findPage(String, int)}) flush
+ * the buffer first so that they run against an up-to-date backing store.
+ */
+public class WriteBehindLoanDAO implements LoanDAO, Closeable {
+
+    public static final int DEFAULT_MAX_PENDING = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+
+    private final LoanDAO delegate;
+    private final WriteBehindBuffer<Loan> buffer;
+
+    public WriteBehindLoanDAO(LoanDAO delegate) {
+        this(delegate, DEFAULT_MAX_PENDING, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a write-behind decorator.
+     * @param delegate            The backing DAO.
+     * @param maxPending          The maximum number of buffered loans before writers wait (> 0).
+     * @param batchSize           The number of buffered loans that triggers a flush (> 0).
+     * @param flushIntervalMillis The interval between background flushes (> 0).
+     */
+    public WriteBehindLoanDAO(LoanDAO delegate, int maxPending, int batchSize, long flushIntervalMillis) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Backing LoanDAO cannot be null.");
+        }
+        this.delegate = delegate;
+        this.buffer = new WriteBehindBuffer<>(new WriteBehindBuffer.Sink<Loan>() {
+            @Override
+            public void saveAll(Collection<Loan> records) {
+                delegate.saveAll(records);
+            }
+
+            @Override
+            public void updateAll(Collection<Loan> records) {
+                delegate.updateAll(records);
+            }
+
+            @Override
+            public void deleteAll(Collection<String> ids) {
+                delegate.deleteAll(ids);
+            }
+        }, Loan::getLoanId, "Loan", maxPending, batchSize, flushIntervalMillis);
+    }
+
+    @Override
+    public void save(Loan loan) {
+        buffer.save(loan);
+    }
+
+    @Override
+    public void delete(String loanId) {
+        buffer.delete(loanId);
+    }
+
+    @Override
+    public void update(Loan loan) {
+        buffer.update(loan);
+    }
+
+    @Override
+    public Optional<Loan> findById(String loanId) {
+        Optional<Loan> buffered = loanId == null ? null : buffer.lookup(loanId);
+        return buffered != null ? buffered : delegate.findById(loanId);
+    }
+
+    @Override
+    public List<Loan> findAll() {
+        buffer.flush();
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Loan> streamAll() {
+        buffer.flush();
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Loan> findPage(String afterId, int limit) {
+        buffer.flush();
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public boolean isBookCheckedOut(Book book) {
+        return countActiveLoans(book) > 0;
+    }
+
+    @Override
+    public int countActiveLoans(Book book) {
+        return book == null ? 0 : findActiveLoansByIsbn(book.getIsbn()).size();
+    }
+
+    @Override
+    public List<Loan> findActiveLoansByIsbn(String isbn) {
+        if (isbn == null) {
+            return new ArrayList<>();
+        }
+        List<Loan> loans = buffer.readThrough(() -> delegate.findActiveLoansByIsbn(isbn),
+                loan -> loan.getReturnDate() == null && Isbn.same(isbn, loan.getBook().getIsbn()));
+        loans.sort(ACTIVE_LOAN_ORDER);
+        return loans;
+    }
+
+    @Override
+    public List<Loan> findLoansByPatron(Patron patron) {
+        if (patron == null) {
+            return new ArrayList<>();
+        }
+        String patronId = patron.getPatronId();
+        return buffer.readThrough(() -> delegate.findLoansByPatron(patron),
+                loan -> patronId.equals(loan.getPatron().getPatronId()));
+    }
+
+    @Override
+    public void reserveBook(Book book, Patron patron) {
+        delegate.reserveBook(book, patron);
+    }
+
+    /**
+     * Writes every buffered loan to the backing DAO before returning.
+     */
+    public void flush() {
+        buffer.flush();
+    }
+
+    /**
+     * Returns the number of loans with buffered writes.
+     * @return The number of pending writes.
+     */
+    public int pendingWrites() {
+        return buffer.pendingCount();
+    }
+
+    /**
+     * Returns the number of writes absorbed by a later write to the same loan.
+     * @return The number of coalesced writes.
+     */
+    public long coalescedWrites() {
+        return buffer.coalescedCount();
+    }
+
+    /**
+     * Returns the number of buffered writes the backing DAO rejected as invalid.
+     * @return The number of dropped writes.
+     */
+    public long droppedWrites() {
+        return buffer.droppedCount();
+    }
+
+    /**
+     * Flushes all buffered writes and stops the background flusher.
+     */
+    @Override
+    public void close() {
+        buffer.close();
+    }
+}
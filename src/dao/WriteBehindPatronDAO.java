@@ -0,0 +1,140 @@
+package dao;
+
+import model.Patron;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * WriteBehindPatronDAO acknowledges patron writes immediately and applies them to a
+ * backing {@link PatronDAO} asynchronously, coalescing repeated updates to the same
+ * patron (e.g. a series of late-fee changes) into one write. See
+ * {@link WriteBehindBuffer} for the flushing and failure rules.
+ *
+ * {@link #findById(String)} sees buffered writes. Queries over many patrons flush the
+ * buffer first so that they run against an up-to-date backing store.
+ */
+public class WriteBehindPatronDAO implements PatronDAO, Closeable {
+
+    public static final int DEFAULT_MAX_PENDING = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+
+    private final PatronDAO delegate;
+    private final WriteBehindBuffer<Patron> buffer;
+
+    public WriteBehindPatronDAO(PatronDAO delegate) {
+        this(delegate, DEFAULT_MAX_PENDING, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a write-behind decorator.
+     * @param delegate            The backing DAO.
+     * @param maxPending          The maximum number of buffered patrons before writers wait (> 0).
+     * @param batchSize           The number of buffered patrons that triggers a flush (> 0).
+     * @param flushIntervalMillis The interval between background flushes (> 0).
+     */
+    public WriteBehindPatronDAO(PatronDAO delegate, int maxPending, int batchSize, long flushIntervalMillis) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Backing PatronDAO cannot be null.");
+        }
+        this.delegate = delegate;
+        this.buffer = new WriteBehindBuffer<>(new WriteBehindBuffer.Sink<Patron>() {
+            @Override
+            public void saveAll(Collection<Patron> records) {
+                delegate.saveAll(records);
+            }
+
+            @Override
+            public void updateAll(Collection<Patron> records) {
+                delegate.updateAll(records);
+            }
+
+            @Override
+            public void deleteAll(Collection<String> ids) {
+                delegate.deleteAll(ids);
+            }
+        }, Patron::getPatronId, "Patron", maxPending, batchSize, flushIntervalMillis);
+    }
+
+    @Override
+    public void save(Patron patron) {
+        buffer.save(patron);
+    }
+
+    @Override
+    public void delete(String patronId) {
+        buffer.delete(patronId);
+    }
+
+    @Override
+    public void update(Patron patron) {
+        buffer.update(patron);
+    }
+
+    @Override
+    public Optional<Patron> findById(String patronId) {
+        Optional<Patron> buffered = patronId == null ? null : buffer.lookup(patronId);
+        return buffered != null ? buffered : delegate.findById(patronId);
+    }
+
+    @Override
+    public List<Patron> findAll() {
+        buffer.flush();
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<Patron> streamAll() {
+        buffer.flush();
+        return delegate.streamAll();
+    }
+
+    @Override
+    public List<Patron> findPage(String afterId, int limit) {
+        buffer.flush();
+        return delegate.findPage(afterId, limit);
+    }
+
+    /**
+     * Writes every buffered patron to the backing DAO before returning.
+     */
+    public void flush() {
+        buffer.flush();
+    }
+
+    /**
+     * Returns the number of patrons with buffered writes.
+     * @return The number of pending writes.
+     */
+    public int pendingWrites() {
+        return buffer.pendingCount();
+    }
+
+    /**
+     * Returns the number of writes absorbed by a later write to the same patron.
+     * @return The number of coalesced writes.
+     */
+    public long coalescedWrites() {
+        return buffer.coalescedCount();
+    }
+
+    /**
+     * Returns the number of buffered writes the backing DAO rejected as invalid.
+     * @return The number of dropped writes.
+     */
+    public long droppedWrites() {
+        return buffer.droppedCount();
+    }
+
+    /**
+     * Flushes all buffered writes and stops the background flusher.
+     */
+    @Override
+    public void close() {
+        buffer.close();
+    }
+}
@@ -0,0 +1,169 @@
+package dao.jdbc;
+
+import dao.BulkOperations;
+import dao.Paging;
+import dao.BookDAO;
+import model.Book;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * JdbcBookDAO stores books in the {@code books} table of an embedded database.
+ * Writes go through the shared {@link JdbcWriteBatcher}, so concurrent saves and
+ * updates are committed together in batches; reads use cached prepared statements.
+ */
+public class JdbcBookDAO implements BookDAO {
+
+    private final JdbcDatabase database;
+
+    public JdbcBookDAO(JdbcDatabase database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null.");
+        }
+        this.database = database;
+    }
+
+    /**
+     * Saves a new book.
+     * @param book The book to save.
+     * @throws IllegalArgumentException if the book is null or a book with the same ISBN already exists.
+     */
+    @Override
+    public void save(Book book) {
+        validateBook(book);
+        database.batcher().write(JdbcRows.INSERT_BOOK, statement -> JdbcRows.bindBook(statement, book));
+    }
+
+    @Override
+    public void delete(String bookId) {
+        if (bookId == null) {
+            return;
+        }
+        database.batcher().write(JdbcRows.DELETE_BOOK, statement -> statement.setString(1, bookId));
+    }
+
+    /**
+     * Updates an existing book.
+     * @param book The updated book.
+     * @throws IllegalArgumentException if the book is null or does not exist.
+     */
+    @Override
+    public void update(Book book) {
+        validateBook(book);
+        int updated = database.batcher().write(JdbcRows.UPDATE_BOOK, statement -> JdbcRows.bindBook(statement, book));
+        if (updated == 0) {
+            throw new IllegalArgumentException("Book with ID " + book.getIsbn() + " does not exist.");
+        }
+    }
+
+    /**
+     * Inserts a batch of books as one JDBC batch in a single transaction.
+     * @param batch The books to save.
+     */
+    @Override
+    public void saveAll(Collection<Book> batch) {
+        BulkOperations.validateBatch(batch, Book::getIsbn, "Book");
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(batch.size());
+        for (Book book : batch) {
+            binders.add(statement -> JdbcRows.bindBook(statement, book));
+        }
+        database.batcher().writeAll(JdbcRows.INSERT_BOOK, binders);
+    }
+
+    /**
+     * Updates a batch of books as one JDBC batch in a single transaction. Either
+     * every book is updated or, if any ID is unknown, the transaction is rolled back and none is.
+     * @param batch The updated books.
+     * @throws IllegalArgumentException if any book does not exist.
+     */
+    @Override
+    public void updateAll(Collection<Book> batch) {
+        BulkOperations.validateBatch(batch, Book::getIsbn, "Book");
+        List<Book> ordered = new ArrayList<>(batch);
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(ordered.size());
+        for (Book book : ordered) {
+            binders.add(statement -> JdbcRows.bindBook(statement, book));
+        }
+        try {
+            database.batcher().updateAll(JdbcRows.UPDATE_BOOK, binders);
+        } catch (JdbcWriteBatcher.MissingRowsException e) {
+            List<String> missing = new ArrayList<>();
+            for (int row : e.rows()) {
+                missing.add(ordered.get(row).getIsbn());
+            }
+            throw new IllegalArgumentException("Books with IDs " + missing + " do not exist.", e);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        BulkOperations.validateIds(ids, "Book");
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            binders.add(statement -> statement.setString(1, id));
+        }
+        database.batcher().writeAll(JdbcRows.DELETE_BOOK, binders);
+    }
+
+    @Override
+    public Optional<Book> findById(String bookId) {
+        if (bookId == null) {
+            return Optional.empty();
+        }
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(JdbcRows.SELECT_BOOK);
+            statement.setString(1, bookId);
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? Optional.of(JdbcRows.readBook(row)) : Optional.empty();
+            }
+        });
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(JdbcRows.SELECT_ALL_BOOKS);
+            List<Book> books = new ArrayList<>();
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    books.add(JdbcRows.readBook(row));
+                }
+            }
+            return books;
+        });
+    }
+
+    /**
+     * Streams all books through a database cursor instead of loading the table into a list.
+     * The stream holds a pooled connection until it is closed.
+     */
+    @Override
+    public Stream<Book> streamAll() {
+        return database.pool().stream(JdbcRows.SELECT_ALL_BOOKS, statement -> { }, JdbcRows::readBook);
+    }
+
+    /**
+     * Returns the next page of books ordered by ISBN, using a keyset query on the primary key.
+     */
+    @Override
+    public List<Book> findPage(String afterId, int limit) {
+        Paging.validateLimit(limit);
+        if (afterId == null) {
+            return database.pool().query(JdbcRows.SELECT_FIRST_BOOK_PAGE, statement -> { }, JdbcRows::readBook, limit);
+        }
+        return database.pool().query(JdbcRows.SELECT_BOOK_PAGE,
+                statement -> statement.setString(1, afterId), JdbcRows::readBook, limit);
+    }
+
+    private void validateBook(Book book) {
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null.");
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package dao.jdbc;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * JdbcConnectionPool is a small fixed-size pool of connections to an embedded,
+ * file-based database (for example {@code jdbc:h2:file:./library} or
+ * {@code jdbc:sqlite:library.db}). Connections are opened lazily up to the pool size
+ * and each one keeps its own cache of prepared statements, so a statement is parsed
+ * once per connection rather than once per call.
+ */
+public class JdbcConnectionPool implements Closeable {
+
+    /**
+     * Work performed with a pooled connection.
+     * @param <T> The result type.
+     */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        T run(PooledConnection connection) throws SQLException;
+    }
+
+    /**
+     * Maps the current row of a result set.
+     * @param <T> The mapped type.
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet row) throws SQLException;
+    }
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxConnections;
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private boolean closed;
+
+    /**
+     * Creates a pool for a database that needs no credentials.
+     * @param url            The JDBC URL.
+     * @param maxConnections The maximum number of open connections (> 0).
+     */
+    public JdbcConnectionPool(String url, int maxConnections) {
+        this(url, null, null, maxConnections);
+    }
+
+    /**
+     * Creates a pool.
+     * @param url            The JDBC URL.
+     * @param user           The database user (nullable).
+     * @param password       The database password (nullable).
+     * @param maxConnections The maximum number of open connections (> 0).
+     */
+    public JdbcConnectionPool(String url, String user, String password, int maxConnections) {
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("JDBC URL cannot be null or empty.");
+        }
+        if (maxConnections <= 0) {
+            throw new IllegalArgumentException("Max connections must be greater than 0.");
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxConnections = maxConnections;
+        this.idle = new ArrayBlockingQueue<>(maxConnections);
+    }
+
+    /**
+     * Runs the given work with a pooled connection, returning the connection afterwards.
+     * SQL errors are rethrown as {@link IllegalStateException}.
+     * @param work The work to run.
+     * @param <T>  The result type.
+     * @return The result of the work.
+     */
+    public <T> T execute(SqlWork<T> work) {
+        PooledConnection connection = borrow();
+        try {
+            return work.run(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Database operation failed: " + e.getMessage(), e);
+        } finally {
+            release(connection);
+        }
+    }
+
+    /**
+     * Runs a query with a cached statement and collects at most {@code maxRows} mapped rows.
+     * @param sql     The query.
+     * @param binder  Binds the query parameters.
+     * @param mapper  Maps each row.
+     * @param maxRows The maximum number of rows to return, or 0 for no limit.
+     * @param <T>     The mapped type.
+     * @return The mapped rows.
+     */
+    public <T> List<T> query(String sql, JdbcWriteBatcher.Binder binder, RowMapper<T> mapper, int maxRows) {
+        return execute(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            statement.setMaxRows(maxRows);
+            binder.bind(statement);
+            List<T> result = new ArrayList<>();
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    result.add(mapper.map(row));
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Runs a query and returns its rows as a lazily fetched stream. The stream holds a
+     * pooled connection and an open cursor until it is closed, so callers must close it.
+     * @param sql    The query.
+     * @param binder Binds the query parameters.
+     * @param mapper Maps each row.
+     * @param <T>    The mapped type.
+     * @return A stream over the query's rows.
+     */
+    public <T> Stream<T> stream(String sql, JdbcWriteBatcher.Binder binder, RowMapper<T> mapper) {
+        PooledConnection connection = borrow();
+        PreparedStatement statement = null;
+        try {
+            statement = connection.connection().prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            binder.bind(statement);
+            ResultSet rows = statement.executeQuery();
+            PreparedStatement openStatement = statement;
+            Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(
+                    Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (!rows.next()) {
+                            return false;
+                        }
+                        action.accept(mapper.map(rows));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Database operation failed: " + e.getMessage(), e);
+                    }
+                }
+            };
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                closeQuietly(rows, openStatement);
+                release(connection);
+            });
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(null, statement);
+            release(connection);
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new IllegalStateException("Database operation failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static void closeQuietly(ResultSet rows, PreparedStatement statement) {
+        try {
+            if (rows != null) {
+                rows.close();
+            }
+            if (statement != null) {
+                statement.close();
+            }
+        } catch (SQLException e) {
+            // Nothing useful can be done if releasing a cursor fails.
+        }
+    }
+
+    PooledConnection borrow() {
+        PooledConnection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Connection pool is closed.");
+            }
+            if (all.size() < maxConnections) {
+                PooledConnection opened = open();
+                all.add(opened);
+                return opened;
+            }
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a database connection.", e);
+        }
+    }
+
+    // A connection released after close() is closed rather than pooled again.
+    void release(PooledConnection connection) {
+        synchronized (this) {
+            if (!closed) {
+                idle.offer(connection);
+                return;
+            }
+        }
+        connection.close();
+    }
+
+    private PooledConnection open() {
+        try {
+            Connection connection = user == null
+                    ? DriverManager.getConnection(url)
+                    : DriverManager.getConnection(url, user, password);
+            return new PooledConnection(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not connect to " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Closes every connection opened by the pool. Connections still borrowed are closed
+     * as well and are not pooled again when released.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (PooledConnection connection : all) {
+            connection.close();
+        }
+        all.clear();
+        idle.clear();
+    }
+
+    /**
+     * A pooled connection with its prepared-statement cache. Statements returned by
+     * {@link #prepare(String)} belong to the cache and must not be closed by callers.
+     */
+    public static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        public Connection connection() {
+            return connection;
+        }
+
+        /**
+         * Returns the cached prepared statement for the SQL text, preparing it on first use.
+         * @param sql The SQL text.
+         * @return The prepared statement with its parameters cleared.
+         * @throws SQLException if the statement cannot be prepared.
+         */
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        private void close() {
+            try {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+                statements.clear();
+                connection.close();
+            } catch (SQLException e) {
+                // Closing is best effort; the database file is released with the connection.
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package dao.jdbc;
+
+import java.io.Closeable;
+import java.sql.Statement;
+
+/**
+ * JdbcDatabase bundles the connection pool and write batcher shared by the JDBC
+ * DAOs of one embedded database, and creates the library schema on first use.
+ * Loans reference their book and patron through foreign keys, so a book or patron
+ * with loans cannot be deleted while the loans remain.
+ *
+ * Typical use:
+ * <pre>
+ *     JdbcDatabase database = JdbcDatabase.open("jdbc:h2:file:./data/library", 4);
+ *     BookDAO bookDAO = new JdbcBookDAO(database);
+ * </pre>
+ */
+public class JdbcDatabase implements Closeable {
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE IF NOT EXISTS books ("
+            + "isbn VARCHAR(32) PRIMARY KEY, "
+            + "title VARCHAR(256) NOT NULL, "
+            + "author VARCHAR(128) NOT NULL, "
+            + "genre VARCHAR(64), "
+            + "publication_year INT NOT NULL, "
+            + "total_copies INT NOT NULL, "
+            + "available_copies INT NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS patrons ("
+            + "patron_id VARCHAR(64) PRIMARY KEY, "
+            + "name VARCHAR(256) NOT NULL, "
+            + "membership_type VARCHAR(16) NOT NULL, "
+            + "outstanding_fees DOUBLE PRECISION NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS loans ("
+            + "loan_id VARCHAR(128) PRIMARY KEY, "
+            + "isbn VARCHAR(32) NOT NULL, "
+            + "isbn_key VARCHAR(32) NOT NULL, "
+            + "patron_id VARCHAR(64) NOT NULL, "
+            + "loan_date DATE NOT NULL, "
+            + "due_date DATE NOT NULL, "
+            + "return_date DATE, "
+            + "loan_seq INT DEFAULT 0 NOT NULL, "
+            + "FOREIGN KEY (isbn) REFERENCES books (isbn), "
+            + "FOREIGN KEY (patron_id) REFERENCES patrons (patron_id))",
+        // Databases created before loans had a sequence.
+        "ALTER TABLE loans ADD COLUMN IF NOT EXISTS loan_seq INT DEFAULT 0 NOT NULL",
+        "CREATE TABLE IF NOT EXISTS reservations ("
+            + "isbn VARCHAR(32) NOT NULL, "
+            + "patron_id VARCHAR(64) NOT NULL, "
+            + "PRIMARY KEY (isbn, patron_id))",
+        "CREATE INDEX IF NOT EXISTS idx_loans_isbn ON loans (isbn_key, return_date)",
+        "CREATE INDEX IF NOT EXISTS idx_loans_patron ON loans (patron_id)"
+    };
+
+    private final JdbcConnectionPool pool;
+    private final JdbcWriteBatcher batcher;
+
+    /**
+     * Wraps an existing pool and batcher. The schema is created if it does not exist.
+     * @param pool    The connection pool.
+     * @param batcher The write batcher, writing through the same pool.
+     */
+    public JdbcDatabase(JdbcConnectionPool pool, JdbcWriteBatcher batcher) {
+        if (pool == null || batcher == null) {
+            throw new IllegalArgumentException("Connection pool and write batcher cannot be null.");
+        }
+        this.pool = pool;
+        this.batcher = batcher;
+        createSchema();
+    }
+
+    /**
+     * Opens an embedded database with default batching settings.
+     * @param url            The JDBC URL of the embedded database.
+     * @param maxConnections The maximum number of pooled connections (> 0).
+     * @return The opened database.
+     */
+    public static JdbcDatabase open(String url, int maxConnections) {
+        JdbcConnectionPool pool = new JdbcConnectionPool(url, maxConnections);
+        return new JdbcDatabase(pool, new JdbcWriteBatcher(pool));
+    }
+
+    public JdbcConnectionPool pool() {
+        return pool;
+    }
+
+    public JdbcWriteBatcher batcher() {
+        return batcher;
+    }
+
+    private void createSchema() {
+        pool.execute(connection -> {
+            try (Statement statement = connection.connection().createStatement()) {
+                for (String ddl : SCHEMA) {
+                    statement.execute(ddl);
+                }
+            }
+            if (!connection.connection().getAutoCommit()) {
+                connection.connection().commit();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Commits pending writes and closes all connections.
+     */
+    @Override
+    public void close() {
+        batcher.close();
+        pool.close();
+    }
+}
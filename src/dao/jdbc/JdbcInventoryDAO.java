@@ -0,0 +1,97 @@
+package dao.jdbc;
+
+import dao.InventoryDAO;
+import model.Book;
+import model.Inventory;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * JdbcInventoryDAO exposes the copy counts of the {@code books} table as
+ * {@link Inventory} records. Book-level operations share the table with {@link JdbcBookDAO}.
+ */
+public class JdbcInventoryDAO implements InventoryDAO {
+
+    static final String UPDATE_INVENTORY =
+            "UPDATE books SET total_copies = ?, available_copies = ? WHERE isbn = ?";
+    static final String SELECT_INVENTORY =
+            "SELECT isbn, total_copies, available_copies FROM books WHERE isbn = ?";
+
+    private final JdbcDatabase database;
+    private final JdbcBookDAO books;
+
+    public JdbcInventoryDAO(JdbcDatabase database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null.");
+        }
+        this.database = database;
+        this.books = new JdbcBookDAO(database);
+    }
+
+    @Override
+    public void updateInventory(Inventory inventory) {
+        if (inventory == null) {
+            throw new IllegalArgumentException("Inventory cannot be null.");
+        }
+        int updated = database.batcher().write(UPDATE_INVENTORY, statement -> {
+            statement.setInt(1, inventory.getTotalCopies());
+            statement.setInt(2, inventory.getAvailableCopies());
+            statement.setString(3, inventory.getIsbn());
+        });
+        if (updated == 0) {
+            throw new IllegalArgumentException("Book with ID " + inventory.getIsbn() + " does not exist.");
+        }
+    }
+
+    @Override
+    public Optional<Inventory> findInventoryByBookId(String bookId) {
+        if (bookId == null) {
+            return Optional.empty();
+        }
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(SELECT_INVENTORY);
+            statement.setString(1, bookId);
+            try (ResultSet row = statement.executeQuery()) {
+                if (!row.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Inventory(row.getString("isbn"),
+                        row.getInt("total_copies"), row.getInt("available_copies")));
+            }
+        });
+    }
+
+    @Override
+    public void save(Book book) {
+        books.save(book);
+    }
+
+    @Override
+    public void delete(String isbn) {
+        books.delete(isbn);
+    }
+
+    @Override
+    public void update(Book book) {
+        books.update(book);
+    }
+
+    @Override
+    public List<Book> findAll() {
+        return books.findAll();
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return books.streamAll();
+    }
+
+    @Override
+    public List<Book> findPage(String afterId, int limit) {
+        return books.findPage(afterId, limit);
+    }
+}
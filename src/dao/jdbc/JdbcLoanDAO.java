@@ -0,0 +1,272 @@
+package dao.jdbc;
+
+import dao.BulkOperations;
+import dao.Paging;
+import dao.LoanDAO;
+import model.Book;
+import model.Isbn;
+import model.Loan;
+import model.Patron;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * JdbcLoanDAO stores loans in the {@code loans} table of an embedded database. Loans
+ * reference their book and patron by key, so both must be stored in the same
+ * database (for example through {@link JdbcBookDAO} and {@link JdbcPatronDAO}).
+ * Active-loan and per-patron lookups are served by indexes on {@code loans}; active
+ * loans are matched on {@code isbn_key}, the canonical ISBN, so a title is found in
+ * any ISBN notation.
+ */
+public class JdbcLoanDAO implements LoanDAO {
+
+    static final String INSERT_LOAN =
+            "INSERT INTO loans (isbn, isbn_key, patron_id, loan_date, due_date, return_date, loan_id, loan_seq)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_LOAN =
+            "UPDATE loans SET isbn = ?, isbn_key = ?, patron_id = ?, loan_date = ?, due_date = ?, return_date = ?"
+            + " WHERE loan_id = ?";
+    static final String DELETE_LOAN = "DELETE FROM loans WHERE loan_id = ?";
+    static final String SELECT_LOANS =
+            "SELECT l.loan_id, l.loan_seq, l.loan_date, l.due_date, l.return_date, "
+            + JdbcRows.BOOK_COLUMNS + ", " + JdbcRows.PATRON_COLUMNS
+            + " FROM loans l JOIN books b ON b.isbn = l.isbn JOIN patrons p ON p.patron_id = l.patron_id";
+    static final String SELECT_LOAN = SELECT_LOANS + " WHERE l.loan_id = ?";
+    static final String SELECT_FIRST_LOAN_PAGE = SELECT_LOANS + " ORDER BY l.loan_id";
+    static final String SELECT_LOAN_PAGE = SELECT_LOANS + " WHERE l.loan_id > ? ORDER BY l.loan_id";
+    static final String SELECT_LOANS_BY_PATRON = SELECT_LOANS + " WHERE l.patron_id = ?";
+    static final String SELECT_ACTIVE_LOANS_BY_ISBN =
+            SELECT_LOANS + " WHERE l.isbn_key = ? AND l.return_date IS NULL ORDER BY l.due_date, l.loan_id";
+    static final String SELECT_ACTIVE_LOAN = "SELECT 1 FROM loans WHERE isbn_key = ? AND return_date IS NULL";
+    static final String COUNT_ACTIVE_LOANS = "SELECT COUNT(*) FROM loans WHERE isbn_key = ? AND return_date IS NULL";
+    static final String INSERT_RESERVATION = "INSERT INTO reservations (isbn, patron_id) VALUES (?, ?)";
+
+    private final JdbcDatabase database;
+
+    public JdbcLoanDAO(JdbcDatabase database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null.");
+        }
+        this.database = database;
+    }
+
+    @Override
+    public void save(Loan record) {
+        validateLoan(record);
+        database.batcher().write(INSERT_LOAN, statement -> bindNewLoan(statement, record));
+    }
+
+    @Override
+    public void delete(String recordId) {
+        if (recordId == null) {
+            return;
+        }
+        database.batcher().write(DELETE_LOAN, statement -> statement.setString(1, recordId));
+    }
+
+    @Override
+    public void update(Loan record) {
+        validateLoan(record);
+        int updated = database.batcher().write(UPDATE_LOAN, statement -> bindLoan(statement, record));
+        if (updated == 0) {
+            throw new IllegalArgumentException("Loan with ID " + record.getLoanId() + " does not exist.");
+        }
+    }
+
+    /**
+     * Inserts a batch of loans as one JDBC batch in a single transaction.
+     * @param batch The loans to save.
+     */
+    @Override
+    public void saveAll(Collection<Loan> batch) {
+        BulkOperations.validateBatch(batch, Loan::getLoanId, "Loan");
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(batch.size());
+        for (Loan loan : batch) {
+            binders.add(statement -> bindNewLoan(statement, loan));
+        }
+        database.batcher().writeAll(INSERT_LOAN, binders);
+    }
+
+    /**
+     * Updates a batch of loans as one JDBC batch in a single transaction. Either
+     * every loan is updated or, if any ID is unknown, the transaction is rolled back and none is.
+     * @param batch The updated loans.
+     * @throws IllegalArgumentException if any loan does not exist.
+     */
+    @Override
+    public void updateAll(Collection<Loan> batch) {
+        BulkOperations.validateBatch(batch, Loan::getLoanId, "Loan");
+        List<Loan> ordered = new ArrayList<>(batch);
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(ordered.size());
+        for (Loan loan : ordered) {
+            binders.add(statement -> bindLoan(statement, loan));
+        }
+        try {
+            database.batcher().updateAll(UPDATE_LOAN, binders);
+        } catch (JdbcWriteBatcher.MissingRowsException e) {
+            List<String> missing = new ArrayList<>();
+            for (int row : e.rows()) {
+                missing.add(ordered.get(row).getLoanId());
+            }
+            throw new IllegalArgumentException("Loans with IDs " + missing + " do not exist.", e);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        BulkOperations.validateIds(ids, "Loan");
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            binders.add(statement -> statement.setString(1, id));
+        }
+        database.batcher().writeAll(DELETE_LOAN, binders);
+    }
+
+    @Override
+    public Optional<Loan> findById(String recordId) {
+        if (recordId == null) {
+            return Optional.empty();
+        }
+        List<Loan> loans = query(SELECT_LOAN, recordId);
+        return loans.isEmpty() ? Optional.empty() : Optional.of(loans.get(0));
+    }
+
+    @Override
+    public List<Loan> findAll() {
+        return query(SELECT_LOANS, null);
+    }
+
+    @Override
+    public boolean isBookCheckedOut(Book book) {
+        if (book == null) {
+            return false;
+        }
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(SELECT_ACTIVE_LOAN);
+            statement.setMaxRows(1);
+            statement.setString(1, Isbn.canonical(book.getIsbn()));
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next();
+            }
+        });
+    }
+
+    @Override
+    public int countActiveLoans(Book book) {
+        if (book == null) {
+            return 0;
+        }
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(COUNT_ACTIVE_LOANS);
+            statement.setString(1, Isbn.canonical(book.getIsbn()));
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? row.getInt(1) : 0;
+            }
+        });
+    }
+
+    /**
+     * Returns the active loans of a title through the index on {@code (isbn_key, return_date)}.
+     */
+    @Override
+    public List<Loan> findActiveLoansByIsbn(String isbn) {
+        if (isbn == null) {
+            return new ArrayList<>();
+        }
+        return query(SELECT_ACTIVE_LOANS_BY_ISBN, Isbn.canonical(isbn));
+    }
+
+    @Override
+    public List<Loan> findLoansByPatron(Patron patron) {
+        if (patron == null) {
+            return new ArrayList<>();
+        }
+        return query(SELECT_LOANS_BY_PATRON, patron.getPatronId());
+    }
+
+    @Override
+    public void reserveBook(Book book, Patron patron) {
+        if (book == null || patron == null) {
+            throw new IllegalArgumentException("Book and Patron cannot be null.");
+        }
+        database.batcher().write(INSERT_RESERVATION, statement -> {
+            statement.setString(1, book.getIsbn());
+            statement.setString(2, patron.getPatronId());
+        });
+    }
+
+    @Override
+    public Stream<Loan> streamAll() {
+        return database.pool().stream(SELECT_LOANS, statement -> { }, JdbcLoanDAO::readLoan);
+    }
+
+    @Override
+    public List<Loan> findPage(String afterId, int limit) {
+        Paging.validateLimit(limit);
+        if (afterId == null) {
+            return database.pool().query(SELECT_FIRST_LOAN_PAGE, statement -> { }, JdbcLoanDAO::readLoan, limit);
+        }
+        return database.pool().query(SELECT_LOAN_PAGE,
+                statement -> statement.setString(1, afterId), JdbcLoanDAO::readLoan, limit);
+    }
+
+    private List<Loan> query(String sql, String parameter) {
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(sql);
+            if (parameter != null) {
+                statement.setString(1, parameter);
+            }
+            List<Loan> loans = new ArrayList<>();
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    loans.add(readLoan(row));
+                }
+            }
+            return loans;
+        });
+    }
+
+    static void bindLoan(PreparedStatement statement, Loan loan) throws SQLException {
+        statement.setString(1, loan.getBook().getIsbn());
+        statement.setString(2, Isbn.canonical(loan.getBook().getIsbn()));
+        statement.setString(3, loan.getPatron().getPatronId());
+        JdbcRows.setNullableDate(statement, 4, loan.getLoanDate());
+        JdbcRows.setNullableDate(statement, 5, loan.getDueDate());
+        JdbcRows.setNullableDate(statement, 6, loan.getReturnDate());
+        statement.setString(7, loan.getLoanId());
+    }
+
+    // The sequence is part of the loan ID, so only inserts write it.
+    static void bindNewLoan(PreparedStatement statement, Loan loan) throws SQLException {
+        bindLoan(statement, loan);
+        statement.setInt(8, loan.getSequence());
+    }
+
+    static Loan readLoan(ResultSet row) throws SQLException {
+        Loan loan = new Loan(
+                JdbcRows.readBook(row),
+                JdbcRows.readPatron(row),
+                JdbcRows.getNullableDate(row, "loan_date"),
+                JdbcRows.getNullableDate(row, "due_date"),
+                row.getInt("loan_seq"));
+        LocalDate returnDate = JdbcRows.getNullableDate(row, "return_date");
+        if (returnDate != null) {
+            loan.setReturnDate(returnDate);
+        }
+        return loan;
+    }
+
+    private void validateLoan(Loan loan) {
+        if (loan == null) {
+            throw new IllegalArgumentException("Loan cannot be null.");
+        }
+    }
+}
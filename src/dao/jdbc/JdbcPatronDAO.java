@@ -0,0 +1,168 @@
+package dao.jdbc;
+
+import dao.BulkOperations;
+import dao.Paging;
+import dao.PatronDAO;
+import model.Patron;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * JdbcPatronDAO stores patrons in the {@code patrons} table of an embedded database.
+ */
+public class JdbcPatronDAO implements PatronDAO {
+
+    static final String INSERT_PATRON =
+            "INSERT INTO patrons (name, membership_type, outstanding_fees, patron_id) VALUES (?, ?, ?, ?)";
+    static final String UPDATE_PATRON =
+            "UPDATE patrons SET name = ?, membership_type = ?, outstanding_fees = ? WHERE patron_id = ?";
+    static final String DELETE_PATRON = "DELETE FROM patrons WHERE patron_id = ?";
+    static final String SELECT_PATRON = "SELECT " + JdbcRows.PATRON_COLUMNS + " FROM patrons p WHERE p.patron_id = ?";
+    static final String SELECT_ALL_PATRONS = "SELECT " + JdbcRows.PATRON_COLUMNS + " FROM patrons p";
+    static final String SELECT_FIRST_PATRON_PAGE = SELECT_ALL_PATRONS + " ORDER BY p.patron_id";
+    static final String SELECT_PATRON_PAGE = SELECT_ALL_PATRONS + " WHERE p.patron_id > ? ORDER BY p.patron_id";
+
+    private final JdbcDatabase database;
+
+    public JdbcPatronDAO(JdbcDatabase database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null.");
+        }
+        this.database = database;
+    }
+
+    @Override
+    public void save(Patron patron) {
+        validatePatron(patron);
+        database.batcher().write(INSERT_PATRON, statement -> bindPatron(statement, patron));
+    }
+
+    @Override
+    public void delete(String patronId) {
+        if (patronId == null) {
+            return;
+        }
+        database.batcher().write(DELETE_PATRON, statement -> statement.setString(1, patronId));
+    }
+
+    @Override
+    public void update(Patron patron) {
+        validatePatron(patron);
+        int updated = database.batcher().write(UPDATE_PATRON, statement -> bindPatron(statement, patron));
+        if (updated == 0) {
+            throw new IllegalArgumentException("Patron with ID " + patron.getPatronId() + " does not exist.");
+        }
+    }
+
+    /**
+     * Inserts a batch of patrons as one JDBC batch in a single transaction.
+     * @param batch The patrons to save.
+     */
+    @Override
+    public void saveAll(Collection<Patron> batch) {
+        BulkOperations.validateBatch(batch, Patron::getPatronId, "Patron");
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(batch.size());
+        for (Patron patron : batch) {
+            binders.add(statement -> bindPatron(statement, patron));
+        }
+        database.batcher().writeAll(INSERT_PATRON, binders);
+    }
+
+    /**
+     * Updates a batch of patrons as one JDBC batch in a single transaction. Either
+     * every patron is updated or, if any ID is unknown, the transaction is rolled back and none is.
+     * @param batch The updated patrons.
+     * @throws IllegalArgumentException if any patron does not exist.
+     */
+    @Override
+    public void updateAll(Collection<Patron> batch) {
+        BulkOperations.validateBatch(batch, Patron::getPatronId, "Patron");
+        List<Patron> ordered = new ArrayList<>(batch);
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(ordered.size());
+        for (Patron patron : ordered) {
+            binders.add(statement -> bindPatron(statement, patron));
+        }
+        try {
+            database.batcher().updateAll(UPDATE_PATRON, binders);
+        } catch (JdbcWriteBatcher.MissingRowsException e) {
+            List<String> missing = new ArrayList<>();
+            for (int row : e.rows()) {
+                missing.add(ordered.get(row).getPatronId());
+            }
+            throw new IllegalArgumentException("Patrons with IDs " + missing + " do not exist.", e);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<String> ids) {
+        BulkOperations.validateIds(ids, "Patron");
+        List<JdbcWriteBatcher.Binder> binders = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            binders.add(statement -> statement.setString(1, id));
+        }
+        database.batcher().writeAll(DELETE_PATRON, binders);
+    }
+
+    @Override
+    public Optional<Patron> findById(String patronId) {
+        if (patronId == null) {
+            return Optional.empty();
+        }
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(SELECT_PATRON);
+            statement.setString(1, patronId);
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? Optional.of(JdbcRows.readPatron(row)) : Optional.empty();
+            }
+        });
+    }
+
+    @Override
+    public List<Patron> findAll() {
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(SELECT_ALL_PATRONS);
+            List<Patron> patrons = new ArrayList<>();
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    patrons.add(JdbcRows.readPatron(row));
+                }
+            }
+            return patrons;
+        });
+    }
+
+    @Override
+    public Stream<Patron> streamAll() {
+        return database.pool().stream(SELECT_ALL_PATRONS, statement -> { }, JdbcRows::readPatron);
+    }
+
+    @Override
+    public List<Patron> findPage(String afterId, int limit) {
+        Paging.validateLimit(limit);
+        if (afterId == null) {
+            return database.pool().query(SELECT_FIRST_PATRON_PAGE, statement -> { }, JdbcRows::readPatron, limit);
+        }
+        return database.pool().query(SELECT_PATRON_PAGE,
+                statement -> statement.setString(1, afterId), JdbcRows::readPatron, limit);
+    }
+
+    static void bindPatron(PreparedStatement statement, Patron patron) throws SQLException {
+        statement.setString(1, patron.getName());
+        statement.setString(2, patron.getMembershipType().name());
+        statement.setDouble(3, patron.getOutstandingFees());
+        statement.setString(4, patron.getPatronId());
+    }
+
+    private void validatePatron(Patron patron) {
+        if (patron == null) {
+            throw new IllegalArgumentException("Patron cannot be null.");
+        }
+    }
+}
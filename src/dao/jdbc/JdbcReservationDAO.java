@@ -0,0 +1,53 @@
+package dao.jdbc;
+
+import dao.ReservationDAO;
+import model.Book;
+import model.Patron;
+import model.Reservation;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Optional;
+
+/**
+ * JdbcReservationDAO stores reservations in the {@code reservations} table of an embedded database.
+ */
+public class JdbcReservationDAO implements ReservationDAO {
+
+    static final String SELECT_RESERVATION = "SELECT 1 FROM reservations WHERE isbn = ? AND patron_id = ?";
+
+    private final JdbcDatabase database;
+
+    public JdbcReservationDAO(JdbcDatabase database) {
+        if (database == null) {
+            throw new IllegalArgumentException("Database cannot be null.");
+        }
+        this.database = database;
+    }
+
+    @Override
+    public void save(Reservation reservation) {
+        if (reservation == null) {
+            throw new IllegalArgumentException("Reservation cannot be null.");
+        }
+        database.batcher().write(JdbcLoanDAO.INSERT_RESERVATION, statement -> {
+            statement.setString(1, reservation.getBook().getIsbn());
+            statement.setString(2, reservation.getPatron().getPatronId());
+        });
+    }
+
+    @Override
+    public Optional<Reservation> findByBookAndPatron(Book book, Patron patron) {
+        if (book == null || patron == null) {
+            return Optional.empty();
+        }
+        return database.pool().execute(connection -> {
+            PreparedStatement statement = connection.prepare(SELECT_RESERVATION);
+            statement.setString(1, book.getIsbn());
+            statement.setString(2, patron.getPatronId());
+            try (ResultSet row = statement.executeQuery()) {
+                return row.next() ? Optional.of(new Reservation(book, patron)) : Optional.empty();
+            }
+        });
+    }
+}
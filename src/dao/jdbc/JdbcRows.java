@@ -0,0 +1,96 @@
+package dao.jdbc;
+
+import model.Book;
+import model.Patron;
+import model.PatronType;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * JdbcRows maps library model objects to and from table rows for the JDBC DAOs.
+ */
+final class JdbcRows {
+
+    static final String BOOK_COLUMNS =
+            "b.isbn, b.title, b.author, b.genre, b.publication_year, b.total_copies, b.available_copies";
+    static final String PATRON_COLUMNS =
+            "p.patron_id, p.name, p.membership_type, p.outstanding_fees";
+
+    static final String INSERT_BOOK =
+            "INSERT INTO books (title, author, genre, publication_year, total_copies, available_copies, isbn) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    static final String UPDATE_BOOK =
+            "UPDATE books SET title = ?, author = ?, genre = ?, publication_year = ?, total_copies = ?, "
+            + "available_copies = ? WHERE isbn = ?";
+    static final String DELETE_BOOK = "DELETE FROM books WHERE isbn = ?";
+    static final String SELECT_BOOK = "SELECT " + BOOK_COLUMNS + " FROM books b WHERE b.isbn = ?";
+    static final String SELECT_ALL_BOOKS = "SELECT " + BOOK_COLUMNS + " FROM books b";
+    static final String SELECT_FIRST_BOOK_PAGE = SELECT_ALL_BOOKS + " ORDER BY b.isbn";
+    static final String SELECT_BOOK_PAGE = SELECT_ALL_BOOKS + " WHERE b.isbn > ? ORDER BY b.isbn";
+
+    private JdbcRows() {
+    }
+
+    /**
+     * Binds a book to {@link #INSERT_BOOK} or {@link #UPDATE_BOOK}, which share their parameter order.
+     */
+    static void bindBook(PreparedStatement statement, Book book) throws SQLException {
+        statement.setString(1, book.getTitle());
+        statement.setString(2, book.getAuthor());
+        setNullableString(statement, 3, book.getGenre());
+        statement.setInt(4, book.getPublicationYear());
+        statement.setInt(5, book.getTotalCopies());
+        statement.setInt(6, book.getAvailableCopies());
+        statement.setString(7, book.getIsbn());
+    }
+
+    static Book readBook(ResultSet row) throws SQLException {
+        Book book = new Book(
+                row.getString("title"),
+                row.getString("author"),
+                row.getString("genre"),
+                row.getString("isbn"),
+                row.getInt("publication_year"),
+                row.getInt("total_copies"));
+        book.setAvailableCopies(row.getInt("available_copies"));
+        return book;
+    }
+
+    static Patron readPatron(ResultSet row) throws SQLException {
+        Patron patron = new Patron(
+                row.getString("name"),
+                row.getString("patron_id"),
+                PatronType.valueOf(row.getString("membership_type")));
+        double fees = row.getDouble("outstanding_fees");
+        if (fees > 0) {
+            patron.addLateFee(fees);
+        }
+        return patron;
+    }
+
+    static void setNullableString(PreparedStatement statement, int index, String value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.VARCHAR);
+        } else {
+            statement.setString(index, value);
+        }
+    }
+
+    static void setNullableDate(PreparedStatement statement, int index, LocalDate value) throws SQLException {
+        if (value == null) {
+            statement.setNull(index, Types.DATE);
+        } else {
+            statement.setDate(index, Date.valueOf(value));
+        }
+    }
+
+    static LocalDate getNullableDate(ResultSet row, String column) throws SQLException {
+        Date date = row.getDate(column);
+        return date == null ? null : date.toLocalDate();
+    }
+}
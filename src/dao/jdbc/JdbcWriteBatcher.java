@@ -0,0 +1,351 @@
+package dao.jdbc;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JdbcWriteBatcher coalesces writes issued by many threads into JDBC batches.
+ *
+ * Writers hand over a statement and a parameter binder and block until their write
+ * is committed. A single writer thread collects everything submitted within a short
+ * window (or until the batch is full), executes consecutive writes of the same SQL
+ * with {@code addBatch}/{@code executeBatch}, and commits the whole batch in one
+ * transaction. If a batch fails, it is rolled back and its writes are retried one
+ * at a time, so a single bad write only fails its own caller.
+ */
+public class JdbcWriteBatcher implements Closeable {
+
+    public static final long DEFAULT_WINDOW_MICROS = 2_000;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 512;
+
+    /**
+     * Binds the parameters of one row to a prepared statement.
+     */
+    @FunctionalInterface
+    public interface Binder {
+        void bind(PreparedStatement statement) throws SQLException;
+    }
+
+    private final JdbcConnectionPool pool;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Object submitLock = new Object();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a batcher with the default window and batch size.
+     * @param pool The connection pool to write through.
+     */
+    public JdbcWriteBatcher(JdbcConnectionPool pool) {
+        this(pool, DEFAULT_WINDOW_MICROS, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a batcher.
+     * @param pool         The connection pool to write through.
+     * @param windowMicros How long to wait for more writes after the first one arrives (>= 0).
+     * @param maxBatchSize The maximum number of rows per batch (> 0).
+     */
+    public JdbcWriteBatcher(JdbcConnectionPool pool, long windowMicros, int maxBatchSize) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Connection pool cannot be null.");
+        }
+        if (windowMicros < 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Invalid batching window or batch size.");
+        }
+        this.pool = pool;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchSize = maxBatchSize;
+        this.worker = new Thread(this::run, "jdbc-write-batcher");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Writes one row and waits for it to be committed.
+     * @param sql    The INSERT, UPDATE or DELETE statement.
+     * @param binder Binds the row's parameters.
+     * @return The update count of the statement.
+     */
+    public int write(String sql, Binder binder) {
+        return writeAll(sql, Collections.singletonList(binder))[0];
+    }
+
+    /**
+     * Writes several rows of the same statement as one unit and waits for them to be
+     * committed. The rows are never split across transactions: either all of them are
+     * committed or none is.
+     * @param sql     The INSERT, UPDATE or DELETE statement.
+     * @param binders Binds each row's parameters.
+     * @return The update count of each row.
+     */
+    public int[] writeAll(String sql, List<Binder> binders) {
+        return submit(new Write(sql, binders, false));
+    }
+
+    /**
+     * Writes several rows of an UPDATE statement as one unit, each of which must match
+     * an existing row. If any row matches none, the unit is rolled back before anything
+     * is committed and {@link MissingRowsException} reports the rows that matched none.
+     * @param sql     The UPDATE statement.
+     * @param binders Binds each row's parameters.
+     * @return The update count of each row.
+     * @throws MissingRowsException if any row matched no existing row.
+     */
+    public int[] updateAll(String sql, List<Binder> binders) {
+        return submit(new Write(sql, binders, true));
+    }
+
+    private int[] submit(Write write) {
+        if (write.binders.isEmpty()) {
+            return new int[0];
+        }
+        synchronized (submitLock) {
+            if (!running) {
+                throw new IllegalStateException("Write batcher is closed.");
+            }
+            queue.add(write);
+        }
+        try {
+            return write.result.join();
+        } catch (CompletionException e) {
+            throw translate(e.getCause());
+        }
+    }
+
+    /**
+     * Stops accepting writes, commits everything already submitted and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        synchronized (submitLock) {
+            running = false;
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Write first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                List<Write> batch = new ArrayList<>();
+                batch.add(first);
+                int rows = first.binders.size();
+                long deadline = System.nanoTime() + windowNanos;
+                while (rows < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Write next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    rows += next.binders.size();
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // flush() completes every write it takes; keep serving later writes.
+            }
+        }
+    }
+
+    private void flush(List<Write> batch) {
+        try {
+            pool.execute(connection -> {
+                Connection jdbc = connection.connection();
+                boolean autoCommit = jdbc.getAutoCommit();
+                jdbc.setAutoCommit(false);
+                try {
+                    try {
+                        List<int[]> counts = executeAll(connection, batch);
+                        jdbc.commit();
+                        for (int i = 0; i < batch.size(); i++) {
+                            batch.get(i).result.complete(counts.get(i));
+                        }
+                    } catch (SQLException | RuntimeException e) {
+                        jdbc.rollback();
+                        if (batch.size() == 1) {
+                            batch.get(0).result.completeExceptionally(e);
+                        } else {
+                            retryIndividually(connection, batch);
+                        }
+                    }
+                } finally {
+                    jdbc.setAutoCommit(autoCommit);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            for (Write write : batch) {
+                write.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void retryIndividually(JdbcConnectionPool.PooledConnection connection, List<Write> batch) throws SQLException {
+        for (Write write : batch) {
+            try {
+                int[] counts = executeAll(connection, Collections.singletonList(write)).get(0);
+                connection.connection().commit();
+                write.result.complete(counts);
+            } catch (SQLException | RuntimeException e) {
+                connection.connection().rollback();
+                write.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Executes the writes in order, sending each run of consecutive writes that share
+     * the same SQL as a single JDBC batch.
+     */
+    private static List<int[]> executeAll(JdbcConnectionPool.PooledConnection connection, List<Write> batch) throws SQLException {
+        List<int[]> results = new ArrayList<>(batch.size());
+        int start = 0;
+        while (start < batch.size()) {
+            String sql = batch.get(start).sql;
+            int end = start;
+            while (end < batch.size() && batch.get(end).sql.equals(sql)) {
+                end++;
+            }
+            PreparedStatement statement = connection.prepare(sql);
+            try {
+                for (int i = start; i < end; i++) {
+                    for (Binder binder : batch.get(i).binders) {
+                        binder.bind(statement);
+                        statement.addBatch();
+                    }
+                }
+                int[] counts = statement.executeBatch();
+                int offset = 0;
+                for (int i = start; i < end; i++) {
+                    int size = batch.get(i).binders.size();
+                    int[] writeCounts = new int[size];
+                    System.arraycopy(counts, offset, writeCounts, 0, size);
+                    if (batch.get(i).requireRows) {
+                        checkRowsExist(writeCounts);
+                    }
+                    results.add(writeCounts);
+                    offset += size;
+                }
+            } finally {
+                statement.clearBatch();
+            }
+            start = end;
+        }
+        return results;
+    }
+
+    // Throwing rolls back the transaction the rows were written in.
+    private static void checkRowsExist(int[] counts) {
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            int[] rows = new int[missing.size()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = missing.get(i);
+            }
+            throw new MissingRowsException(rows);
+        }
+    }
+
+    private static RuntimeException translate(Throwable cause) {
+        if (cause instanceof SQLException) {
+            SQLException e = (SQLException) cause;
+            if (isConstraintViolation(e)) {
+                return new IllegalArgumentException("Write violates a database constraint: " + e.getMessage(), e);
+            }
+            return new IllegalStateException("Database write failed: " + e.getMessage(), e);
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException("Database write failed.", cause);
+    }
+
+    /**
+     * Returns true if the failure, or any exception chained to it, is an integrity
+     * constraint violation. Drivers differ in how they report one: some set SQLState
+     * class 23 only on the next exception of a batch failure, others leave the state
+     * null and throw {@link SQLIntegrityConstraintViolationException}. Retrying such a
+     * write can never succeed, so it must not be reported as a transient failure.
+     */
+    private static boolean isConstraintViolation(SQLException failure) {
+        for (SQLException e = failure; e != null; e = e.getNextException()) {
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof SQLIntegrityConstraintViolationException) {
+                    return true;
+                }
+                if (t instanceof SQLException) {
+                    String state = ((SQLException) t).getSQLState();
+                    if (state != null && state.startsWith("23")) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class Write {
+        private final String sql;
+        private final List<Binder> binders;
+        private final boolean requireRows;
+        private final CompletableFuture<int[]> result = new CompletableFuture<>();
+
+        private Write(String sql, List<Binder> binders, boolean requireRows) {
+            this.sql = sql;
+            this.binders = binders;
+            this.requireRows = requireRows;
+        }
+    }
+
+    /**
+     * Thrown by {@link #updateAll(String, List)} when rows matched no existing row; nothing
+     * of the unit was committed.
+     */
+    public static final class MissingRowsException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] rows;
+
+        private MissingRowsException(int[] rows) {
+            super("No existing row matched " + rows.length + " of the updated rows.");
+            this.rows = rows;
+        }
+
+        /**
+         * Returns the positions, in the submitted binders, of the rows that matched nothing.
+         * @return The row positions.
+         */
+        public int[] rows() {
+            return rows.clone();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 
 /**
@@ -7,13 +9,25 @@ import java.util.Objects;
  * This class follows defensive programming principles and ensures extensibility.
  */
 public class Book {
+    private static final VarHandle COPIES;
+
+    static {
+        try {
+            COPIES = MethodHandles.lookup().findVarHandle(Book.class, "copies", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private String title;
     private String author;
     private String genre;
     private String isbn;
+    private long isbnKey;
     private int publicationYear;
-    private int totalCopies;
-    private int availableCopies;
+    // Total copies in the high 32 bits, available copies in the low 32 bits, so that both
+    // change together with a single compare-and-set.
+    private volatile long copies;
 
     /**
      * Constructor for creating a Book object.
@@ -36,9 +50,27 @@ public class Book {
         this.author = author;
         this.genre = genre;
         this.isbn = isbn;
+        this.isbnKey = Isbn.toKey(isbn);
         this.publicationYear = publicationYear;
-        this.totalCopies = totalCopies;
-        this.availableCopies = totalCopies; // Initially, all copies are available.
+        this.copies = pack(totalCopies, totalCopies); // Initially, all copies are available.
+    }
+
+    /**
+     * Copy constructor, e.g. for keeping a snapshot of a book whose fields may change later.
+     *
+     * @param other The book to copy (non-null).
+     */
+    public Book(Book other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Book to copy cannot be null.");
+        }
+        this.title = other.title;
+        this.author = other.author;
+        this.genre = other.genre;
+        this.isbn = other.isbn;
+        this.isbnKey = other.isbnKey;
+        this.publicationYear = other.publicationYear;
+        this.copies = other.copies;
     }
 
     // Getters and Setters with defensive validation
@@ -75,6 +107,16 @@ public class Book {
     public void setIsbn(String isbn) {
         validateString(isbn, "ISBN");
         this.isbn = isbn;
+        this.isbnKey = Isbn.toKey(isbn);
+    }
+
+    /**
+     * Returns the ISBN normalized to a 13-digit number (see {@link Isbn#toKey(String)}).
+     *
+     * @return The ISBN key, or {@link Isbn#INVALID_KEY} if the ISBN is not a valid ISBN-10 or ISBN-13.
+     */
+    public long getIsbnKey() {
+        return isbnKey;
     }
 
     public int getPublicationYear() {
@@ -87,33 +129,71 @@ public class Book {
     }
 
     public int getTotalCopies() {
-        return totalCopies;
+        return total(copies);
     }
 
+    /**
+     * Sets the total number of copies. The copies on loan stay on loan: the available
+     * copies change by the same amount as the total, in one atomic step with it, so a
+     * concurrent borrow or return is never lost.
+     *
+     * @param totalCopies The total number of copies (>= the copies on loan).
+     * @throws IllegalArgumentException if fewer copies would remain than are on loan.
+     */
     public void setTotalCopies(int totalCopies) {
         validateNonNegative(totalCopies, "Total Copies");
-        this.totalCopies = totalCopies;
-        syncAvailableCopies(); // Ensure consistency with available copies.
+        long current;
+        long updated;
+        do {
+            current = copies;
+            int onLoan = total(current) - available(current);
+            if (totalCopies < onLoan) {
+                throw new IllegalArgumentException("Total Copies cannot be less than the " + onLoan + " copies on loan.");
+            }
+            updated = pack(totalCopies, totalCopies - onLoan);
+        } while (!COPIES.compareAndSet(this, current, updated));
     }
 
     public int getAvailableCopies() {
-        return availableCopies;
+        return available(copies);
+    }
+
+    /**
+     * Sets the number of available copies directly, e.g. when restoring a book from storage.
+     *
+     * @param availableCopies The number of available copies (0..totalCopies).
+     */
+    public void setAvailableCopies(int availableCopies) {
+        validateNonNegative(availableCopies, "Available Copies");
+        long current;
+        do {
+            current = copies;
+            if (availableCopies > total(current)) {
+                throw new IllegalArgumentException("Available Copies cannot exceed Total Copies.");
+            }
+        } while (!COPIES.compareAndSet(this, current, pack(total(current), availableCopies)));
     }
 
-    // Borrowing and returning books
+    // Borrowing and returning books; lock-free, retrying if another thread got in between.
     public boolean borrowBook() {
-        if (availableCopies <= 0) {
-            throw new IllegalStateException("No copies available to borrow.");
-        }
-        availableCopies--;
+        long current;
+        do {
+            current = copies;
+            if (available(current) <= 0) {
+                throw new IllegalStateException("No copies available to borrow.");
+            }
+        } while (!COPIES.compareAndSet(this, current, current - 1));
         return true;
     }
 
     public boolean returnBook() {
-        if (availableCopies >= totalCopies) {
-            throw new IllegalStateException("All copies are already returned.");
-        }
-        availableCopies++;
+        long current;
+        do {
+            current = copies;
+            if (available(current) >= total(current)) {
+                throw new IllegalStateException("All copies are already returned.");
+            }
+        } while (!COPIES.compareAndSet(this, current, current + 1));
         return true;
     }
 
@@ -136,12 +216,16 @@ public class Book {
         }
     }
 
-    private void syncAvailableCopies() {
-        if (availableCopies > totalCopies) {
-            availableCopies = totalCopies;
-        } else if (availableCopies < totalCopies) {
-            availableCopies = totalCopies;
-        }
+    private static long pack(int totalCopies, int availableCopies) {
+        return ((long) totalCopies << 32) | availableCopies;
+    }
+
+    private static int total(long copies) {
+        return (int) (copies >>> 32);
+    }
+
+    private static int available(long copies) {
+        return (int) copies;
     }
     
 
@@ -150,24 +234,30 @@ public class Book {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Book book = (Book) o;
-        return isbn.equals(book.isbn); // ISBN uniquely identifies a book.
+        // ISBN uniquely identifies a book; valid ISBNs compare in normalized form, so an
+        // ISBN-10 and its ISBN-13 equivalent denote the same book.
+        if (isbnKey != Isbn.INVALID_KEY || book.isbnKey != Isbn.INVALID_KEY) {
+            return isbnKey == book.isbnKey;
+        }
+        return isbn.equals(book.isbn);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(isbn);
+        return isbnKey != Isbn.INVALID_KEY ? Long.hashCode(isbnKey) : Objects.hash(isbn);
     }
 
     @Override
     public String toString() {
+        long copies = this.copies;
         return "Book{" +
                 "title='" + title + '\'' +
                 ", author='" + author + '\'' +
                 ", genre='" + genre + '\'' +
                 ", isbn='" + isbn + '\'' +
                 ", publicationYear=" + publicationYear +
-                ", totalCopies=" + totalCopies +
-                ", availableCopies=" + availableCopies +
+                ", totalCopies=" + total(copies) +
+                ", availableCopies=" + available(copies) +
                 '}';
     }
 
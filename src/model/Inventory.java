@@ -1,16 +1,30 @@
 package model;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Objects;
 
 /**
  * Represents the inventory details for a specific book in the library.
  * Tracks the book's ISBN, the number of copies available, and total copies.
+ * The copy counts are updated lock-free with compare-and-set, so concurrent borrows
+ * and returns never push availability outside 0..totalCopies.
  */
 public class Inventory {
 
+    private static final VarHandle COPIES;
+
+    static {
+        try {
+            COPIES = MethodHandles.lookup().findVarHandle(Inventory.class, "copies", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final String isbn;
-    private int totalCopies;
-    private int availableCopies;
+    // Total copies in the high 32 bits, available copies in the low 32 bits.
+    private volatile long copies;
 
     /**
      * Constructs an Inventory object.
@@ -31,8 +45,7 @@ public class Inventory {
         }
 
         this.isbn = isbn;
-        this.totalCopies = totalCopies;
-        this.availableCopies = availableCopies;
+        this.copies = pack(totalCopies, availableCopies);
     }
 
     /**
@@ -50,23 +63,26 @@ public class Inventory {
      * @return The total number of copies.
      */
     public int getTotalCopies() {
-        return totalCopies;
+        return total(copies);
     }
 
     /**
      * Updates the total number of copies for the book.
-     * Adjusts the available copies proportionally if needed.
+     * The check against the available copies and the update happen in one atomic step.
      *
      * @param totalCopies The new total number of copies.
      */
     public void setTotalCopies(int totalCopies) {
-        if (totalCopies < availableCopies) {
-            throw new IllegalArgumentException("Total copies cannot be less than available copies.");
-        }
         if (totalCopies < 0) {
             throw new IllegalArgumentException("Total copies cannot be negative.");
         }
-        this.totalCopies = totalCopies;
+        long current;
+        do {
+            current = copies;
+            if (totalCopies < available(current)) {
+                throw new IllegalArgumentException("Total copies cannot be less than available copies.");
+            }
+        } while (!COPIES.compareAndSet(this, current, pack(totalCopies, available(current))));
     }
 
     /**
@@ -75,27 +91,33 @@ public class Inventory {
      * @return The number of available copies.
      */
     public int getAvailableCopies() {
-        return availableCopies;
+        return available(copies);
     }
 
     /**
      * Updates the availability of the book when a copy is borrowed.
      */
     public void borrowBook() {
-        if (availableCopies <= 0) {
-            throw new IllegalStateException("No available copies to borrow.");
-        }
-        availableCopies--;
+        long current;
+        do {
+            current = copies;
+            if (available(current) <= 0) {
+                throw new IllegalStateException("No available copies to borrow.");
+            }
+        } while (!COPIES.compareAndSet(this, current, current - 1));
     }
 
     /**
      * Updates the availability of the book when a copy is returned.
      */
     public void returnBook() {
-        if (availableCopies >= totalCopies) {
-            throw new IllegalStateException("All copies are already returned.");
-        }
-        availableCopies++;
+        long current;
+        do {
+            current = copies;
+            if (available(current) >= total(current)) {
+                throw new IllegalStateException("All copies are already returned.");
+            }
+        } while (!COPIES.compareAndSet(this, current, current + 1));
     }
 
     /**
@@ -104,7 +126,19 @@ public class Inventory {
      * @return True if available, otherwise false.
      */
     public boolean isAvailable() {
-        return availableCopies > 0;
+        return available(copies) > 0;
+    }
+
+    private static long pack(int totalCopies, int availableCopies) {
+        return ((long) totalCopies << 32) | availableCopies;
+    }
+
+    private static int total(long copies) {
+        return (int) (copies >>> 32);
+    }
+
+    private static int available(long copies) {
+        return (int) copies;
     }
 
     @Override
@@ -122,10 +156,11 @@ public class Inventory {
 
     @Override
     public String toString() {
+        long copies = this.copies;
         return "Inventory{" +
                 "isbn='" + isbn + '\'' +
-                ", totalCopies=" + totalCopies +
-                ", availableCopies=" + availableCopies +
+                ", totalCopies=" + total(copies) +
+                ", availableCopies=" + available(copies) +
                 '}';
     }
 }
@@ -0,0 +1,208 @@
+package model;
+
+/**
+ * Represents a validated ISBN, normalized to its 13-digit form.
+ * ISBN-10 and ISBN-13 input is accepted with or without hyphens and spaces, so
+ * "0-7432-7356-7" and "978-0-7432-7356-5" are the same ISBN. The normalized
+ * number is also available as a {@code long} key, which lets lookups compare and
+ * hash ISBNs without touching their strings.
+ */
+public final class Isbn implements Comparable<Isbn> {
+
+    /**
+     * The key returned by {@link #toKey(String)} for text that is not a valid ISBN.
+     */
+    public static final long INVALID_KEY = -1L;
+
+    private final long key;
+
+    private Isbn(long key) {
+        this.key = key;
+    }
+
+    /**
+     * Parses an ISBN-10 or ISBN-13.
+     *
+     * @param text The ISBN, optionally with hyphens or spaces.
+     * @return The normalized ISBN.
+     * @throws IllegalArgumentException if the text is not a valid ISBN.
+     */
+    public static Isbn parse(String text) {
+        long key = toKey(text);
+        if (key == INVALID_KEY) {
+            throw new IllegalArgumentException("Invalid ISBN: " + text);
+        }
+        return new Isbn(key);
+    }
+
+    /**
+     * Checks whether text is a valid ISBN-10 or ISBN-13.
+     *
+     * @param text The text to check (nullable).
+     * @return True if the text is a valid ISBN.
+     */
+    public static boolean isValid(String text) {
+        return toKey(text) != INVALID_KEY;
+    }
+
+    /**
+     * Normalizes an ISBN to its 13-digit number without allocating.
+     *
+     * @param text The ISBN, optionally with hyphens or spaces (nullable).
+     * @return The 13-digit ISBN as a number, or {@link #INVALID_KEY} if the text is not
+     *         a valid ISBN-10 or ISBN-13 (including its check digit).
+     */
+    public static long toKey(String text) {
+        if (text == null) {
+            return INVALID_KEY;
+        }
+        int count = 0;
+        long first9 = 0;
+        long first12 = 0;
+        int sum10 = 0;
+        int sum13 = 0;
+        int last = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '-' || c == ' ') {
+                continue;
+            }
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if ((c == 'X' || c == 'x') && count == 9) {
+                digit = 10;
+            } else {
+                return INVALID_KEY;
+            }
+            if (count == 13) {
+                return INVALID_KEY;
+            }
+            if (count < 9) {
+                first9 = first9 * 10 + digit;
+            }
+            if (count < 10) {
+                sum10 += (10 - count) * digit;
+            }
+            if (count < 12) {
+                first12 = first12 * 10 + digit;
+                sum13 += (count % 2 == 0 ? 1 : 3) * digit;
+            }
+            last = digit;
+            count++;
+        }
+        if (count == 10) {
+            if (sum10 % 11 != 0) {
+                return INVALID_KEY;
+            }
+            long prefixed = 978_000_000_000L + first9;
+            return prefixed * 10 + isbn13CheckDigit(prefixed);
+        }
+        // An 'X' is only accepted as the tenth character, which ISBN-13 never allows.
+        if (count == 13 && last == (10 - sum13 % 10) % 10
+                && text.indexOf('X') < 0 && text.indexOf('x') < 0) {
+            return first12 * 10 + last;
+        }
+        return INVALID_KEY;
+    }
+
+    /**
+     * Returns true if both texts are the same valid ISBN in any notation, or are
+     * otherwise equal strings.
+     *
+     * @param a The first ISBN (nullable).
+     * @param b The second ISBN (nullable).
+     * @return True if both denote the same book.
+     */
+    public static boolean same(String a, String b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        if (a.equals(b)) {
+            return true;
+        }
+        long key = toKey(a);
+        return key != INVALID_KEY && key == toKey(b);
+    }
+
+    /**
+     * Returns the canonical form of an ISBN: its 13 digits if it is valid, or the
+     * text unchanged otherwise.
+     *
+     * @param text The ISBN (nullable).
+     * @return The canonical ISBN string.
+     */
+    public static String canonical(String text) {
+        long key = toKey(text);
+        return key == INVALID_KEY ? text : format(key);
+    }
+
+    public long key() {
+        return key;
+    }
+
+    /**
+     * Returns the 13-digit form without hyphens, e.g. "9780743273565".
+     *
+     * @return The ISBN-13.
+     */
+    public String toIsbn13() {
+        return format(key);
+    }
+
+    /**
+     * Returns the 10-character form, e.g. "0743273567", which only exists for ISBNs
+     * with the 978 prefix.
+     *
+     * @return The ISBN-10, or null if the ISBN has a 979 prefix.
+     */
+    public String toIsbn10() {
+        String isbn13 = format(key);
+        if (!isbn13.startsWith("978")) {
+            return null;
+        }
+        int sum = 0;
+        for (int i = 0; i < 9; i++) {
+            sum += (10 - i) * (isbn13.charAt(3 + i) - '0');
+        }
+        int check = (11 - sum % 11) % 11;
+        return isbn13.substring(3, 12) + (check == 10 ? "X" : String.valueOf(check));
+    }
+
+    @Override
+    public int compareTo(Isbn other) {
+        return Long.compare(key, other.key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return key == ((Isbn) o).key;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(key);
+    }
+
+    @Override
+    public String toString() {
+        return toIsbn13();
+    }
+
+    private static int isbn13CheckDigit(long first12) {
+        int sum = 0;
+        for (int i = 11; i >= 0; i--) {
+            int digit = (int) (first12 % 10);
+            first12 /= 10;
+            sum += (i % 2 == 0 ? 1 : 3) * digit;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    private static String format(long key) {
+        String digits = Long.toString(key);
+        return digits.length() == 13 ? digits : "0".repeat(13 - digits.length()) + digits;
+    }
+}
@@ -12,6 +12,8 @@ public class Loan {
     private LocalDate loanDate; // The date the book was borrowed.
     private LocalDate dueDate; // The date the book is due for return.
     private LocalDate returnDate; // The date the book was returned (nullable).
+    private final int sequence; // Earlier loans of the same book by the same patron on the same day.
+    private final String loanId; // Fixed at construction, see getLoanId().
 
     /**
      * Constructor to create a Loan object.
@@ -22,6 +24,20 @@ public class Loan {
      * @param dueDate  The date the book is due (non-null and after loanDate).
      */
     public Loan(Book book, Patron patron, LocalDate loanDate, LocalDate dueDate) {
+        this(book, patron, loanDate, dueDate, 0);
+    }
+
+    /**
+     * Constructor to create one of several loans of the same book by the same patron on
+     * the same day, e.g. a second copy or a re-borrow after a same-day return.
+     *
+     * @param book     The book being borrowed (non-null).
+     * @param patron   The patron borrowing the book (non-null).
+     * @param loanDate The date the book is borrowed (non-null).
+     * @param dueDate  The date the book is due (non-null and after loanDate).
+     * @param sequence The number of earlier such loans (non-negative); 0 for the first.
+     */
+    public Loan(Book book, Patron patron, LocalDate loanDate, LocalDate dueDate, int sequence) {
         validateNonNull(book, "Book");
         validateNonNull(patron, "Patron");
         validateNonNull(loanDate, "Loan Date");
@@ -29,12 +45,16 @@ public class Loan {
         if (!dueDate.isAfter(loanDate)) {
             throw new IllegalArgumentException("Due Date must be after Loan Date.");
         }
+        validateNonNegative(sequence, "Sequence");
 
         this.book = book;
         this.patron = patron;
         this.loanDate = loanDate;
         this.dueDate = dueDate;
         this.returnDate = null; // Return date is initially null.
+        this.sequence = sequence;
+        String id = Isbn.canonical(book.getIsbn()) + "-" + patron.getPatronId() + "-" + loanDate;
+        this.loanId = sequence == 0 ? id : id + "-" + sequence;
     }
 
     // Getters and Setters
@@ -79,6 +99,14 @@ public class Loan {
         return returnDate;
     }
 
+    /**
+     * Gets the number of earlier loans of the same book by the same patron on the same day.
+     * @return The sequence, 0 for the first such loan.
+     */
+    public int getSequence() {
+        return sequence;
+    }
+
     /**
      * Sets the return date for the loan.
      * This also checks whether the return date is valid (on or after the loan date).
@@ -126,12 +154,15 @@ public class Loan {
     }
 
     /**
-     * Generates a unique loan ID based on the book's ISBN, patron's ID, and loan date.
+     * Gets the loan ID, built from the book's canonical ISBN, the patron's ID and the loan
+     * date, followed by the sequence if it is not 0. The ID is the same whichever notation
+     * the ISBN was entered in, and loans that differ only in their sequence, such as two
+     * copies of one title borrowed on the same day, have different IDs.
      *
      * @return A string representing the unique Loan ID.
      */
     public String getLoanId() {
-        return book.getIsbn() + "-" + patron.getPatronId() + "-" + loanDate.toString();
+        return loanId;
     }
 
     // Utility methods for validation
@@ -165,10 +196,10 @@ public class Loan {
     // Overridden methods
 
     /**
-     * Checks equality based on the book and patron.
+     * Checks equality based on the book, patron, loan date and sequence.
      * 
      * @param o The other object to compare.
-     * @return true if the loans are for the same book and patron.
+     * @return true if the loans are for the same book and patron on the same day, with the same sequence.
      */
     @Override
     public boolean equals(Object o) {
@@ -177,7 +208,8 @@ public class Loan {
         Loan loan = (Loan) o;
         return Objects.equals(book, loan.book) &&
                Objects.equals(patron, loan.patron) &&
-               Objects.equals(loanDate, loan.loanDate);
+               Objects.equals(loanDate, loan.loanDate) &&
+               sequence == loan.sequence;
     }
 
     /**
@@ -187,7 +219,7 @@ public class Loan {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(book, patron, loanDate);
+        return Objects.hash(book, patron, loanDate, sequence);
     }
 
     /**
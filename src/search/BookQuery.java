@@ -0,0 +1,302 @@
+package search;
+
+import model.Book;
+import model.Isbn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * BookQuery is an immutable predicate over books, built from field predicates and
+ * combined with {@link #and}, {@link #or} and {@link #not}. A query can always be
+ * evaluated book by book with {@link #matches(Book)}; {@link QueryExecutor} also
+ * inspects its structure to answer parts of it from indexes.
+ *
+ * Example:
+ * <pre>
+ *     BookQuery query = BookQuery.and(
+ *             BookQuery.authorIs("F. Scott Fitzgerald"),
+ *             BookQuery.yearBetween(1920, 1930),
+ *             BookQuery.not(BookQuery.genreIs("Poetry")));
+ * </pre>
+ */
+public abstract class BookQuery {
+
+    /**
+     * The kinds of query nodes.
+     */
+    enum Kind { TITLE, AUTHOR, GENRE, YEAR, AVAILABLE, ISBN, AND, OR, NOT }
+
+    private final Kind kind;
+
+    private BookQuery(Kind kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * Tests a single book against the query.
+     * @param book The book to test.
+     * @return True if the book matches.
+     */
+    public abstract boolean matches(Book book);
+
+    Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Matches books whose title contains every given word, ignoring case and accents.
+     * @param words The words, e.g. "great gatsby".
+     * @return The query.
+     */
+    public static BookQuery titleHas(String words) {
+        return new WordsQuery(Kind.TITLE, words);
+    }
+
+    /**
+     * Matches books by an author, ignoring case and surrounding whitespace.
+     * @param author The author.
+     * @return The query.
+     */
+    public static BookQuery authorIs(String author) {
+        return new ValueQuery(Kind.AUTHOR, author);
+    }
+
+    /**
+     * Matches books in a genre, ignoring case and surrounding whitespace.
+     * @param genre The genre.
+     * @return The query.
+     */
+    public static BookQuery genreIs(String genre) {
+        return new ValueQuery(Kind.GENRE, genre);
+    }
+
+    /**
+     * Matches a book by ISBN in any notation.
+     * @param isbn The ISBN.
+     * @return The query.
+     */
+    public static BookQuery isbnIs(String isbn) {
+        return new ValueQuery(Kind.ISBN, isbn);
+    }
+
+    /**
+     * Matches books published between two years, inclusive.
+     * @param fromYear The first year.
+     * @param toYear   The last year.
+     * @return The query.
+     */
+    public static BookQuery yearBetween(int fromYear, int toYear) {
+        return new YearQuery(fromYear, toYear);
+    }
+
+    /**
+     * Matches books with at least one copy available.
+     * @return The query.
+     */
+    public static BookQuery available() {
+        return new AvailableQuery();
+    }
+
+    /**
+     * Matches books that match every given query.
+     * @param queries The queries.
+     * @return The query.
+     */
+    public static BookQuery and(BookQuery... queries) {
+        return new CompositeQuery(Kind.AND, queries);
+    }
+
+    /**
+     * Matches books that match at least one given query.
+     * @param queries The queries.
+     * @return The query.
+     */
+    public static BookQuery or(BookQuery... queries) {
+        return new CompositeQuery(Kind.OR, queries);
+    }
+
+    /**
+     * Matches books that do not match a query.
+     * @param query The query to negate.
+     * @return The query.
+     */
+    public static BookQuery not(BookQuery query) {
+        return new NotQuery(query);
+    }
+
+    static final class WordsQuery extends BookQuery {
+        private final String text;
+        private final List<String> words;
+
+        private WordsQuery(Kind kind, String text) {
+            super(kind);
+            this.words = Tokenizer.tokenize(text);
+            if (words.isEmpty()) {
+                throw new IllegalArgumentException("Query words cannot be null or empty.");
+            }
+            this.text = text;
+        }
+
+        List<String> words() {
+            return words;
+        }
+
+        @Override
+        public boolean matches(Book book) {
+            return new HashSet<>(Tokenizer.tokenize(book.getTitle())).containsAll(words);
+        }
+
+        @Override
+        public String toString() {
+            return "title has '" + text + "'";
+        }
+    }
+
+    static final class ValueQuery extends BookQuery {
+        private final String value;
+        private final String normalized;
+        private final long isbnKey;
+
+        private ValueQuery(Kind kind, String value) {
+            super(kind);
+            if (value == null || value.trim().isEmpty()) {
+                throw new IllegalArgumentException("Query value cannot be null or empty.");
+            }
+            this.value = value.trim();
+            this.normalized = this.value.toLowerCase(Locale.ROOT);
+            this.isbnKey = Isbn.toKey(this.value);
+        }
+
+        String value() {
+            return value;
+        }
+
+        @Override
+        public boolean matches(Book book) {
+            switch (kind()) {
+                case AUTHOR:
+                    return sameText(book.getAuthor());
+                case GENRE:
+                    return sameText(book.getGenre());
+                default:
+                    return isbnKey != Isbn.INVALID_KEY ? book.getIsbnKey() == isbnKey : value.equals(book.getIsbn());
+            }
+        }
+
+        private boolean sameText(String text) {
+            return text != null && text.trim().toLowerCase(Locale.ROOT).equals(normalized);
+        }
+
+        @Override
+        public String toString() {
+            return kind().name().toLowerCase() + " is '" + value + "'";
+        }
+    }
+
+    static final class YearQuery extends BookQuery {
+        private final int fromYear;
+        private final int toYear;
+
+        private YearQuery(int fromYear, int toYear) {
+            super(Kind.YEAR);
+            this.fromYear = fromYear;
+            this.toYear = toYear;
+        }
+
+        int fromYear() {
+            return fromYear;
+        }
+
+        int toYear() {
+            return toYear;
+        }
+
+        @Override
+        public boolean matches(Book book) {
+            return book.getPublicationYear() >= fromYear && book.getPublicationYear() <= toYear;
+        }
+
+        @Override
+        public String toString() {
+            return "year in [" + fromYear + ", " + toYear + "]";
+        }
+    }
+
+    static final class AvailableQuery extends BookQuery {
+        private AvailableQuery() {
+            super(Kind.AVAILABLE);
+        }
+
+        @Override
+        public boolean matches(Book book) {
+            return book.getAvailableCopies() > 0;
+        }
+
+        @Override
+        public String toString() {
+            return "available";
+        }
+    }
+
+    static final class CompositeQuery extends BookQuery {
+        private final List<BookQuery> children;
+
+        private CompositeQuery(Kind kind, BookQuery[] queries) {
+            super(kind);
+            if (queries == null || queries.length == 0 || Arrays.asList(queries).contains(null)) {
+                throw new IllegalArgumentException("Combined queries cannot be null or empty.");
+            }
+            this.children = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(queries)));
+        }
+
+        List<BookQuery> children() {
+            return children;
+        }
+
+        @Override
+        public boolean matches(Book book) {
+            for (BookQuery child : children) {
+                if (child.matches(book) != (kind() == Kind.AND)) {
+                    return kind() == Kind.OR;
+                }
+            }
+            return kind() == Kind.AND;
+        }
+
+        @Override
+        public String toString() {
+            List<String> parts = new ArrayList<>();
+            for (BookQuery child : children) {
+                parts.add(child.toString());
+            }
+            return "(" + String.join(" " + kind().name() + " ", parts) + ")";
+        }
+    }
+
+    static final class NotQuery extends BookQuery {
+        private final BookQuery child;
+
+        private NotQuery(BookQuery child) {
+            super(Kind.NOT);
+            if (child == null) {
+                throw new IllegalArgumentException("Negated query cannot be null.");
+            }
+            this.child = child;
+        }
+
+        @Override
+        public boolean matches(Book book) {
+            return !child.matches(book);
+        }
+
+        @Override
+        public String toString() {
+            return "NOT " + child;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package search;
+
+import model.Book;
+
+import java.util.Comparator;
+
+/**
+ * BookSearch is a {@link BookQuery} together with an optional sort order and a limit,
+ * ready to be run by a {@link QueryExecutor}. Instances are immutable; the
+ * {@code sortBy} and {@code limit} methods return modified copies.
+ *
+ * Example:
+ * <pre>
+ *     BookSearch search = BookSearch.of(BookQuery.genreIs("Fiction"))
+ *             .sortBy(BookSearch.SortField.PUBLICATION_YEAR, true)
+ *             .limit(20);
+ * </pre>
+ */
+public final class BookSearch {
+
+    /**
+     * The fields results can be sorted by. Ties are broken by ISBN.
+     */
+    public enum SortField {
+        TITLE(Comparator.comparing(Book::getTitle, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))),
+        AUTHOR(Comparator.comparing(Book::getAuthor, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))),
+        PUBLICATION_YEAR(Comparator.comparingInt(Book::getPublicationYear)),
+        AVAILABLE_COPIES(Comparator.comparingInt(Book::getAvailableCopies));
+
+        private final Comparator<Book> comparator;
+
+        SortField(Comparator<Book> comparator) {
+            this.comparator = comparator;
+        }
+    }
+
+    private final BookQuery query;
+    private final SortField sortField;
+    private final boolean descending;
+    private final int limit;
+
+    private BookSearch(BookQuery query, SortField sortField, boolean descending, int limit) {
+        this.query = query;
+        this.sortField = sortField;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    /**
+     * Creates an unsorted, unlimited search.
+     * @param query The query.
+     * @return The search.
+     */
+    public static BookSearch of(BookQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null.");
+        }
+        return new BookSearch(query, null, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a copy of this search sorted by a field.
+     * @param field      The field to sort by.
+     * @param descending Whether the highest values come first.
+     * @return The sorted search.
+     */
+    public BookSearch sortBy(SortField field, boolean descending) {
+        if (field == null) {
+            throw new IllegalArgumentException("Sort field cannot be null.");
+        }
+        return new BookSearch(query, field, descending, limit);
+    }
+
+    /**
+     * Returns a copy of this search that returns at most {@code limit} books.
+     * @param limit The maximum number of books (> 0).
+     * @return The limited search.
+     */
+    public BookSearch limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than 0.");
+        }
+        return new BookSearch(query, sortField, descending, limit);
+    }
+
+    public BookQuery getQuery() {
+        return query;
+    }
+
+    public SortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the order of the results, or null if the search is unsorted.
+     * @return The comparator.
+     */
+    Comparator<Book> comparator() {
+        if (sortField == null) {
+            return null;
+        }
+        Comparator<Book> order = descending ? sortField.comparator.reversed() : sortField.comparator;
+        return order.thenComparing(Book::getIsbn, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+
+    @Override
+    public String toString() {
+        return query + (sortField == null ? "" : " sorted by " + sortField + (descending ? " desc" : ""))
+                + (limit == Integer.MAX_VALUE ? "" : " limit " + limit);
+    }
+}
@@ -0,0 +1,697 @@
+package search;
+
+import model.Book;
+import model.Isbn;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * CatalogIndex is an in-memory inverted index over the title, author and genre of
+ * books. Each indexed book gets an integer document ID, and every term maps to a
+ * {@link PostingList} of the document IDs containing it.
+ *
+ * Queries support:
+ * <ul>
+ *     <li>{@code gatsby fitzgerald} - all terms must match (AND),</li>
+ *     <li>{@code gatsby OR paradise} - either side may match,</li>
+ *     <li>{@code "great gatsby"} - the words must appear next to each other in one field.</li>
+ * </ul>
+ * Term positions are not stored; phrase candidates are found by intersecting the
+ * posting lists of their words and then confirmed against the book's own text.
+ * {@link #searchFuzzy(String, int)} additionally expands each word to the indexed
+ * terms within a small edit distance, found through a {@link TermDictionary}.
+ * {@link #searchRanked(String, int, Ranking)} orders matches by relevance, using the
+ * term frequencies kept in the postings and the title and author length of each book.
+ *
+ * Re-indexing or removing a book leaves its old document ID behind as a tombstone,
+ * which is skipped at query time. The index is compacted once tombstones outnumber
+ * live documents. The index is thread-safe; queries run concurrently with each other
+ * and exclusively with writes.
+ *
+ * As a {@link SearchIndex} it is never {@link #isCurrent() current}: nothing survives
+ * a restart, so its owner indexes the catalog when it starts.
+ */
+public class CatalogIndex implements SearchIndex {
+
+    private static final int MIN_TOMBSTONES_BEFORE_COMPACTION = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private final Map<String, Integer> docIdsByIsbn = new HashMap<>();
+    private final TermDictionary dictionary = new TermDictionary();
+    private final FacetIndex facets = new FacetIndex();
+    private List<Book> documents = new ArrayList<>();
+    private int[] lengths = new int[16];
+    private long totalLength;
+    private int tombstones;
+
+    /**
+     * Indexes a book, replacing any earlier version with the same ISBN. If only the
+     * copies of the indexed version differ, e.g. after a checkout, the new version takes
+     * its place and availability without re-indexing its text.
+     * @param book The book to index.
+     */
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getIsbn() == null) {
+            throw new IllegalArgumentException("Book and its ISBN cannot be null.");
+        }
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIdsByIsbn.get(Isbn.canonical(book.getIsbn()));
+            // The same instance may have been edited in place, so its postings cannot be trusted.
+            if (docId != null && documents.get(docId) != book && sameText(documents.get(docId), book)) {
+                documents.set(docId, book);
+                facets.setAvailable(docId, book);
+                return;
+            }
+            removeLocked(book.getIsbn());
+            addLocked(book);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes several books at once.
+     * @param books The books to index.
+     */
+    @Override
+    public void indexAll(Iterable<Book> books) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                if (book == null || book.getIsbn() == null) {
+                    throw new IllegalArgumentException("Book and its ISBN cannot be null.");
+                }
+                removeLocked(book.getIsbn());
+                addLocked(book);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a book from the index. Removing an unknown ISBN has no effect.
+     * @param isbn The ISBN of the book to remove.
+     */
+    @Override
+    public void remove(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(isbn);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean isCurrent() {
+        return false;
+    }
+
+    @Override
+    public void rebuild(Iterable<Book> books) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books cannot be null.");
+        }
+        lock.writeLock().lock();
+        try {
+            clearLocked();
+            for (Book book : books) {
+                if (book == null || book.getIsbn() == null) {
+                    throw new IllegalArgumentException("Book and its ISBN cannot be null.");
+                }
+                removeLocked(book.getIsbn());
+                addLocked(book);
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the books matching a query, in indexing order.
+     * @param query The query text.
+     * @return The matching books, or an empty list.
+     */
+    public List<Book> search(String query) {
+        return search(query, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds at most {@code limit} books matching a query, in indexing order.
+     * @param query The query text.
+     * @param limit The maximum number of books to return (> 0).
+     * @return The matching books, or an empty list.
+     */
+    public List<Book> search(String query, int limit) {
+        return search(query, limit, false);
+    }
+
+    /**
+     * Finds at most {@code limit} books matching a query while tolerating typos: each
+     * single word may match any indexed term within one edit (words of four to seven
+     * letters) or two edits (longer words). Words of up to three letters and quoted
+     * phrases must match exactly.
+     * @param query The query text.
+     * @param limit The maximum number of books to return (> 0).
+     * @return The matching books, or an empty list.
+     */
+    public List<Book> searchFuzzy(String query, int limit) {
+        return search(query, limit, true);
+    }
+
+    /**
+     * Finds the {@code limit} most relevant books matching a query under plain BM25.
+     * @param query The query text.
+     * @param limit The maximum number of books to return (> 0).
+     * @return The matching books, most relevant first.
+     * @see #searchRanked(String, int, Ranking)
+     */
+    public List<Book> searchRanked(String query, int limit) {
+        return searchRanked(query, limit, Ranking.BM25);
+    }
+
+    /**
+     * Finds the {@code limit} most relevant books matching a query. Matching is the same
+     * as in {@link #search(String, int)}; every query term then adds its BM25 score for
+     * the title and author of each match. Only the best {@code limit} matches are kept,
+     * in a bounded heap, so the full match set is never sorted. Ties keep indexing order.
+     * @param query   The query text.
+     * @param limit   The maximum number of books to return (> 0).
+     * @param ranking The scoring parameters and boosts.
+     * @return The matching books, most relevant first.
+     */
+    public List<Book> searchRanked(String query, int limit, Ranking ranking) {
+        validateLimit(limit);
+        if (ranking == null) {
+            throw new IllegalArgumentException("Ranking cannot be null.");
+        }
+        List<List<List<String>>> groups = parse(query);
+        if (groups.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            int[] matches = match(groups, false);
+            double[] scores = score(matches, groups, ranking);
+            return topK(matches, scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a query like {@link #search(String, int)} and counts the genres, publication
+     * decades and available books among all of its hits.
+     * @param query The query text.
+     * @param limit The maximum number of books to return (> 0); the counts cover all hits.
+     * @return The hits and facet counts.
+     */
+    public SearchResult searchWithFacets(String query, int limit) {
+        validateLimit(limit);
+        List<List<List<String>>> groups = parse(query);
+        lock.readLock().lock();
+        try {
+            int[] matches = match(groups, false);
+            return facets.count(CompactBitmap.of(matches), resolve(matches, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SearchResult searchWithFacets(String query, int limit, Function<String, Optional<Book>> lookup) {
+        validateLimit(limit);
+        if (lookup == null) {
+            throw new IllegalArgumentException("Lookup cannot be null.");
+        }
+        List<List<List<String>>> groups = parse(query);
+        SearchResult counts;
+        List<String> isbns;
+        lock.readLock().lock();
+        try {
+            int[] matches = match(groups, false);
+            counts = facets.count(CompactBitmap.of(matches), Collections.emptyList());
+            isbns = isbns(resolve(matches, Integer.MAX_VALUE));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts.resolve(isbns, limit, lookup);
+    }
+
+    @Override
+    public List<String> searchIsbns(String query, int limit) {
+        return isbns(search(query, limit));
+    }
+
+    @Override
+    public List<String> searchIsbnsFuzzy(String query, int limit) {
+        return isbns(searchFuzzy(query, limit));
+    }
+
+    @Override
+    public List<String> searchIsbnsRanked(String query, int limit, Ranking ranking) {
+        return isbns(searchRanked(query, limit, ranking));
+    }
+
+    /**
+     * Updates the availability facet of an indexed book after its available copies
+     * changed, without re-indexing its text.
+     * @param book The book.
+     */
+    public void updateAvailability(Book book) {
+        if (book == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer docId = docIdsByIsbn.get(Isbn.canonical(book.getIsbn()));
+            if (docId != null) {
+                facets.setAvailable(docId, book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private List<Book> search(String query, int limit, boolean fuzzy) {
+        validateLimit(limit);
+        List<List<List<String>>> groups = parse(query);
+        if (groups.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            return resolve(match(groups, fuzzy), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers must hold the read lock.
+    private int[] match(List<List<List<String>>> groups, boolean fuzzy) {
+        int[] matches = new int[0];
+        for (List<List<String>> group : groups) {
+            matches = PostingList.union(matches, evaluate(group, fuzzy));
+        }
+        return matches;
+    }
+
+    private List<Book> resolve(int[] matches, int limit) {
+        List<Book> result = new ArrayList<>(Math.min(matches.length, limit));
+        for (int docId : matches) {
+            Book book = documents.get(docId);
+            if (book != null) {
+                result.add(book);
+                if (result.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    // Accumulates the score of every match term by term, walking each posting list once.
+    private double[] score(int[] matches, List<List<List<String>>> groups, Ranking ranking) {
+        double[] scores = new double[matches.length];
+        int documentCount = docIdsByIsbn.size();
+        double averageLength = documentCount == 0 ? 1 : Math.max(1, (double) totalLength / documentCount);
+        Set<String> terms = new LinkedHashSet<>();
+        for (List<List<String>> group : groups) {
+            for (List<String> clause : group) {
+                terms.addAll(clause);
+            }
+        }
+        for (String term : terms) {
+            PostingList list = postings.get(term);
+            if (list == null) {
+                continue;
+            }
+            double idf = Ranking.idf(list.size(), documentCount);
+            int[] docIds = list.array();
+            int position = 0;
+            for (int i = 0; i < matches.length && position < list.size(); i++) {
+                position = PostingList.gallop(docIds, position, list.size(), matches[i]);
+                if (position < list.size() && docIds[position] == matches[i] && list.frequency(position) > 0) {
+                    scores[i] += ranking.termScore(idf, list.frequency(position), lengths[matches[i]], averageLength);
+                }
+            }
+        }
+        for (int i = 0; i < matches.length; i++) {
+            scores[i] = ranking.boost(scores[i], documents.get(matches[i]));
+        }
+        return scores;
+    }
+
+    private List<Book> topK(int[] matches, double[] scores, int limit) {
+        // Worst first: lower score, then later document ID.
+        Comparator<Integer> worstFirst = (a, b) -> {
+            int byScore = Double.compare(scores[a], scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(matches[b], matches[a]);
+        };
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, matches.length) + 1, worstFirst);
+        for (int i = 0; i < matches.length; i++) {
+            best.add(i);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        Book[] ranked = new Book[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = documents.get(matches[best.poll()]);
+        }
+        return Arrays.asList(ranked);
+    }
+
+    private static List<String> isbns(List<Book> books) {
+        List<String> isbns = new ArrayList<>(books.size());
+        for (Book book : books) {
+            isbns.add(Isbn.canonical(book.getIsbn()));
+        }
+        return isbns;
+    }
+
+    private static void validateLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than 0.");
+        }
+    }
+
+    /**
+     * Returns the indexed books, in indexing order.
+     * @return A copy of the live documents.
+     */
+    List<Book> books() {
+        lock.readLock().lock();
+        try {
+            List<Book> live = new ArrayList<>(docIdsByIsbn.size());
+            for (Book book : documents) {
+                if (book != null) {
+                    live.add(book);
+                }
+            }
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of books in the index.
+     * @return The number of indexed books.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByIsbn.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of documents a term occurs in, counting tombstones as the
+     * ranking does. Used by {@link PersistentCatalogIndex} to rank a delta's hits
+     * together with those of its base segment.
+     * @param term A tokenized term.
+     * @return The document frequency.
+     */
+    int documentFrequency(String term) {
+        lock.readLock().lock();
+        try {
+            PostingList list = postings.get(term);
+            return list == null ? 0 : list.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the total number of title and author words of the live documents.
+     * @return The summed document length.
+     */
+    long scoredLength() {
+        lock.readLock().lock();
+        try {
+            return totalLength;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of distinct terms in the index.
+     * @return The number of terms.
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers must hold the write lock.
+    private void addLocked(Book book) {
+        int docId = documents.size();
+        documents.add(book);
+        docIdsByIsbn.put(Isbn.canonical(book.getIsbn()), docId);
+        List<String> scored = scoredWords(book);
+        for (String term : scored) {
+            postingsFor(term).add(docId, 1);
+        }
+        // Genre words are searchable but do not count towards relevance.
+        for (String term : Tokenizer.tokenize(book.getGenre())) {
+            postingsFor(term).add(docId, 0);
+        }
+        if (docId == lengths.length) {
+            lengths = Arrays.copyOf(lengths, docId * 2);
+        }
+        lengths[docId] = scored.size();
+        totalLength += scored.size();
+        facets.add(docId, book);
+    }
+
+    private PostingList postingsFor(String term) {
+        PostingList list = postings.get(term);
+        if (list == null) {
+            list = new PostingList();
+            postings.put(term, list);
+            dictionary.add(term);
+        }
+        return list;
+    }
+
+    private void removeLocked(String isbn) {
+        Integer docId = docIdsByIsbn.remove(Isbn.canonical(isbn));
+        if (docId != null) {
+            documents.set(docId, null);
+            totalLength -= lengths[docId];
+            facets.remove(docId);
+            tombstones++;
+        }
+    }
+
+    private void compactIfNeeded() {
+        if (tombstones < MIN_TOMBSTONES_BEFORE_COMPACTION || tombstones < docIdsByIsbn.size()) {
+            return;
+        }
+        List<Book> live = new ArrayList<>(docIdsByIsbn.size());
+        for (Book book : documents) {
+            if (book != null) {
+                live.add(book);
+            }
+        }
+        clearLocked();
+        documents = new ArrayList<>(live.size());
+        lengths = new int[Math.max(16, live.size())];
+        for (Book book : live) {
+            addLocked(book);
+        }
+    }
+
+    private void clearLocked() {
+        postings.clear();
+        dictionary.clear();
+        facets.clear();
+        docIdsByIsbn.clear();
+        documents = new ArrayList<>();
+        lengths = new int[16];
+        totalLength = 0;
+        tombstones = 0;
+    }
+
+    // Evaluates one AND group of clauses; callers must hold the read lock.
+    private int[] evaluate(List<List<String>> clauses, boolean fuzzy) {
+        List<PostingList> lists = new ArrayList<>();
+        for (List<String> clause : clauses) {
+            for (String term : clause) {
+                PostingList list = fuzzy && clause.size() == 1 ? fuzzyPostings(term) : postings.get(term);
+                if (list == null) {
+                    return new int[0];
+                }
+                lists.add(list);
+            }
+        }
+        lists.sort(Comparator.comparingInt(PostingList::size));
+        int[] candidates = lists.get(0).toArray();
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            PostingList list = lists.get(i);
+            candidates = PostingList.intersect(candidates, candidates.length, list.array(), list.size());
+        }
+        int count = 0;
+        for (int docId : candidates) {
+            Book book = documents.get(docId);
+            if (book != null && containsPhrases(book, clauses)) {
+                candidates[count++] = docId;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    // Unites the postings of every term close enough to the query term; null if there are none.
+    private PostingList fuzzyPostings(String term) {
+        int maxEdits = maxEdits(term);
+        if (maxEdits == 0) {
+            return postings.get(term);
+        }
+        int[] united = new int[0];
+        for (String similar : dictionary.similar(term, maxEdits)) {
+            PostingList list = postings.get(similar);
+            united = PostingList.union(united, list.toArray());
+        }
+        return united.length == 0 ? null : PostingList.of(united);
+    }
+
+    static int maxEdits(String term) {
+        int length = term.codePointCount(0, term.length());
+        return length <= 3 ? 0 : length <= 7 ? 1 : 2;
+    }
+
+    static boolean containsPhrases(Book book, List<List<String>> clauses) {
+        List<List<String>> fields = null;
+        for (List<String> clause : clauses) {
+            if (clause.size() < 2) {
+                continue;
+            }
+            if (fields == null) {
+                fields = Arrays.asList(Tokenizer.tokenize(book.getTitle()),
+                        Tokenizer.tokenize(book.getAuthor()), Tokenizer.tokenize(book.getGenre()));
+            }
+            boolean found = false;
+            for (List<String> field : fields) {
+                if (Collections.indexOfSubList(field, clause) >= 0) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The searchable terms of a book: title, author and genre words.
+    static List<String> terms(Book book) {
+        List<String> terms = new ArrayList<>(Tokenizer.tokenize(book.getTitle()));
+        terms.addAll(Tokenizer.tokenize(book.getAuthor()));
+        terms.addAll(Tokenizer.tokenize(book.getGenre()));
+        return terms;
+    }
+
+    // Whether two versions of a book have the same indexed text and facets other than availability.
+    private static boolean sameText(Book indexed, Book book) {
+        return Objects.equals(indexed.getTitle(), book.getTitle())
+                && Objects.equals(indexed.getAuthor(), book.getAuthor())
+                && Objects.equals(indexed.getGenre(), book.getGenre())
+                && indexed.getPublicationYear() == book.getPublicationYear();
+    }
+
+    // The words that count towards relevance and document length: title and author.
+    static List<String> scoredWords(Book book) {
+        List<String> words = new ArrayList<>(Tokenizer.tokenize(book.getTitle()));
+        words.addAll(Tokenizer.tokenize(book.getAuthor()));
+        return words;
+    }
+
+    /**
+     * Parses a query into OR groups of AND clauses. Each clause is a list of terms:
+     * one term for a plain word, several for a quoted phrase or a word such as
+     * "o'brien" that tokenizes into more than one term.
+     */
+    static List<List<List<String>>> parse(String query) {
+        List<List<List<String>>> groups = new ArrayList<>();
+        if (query == null) {
+            return groups;
+        }
+        List<List<String>> group = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int end;
+            String text;
+            if (c == '"') {
+                end = query.indexOf('"', i + 1);
+                if (end < 0) {
+                    end = query.length();
+                }
+                text = query.substring(i + 1, end);
+                end++;
+            } else {
+                end = i;
+                while (end < query.length() && !Character.isWhitespace(query.charAt(end))) {
+                    end++;
+                }
+                text = query.substring(i, end);
+                if (text.equals("OR")) {
+                    addGroup(groups, group);
+                    group = new ArrayList<>();
+                    i = end;
+                    continue;
+                }
+            }
+            List<String> clause = Tokenizer.tokenize(text);
+            if (!clause.isEmpty()) {
+                group.add(clause);
+            }
+            i = end;
+        }
+        addGroup(groups, group);
+        return groups;
+    }
+
+    private static void addGroup(List<List<List<String>>> groups, List<List<String>> group) {
+        if (!group.isEmpty()) {
+            groups.add(group);
+        }
+    }
+}
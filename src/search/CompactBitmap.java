@@ -0,0 +1,258 @@
+package search;
+
+import java.util.Arrays;
+
+/**
+ * CompactBitmap is a compressed set of non-negative ints in the style of a roaring
+ * bitmap. Values are grouped into chunks by their upper 16 bits. A sparse chunk stores
+ * its lower 16 bits in a sorted {@code char} array (2 bytes per value); once a chunk
+ * holds more than {@link #ARRAY_LIMIT} values it switches to a fixed 8 KB bitset. Both
+ * forms intersect quickly with each other, which is what facet counting needs. Not
+ * thread-safe.
+ */
+public final class CompactBitmap {
+
+    static final int ARRAY_LIMIT = 4096;
+    private static final int BITSET_WORDS = 1 << 10;
+
+    private char[] highs = new char[0];
+    private Object[] chunks = new Object[0];
+    private int[] chunkSizes = new int[0];
+    private int chunkCount;
+    private int cardinality;
+
+    /**
+     * Builds a bitmap from increasing values.
+     * @param sorted The values, in increasing order.
+     * @return The bitmap.
+     */
+    public static CompactBitmap of(int[] sorted) {
+        CompactBitmap bitmap = new CompactBitmap();
+        for (int value : sorted) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Adds a value.
+     * @param value The value (>= 0).
+     */
+    public void add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Bitmap values cannot be negative.");
+        }
+        char high = (char) (value >>> 16);
+        char low = (char) value;
+        int index = chunkIndex(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertChunk(index, high);
+        }
+        Object chunk = chunks[index];
+        int size = chunkSizes[index];
+        if (chunk instanceof long[]) {
+            long[] bits = (long[]) chunk;
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                bits[low >>> 6] |= mask;
+                chunkSizes[index]++;
+                cardinality++;
+            }
+            return;
+        }
+        char[] values = (char[]) chunk;
+        int position = Arrays.binarySearch(values, 0, size, low);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == ARRAY_LIMIT) {
+            long[] bits = toBitset(values, size);
+            bits[low >>> 6] |= 1L << low;
+            chunks[index] = bits;
+        } else {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, size * 2)));
+                chunks[index] = values;
+            }
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = low;
+        }
+        chunkSizes[index]++;
+        cardinality++;
+    }
+
+    /**
+     * Removes a value. Removing an absent value has no effect.
+     * @param value The value.
+     */
+    public void remove(int value) {
+        if (value < 0) {
+            return;
+        }
+        int index = chunkIndex((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        char low = (char) value;
+        Object chunk = chunks[index];
+        int size = chunkSizes[index];
+        if (chunk instanceof long[]) {
+            long[] bits = (long[]) chunk;
+            long mask = 1L << low;
+            if ((bits[low >>> 6] & mask) == 0) {
+                return;
+            }
+            bits[low >>> 6] &= ~mask;
+            if (size - 1 <= ARRAY_LIMIT) {
+                chunks[index] = toArray(bits, size - 1);
+            }
+        } else {
+            char[] values = (char[]) chunk;
+            int position = Arrays.binarySearch(values, 0, size, low);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+        }
+        chunkSizes[index]--;
+        cardinality--;
+        if (chunkSizes[index] == 0) {
+            removeChunk(index);
+        }
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = chunkIndex((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        Object chunk = chunks[index];
+        if (chunk instanceof long[]) {
+            return (((long[]) chunk)[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) chunk, 0, chunkSizes[index], low) >= 0;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Counts the values present in both bitmaps without materializing the intersection.
+     * @param other The other bitmap.
+     * @return The size of the intersection.
+     */
+    public int andCardinality(CompactBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < chunkCount && j < other.chunkCount) {
+            if (highs[i] < other.highs[j]) {
+                i++;
+            } else if (highs[i] > other.highs[j]) {
+                j++;
+            } else {
+                count += intersectChunks(chunks[i], chunkSizes[i], other.chunks[j], other.chunkSizes[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private static int intersectChunks(Object a, int aSize, Object b, int bSize) {
+        if (a instanceof long[] && b instanceof long[]) {
+            long[] x = (long[]) a;
+            long[] y = (long[]) b;
+            int count = 0;
+            for (int w = 0; w < BITSET_WORDS; w++) {
+                count += Long.bitCount(x[w] & y[w]);
+            }
+            return count;
+        }
+        if (a instanceof long[]) {
+            return intersectChunks(b, bSize, a, aSize);
+        }
+        char[] values = (char[]) a;
+        int count = 0;
+        if (b instanceof long[]) {
+            long[] bits = (long[]) b;
+            for (int k = 0; k < aSize; k++) {
+                if ((bits[values[k] >>> 6] & (1L << values[k])) != 0) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        char[] others = (char[]) b;
+        int i = 0;
+        int j = 0;
+        while (i < aSize && j < bSize) {
+            if (values[i] < others[j]) {
+                i++;
+            } else if (values[i] > others[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private int chunkIndex(char high) {
+        return Arrays.binarySearch(highs, 0, chunkCount, high);
+    }
+
+    private void insertChunk(int index, char high) {
+        if (chunkCount == highs.length) {
+            int capacity = Math.max(4, chunkCount * 2);
+            highs = Arrays.copyOf(highs, capacity);
+            chunks = Arrays.copyOf(chunks, capacity);
+            chunkSizes = Arrays.copyOf(chunkSizes, capacity);
+        }
+        System.arraycopy(highs, index, highs, index + 1, chunkCount - index);
+        System.arraycopy(chunks, index, chunks, index + 1, chunkCount - index);
+        System.arraycopy(chunkSizes, index, chunkSizes, index + 1, chunkCount - index);
+        highs[index] = high;
+        chunks[index] = new char[4];
+        chunkSizes[index] = 0;
+        chunkCount++;
+    }
+
+    private void removeChunk(int index) {
+        System.arraycopy(highs, index + 1, highs, index, chunkCount - index - 1);
+        System.arraycopy(chunks, index + 1, chunks, index, chunkCount - index - 1);
+        System.arraycopy(chunkSizes, index + 1, chunkSizes, index, chunkCount - index - 1);
+        chunkCount--;
+        chunks[chunkCount] = null;
+    }
+
+    private static long[] toBitset(char[] values, int size) {
+        long[] bits = new long[BITSET_WORDS];
+        for (int k = 0; k < size; k++) {
+            bits[values[k] >>> 6] |= 1L << values[k];
+        }
+        return bits;
+    }
+
+    private static char[] toArray(long[] bits, int size) {
+        char[] values = new char[size];
+        int count = 0;
+        for (int w = 0; w < BITSET_WORDS; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                values[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,106 @@
+package search;
+
+import model.Book;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * FacetIndex keeps one {@link CompactBitmap} of document IDs per facet value: per
+ * genre, per publication decade, and one for books with copies available. Facet
+ * counts for a result set are then bitmap intersection counts, independent of how
+ * the books themselves are stored. Not thread-safe; {@link CatalogIndex} guards it
+ * with its own lock.
+ */
+final class FacetIndex {
+
+    private final Map<String, CompactBitmap> byGenre = new HashMap<>();
+    private final Map<String, String> genreLabels = new HashMap<>();
+    private final Map<Integer, CompactBitmap> byDecade = new HashMap<>();
+    private CompactBitmap available = new CompactBitmap();
+
+    void add(int docId, Book book) {
+        String genre = book.getGenre();
+        if (genre != null && !genre.trim().isEmpty()) {
+            String key = Tokenizer.fold(genre.trim());
+            genreLabels.putIfAbsent(key, genre.trim());
+            byGenre.computeIfAbsent(key, k -> new CompactBitmap()).add(docId);
+        }
+        byDecade.computeIfAbsent(decadeOf(book), k -> new CompactBitmap()).add(docId);
+        setAvailable(docId, book);
+    }
+
+    void setAvailable(int docId, Book book) {
+        if (book.getAvailableCopies() > 0) {
+            available.add(docId);
+        } else {
+            available.remove(docId);
+        }
+    }
+
+    void remove(int docId) {
+        removeFrom(byGenre, docId);
+        removeFrom(byDecade, docId);
+        available.remove(docId);
+        genreLabels.keySet().retainAll(byGenre.keySet());
+    }
+
+    void clear() {
+        byGenre.clear();
+        genreLabels.clear();
+        byDecade.clear();
+        available = new CompactBitmap();
+    }
+
+    /**
+     * Counts every facet value within a set of documents.
+     * @param docIds The documents, e.g. the hits of a query.
+     * @param books  The books of the first hits, returned alongside the counts.
+     * @return The search result.
+     */
+    SearchResult count(CompactBitmap docIds, List<Book> books) {
+        List<Map.Entry<String, Integer>> genres = new ArrayList<>();
+        for (Map.Entry<String, CompactBitmap> entry : byGenre.entrySet()) {
+            int count = entry.getValue().andCardinality(docIds);
+            if (count > 0) {
+                genres.add(Map.entry(genreLabels.get(entry.getKey()), count));
+            }
+        }
+        genres.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> genreCounts = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : genres) {
+            genreCounts.put(entry.getKey(), entry.getValue());
+        }
+        Map<Integer, Integer> decadeCounts = new TreeMap<>();
+        for (Map.Entry<Integer, CompactBitmap> entry : byDecade.entrySet()) {
+            int count = entry.getValue().andCardinality(docIds);
+            if (count > 0) {
+                decadeCounts.put(entry.getKey(), count);
+            }
+        }
+        return new SearchResult(books, docIds.cardinality(), genreCounts, decadeCounts,
+                available.andCardinality(docIds));
+    }
+
+    static int decadeOf(Book book) {
+        return book.getPublicationYear() / 10 * 10;
+    }
+
+    private static <K> void removeFrom(Map<K, CompactBitmap> facets, int docId) {
+        Iterator<CompactBitmap> bitmaps = facets.values().iterator();
+        while (bitmaps.hasNext()) {
+            CompactBitmap bitmap = bitmaps.next();
+            bitmap.remove(docId);
+            if (bitmap.cardinality() == 0) {
+                bitmaps.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package search;
+
+import model.Book;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IndexSegment is an immutable inverted index over a fixed set of books, stored in one
+ * file and read through a memory mapping. Opening a segment only maps the file and
+ * checks its header, so it takes the same time for ten books as for ten million;
+ * pages are loaded by the OS as queries touch them.
+ *
+ * File layout (big-endian):
+ * <pre>
+ *     header     magic, version, document count, term count,
+ *                offsets of the five sections below (longs),
+ *                number of title and author words of all documents (long)
+ *     documents  per document: offset of its record in the record section (long)
+ *     terms      per term, in unsigned UTF-8 byte order: offset and length of its bytes
+ *                in the term bytes section, first posting and posting count (ints)
+ *     postings   document IDs (ints), increasing within each term
+ *     term bytes UTF-8 bytes of all terms
+ *     records    per document: ISBN, title, author, genre as length-prefixed UTF-8
+ *                (length -1 for null), then year, total and available copies (ints)
+ * </pre>
+ * The whole file must fit one mapping, i.e. stay below 2 GB. Version 1 segments lack
+ * the word count, which is then counted from the records when first needed.
+ *
+ * The term dictionary used for typo-tolerant queries is built from the term section
+ * on the first such query, once per segment.
+ */
+final class IndexSegment {
+
+    private static final int MAGIC = 0x4C494458;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 4 * 4 + 6 * 8;
+    private static final int VERSION_1_HEADER_SIZE = 4 * 4 + 5 * 8;
+    private static final int TERM_ENTRY_SIZE = 4 * 4;
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int documentCount;
+    private final int termCount;
+    private final int documentsOffset;
+    private final int termsOffset;
+    private final int postingsOffset;
+    private final int termBytesOffset;
+    private final int recordsOffset;
+    // Guarded by this; computed or built on first use.
+    private long scoredLength;
+    private TermDictionary dictionary;
+
+    private IndexSegment(Path file, MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+        int version = buffer.capacity() < VERSION_1_HEADER_SIZE || buffer.getInt(0) != MAGIC ? -1 : buffer.getInt(4);
+        int headerSize = version == 1 ? VERSION_1_HEADER_SIZE : HEADER_SIZE;
+        if ((version != 1 && version != VERSION) || buffer.capacity() < headerSize) {
+            throw new IllegalStateException("Unrecognized index segment " + file);
+        }
+        this.documentCount = buffer.getInt(8);
+        this.termCount = buffer.getInt(12);
+        this.documentsOffset = (int) buffer.getLong(16);
+        this.termsOffset = (int) buffer.getLong(24);
+        this.postingsOffset = (int) buffer.getLong(32);
+        this.termBytesOffset = (int) buffer.getLong(40);
+        this.recordsOffset = (int) buffer.getLong(48);
+        this.scoredLength = version == 1 ? -1 : buffer.getLong(56);
+    }
+
+    /**
+     * Maps an existing segment file.
+     * @param file The segment file.
+     * @return The segment.
+     * @throws IOException if the file cannot be read.
+     */
+    static IndexSegment open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Index segment " + file + " is larger than 2 GB.");
+            }
+            return new IndexSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes a segment over the given books, in their iteration order, and maps it. The
+     * file is written under a temporary name and then moved into place.
+     * @param file  The segment file to create.
+     * @param books The books; their ISBNs must be distinct.
+     * @return The segment.
+     * @throws IOException if the file cannot be written.
+     */
+    static IndexSegment write(Path file, Collection<Book> books) throws IOException {
+        Map<String, PostingList> postings = new HashMap<>();
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        long[] recordOffsets = new long[books.size()];
+        long scoredLength = 0;
+        int docId = 0;
+        for (Book book : books) {
+            recordOffsets[docId] = records.size();
+            writeText(records, book.getIsbn());
+            writeText(records, book.getTitle());
+            writeText(records, book.getAuthor());
+            writeText(records, book.getGenre());
+            records.writeInt(book.getPublicationYear());
+            records.writeInt(book.getTotalCopies());
+            records.writeInt(book.getAvailableCopies());
+            scoredLength += CatalogIndex.scoredWords(book).size();
+            for (String term : CatalogIndex.terms(book)) {
+                postings.computeIfAbsent(term, t -> new PostingList()).add(docId);
+            }
+            docId++;
+        }
+        byte[][] terms = new byte[postings.size()][];
+        PostingList[] lists = new PostingList[terms.length];
+        int t = 0;
+        for (String term : postings.keySet()) {
+            terms[t++] = term.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(terms, Arrays::compareUnsigned);
+        for (t = 0; t < terms.length; t++) {
+            lists[t] = postings.get(new String(terms[t], StandardCharsets.UTF_8));
+        }
+
+        long documentsOffset = HEADER_SIZE;
+        long termsOffset = documentsOffset + 8L * books.size();
+        long postingsOffset = termsOffset + (long) TERM_ENTRY_SIZE * terms.length;
+        long postingCount = 0;
+        long termByteCount = 0;
+        for (t = 0; t < terms.length; t++) {
+            postingCount += lists[t].size();
+            termByteCount += terms[t].length;
+        }
+        long termBytesOffset = postingsOffset + 4 * postingCount;
+        long recordsOffset = termBytesOffset + termByteCount;
+        if (recordsOffset + records.size() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many books for one index segment.");
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(books.size());
+            out.writeInt(terms.length);
+            out.writeLong(documentsOffset);
+            out.writeLong(termsOffset);
+            out.writeLong(postingsOffset);
+            out.writeLong(termBytesOffset);
+            out.writeLong(recordsOffset);
+            out.writeLong(scoredLength);
+            for (long offset : recordOffsets) {
+                out.writeLong(offset);
+            }
+            int firstPosting = 0;
+            int termByte = 0;
+            for (t = 0; t < terms.length; t++) {
+                out.writeInt(termByte);
+                out.writeInt(terms[t].length);
+                out.writeInt(firstPosting);
+                out.writeInt(lists[t].size());
+                firstPosting += lists[t].size();
+                termByte += terms[t].length;
+            }
+            for (PostingList list : lists) {
+                for (int i = 0; i < list.size(); i++) {
+                    out.writeInt(list.get(i));
+                }
+            }
+            for (byte[] term : terms) {
+                out.write(term);
+            }
+            recordBytes.writeTo(out);
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        return open(file);
+    }
+
+    Path file() {
+        return file;
+    }
+
+    int size() {
+        return documentCount;
+    }
+
+    /**
+     * Returns the total number of title and author words, the document length used by
+     * {@link Ranking}.
+     * @return The summed length of all documents.
+     */
+    synchronized long scoredLength() {
+        if (scoredLength < 0) {
+            long length = 0;
+            for (int docId = 0; docId < documentCount; docId++) {
+                length += CatalogIndex.scoredWords(book(docId)).size();
+            }
+            scoredLength = length;
+        }
+        return scoredLength;
+    }
+
+    /**
+     * Returns a dictionary of the segment's terms for finding similar ones.
+     * @return The dictionary; callers must not add to it.
+     */
+    synchronized TermDictionary dictionary() {
+        if (dictionary == null) {
+            TermDictionary terms = new TermDictionary();
+            for (int index = 0; index < termCount; index++) {
+                int entry = termsOffset + index * TERM_ENTRY_SIZE;
+                byte[] bytes = new byte[buffer.getInt(entry + 4)];
+                buffer.get(termBytesOffset + buffer.getInt(entry), bytes);
+                terms.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            dictionary = terms;
+        }
+        return dictionary;
+    }
+
+    /**
+     * Returns the document IDs containing a term.
+     * @param term A tokenized term.
+     * @return The increasing document IDs, or null if the term does not occur.
+     */
+    int[] postings(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int entry = termsOffset + mid * TERM_ENTRY_SIZE;
+                int first = buffer.getInt(entry + 8);
+                int[] docIds = new int[buffer.getInt(entry + 12)];
+                for (int i = 0; i < docIds.length; i++) {
+                    docIds[i] = buffer.getInt(postingsOffset + 4 * (first + i));
+                }
+                return docIds;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Decodes the ISBN of a document, skipping its other fields.
+     * @param docId The document ID.
+     * @return The ISBN as it was indexed.
+     */
+    String isbn(int docId) {
+        int position = recordsOffset + (int) buffer.getLong(documentsOffset + 8 * docId);
+        byte[] bytes = new byte[buffer.getInt(position)];
+        buffer.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes a document, e.g. to confirm a phrase or to copy it into a new segment.
+     * @param docId The document ID.
+     * @return A new Book with the stored fields.
+     */
+    Book book(int docId) {
+        int position = recordsOffset + (int) buffer.getLong(documentsOffset + 8 * docId);
+        String[] texts = new String[4];
+        for (int i = 0; i < texts.length; i++) {
+            int length = buffer.getInt(position);
+            position += 4;
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                buffer.get(position, bytes);
+                texts[i] = new String(bytes, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+        Book book = new Book(texts[1], texts[2], texts[3], texts[0], buffer.getInt(position),
+                buffer.getInt(position + 4));
+        book.setAvailableCopies(buffer.getInt(position + 8));
+        return book;
+    }
+
+    /**
+     * Decodes every document, in document ID order.
+     * @return The books.
+     */
+    List<Book> books() {
+        List<Book> books = new ArrayList<>(documentCount);
+        for (int docId = 0; docId < documentCount; docId++) {
+            books.add(book(docId));
+        }
+        return books;
+    }
+
+    private int compareTerm(int index, byte[] key) {
+        int entry = termsOffset + index * TERM_ENTRY_SIZE;
+        int start = termBytesOffset + buffer.getInt(entry);
+        int length = buffer.getInt(entry + 4);
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(start + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private static void writeText(DataOutputStream out, String text) throws IOException {
+        if (text == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -0,0 +1,715 @@
+package search;
+
+import model.Book;
+import model.Isbn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * PersistentCatalogIndex is a keyword index whose bulk lives on disk, so a restarted
+ * node can answer searches as soon as the index file is mapped instead of re-indexing
+ * the whole catalog.
+ *
+ * The index has up to three layers:
+ * <ul>
+ *     <li>a base {@link IndexSegment}, immutable and memory-mapped,</li>
+ *     <li>a frozen delta being merged into a new base in the background, and</li>
+ *     <li>the active delta, a small {@link CatalogIndex} receiving new changes.</li>
+ * </ul>
+ * A newer layer hides every book of older layers with an ISBN it indexed or removed.
+ * Once the active delta holds {@code mergeThreshold} changes it is frozen and merged
+ * with the base into a new segment file, which then replaces the base; the old file is
+ * deleted. {@link #close()} merges any remaining changes, so they survive a restart.
+ *
+ * Changes buffered in the deltas are lost if the process dies before they are merged.
+ * So that this is never silent, {@link #close()} records the generation of the segment
+ * it leaves behind in a marker file, and the first change after opening deletes it. An
+ * index opened without a matching marker is not {@link #isCurrent() current}: its
+ * owner must {@link #rebuild(Iterable) rebuild} it from the catalog.
+ *
+ * Queries use the syntax of {@link CatalogIndex#search(String, int)} and return the
+ * canonical ISBNs of the matches, base results first in segment order, followed by the
+ * deltas' results. The stored fields of a book are what it looked like when indexed;
+ * they are read to confirm phrases, to rank and facet hits and to write new segments,
+ * and callers look the current books up in their catalog. The index is thread-safe.
+ */
+public class PersistentCatalogIndex implements SearchIndex, Closeable {
+
+    public static final int DEFAULT_MERGE_THRESHOLD = 10_000;
+
+    private static final String SEGMENT_PREFIX = "catalog-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CLEAN_MARKER = "catalog.clean";
+
+    private final Path directory;
+    private final int mergeThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object mergeLock = new Object();
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean();
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "catalog-index-merge");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private IndexSegment base;
+    private long generation;
+    private Delta frozen;
+    private Delta active = new Delta();
+    // Whether the marker of a clean close matches the base and nothing changed since; guarded by lock.
+    private boolean current;
+    private volatile RuntimeException lastMergeFailure;
+
+    /**
+     * Opens the index stored in a directory, using the default merge threshold.
+     * @param directory The directory holding the segment files.
+     */
+    public PersistentCatalogIndex(Path directory) {
+        this(directory, DEFAULT_MERGE_THRESHOLD);
+    }
+
+    /**
+     * Opens (or creates) the index stored in a directory by mapping its newest segment.
+     * @param directory      The directory holding the segment files.
+     * @param mergeThreshold The number of buffered changes that triggers a background merge (> 0).
+     */
+    public PersistentCatalogIndex(Path directory, int mergeThreshold) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null.");
+        }
+        if (mergeThreshold <= 0) {
+            throw new IllegalArgumentException("Merge threshold must be greater than 0.");
+        }
+        this.directory = directory;
+        this.mergeThreshold = mergeThreshold;
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+                for (Path file : files) {
+                    if (file.getFileName().toString().endsWith(SEGMENT_SUFFIX)) {
+                        segments.add(file);
+                    } else {
+                        Files.deleteIfExists(file); // an unfinished merge
+                    }
+                }
+            }
+            segments.sort(Comparator.comparing(Path::getFileName));
+            if (!segments.isEmpty()) {
+                Path newest = segments.remove(segments.size() - 1);
+                base = IndexSegment.open(newest);
+                generation = generationOf(newest);
+                for (Path stale : segments) {
+                    Files.deleteIfExists(stale);
+                }
+            }
+            current = readMarker() == generation;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open catalog index in " + directory, e);
+        }
+    }
+
+    /**
+     * Indexes a book, replacing any earlier version with the same ISBN.
+     * @param book The book to index.
+     */
+    @Override
+    public void index(Book book) {
+        if (book == null || book.getIsbn() == null) {
+            throw new IllegalArgumentException("Book and its ISBN cannot be null.");
+        }
+        lock.writeLock().lock();
+        try {
+            markChanged();
+            active.index.index(book);
+            active.shadowed.add(Isbn.canonical(book.getIsbn()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleMergeIfNeeded();
+    }
+
+    /**
+     * Indexes several books at once.
+     * @param books The books to index.
+     */
+    @Override
+    public void indexAll(Iterable<Book> books) {
+        for (Book book : books) {
+            index(book);
+        }
+    }
+
+    /**
+     * Removes a book from the index. Removing an unknown ISBN has no effect.
+     * @param isbn The ISBN of the book to remove.
+     */
+    @Override
+    public void remove(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markChanged();
+            active.index.remove(isbn);
+            active.shadowed.add(Isbn.canonical(isbn));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleMergeIfNeeded();
+    }
+
+    /**
+     * Finds the ISBNs of the books matching a query.
+     * @param query The query text.
+     * @return The canonical ISBNs of the matches, or an empty list.
+     */
+    public List<String> searchIsbns(String query) {
+        return searchIsbns(query, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<String> searchIsbns(String query, int limit) {
+        return isbns(query, limit, false);
+    }
+
+    /**
+     * {@inheritDoc} Base hits are expanded through a dictionary of the segment's terms,
+     * built by the first such query after the segment is mapped.
+     */
+    @Override
+    public List<String> searchIsbnsFuzzy(String query, int limit) {
+        return isbns(query, limit, true);
+    }
+
+    /**
+     * {@inheritDoc} Scores are computed from the stored fields of every hit, with
+     * document frequencies summed over the layers; books a newer layer hides still
+     * count towards those frequencies until they are merged away.
+     */
+    @Override
+    public List<String> searchIsbnsRanked(String query, int limit, Ranking ranking) {
+        validateLimit(limit);
+        if (ranking == null) {
+            throw new IllegalArgumentException("Ranking cannot be null.");
+        }
+        List<List<List<String>>> groups = CatalogIndex.parse(query);
+        if (groups.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        for (List<List<String>> group : groups) {
+            for (List<String> clause : group) {
+                terms.addAll(clause);
+            }
+        }
+        lock.readLock().lock();
+        try {
+            List<Hit> hits = hits(query, groups, false, Integer.MAX_VALUE);
+            int documentCount = active.index.size() + (frozen == null ? 0 : frozen.index.size())
+                    + (base == null ? 0 : base.size());
+            long totalLength = active.index.scoredLength() + (frozen == null ? 0 : frozen.index.scoredLength())
+                    + (base == null ? 0 : base.scoredLength());
+            double averageLength = documentCount == 0 ? 1 : Math.max(1, (double) totalLength / documentCount);
+            Map<String, Double> idfs = new HashMap<>();
+            for (String term : terms) {
+                int[] docIds = base == null ? null : base.postings(term);
+                int df = (docIds == null ? 0 : docIds.length) + active.index.documentFrequency(term)
+                        + (frozen == null ? 0 : frozen.index.documentFrequency(term));
+                idfs.put(term, Ranking.idf(df, documentCount));
+            }
+            double[] scores = new double[hits.size()];
+            for (int i = 0; i < scores.length; i++) {
+                Book book = hits.get(i).record();
+                List<String> words = CatalogIndex.scoredWords(book);
+                for (String term : terms) {
+                    int frequency = Collections.frequency(words, term);
+                    if (frequency > 0) {
+                        scores[i] += ranking.termScore(idfs.get(term), frequency, words.size(), averageLength);
+                    }
+                }
+                scores[i] = ranking.boost(scores[i], book);
+            }
+            return topK(hits, scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc} Counts are taken from the stored fields of every hit.
+     */
+    @Override
+    public SearchResult searchWithFacets(String query, int limit, Function<String, Optional<Book>> lookup) {
+        validateLimit(limit);
+        if (lookup == null) {
+            throw new IllegalArgumentException("Lookup cannot be null.");
+        }
+        List<List<List<String>>> groups = CatalogIndex.parse(query);
+        FacetIndex facets = new FacetIndex();
+        List<String> isbns = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (!groups.isEmpty()) {
+                for (Hit hit : hits(query, groups, false, Integer.MAX_VALUE)) {
+                    facets.add(isbns.size(), hit.record());
+                    isbns.add(hit.isbn);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        int[] docIds = new int[isbns.size()];
+        Arrays.setAll(docIds, i -> i);
+        return facets.count(CompactBitmap.of(docIds), Collections.emptyList()).resolve(isbns, limit, lookup);
+    }
+
+    /**
+     * Writes all buffered changes into a new segment now, blocking until it replaces
+     * the base. Normally merges happen in the background.
+     * @throws UncheckedIOException if the segment cannot be written; the changes stay
+     *         buffered and are retried by the next merge.
+     */
+    public void merge() {
+        synchronized (mergeLock) {
+            Delta merging;
+            IndexSegment oldBase;
+            long nextGeneration;
+            lock.writeLock().lock();
+            try {
+                if (frozen == null) {
+                    if (active.shadowed.isEmpty()) {
+                        return;
+                    }
+                    frozen = active;
+                    active = new Delta();
+                }
+                merging = frozen;
+                oldBase = base;
+                nextGeneration = generation + 1;
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            List<Book> books = new ArrayList<>();
+            if (oldBase != null) {
+                for (Book book : oldBase.books()) {
+                    if (!hidden(Isbn.canonical(book.getIsbn()), merging)) {
+                        books.add(book);
+                    }
+                }
+            }
+            books.addAll(merging.index.books());
+            IndexSegment merged;
+            try {
+                merged = IndexSegment.write(directory.resolve(segmentName(nextGeneration)), books);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write catalog index segment.", e);
+            }
+
+            lock.writeLock().lock();
+            try {
+                base = merged;
+                generation = nextGeneration;
+                frozen = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (oldBase != null) {
+                try {
+                    Files.deleteIfExists(oldBase.file());
+                } catch (IOException e) {
+                    // The stale segment is removed on the next open.
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given books, written straight into a new base
+     * segment, e.g. to recover an index that is not {@link #isCurrent() current}.
+     * Changes made concurrently with the rebuild are lost.
+     * @param books The complete catalog, each ISBN at most once.
+     * @throws UncheckedIOException if the segment cannot be written; the index is unchanged.
+     */
+    @Override
+    public void rebuild(Iterable<Book> books) {
+        if (books == null) {
+            throw new IllegalArgumentException("Books cannot be null.");
+        }
+        synchronized (mergeLock) {
+            IndexSegment oldBase;
+            long nextGeneration;
+            lock.writeLock().lock();
+            try {
+                markChanged();
+                oldBase = base;
+                nextGeneration = generation + 1;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            List<Book> contents = new ArrayList<>();
+            books.forEach(contents::add);
+            IndexSegment rebuilt;
+            try {
+                rebuilt = IndexSegment.write(directory.resolve(segmentName(nextGeneration)), contents);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write catalog index segment.", e);
+            }
+            lock.writeLock().lock();
+            try {
+                base = rebuilt;
+                generation = nextGeneration;
+                frozen = null;
+                active = new Delta();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (oldBase != null) {
+                try {
+                    Files.deleteIfExists(oldBase.file());
+                } catch (IOException e) {
+                    // The stale segment is removed on the next open.
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether the index holds every change made to it before the last close,
+     * i.e. it was closed cleanly and has not been changed since it was opened. An index
+     * that is not current may be missing changes lost in a crash and should be rebuilt.
+     * @return True if the index is current.
+     */
+    @Override
+    public boolean isCurrent() {
+        lock.readLock().lock();
+        try {
+            return current;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of books in the mapped base segment, including books hidden by
+     * newer changes.
+     * @return The base segment size.
+     */
+    public int segmentSize() {
+        lock.readLock().lock();
+        try {
+            return base == null ? 0 : base.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of changed ISBNs not yet merged into the base segment.
+     * @return The number of buffered changes.
+     */
+    public int pendingChanges() {
+        lock.readLock().lock();
+        try {
+            return active.shadowed.size() + (frozen == null ? 0 : frozen.shadowed.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the failure of the last background merge, if it failed.
+     * @return The failure, or null.
+     */
+    public RuntimeException lastMergeFailure() {
+        return lastMergeFailure;
+    }
+
+    /**
+     * Waits for a running background merge, merges the remaining changes, stops the
+     * merge thread and marks the index as cleanly closed.
+     */
+    @Override
+    public void close() {
+        merger.shutdown();
+        try {
+            merger.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (mergeLock) {
+            merge();
+            writeMarker();
+        }
+    }
+
+    // Deletes the clean-close marker before the first change. Callers must hold the write lock.
+    private void markChanged() {
+        if (!current) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(CLEAN_MARKER));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not update catalog index marker.", e);
+        }
+        current = false;
+    }
+
+    // Returns the generation recorded by the last clean close, or -1 if there is none.
+    private long readMarker() throws IOException {
+        Path marker = directory.resolve(CLEAN_MARKER);
+        if (!Files.exists(marker)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(Files.readString(marker).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Records that the base holds every change, unless one arrived after the final merge.
+    private void writeMarker() {
+        Path marker = directory.resolve(CLEAN_MARKER);
+        Path temp = directory.resolve(CLEAN_MARKER + ".tmp");
+        lock.writeLock().lock();
+        try {
+            if (frozen != null || !active.shadowed.isEmpty()) {
+                return;
+            }
+            Files.writeString(temp, Long.toString(generation));
+            Files.move(temp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            current = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write catalog index marker.", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void scheduleMergeIfNeeded() {
+        boolean full;
+        lock.readLock().lock();
+        try {
+            full = active.shadowed.size() >= mergeThreshold;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!full || !mergeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            merger.execute(() -> {
+                try {
+                    merge();
+                    lastMergeFailure = null;
+                } catch (RuntimeException e) {
+                    lastMergeFailure = e;
+                } finally {
+                    mergeScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Closing; close() merges the remaining changes itself.
+            mergeScheduled.set(false);
+        }
+    }
+
+    private List<String> isbns(String query, int limit, boolean fuzzy) {
+        validateLimit(limit);
+        List<List<List<String>>> groups = CatalogIndex.parse(query);
+        if (groups.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<String> isbns = new ArrayList<>();
+            for (Hit hit : hits(query, groups, fuzzy, limit)) {
+                isbns.add(hit.isbn);
+            }
+            return isbns;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Collects up to limit live hits of all layers, base first. Callers must hold the read lock.
+    private List<Hit> hits(String query, List<List<List<String>>> groups, boolean fuzzy, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        if (base != null) {
+            for (int docId : match(base, groups, fuzzy)) {
+                String isbn = Isbn.canonical(base.isbn(docId));
+                if (!hidden(isbn, frozen) && !hidden(isbn, active) && add(hits, new Hit(isbn, base, docId, null), limit)) {
+                    return hits;
+                }
+            }
+        }
+        if (frozen != null) {
+            for (Book book : frozen.search(query, fuzzy)) {
+                String isbn = Isbn.canonical(book.getIsbn());
+                if (!hidden(isbn, active) && add(hits, new Hit(isbn, null, -1, book), limit)) {
+                    return hits;
+                }
+            }
+        }
+        for (Book book : active.search(query, fuzzy)) {
+            if (add(hits, new Hit(Isbn.canonical(book.getIsbn()), null, -1, book), limit)) {
+                return hits;
+            }
+        }
+        return hits;
+    }
+
+    // Keeps the best limit hits in a bounded heap; ties keep hit order.
+    private static List<String> topK(List<Hit> hits, double[] scores, int limit) {
+        Comparator<Integer> worstFirst = (a, b) -> {
+            int byScore = Double.compare(scores[a], scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(b, a);
+        };
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.min(limit, hits.size()) + 1, worstFirst);
+        for (int i = 0; i < hits.size(); i++) {
+            best.add(i);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        String[] ranked = new String[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = hits.get(best.poll()).isbn;
+        }
+        return Arrays.asList(ranked);
+    }
+
+    // Evaluates OR groups of AND clauses against a segment's postings.
+    private static int[] match(IndexSegment segment, List<List<List<String>>> groups, boolean fuzzy) {
+        int[] matches = new int[0];
+        for (List<List<String>> group : groups) {
+            matches = PostingList.union(matches, evaluate(segment, group, fuzzy));
+        }
+        return matches;
+    }
+
+    private static int[] evaluate(IndexSegment segment, List<List<String>> clauses, boolean fuzzy) {
+        List<int[]> lists = new ArrayList<>();
+        boolean phrases = false;
+        for (List<String> clause : clauses) {
+            phrases |= clause.size() > 1;
+            for (String term : clause) {
+                int[] docIds = fuzzy && clause.size() == 1 ? fuzzyPostings(segment, term) : segment.postings(term);
+                if (docIds == null) {
+                    return new int[0];
+                }
+                lists.add(docIds);
+            }
+        }
+        lists.sort(Comparator.comparingInt(docIds -> docIds.length));
+        int[] candidates = lists.get(0);
+        for (int i = 1; i < lists.size() && candidates.length > 0; i++) {
+            candidates = PostingList.intersect(candidates, candidates.length, lists.get(i), lists.get(i).length);
+        }
+        if (!phrases) {
+            return candidates;
+        }
+        int count = 0;
+        for (int docId : candidates) {
+            if (CatalogIndex.containsPhrases(segment.book(docId), clauses)) {
+                candidates[count++] = docId;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    // Unites the postings of every segment term close enough to the query term; null if there are none.
+    private static int[] fuzzyPostings(IndexSegment segment, String term) {
+        int maxEdits = CatalogIndex.maxEdits(term);
+        if (maxEdits == 0) {
+            return segment.postings(term);
+        }
+        int[] united = new int[0];
+        for (String similar : segment.dictionary().similar(term, maxEdits)) {
+            united = PostingList.union(united, segment.postings(similar));
+        }
+        return united.length == 0 ? null : united;
+    }
+
+    private static boolean hidden(String isbn, Delta newer) {
+        return newer != null && newer.shadowed.contains(isbn);
+    }
+
+    // Adds a hit and returns true once the limit is reached.
+    private static boolean add(List<Hit> hits, Hit hit, int limit) {
+        hits.add(hit);
+        return hits.size() == limit;
+    }
+
+    private static void validateLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be greater than 0.");
+        }
+    }
+
+    private static String segmentName(long generation) {
+        return String.format("%s%020d%s", SEGMENT_PREFIX, generation, SEGMENT_SUFFIX);
+    }
+
+    private static long generationOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Changes buffered in memory: the books indexed since the last merge, and every ISBN indexed or removed.
+    private static final class Delta {
+        private final CatalogIndex index = new CatalogIndex();
+        private final Set<String> shadowed = new HashSet<>();
+
+        private List<Book> search(String query, boolean fuzzy) {
+            return fuzzy ? index.searchFuzzy(query, Integer.MAX_VALUE) : index.search(query);
+        }
+    }
+
+    // A live hit; base hits decode their stored fields only when ranking or faceting needs them.
+    private static final class Hit {
+        private final String isbn;
+        private final IndexSegment segment;
+        private final int docId;
+        private final Book book;
+
+        private Hit(String isbn, IndexSegment segment, int docId, Book book) {
+            this.isbn = isbn;
+            this.segment = segment;
+            this.docId = docId;
+            this.book = book;
+        }
+
+        private Book record() {
+            return book != null ? book : segment.book(docId);
+        }
+    }
+}
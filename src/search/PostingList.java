@@ -0,0 +1,167 @@
+package search;
+
+import java.util.Arrays;
+
+/**
+ * PostingList is a growable, strictly increasing array of document IDs, together with
+ * the set operations used to evaluate queries over such arrays. Intersections gallop
+ * through the longer list, so a rare term combined with a very common one costs
+ * O(k log n) rather than O(n).
+ *
+ * Each document ID carries a term frequency, the number of times the term occurs in
+ * the scored fields of that document, for relevance ranking.
+ */
+public final class PostingList {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] docIds = new int[4];
+    private char[] frequencies = new char[4];
+    private int size;
+
+    /**
+     * Appends a document ID with a term frequency of one.
+     * @param docId The document ID.
+     * @see #add(int, int)
+     */
+    public void add(int docId) {
+        add(docId, 1);
+    }
+
+    /**
+     * Appends a document ID, which must be greater than every ID already in the list.
+     * Appending the last ID again adds to its term frequency instead.
+     * @param docId     The document ID.
+     * @param frequency The number of occurrences to add (>= 0); frequencies saturate at 65535.
+     */
+    public void add(int docId, int frequency) {
+        if (frequency < 0) {
+            throw new IllegalArgumentException("Frequency cannot be negative.");
+        }
+        if (size > 0 && docIds[size - 1] >= docId) {
+            if (docIds[size - 1] == docId) {
+                frequencies[size - 1] = (char) Math.min(Character.MAX_VALUE, frequencies[size - 1] + frequency);
+                return;
+            }
+            throw new IllegalArgumentException("Document IDs must be added in increasing order.");
+        }
+        if (size == docIds.length) {
+            int capacity = size + (size >> 1) + 1;
+            docIds = Arrays.copyOf(docIds, capacity);
+            frequencies = Arrays.copyOf(frequencies, capacity);
+        }
+        frequencies[size] = (char) Math.min(Character.MAX_VALUE, frequency);
+        docIds[size++] = docId;
+    }
+
+    // Wraps an increasing array without copying it; every frequency reads as one.
+    static PostingList of(int[] docIds) {
+        PostingList list = new PostingList();
+        list.docIds = docIds;
+        list.frequencies = null;
+        list.size = docIds.length;
+        return list;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int index) {
+        return docIds[index];
+    }
+
+    /**
+     * Returns the term frequency stored with the document ID at an index.
+     * @param index The index (0 to size() - 1).
+     * @return The term frequency.
+     */
+    public int frequency(int index) {
+        return frequencies == null ? 1 : frequencies[index];
+    }
+
+    // The backing array, valid up to size(); for read-only use under the owner's lock.
+    int[] array() {
+        return docIds;
+    }
+
+    /**
+     * Returns a trimmed copy of the document IDs.
+     * @return The document IDs in increasing order.
+     */
+    public int[] toArray() {
+        return size == 0 ? EMPTY : Arrays.copyOf(docIds, size);
+    }
+
+    /**
+     * Intersects two increasing arrays.
+     * @return The IDs present in both arrays, in increasing order.
+     */
+    public static int[] intersect(int[] a, int aSize, int[] b, int bSize) {
+        if (aSize > bSize) {
+            return intersect(b, bSize, a, aSize);
+        }
+        int[] result = new int[aSize];
+        int count = 0;
+        int from = 0;
+        for (int i = 0; i < aSize && from < bSize; i++) {
+            int target = a[i];
+            from = gallop(b, from, bSize, target);
+            if (from < bSize && b[from] == target) {
+                result[count++] = target;
+                from++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Merges two increasing arrays.
+     * @return The IDs present in either array, in increasing order and without duplicates.
+     */
+    public static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[count++] = a[i++];
+        }
+        while (j < b.length) {
+            result[count++] = b[j++];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // Returns the first index in [from, to) whose value is >= target, or to.
+    static int gallop(int[] values, int from, int to, int target) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < to && values[high] < target) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,256 @@
+package search;
+
+import model.Book;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * PrefixIndex answers type-ahead queries: given what a patron has typed so far, it
+ * returns the most popular titles (or authors) starting with it.
+ *
+ * The index is an implicit trie. All distinct keys are folded (see
+ * {@link Tokenizer#fold(String)}), encoded as UTF-8 and sorted into one byte array, so
+ * every trie node is simply the contiguous range of keys sharing its prefix and is
+ * found with two binary searches. The top suggestions of a node are precomputed only
+ * for "heavy" nodes whose range holds more than {@link #SCAN_THRESHOLD} keys; lighter
+ * nodes are ranked on the fly by scanning their small range. This bounds the work per
+ * keystroke while storing precomputed lists for only a small fraction of the nodes.
+ *
+ * A PrefixIndex is immutable and safe to share between threads. Build a new one to
+ * pick up catalog changes.
+ */
+public final class PrefixIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    static final int SCAN_THRESHOLD = 256;
+
+    private final byte[] keys;
+    private final int[] offsets;
+    private final String[] suggestions;
+    private final long[] scores;
+    private final Map<String, int[]> heavyNodes;
+
+    private PrefixIndex(byte[] keys, int[] offsets, String[] suggestions, long[] scores,
+                        Map<String, int[]> heavyNodes) {
+        this.keys = keys;
+        this.offsets = offsets;
+        this.suggestions = suggestions;
+        this.scores = scores;
+        this.heavyNodes = heavyNodes;
+    }
+
+    /**
+     * Builds a title index, ranking titles by their number of copies as a proxy for
+     * popularity.
+     * @param books The books to index.
+     * @return The index.
+     */
+    public static PrefixIndex ofTitles(Iterable<Book> books) {
+        return build(books, Book::getTitle, Book::getTotalCopies);
+    }
+
+    /**
+     * Builds an author index, ranking authors by the total number of copies of their books.
+     * @param books The books to index.
+     * @return The index.
+     */
+    public static PrefixIndex ofAuthors(Iterable<Book> books) {
+        return build(books, Book::getAuthor, Book::getTotalCopies);
+    }
+
+    /**
+     * Builds an index over one text field of the books. Books with the same folded text
+     * form one suggestion whose popularity is the sum of theirs.
+     * @param books      The books to index.
+     * @param field      Extracts the text to suggest.
+     * @param popularity Scores a book; higher scores are suggested first.
+     * @return The index.
+     */
+    public static PrefixIndex build(Iterable<Book> books, Function<Book, String> field,
+                                    ToLongFunction<Book> popularity) {
+        if (books == null || field == null || popularity == null) {
+            throw new IllegalArgumentException("Books, field and popularity cannot be null.");
+        }
+        Map<String, Candidate> byKey = new HashMap<>();
+        for (Book book : books) {
+            String text = book == null ? null : field.apply(book);
+            if (text == null || text.trim().isEmpty()) {
+                continue;
+            }
+            String display = text.trim();
+            String key = Tokenizer.fold(display);
+            Candidate candidate = byKey.computeIfAbsent(key, k -> new Candidate(k, display));
+            candidate.score += popularity.applyAsLong(book);
+        }
+        Candidate[] sorted = byKey.values().toArray(new Candidate[0]);
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(a.bytes, b.bytes));
+
+        int total = 0;
+        for (Candidate candidate : sorted) {
+            total += candidate.bytes.length;
+        }
+        byte[] keys = new byte[total];
+        int[] offsets = new int[sorted.length + 1];
+        String[] suggestions = new String[sorted.length];
+        long[] scores = new long[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            System.arraycopy(sorted[i].bytes, 0, keys, offsets[i], sorted[i].bytes.length);
+            offsets[i + 1] = offsets[i] + sorted[i].bytes.length;
+            suggestions[i] = sorted[i].display;
+            scores[i] = sorted[i].score;
+        }
+        PrefixIndex index = new PrefixIndex(keys, offsets, suggestions, scores, new HashMap<>());
+        index.precomputeHeavyNodes();
+        return index;
+    }
+
+    /**
+     * Returns the most popular suggestions starting with the given prefix, ignoring case
+     * and accents.
+     * @param prefix The text typed so far.
+     * @param limit  The maximum number of suggestions (1 to {@link #MAX_SUGGESTIONS}).
+     * @return The suggestions, most popular first.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (limit <= 0 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_SUGGESTIONS + ".");
+        }
+        if (prefix == null || prefix.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        byte[] folded = Tokenizer.fold(prefix.stripLeading()).getBytes(StandardCharsets.UTF_8);
+        int from = lowerBound(folded);
+        int to = upperBound(folded, from);
+        if (from == to) {
+            return Collections.emptyList();
+        }
+        int[] ranked = to - from > SCAN_THRESHOLD
+                ? heavyNodes.get(new String(folded, StandardCharsets.ISO_8859_1))
+                : topK(from, to);
+        List<String> result = new ArrayList<>(Math.min(limit, ranked.length));
+        for (int i = 0; i < ranked.length && i < limit; i++) {
+            result.add(suggestions[ranked[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of distinct suggestions in the index.
+     * @return The number of suggestions.
+     */
+    public int size() {
+        return suggestions.length;
+    }
+
+    // For every prefix length, walks the runs of keys sharing that prefix and ranks the heavy ones.
+    private void precomputeHeavyNodes() {
+        boolean heavyFound = true;
+        for (int depth = 1; heavyFound; depth++) {
+            heavyFound = false;
+            int start = 0;
+            while (start < suggestions.length) {
+                if (length(start) < depth) {
+                    start++;
+                    continue;
+                }
+                int end = start + 1;
+                while (end < suggestions.length && sharesPrefix(start, end, depth)) {
+                    end++;
+                }
+                if (end - start > SCAN_THRESHOLD) {
+                    heavyFound = true;
+                    String node = new String(keys, offsets[start], depth, StandardCharsets.ISO_8859_1);
+                    heavyNodes.put(node, topK(start, end));
+                }
+                start = end;
+            }
+        }
+    }
+
+    private int[] topK(int from, int to) {
+        PriorityQueue<Integer> best = new PriorityQueue<>(MAX_SUGGESTIONS + 1, this::compareRank);
+        for (int i = from; i < to; i++) {
+            best.add(i);
+            if (best.size() > MAX_SUGGESTIONS) {
+                best.poll();
+            }
+        }
+        int[] ranked = new int[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = best.poll();
+        }
+        return ranked;
+    }
+
+    // Orders worst first: lower score, then later in key order.
+    private int compareRank(int a, int b) {
+        int byScore = Long.compare(scores[a], scores[b]);
+        return byScore != 0 ? byScore : Integer.compare(b, a);
+    }
+
+    private int length(int entry) {
+        return offsets[entry + 1] - offsets[entry];
+    }
+
+    private boolean sharesPrefix(int a, int b, int depth) {
+        if (length(b) < depth) {
+            return false;
+        }
+        return Arrays.equals(keys, offsets[a], offsets[a] + depth, keys, offsets[b], offsets[b] + depth);
+    }
+
+    // First entry whose key is >= prefix.
+    private int lowerBound(byte[] prefix) {
+        int low = 0;
+        int high = suggestions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(keys, offsets[mid], offsets[mid + 1], prefix, 0, prefix.length) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First entry at or after from whose key does not start with prefix.
+    private int upperBound(byte[] prefix, int from) {
+        int low = from;
+        int high = suggestions.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startsWith(mid, prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean startsWith(int entry, byte[] prefix) {
+        return length(entry) >= prefix.length
+                && Arrays.equals(keys, offsets[entry], offsets[entry] + prefix.length, prefix, 0, prefix.length);
+    }
+
+    private static final class Candidate {
+        private final byte[] bytes;
+        private final String display;
+        private long score;
+
+        private Candidate(String key, String display) {
+            this.bytes = key.getBytes(StandardCharsets.UTF_8);
+            this.display = display;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package search;
+
+import dao.BookDAO;
+import dao.IndexedBookDAO;
+import model.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * QueryExecutor runs {@link BookSearch}es against a book DAO.
+ *
+ * The planner first looks for predicates it can answer from an index:
+ * <ul>
+ *     <li>ISBN predicates through {@link BookDAO#findById(String)},</li>
+ *     <li>author, genre and publication year predicates through the DAO's secondary
+ *     indexes, if {@link BookDAO#indexes()} returns an {@link IndexedBookDAO},</li>
+ *     <li>title words through a {@link SearchIndex}, if one is given; its hits are read
+ *     back through {@link BookDAO#findById(String)}.</li>
+ * </ul>
+ * Of the indexable children of an AND, the one yielding the fewest candidates is used;
+ * an OR is indexable only if all of its children are, and a NOT never is. The whole
+ * query is then checked against each candidate, so index hits only ever narrow the
+ * work. When no index applies, the catalog is scanned in parallel on a
+ * {@link ForkJoinPool}, splitting the list until chunks are small enough to filter
+ * sequentially.
+ *
+ * Sorted searches with a limit keep only the best {@code limit} books in a bounded
+ * heap instead of sorting every match.
+ */
+public class QueryExecutor {
+
+    static final int SEQUENTIAL_THRESHOLD = 1024;
+
+    private final BookDAO bookDAO;
+    private final IndexedBookDAO indexes;
+    private final SearchIndex searchIndex;
+    private final ForkJoinPool pool;
+
+    public QueryExecutor(BookDAO bookDAO) {
+        this(bookDAO, null, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an executor that also uses a full-text index for title predicates.
+     * @param bookDAO     The book DAO.
+     * @param searchIndex The full-text index kept in sync with the DAO (nullable).
+     */
+    public QueryExecutor(BookDAO bookDAO, SearchIndex searchIndex) {
+        this(bookDAO, searchIndex, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an executor that scans on a dedicated fork/join pool.
+     * @param bookDAO     The book DAO.
+     * @param searchIndex The full-text index kept in sync with the DAO (nullable).
+     * @param pool        The pool to run parallel scans on.
+     */
+    public QueryExecutor(BookDAO bookDAO, SearchIndex searchIndex, ForkJoinPool pool) {
+        if (bookDAO == null || pool == null) {
+            throw new IllegalArgumentException("BookDAO and pool cannot be null.");
+        }
+        this.bookDAO = bookDAO;
+        this.indexes = bookDAO.indexes().orElse(null);
+        this.searchIndex = searchIndex;
+        this.pool = pool;
+    }
+
+    /**
+     * Runs a search.
+     * @param search The search.
+     * @return The matching books, sorted if requested; unsorted results keep the order
+     *         of the index or DAO they were read from.
+     */
+    public List<Book> execute(BookSearch search) {
+        if (search == null) {
+            throw new IllegalArgumentException("Search cannot be null.");
+        }
+        BookQuery query = search.getQuery();
+        List<Book> candidates = candidates(query);
+        if (candidates == null) {
+            candidates = bookDAO.findAll();
+        }
+        return sortAndLimit(filter(candidates, query), search.comparator(), search.getLimit());
+    }
+
+    /**
+     * Describes how a query would be run, e.g. {@code "index: author is 'Orwell'
+     * (3 candidates)"} or {@code "parallel scan"}. Intended for diagnostics and tests.
+     * @param query The query.
+     * @return The plan description.
+     */
+    public String explain(BookQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null.");
+        }
+        Map<BookQuery, List<Book>> used = new LinkedHashMap<>();
+        List<Book> candidates = candidates(query, used);
+        if (candidates == null) {
+            return "parallel scan";
+        }
+        List<String> parts = new ArrayList<>();
+        for (BookQuery part : used.keySet()) {
+            parts.add(part.toString());
+        }
+        return "index: " + String.join(" + ", parts) + " (" + candidates.size() + " candidates)";
+    }
+
+    private List<Book> candidates(BookQuery query) {
+        return candidates(query, new LinkedHashMap<>());
+    }
+
+    // Returns a superset of the books matching the query, or null if no index applies.
+    private List<Book> candidates(BookQuery query, Map<BookQuery, List<Book>> used) {
+        switch (query.kind()) {
+            case ISBN:
+                return leaf(query, used, bookDAO.findById(((BookQuery.ValueQuery) query).value())
+                        .map(Collections::singletonList).orElse(Collections.emptyList()));
+            case AUTHOR:
+                return indexes != null
+                        ? leaf(query, used, indexes.findByAuthor(((BookQuery.ValueQuery) query).value()))
+                        : null;
+            case GENRE:
+                return indexes != null
+                        ? leaf(query, used, indexes.findByGenre(((BookQuery.ValueQuery) query).value()))
+                        : null;
+            case YEAR:
+                BookQuery.YearQuery years = (BookQuery.YearQuery) query;
+                return indexes != null
+                        ? leaf(query, used, indexes.findByPublicationYearBetween(years.fromYear(), years.toYear()))
+                        : null;
+            case TITLE:
+                return searchIndex != null
+                        ? leaf(query, used, titleCandidates(((BookQuery.WordsQuery) query).words()))
+                        : null;
+            case AND:
+                return narrowest(((BookQuery.CompositeQuery) query).children(), used);
+            case OR:
+                return union(((BookQuery.CompositeQuery) query).children(), used);
+            default:
+                return null;
+        }
+    }
+
+    // The books containing every word in any field; the query's title check follows.
+    private List<Book> titleCandidates(List<String> words) {
+        List<Book> books = new ArrayList<>();
+        for (String isbn : searchIndex.searchIsbns(String.join(" ", words), Integer.MAX_VALUE)) {
+            bookDAO.findById(isbn).ifPresent(books::add);
+        }
+        return books;
+    }
+
+    private static List<Book> leaf(BookQuery query, Map<BookQuery, List<Book>> used, List<Book> books) {
+        used.put(query, books);
+        return books;
+    }
+
+    private List<Book> narrowest(List<BookQuery> children, Map<BookQuery, List<Book>> used) {
+        List<Book> best = null;
+        Map<BookQuery, List<Book>> bestUsed = null;
+        for (BookQuery child : children) {
+            Map<BookQuery, List<Book>> childUsed = new LinkedHashMap<>();
+            List<Book> candidates = candidates(child, childUsed);
+            if (candidates != null && (best == null || candidates.size() < best.size())) {
+                best = candidates;
+                bestUsed = childUsed;
+                if (best.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        if (bestUsed != null) {
+            used.putAll(bestUsed);
+        }
+        return best;
+    }
+
+    private List<Book> union(List<BookQuery> children, Map<BookQuery, List<Book>> used) {
+        Map<String, Book> united = new LinkedHashMap<>();
+        Map<BookQuery, List<Book>> childrenUsed = new LinkedHashMap<>();
+        for (BookQuery child : children) {
+            List<Book> candidates = candidates(child, childrenUsed);
+            if (candidates == null) {
+                return null;
+            }
+            for (Book book : candidates) {
+                united.putIfAbsent(book.getIsbn(), book);
+            }
+        }
+        used.putAll(childrenUsed);
+        return new ArrayList<>(united.values());
+    }
+
+    private List<Book> filter(List<Book> books, BookQuery query) {
+        if (books.size() <= SEQUENTIAL_THRESHOLD) {
+            return ScanTask.scan(books, 0, books.size(), query);
+        }
+        return pool.invoke(new ScanTask(books, 0, books.size(), query));
+    }
+
+    private static List<Book> sortAndLimit(List<Book> matches, Comparator<Book> order, int limit) {
+        if (order == null) {
+            return matches.size() <= limit ? matches : new ArrayList<>(matches.subList(0, limit));
+        }
+        if (matches.size() <= limit) {
+            matches.sort(order);
+            return matches;
+        }
+        // Keep the best books in a heap whose head is the worst of them.
+        PriorityQueue<Book> best = new PriorityQueue<>(limit + 1, order.reversed());
+        for (Book book : matches) {
+            best.add(book);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Book> result = new ArrayList<>(best);
+        result.sort(order);
+        return result;
+    }
+
+    /**
+     * Filters a range of a list, forking halves until ranges reach
+     * {@link #SEQUENTIAL_THRESHOLD} books. Results keep the list order.
+     */
+    private static final class ScanTask extends RecursiveTask<List<Book>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Book> books;
+        private final int from;
+        private final int to;
+        private final BookQuery query;
+
+        private ScanTask(List<Book> books, int from, int to, BookQuery query) {
+            this.books = books;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+        }
+
+        @Override
+        protected List<Book> compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return scan(books, from, to, query);
+            }
+            int middle = (from + to) >>> 1;
+            ScanTask left = new ScanTask(books, from, middle, query);
+            left.fork();
+            List<Book> right = new ScanTask(books, middle, to, query).compute();
+            List<Book> result = left.join();
+            result.addAll(right);
+            return result;
+        }
+
+        private static List<Book> scan(List<Book> books, int from, int to, BookQuery query) {
+            List<Book> matches = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                Book book = books.get(i);
+                if (book != null && query.matches(book)) {
+                    matches.add(book);
+                }
+            }
+            return matches;
+        }
+    }
+}
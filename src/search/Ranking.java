@@ -0,0 +1,93 @@
+package search;
+
+import model.Book;
+
+/**
+ * Ranking configures how {@link CatalogIndex#searchRanked(String, int, Ranking)} orders
+ * matches. The base score is Okapi BM25 over the words of a book's title and author:
+ * rare query terms weigh more than common ones, repeated terms add with diminishing
+ * returns (parameter k1), and matches in long titles count slightly less than in short
+ * ones (parameter b). Optional boosts then multiply the score:
+ * <ul>
+ *     <li>availability: by {@code 1 + availabilityBoost} if a copy is available,</li>
+ *     <li>popularity: by {@code 1 + popularityBoost * ln(1 + totalCopies)}.</li>
+ * </ul>
+ * Instances are immutable; the {@code with} methods return modified copies.
+ */
+public final class Ranking {
+
+    /**
+     * Plain BM25 with the customary parameters k1 = 1.2 and b = 0.75, without boosts.
+     */
+    public static final Ranking BM25 = new Ranking(1.2, 0.75, 0, 0);
+
+    private final double k1;
+    private final double b;
+    private final double availabilityBoost;
+    private final double popularityBoost;
+
+    private Ranking(double k1, double b, double availabilityBoost, double popularityBoost) {
+        this.k1 = k1;
+        this.b = b;
+        this.availabilityBoost = availabilityBoost;
+        this.popularityBoost = popularityBoost;
+    }
+
+    /**
+     * Returns a copy with other BM25 parameters.
+     * @param k1 The term frequency saturation (>= 0).
+     * @param b  The length normalization, from 0 (none) to 1 (full).
+     * @return The ranking.
+     */
+    public Ranking withParameters(double k1, double b) {
+        if (k1 < 0 || b < 0 || b > 1) {
+            throw new IllegalArgumentException("k1 must be >= 0 and b between 0 and 1.");
+        }
+        return new Ranking(k1, b, availabilityBoost, popularityBoost);
+    }
+
+    /**
+     * Returns a copy that favors books with a copy available.
+     * @param boost The extra weight (>= 0), e.g. 0.5 for a 50% higher score.
+     * @return The ranking.
+     */
+    public Ranking withAvailabilityBoost(double boost) {
+        if (boost < 0) {
+            throw new IllegalArgumentException("Boost cannot be negative.");
+        }
+        return new Ranking(k1, b, boost, popularityBoost);
+    }
+
+    /**
+     * Returns a copy that favors books with more copies, as a proxy for popularity.
+     * @param boost The extra weight per natural log of total copies (>= 0).
+     * @return The ranking.
+     */
+    public Ranking withPopularityBoost(double boost) {
+        if (boost < 0) {
+            throw new IllegalArgumentException("Boost cannot be negative.");
+        }
+        return new Ranking(k1, b, availabilityBoost, boost);
+    }
+
+    // The BM25 contribution of one term to one document.
+    double termScore(double idf, int frequency, int length, double averageLength) {
+        double norm = k1 * (1 - b + b * length / averageLength);
+        return idf * frequency * (k1 + 1) / (frequency + norm);
+    }
+
+    double boost(double score, Book book) {
+        if (availabilityBoost > 0 && book.getAvailableCopies() > 0) {
+            score *= 1 + availabilityBoost;
+        }
+        if (popularityBoost > 0) {
+            score *= 1 + popularityBoost * Math.log1p(book.getTotalCopies());
+        }
+        return score;
+    }
+
+    static double idf(int documentFrequency, int documentCount) {
+        int df = Math.min(documentFrequency, documentCount);
+        return Math.log(1 + (documentCount - df + 0.5) / (df + 0.5));
+    }
+}
@@ -0,0 +1,106 @@
+package search;
+
+import dao.ChangeEvent;
+import dao.ChangeListener;
+import model.Book;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * SearchIndex is a full-text index over the title, author and genre of the catalog,
+ * implemented in memory by {@link CatalogIndex} and on disk by
+ * {@link PersistentCatalogIndex}. Queries use the syntax of
+ * {@link CatalogIndex#search(String, int)} and return canonical ISBNs, so callers read
+ * the current version of each hit from their catalog instead of the copy the index
+ * saw; {@link #searchWithFacets(String, int, Function)} takes that lookup as an
+ * argument.
+ */
+public interface SearchIndex {
+
+    /**
+     * Indexes a book, replacing any earlier version with the same ISBN.
+     * @param book The book to index.
+     */
+    void index(Book book);
+
+    /**
+     * Indexes several books at once.
+     * @param books The books to index.
+     */
+    void indexAll(Iterable<Book> books);
+
+    /**
+     * Removes a book from the index. Removing an unknown ISBN has no effect.
+     * @param isbn The ISBN of the book to remove.
+     */
+    void remove(String isbn);
+
+    /**
+     * Returns whether the index is known to hold the whole catalog, e.g. an on-disk
+     * index that was closed cleanly. An index that is not current must be rebuilt
+     * before it is searched.
+     * @return True if the index is current.
+     */
+    boolean isCurrent();
+
+    /**
+     * Replaces the contents of the index with the given books.
+     * @param books The complete catalog, each ISBN at most once.
+     */
+    void rebuild(Iterable<Book> books);
+
+    /**
+     * Returns a listener that keeps this index in sync with the change events of a DAO,
+     * e.g. an {@link dao.ObservableBookDAO}, instead of re-indexing from its findAll().
+     * @return The listener.
+     */
+    default ChangeListener<Book> changeListener() {
+        return event -> {
+            if (event.getType() == ChangeEvent.Type.DELETE) {
+                remove(event.getKey());
+            } else {
+                index(event.getAfter());
+            }
+        };
+    }
+
+    /**
+     * Finds the ISBNs of at most {@code limit} books matching a query.
+     * @param query The query text.
+     * @param limit The maximum number of ISBNs to return (> 0).
+     * @return The canonical ISBNs of the matches, or an empty list.
+     */
+    List<String> searchIsbns(String query, int limit);
+
+    /**
+     * Finds the ISBNs of at most {@code limit} books matching a query while tolerating
+     * typos, as described in {@link CatalogIndex#searchFuzzy(String, int)}.
+     * @param query The query text.
+     * @param limit The maximum number of ISBNs to return (> 0).
+     * @return The canonical ISBNs of the matches, or an empty list.
+     */
+    List<String> searchIsbnsFuzzy(String query, int limit);
+
+    /**
+     * Finds the ISBNs of the {@code limit} books most relevant to a query, as described
+     * in {@link CatalogIndex#searchRanked(String, int, Ranking)}.
+     * @param query   The query text.
+     * @param limit   The maximum number of ISBNs to return (> 0).
+     * @param ranking The scoring parameters and boosts.
+     * @return The canonical ISBNs of the matches, most relevant first.
+     */
+    List<String> searchIsbnsRanked(String query, int limit, Ranking ranking);
+
+    /**
+     * Runs a query and counts the genres, publication decades and available books among
+     * all of its hits. The returned books are the first hits found by {@code lookup};
+     * hits it does not find are skipped.
+     * @param query  The query text.
+     * @param limit  The maximum number of books to return (> 0); the counts cover all hits.
+     * @param lookup Reads the current book for a canonical ISBN, e.g. BookDAO::findById.
+     * @return The hits and facet counts.
+     */
+    SearchResult searchWithFacets(String query, int limit, Function<String, Optional<Book>> lookup);
+}
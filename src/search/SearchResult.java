@@ -0,0 +1,98 @@
+package search;
+
+import model.Book;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * SearchResult holds the first hits of a catalog query together with facet counts
+ * computed over all of its hits.
+ */
+public final class SearchResult {
+
+    private final List<Book> books;
+    private final int totalHits;
+    private final Map<String, Integer> genreCounts;
+    private final Map<Integer, Integer> decadeCounts;
+    private final int availableCount;
+
+    SearchResult(List<Book> books, int totalHits, Map<String, Integer> genreCounts,
+                 Map<Integer, Integer> decadeCounts, int availableCount) {
+        this.books = Collections.unmodifiableList(books);
+        this.totalHits = totalHits;
+        this.genreCounts = Collections.unmodifiableMap(genreCounts);
+        this.decadeCounts = Collections.unmodifiableMap(decadeCounts);
+        this.availableCount = availableCount;
+    }
+
+    /**
+     * Returns a copy holding the books a lookup finds for the first hits, in hit order,
+     * instead of this result's books.
+     * @param isbns  The ISBNs of all hits, in order.
+     * @param limit  The maximum number of books.
+     * @param lookup Reads the current book for an ISBN.
+     * @return The result.
+     */
+    SearchResult resolve(List<String> isbns, int limit, Function<String, Optional<Book>> lookup) {
+        List<Book> found = new ArrayList<>(Math.min(isbns.size(), limit));
+        for (String isbn : isbns) {
+            if (found.size() == limit) {
+                break;
+            }
+            lookup.apply(isbn).ifPresent(found::add);
+        }
+        return new SearchResult(found, totalHits, genreCounts, decadeCounts, availableCount);
+    }
+
+    /**
+     * Returns the returned hits, at most the limit the query was run with.
+     * @return The books.
+     */
+    public List<Book> getBooks() {
+        return books;
+    }
+
+    /**
+     * Returns the number of books matching the query, including those beyond the limit.
+     * @return The total number of hits.
+     */
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    /**
+     * Returns the number of hits per genre, most frequent first.
+     * @return The genre counts.
+     */
+    public Map<String, Integer> getGenreCounts() {
+        return genreCounts;
+    }
+
+    /**
+     * Returns the number of hits per publication decade (e.g. 1920 for 1920-1929), in
+     * increasing decade order.
+     * @return The decade counts.
+     */
+    public Map<Integer, Integer> getDecadeCounts() {
+        return decadeCounts;
+    }
+
+    /**
+     * Returns the number of hits with at least one copy available.
+     * @return The number of available hits.
+     */
+    public int getAvailableCount() {
+        return availableCount;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{totalHits=" + totalHits + ", genreCounts=" + genreCounts
+                + ", decadeCounts=" + decadeCounts + ", availableCount=" + availableCount + "}";
+    }
+}
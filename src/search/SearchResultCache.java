@@ -0,0 +1,301 @@
+package search;
+
+import dao.ChangeEvent;
+import dao.ChangeListener;
+import model.Book;
+import model.Isbn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+/**
+ * SearchResultCache remembers the results of recent {@link SearchIndex} queries, e.g.
+ * those of a book service.
+ *
+ * Queries are keyed in a normalized form, so {@code "Gatsby  fitzgerald"} and
+ * {@code "fitzgerald gatsby"} share one entry. The cache is bounded by weight, where an
+ * entry weighs one plus its number of results, and evicts the least recently used
+ * entries first; a query matching thousands of books therefore displaces many small
+ * ones rather than counting as one.
+ *
+ * Invalidation is precise. When a book is saved or updated, only queries that returned
+ * it before, or whose terms all occur in its new title, author or genre, are evicted;
+ * when a book is deleted, only queries that returned it. Two reverse maps, from terms
+ * and from ISBNs to cached queries, find those entries without scanning the cache. A
+ * result computed while a change was being applied is not stored.
+ *
+ * The cache is thread-safe.
+ */
+public class SearchResultCache {
+
+    private final long maxWeight;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<String>> keysByTerm = new HashMap<>();
+    private final Map<String, Set<String>> keysByIsbn = new HashMap<>();
+    private long weight;
+    private long generation;
+    private long hitCount;
+    private long missCount;
+    private long invalidationCount;
+    private long evictionCount;
+
+    /**
+     * Creates a cache.
+     * @param maxWeight The maximum total weight, i.e. number of queries plus cached books (> 0).
+     */
+    public SearchResultCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be greater than 0.");
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Returns the cached results of a query, running and caching the search on a miss.
+     * @param query  The query text.
+     * @param search Runs the query; called without holding the cache's lock.
+     * @return The results, unmodifiable.
+     */
+    public List<Book> get(String query, Function<String, List<Book>> search) {
+        List<List<List<String>>> groups = CatalogIndex.parse(query);
+        String key = normalize(groups);
+        long seen;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hitCount++;
+                return entry.results;
+            }
+            missCount++;
+            seen = generation;
+        }
+        List<Book> results = Collections.unmodifiableList(new ArrayList<>(search.apply(query)));
+        synchronized (this) {
+            if (generation == seen && !entries.containsKey(key)) {
+                store(key, groups, results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Evicts the queries whose results may change because a book was saved or updated.
+     * @param book The book in its new state.
+     */
+    public synchronized void bookChanged(Book book) {
+        if (book == null) {
+            return;
+        }
+        generation++;
+        Set<String> affected = new HashSet<>(keysFor(keysByIsbn, Isbn.canonical(book.getIsbn())));
+        Set<String> terms = new HashSet<>(Tokenizer.tokenize(book.getTitle()));
+        terms.addAll(Tokenizer.tokenize(book.getAuthor()));
+        terms.addAll(Tokenizer.tokenize(book.getGenre()));
+        for (String term : terms) {
+            for (String key : keysFor(keysByTerm, term)) {
+                if (!affected.contains(key) && entries.get(key).couldMatch(terms)) {
+                    affected.add(key);
+                }
+            }
+        }
+        invalidate(affected);
+    }
+
+    /**
+     * Evicts the queries that returned a deleted book.
+     * @param isbn The ISBN of the deleted book.
+     */
+    public synchronized void bookRemoved(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        generation++;
+        invalidate(new HashSet<>(keysFor(keysByIsbn, Isbn.canonical(isbn))));
+    }
+
+    /**
+     * Returns a listener that invalidates this cache from the change events of a DAO.
+     * Chain it after the listener of the index the cached queries run on, e.g.
+     * {@code index.changeListener().andThen(cache.changeListener())}, so that queries
+     * rerun after an eviction see the change.
+     * @return The listener.
+     */
+    public ChangeListener<Book> changeListener() {
+        return event -> {
+            if (event.getType() == ChangeEvent.Type.DELETE) {
+                bookRemoved(event.getKey());
+            } else {
+                bookChanged(event.getAfter());
+            }
+        };
+    }
+
+    /**
+     * Evicts every query, e.g. after a bulk import.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidationCount += entries.size();
+        entries.clear();
+        keysByTerm.clear();
+        keysByIsbn.clear();
+        weight = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long weight() {
+        return weight;
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of queries evicted because the catalog changed.
+     * @return The invalidation count.
+     */
+    public synchronized long invalidationCount() {
+        return invalidationCount;
+    }
+
+    /**
+     * Returns the number of queries evicted to stay within the maximum weight.
+     * @return The eviction count.
+     */
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the fraction of lookups answered from the cache.
+     * @return The hit rate between 0 and 1, or 0 before the first lookup.
+     */
+    public synchronized double hitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Renders parsed groups in a canonical order: clauses sorted within each group,
+     * groups sorted, phrases quoted.
+     */
+    static String normalize(List<List<List<String>>> groups) {
+        Set<String> renderedGroups = new TreeSet<>();
+        for (List<List<String>> group : groups) {
+            Set<String> clauses = new TreeSet<>();
+            for (List<String> clause : group) {
+                clauses.add(clause.size() == 1 ? clause.get(0) : '"' + String.join(" ", clause) + '"');
+            }
+            renderedGroups.add(String.join(" ", clauses));
+        }
+        return String.join(" OR ", renderedGroups);
+    }
+
+    // Callers must hold the lock.
+    private void store(String key, List<List<List<String>>> groups, List<Book> results) {
+        Entry entry = new Entry(groups, results);
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        entries.put(key, entry);
+        weight += entry.weight;
+        for (Set<String> terms : entry.groups) {
+            if (!terms.isEmpty()) {
+                // A book can only match a group if it contains all of its terms, so one term per group suffices.
+                keysByTerm.computeIfAbsent(terms.iterator().next(), t -> new HashSet<>()).add(key);
+            }
+        }
+        for (Book book : results) {
+            keysByIsbn.computeIfAbsent(Isbn.canonical(book.getIsbn()), i -> new HashSet<>()).add(key);
+        }
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (weight > maxWeight && eldest.hasNext()) {
+            Map.Entry<String, Entry> victim = eldest.next();
+            eldest.remove();
+            unlink(victim.getKey(), victim.getValue());
+            evictionCount++;
+        }
+    }
+
+    private void invalidate(Set<String> keys) {
+        for (String key : keys) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                unlink(key, entry);
+                invalidationCount++;
+            }
+        }
+    }
+
+    private void unlink(String key, Entry entry) {
+        weight -= entry.weight;
+        for (Set<String> terms : entry.groups) {
+            if (!terms.isEmpty()) {
+                removeKey(keysByTerm, terms.iterator().next(), key);
+            }
+        }
+        for (Book book : entry.results) {
+            removeKey(keysByIsbn, Isbn.canonical(book.getIsbn()), key);
+        }
+    }
+
+    private static Set<String> keysFor(Map<String, Set<String>> index, String value) {
+        Set<String> keys = index.get(value);
+        return keys == null ? Collections.emptySet() : keys;
+    }
+
+    private static void removeKey(Map<String, Set<String>> index, String value, String key) {
+        Set<String> keys = index.get(value);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(value);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final List<Set<String>> groups = new ArrayList<>();
+        private final List<Book> results;
+        private final long weight;
+
+        private Entry(List<List<List<String>>> parsed, List<Book> results) {
+            for (List<List<String>> group : parsed) {
+                Set<String> terms = new TreeSet<>();
+                for (List<String> clause : group) {
+                    terms.addAll(clause);
+                }
+                groups.add(terms);
+            }
+            this.results = results;
+            this.weight = 1L + results.size();
+        }
+
+        // True if some group's terms all occur in the book; phrases are not checked.
+        private boolean couldMatch(Set<String> bookTerms) {
+            for (Set<String> terms : groups) {
+                if (bookTerms.containsAll(terms)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package search;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TermDictionary finds the indexed terms within a small edit distance of a query term
+ * without comparing the query against every term.
+ *
+ * Each term is broken into padded trigrams ("gatsby" gives "$$g", "$ga", "gat", ...,
+ * "by$", "y$$"), filed under the trigram and the term's length together with the
+ * trigram's position. A term within {@code k} edits of the query is at most {@code k} characters
+ * longer or shorter, so only those length buckets are read. One edit changes at most
+ * four trigrams and shifts the others by at most one position, so such a term shares
+ * at least {@code max(grams) - 4k} trigrams with the query within {@code k} positions;
+ * only terms reaching that count are checked with a bounded edit distance.
+ *
+ * That count is small for short terms: a four-letter query with one edit needs a
+ * single shared trigram, which most terms of its length starting with the same letter
+ * have. Terms of up to {@link #SHORT_TERM_LENGTH} characters are therefore also filed
+ * under each of their one-character deletions. Two terms within one edit, including a
+ * transposition, have a deletion (or the term itself) in common, so a short query with
+ * one edit reads only the terms under its own deletions.
+ *
+ * Not thread-safe while terms are added; {@link CatalogIndex} guards it with its own
+ * lock, and an {@link IndexSegment} builds it once and only reads it afterwards.
+ */
+public final class TermDictionary {
+
+    // A substitution changes up to three trigrams, a transposition up to four.
+    private static final int GRAMS_PER_EDIT = 4;
+    // Positions are stored in the low bits of a posting; later ones share the last value.
+    private static final int POSITION_BITS = 6;
+    private static final int MAX_POSITION = (1 << POSITION_BITS) - 1;
+    static final int SHORT_TERM_LENGTH = 8;
+
+    private final List<String> terms = new ArrayList<>();
+    // Keyed by the term length as a char followed by the trigram.
+    private final Map<String, PostingList> termsByTrigram = new HashMap<>();
+    private final Map<String, PostingList> termsByDeletion = new HashMap<>();
+
+    /**
+     * Registers a term that is new to the index.
+     * @param term The term.
+     */
+    public void add(String term) {
+        int termId = terms.size();
+        terms.add(term);
+        List<String> grams = trigrams(term);
+        for (int position = 0; position < grams.size(); position++) {
+            termsByTrigram.computeIfAbsent(bucketKey(term.length(), grams.get(position)), k -> new PostingList())
+                    .add(termId << POSITION_BITS | Math.min(position, MAX_POSITION));
+        }
+        if (term.length() <= SHORT_TERM_LENGTH) {
+            for (String deletion : deletions(term)) {
+                termsByDeletion.computeIfAbsent(deletion, k -> new PostingList()).add(termId);
+            }
+        }
+    }
+
+    public void clear() {
+        terms.clear();
+        termsByTrigram.clear();
+        termsByDeletion.clear();
+    }
+
+    /**
+     * Returns the registered terms within {@code maxEdits} edits of the query term,
+     * including the term itself if registered.
+     * @param query    The query term.
+     * @param maxEdits The maximum Levenshtein distance.
+     * @return The matching terms.
+     */
+    public List<String> similar(String query, int maxEdits) {
+        List<String> result = new ArrayList<>();
+        for (int termId : candidates(query, maxEdits)) {
+            String term = terms.get(termId);
+            if (editDistance(query, term, maxEdits) <= maxEdits) {
+                result.add(term);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of registered terms that pass the filters for a query and would
+     * have their edit distance computed by {@link #similar(String, int)}.
+     * @param query    The query term.
+     * @param maxEdits The maximum Levenshtein distance.
+     * @return The number of candidate terms.
+     */
+    public int countCandidates(String query, int maxEdits) {
+        return candidates(query, maxEdits).size();
+    }
+
+    private List<Integer> candidates(String query, int maxEdits) {
+        if (maxEdits == 1 && query.length() < SHORT_TERM_LENGTH) {
+            return deletionCandidates(query);
+        }
+        List<String> grams = trigrams(query);
+        List<Integer> result = new ArrayList<>();
+        int minLength = Math.max(0, query.length() - maxEdits);
+        for (int length = minLength; length <= query.length() + maxEdits; length++) {
+            // Terms of this length have length + 2 trigrams.
+            int required = Math.max(1, Math.max(grams.size(), length + 2) - GRAMS_PER_EDIT * maxEdits);
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (int position = 0; position < grams.size(); position++) {
+                PostingList postings = termsByTrigram.get(bucketKey(length, grams.get(position)));
+                if (postings == null) {
+                    continue;
+                }
+                for (int i = 0; i < postings.size(); i++) {
+                    int posting = postings.get(i);
+                    int termPosition = posting & MAX_POSITION;
+                    if (termPosition == MAX_POSITION || Math.abs(termPosition - position) <= maxEdits) {
+                        shared.merge(posting >>> POSITION_BITS, 1, Integer::sum);
+                    }
+                }
+            }
+            for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+                if (entry.getValue() >= required) {
+                    result.add(entry.getKey());
+                }
+            }
+        }
+        return result;
+    }
+
+    // Every term within one edit of a short query is filed under the query or one of its deletions.
+    private List<Integer> deletionCandidates(String query) {
+        List<Integer> result = new ArrayList<>();
+        int[] seen = new int[0];
+        for (String deletion : deletions(query)) {
+            PostingList termIds = termsByDeletion.get(deletion);
+            if (termIds != null) {
+                seen = PostingList.union(seen, termIds.toArray());
+            }
+        }
+        for (int termId : seen) {
+            result.add(termId);
+        }
+        return result;
+    }
+
+    /**
+     * Computes the edit distance between two strings, counting insertions, deletions,
+     * substitutions and transpositions of adjacent characters as one edit each
+     * (optimal string alignment), and giving up as soon as the distance is certain to
+     * exceed {@code max}.
+     * @return The distance, or {@code max + 1} if it is greater than {@code max}.
+     */
+    static int editDistance(String a, String b, int max) {
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, beforePrevious[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    private static String bucketKey(int length, String trigram) {
+        return (char) length + trigram;
+    }
+
+    private static List<String> trigrams(String term) {
+        String padded = "$$" + term + "$$";
+        List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    // The term itself followed by the term without each of its characters.
+    private static List<String> deletions(String term) {
+        List<String> result = new ArrayList<>(term.length() + 1);
+        result.add(term);
+        for (int i = 0; i < term.length(); i++) {
+            result.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Tokenizer splits catalog text into normalized search terms. Text is folded to
+ * lower case with accents removed ("Garc&iacute;a M&aacute;rquez" becomes "garcia" and
+ * "marquez"), and every run of letters or digits is one term.
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Splits text into normalized terms, in order of appearance.
+     * @param text The text to tokenize (nullable).
+     * @return The terms, or an empty list.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String folded = fold(text);
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i < folded.length(); i++) {
+            if (Character.isLetterOrDigit(folded.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                tokens.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        if (start >= 0) {
+            tokens.add(folded.substring(start));
+        }
+        return tokens;
+    }
+
+    /**
+     * Lower-cases text and strips accents without splitting it.
+     * @param text The text to fold.
+     * @return The folded text.
+     */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(c);
+            }
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+}
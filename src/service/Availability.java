@@ -0,0 +1,60 @@
+package service;
+
+import model.Book;
+import dao.BookDAO;
+import dao.LoanDAO;
+import util.StripedLocks;
+
+import java.util.Optional;
+
+/**
+ * Availability keeps the available-copies counter of books in step with the loan store
+ * after checkouts and returns. Search filters, facets, ranking and the available-copies
+ * range index all read that counter, so it must follow lending.
+ *
+ * The loan store is authoritative: the counter is set to the total copies minus the
+ * active loans rather than stepped by one, so a book whose counter had drifted is
+ * corrected by the next checkout or return of its title. The refresh runs under the
+ * title's ISBN lock, the same one checkouts hold, so a refresh cannot overwrite a newer
+ * count with an older one. If a catalog is given, its copy of the book is written back
+ * with {@link BookDAO#update(Book)} so that indexes built from the catalog follow too.
+ */
+final class Availability {
+
+    private final LoanDAO loanDAO;
+    private final BookDAO catalog;
+    private final StripedLocks locks;
+
+    /**
+     * @param loanDAO The loan store the counts are taken from.
+     * @param catalog The catalog to write refreshed books to (nullable).
+     * @param locks   The per-ISBN locks shared with the checkout services.
+     */
+    Availability(LoanDAO loanDAO, BookDAO catalog, StripedLocks locks) {
+        this.loanDAO = loanDAO;
+        this.catalog = catalog;
+        this.locks = locks;
+    }
+
+    /**
+     * Recomputes the available copies of a book after one of its loans was written.
+     * @param book The book whose loans changed.
+     */
+    void refresh(Book book) {
+        locks.runLocked(book.getIsbn(), () -> {
+            int onLoan = loanDAO.countActiveLoans(book);
+            setAvailable(book, onLoan);
+            if (catalog != null) {
+                Optional<Book> stored = catalog.findById(book.getIsbn());
+                if (stored.isPresent()) {
+                    setAvailable(stored.get(), onLoan);
+                    catalog.update(stored.get());
+                }
+            }
+        });
+    }
+
+    private static void setAvailable(Book book, int onLoan) {
+        book.setAvailableCopies(Math.max(0, book.getTotalCopies() - onLoan));
+    }
+}
@@ -0,0 +1,101 @@
+package service;
+
+import model.Loan;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a batch return: the items that were returned, with their late fees,
+ * and the scans that could not be processed, each with the reason. A failed item
+ * does not stop the rest of the batch.
+ */
+public class BatchReturnResult {
+
+    private final List<Returned> returned = new ArrayList<>();
+    private final List<Failure> failures = new ArrayList<>();
+    private double totalLateFees;
+
+    public List<Returned> getReturned() {
+        return Collections.unmodifiableList(returned);
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public double getTotalLateFees() {
+        return totalLateFees;
+    }
+
+    public int getProcessedCount() {
+        return returned.size() + failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    void addReturned(String scan, Loan loan, double lateFee) {
+        returned.add(new Returned(scan, loan, lateFee));
+        totalLateFees += lateFee;
+    }
+
+    void addFailure(String scan, String reason) {
+        failures.add(new Failure(scan, reason));
+    }
+
+    /**
+     * A scanned item whose loan was closed.
+     */
+    public static final class Returned {
+        private final String scan;
+        private final Loan loan;
+        private final double lateFee;
+
+        private Returned(String scan, Loan loan, double lateFee) {
+            this.scan = scan;
+            this.loan = loan;
+            this.lateFee = lateFee;
+        }
+
+        public String getScan() {
+            return scan;
+        }
+
+        public Loan getLoan() {
+            return loan;
+        }
+
+        public double getLateFee() {
+            return lateFee;
+        }
+    }
+
+    /**
+     * A scanned item that could not be returned.
+     */
+    public static final class Failure {
+        private final String scan;
+        private final String reason;
+
+        private Failure(String scan, String reason) {
+            this.scan = scan;
+            this.reason = reason;
+        }
+
+        public String getScan() {
+            return scan;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return scan + ": " + reason;
+        }
+    }
+}
@@ -1,11 +1,24 @@
 package service;
 
 import dao.BookDAO;
+import dao.ChangeListener;
+import dao.ChangeNotifier;
+import dao.ObservableBookDAO;
 import model.Book;
+import search.BookSearch;
+import search.CatalogIndex;
+import search.PersistentCatalogIndex;
+import search.QueryExecutor;
+import search.Ranking;
+import search.SearchIndex;
+import search.SearchResultCache;
+import search.SearchResult;
 import util.SearchUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * BookService handles book-related operations, including adding, removing, updating,
@@ -14,12 +27,75 @@ import java.util.Optional;
 public class BookService {
 
     private final BookDAO bookDAO;
+    private final SearchIndex searchIndex;
+    private final QueryExecutor queryExecutor;
+    private final SearchResultCache searchCache;
 
     public BookService(BookDAO bookDAO) {
         if (bookDAO == null) {
             throw new IllegalArgumentException("BookDAO cannot be null.");
         }
         this.bookDAO = bookDAO;
+        this.searchIndex = null;
+        this.queryExecutor = new QueryExecutor(bookDAO);
+        this.searchCache = null;
+    }
+
+    /**
+     * Creates a book service whose keyword searches are answered by a full-text index,
+     * e.g. a {@link CatalogIndex} or a {@link PersistentCatalogIndex}.
+     * @param bookDAO     The book DAO.
+     * @param searchIndex The full-text index to maintain and search.
+     * @see #BookService(BookDAO, SearchIndex, SearchResultCache)
+     */
+    public BookService(BookDAO bookDAO, SearchIndex searchIndex) {
+        this(bookDAO, searchIndex, null);
+    }
+
+    /**
+     * Creates a book service whose keyword searches are answered by a full-text index
+     * and optionally cached.
+     *
+     * The service writes through an {@link ObservableBookDAO} over the given DAO, and the
+     * index and cache follow its change events instead of being updated by each
+     * operation. The writing threads deliver the events themselves, so a search made
+     * after an add, update or remove returns sees it; only while several threads write
+     * at once may one of them deliver another's event just after that write returned.
+     * Writes made to the given DAO directly are not seen. The index is rebuilt from the DAO here unless it is
+     * {@link SearchIndex#isCurrent() current}, e.g. a PersistentCatalogIndex that was
+     * closed cleanly; the caller closes a persistent index.
+     * @param bookDAO     The book DAO.
+     * @param searchIndex The full-text index to maintain and search.
+     * @param searchCache The result cache for {@link #searchBooks(String)} (nullable).
+     */
+    public BookService(BookDAO bookDAO, SearchIndex searchIndex, SearchResultCache searchCache) {
+        if (bookDAO == null || searchIndex == null) {
+            throw new IllegalArgumentException("BookDAO and SearchIndex cannot be null.");
+        }
+        ObservableBookDAO observable = new ObservableBookDAO(bookDAO, new ChangeNotifier<>(Runnable::run));
+        ChangeListener<Book> listener = searchIndex.changeListener();
+        observable.addListener(searchCache == null ? listener : listener.andThen(searchCache.changeListener()));
+        this.bookDAO = observable;
+        this.searchIndex = searchIndex;
+        this.queryExecutor = new QueryExecutor(observable, searchIndex);
+        this.searchCache = searchCache;
+        if (!searchIndex.isCurrent()) {
+            try (Stream<Book> allBooks = bookDAO.streamAll()) {
+                searchIndex.rebuild(allBooks::iterator);
+            }
+        }
+    }
+
+    /**
+     * Returns the DAO this service writes through. With a search index, writes to it are
+     * applied to the index and result cache; give it to the lending services, e.g.
+     * {@link CheckoutService#CheckoutService(dao.LoanDAO, util.StripedLocks, BookDAO)},
+     * so that the available copies they write after checkouts and returns reach the
+     * availability filter, facet and ranking boost of searches.
+     * @return The catalog DAO.
+     */
+    public BookDAO catalog() {
+        return bookDAO;
     }
 
     /**
@@ -71,7 +147,11 @@ public class BookService {
     }
 
     /**
-     * Searches for books by a keyword in the title or author.
+     * Searches for books by keywords in the title, author or genre. A keyword equal to
+     * a book's ISBN also finds that book. With a {@link SearchIndex} the query may use
+     * {@code OR} and quoted phrases, and results may come from a
+     * {@link SearchResultCache}; without an index, every keyword must match and the
+     * catalog is scanned.
      * @param keyword The search keyword.
      * @return A list of books matching the search criteria.
      * @throws IllegalArgumentException if the keyword is null or empty.
@@ -81,8 +161,116 @@ public class BookService {
             throw new IllegalArgumentException("Search keyword cannot be null or empty.");
         }
 
-        List<Book> allBooks = bookDAO.findAll();
-        return SearchUtil.searchBooksByISBN(allBooks, keyword);
+        List<Book> matches;
+        if (searchCache != null) {
+            matches = searchCache.get(keyword, query -> resolve(searchIndex.searchIsbns(query, Integer.MAX_VALUE)));
+        } else if (searchIndex != null) {
+            matches = resolve(searchIndex.searchIsbns(keyword, Integer.MAX_VALUE));
+        } else {
+            try (Stream<Book> allBooks = bookDAO.streamAll()) {
+                matches = SearchUtil.searchBooksByKeyword(allBooks, keyword);
+            }
+        }
+        Optional<Book> exactIsbn = bookDAO.findById(keyword.trim());
+        if (exactIsbn.isPresent() && !matches.contains(exactIsbn.get())) {
+            List<Book> withIsbn = new ArrayList<>(matches.size() + 1);
+            withIsbn.add(exactIsbn.get());
+            withIsbn.addAll(matches);
+            return withIsbn;
+        }
+        return matches;
+    }
+
+    /**
+     * Searches for books like {@link #searchBooks(String)}, but tolerates misspelled
+     * words, e.g. "fitzgerlad" finds books by Fitzgerald. Typo-tolerant matching needs
+     * the term dictionary of a {@link SearchIndex}, so it is only available when the
+     * service was created with one.
+     * @param keyword The search keyword, possibly misspelled.
+     * @param limit   The maximum number of books to return (> 0).
+     * @return A list of books matching the search criteria.
+     * @throws IllegalArgumentException if the keyword is null or empty.
+     * @throws IllegalStateException if the service has no catalog index.
+     */
+    public List<Book> searchBooksFuzzy(String keyword, int limit) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search keyword cannot be null or empty.");
+        }
+        if (searchIndex == null) {
+            throw new IllegalStateException("Fuzzy search requires a SearchIndex.");
+        }
+        return resolve(searchIndex.searchIsbnsFuzzy(keyword, limit));
+    }
+
+    /**
+     * Searches for books like {@link #searchBooks(String)}, but returns only the
+     * {@code limit} most relevant ones, best first. Relevance is BM25 over title and
+     * author words, adjusted by the given boosts for available and popular books (see
+     * {@link Ranking}). Scores come from a {@link SearchIndex}, so this is only
+     * available when the service was created with one.
+     * @param keyword The search keyword.
+     * @param limit   The maximum number of books to return (> 0).
+     * @param ranking The scoring parameters and boosts, e.g. {@link Ranking#BM25}.
+     * @return The most relevant matching books.
+     * @throws IllegalArgumentException if the keyword is null or empty.
+     * @throws IllegalStateException if the service has no catalog index.
+     */
+    public List<Book> searchBooksRanked(String keyword, int limit, Ranking ranking) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search keyword cannot be null or empty.");
+        }
+        if (searchIndex == null) {
+            throw new IllegalStateException("Ranked search requires a SearchIndex.");
+        }
+        return resolve(searchIndex.searchIsbnsRanked(keyword, limit, ranking));
+    }
+
+    /**
+     * Searches for books like {@link #searchBooks(String)} and also returns how many of
+     * the hits fall into each genre and publication decade and how many are available.
+     * Facet counts come from a {@link SearchIndex}, so this is only available when the
+     * service was created with one.
+     * @param keyword The search keyword.
+     * @param limit   The maximum number of books to return (> 0); counts cover all hits.
+     * @return The hits and facet counts.
+     * @throws IllegalArgumentException if the keyword is null or empty.
+     * @throws IllegalStateException if the service has no catalog index.
+     */
+    public SearchResult searchBooksWithFacets(String keyword, int limit) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            throw new IllegalArgumentException("Search keyword cannot be null or empty.");
+        }
+        if (searchIndex == null) {
+            throw new IllegalStateException("Faceted search requires a SearchIndex.");
+        }
+        return searchIndex.searchWithFacets(keyword, limit, bookDAO::findById);
+    }
+
+    /**
+     * Finds books with a structured query on title, author, genre, publication year,
+     * ISBN and availability, e.g. all available fiction from the 1920s sorted by year.
+     * Predicates are answered from indexes where possible and by a parallel scan
+     * otherwise (see {@link QueryExecutor}).
+     * @param search The query, sort order and limit.
+     * @return The matching books.
+     * @throws IllegalArgumentException if the search is null.
+     */
+    public List<Book> findBooks(BookSearch search) {
+        return queryExecutor.execute(search);
+    }
+
+    /**
+     * Looks up the current version of each hit of an index that returns ISBNs. Hits the
+     * DAO no longer holds, e.g. removed while the query ran, are skipped.
+     * @param isbns The ISBNs of the hits.
+     * @return The books, in hit order.
+     */
+    private List<Book> resolve(List<String> isbns) {
+        List<Book> books = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            bookDAO.findById(isbn).ifPresent(books::add);
+        }
+        return books;
     }
 
     /**
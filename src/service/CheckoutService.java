@@ -3,22 +3,68 @@ package service;
 import model.Book;
 import model.Loan;
 import model.Patron;
+import dao.BookDAO;
 import dao.LoanDAO;
+import util.StripedLocks;
+
 import java.time.LocalDate;
 
 public class CheckoutService {
     
     private LoanDAO loanDAO;
+    private final StripedLocks locks;
+    private final Availability availability;
 
     public CheckoutService(LoanDAO loanDAO) {
+        this(loanDAO, StripedLocks.shared());
+    }
+
+    /**
+     * Creates a checkout service whose availability check and loan save are made atomic
+     * per ISBN with the given locks. Services checking out against the same loan store
+     * must share their locks; the default constructor uses {@link StripedLocks#shared()}.
+     * @param loanDAO The loan DAO.
+     * @param locks   The per-ISBN locks.
+     */
+    public CheckoutService(LoanDAO loanDAO, StripedLocks locks) {
+        this(loanDAO, locks, null);
+    }
+
+    /**
+     * Creates a checkout service like {@link #CheckoutService(LoanDAO, StripedLocks)} that
+     * also writes the new available-copies count of a checked-out book to the catalog,
+     * so searches on availability follow lending.
+     * @param loanDAO The loan DAO.
+     * @param locks   The per-ISBN locks.
+     * @param catalog The catalog holding the books (nullable).
+     */
+    public CheckoutService(LoanDAO loanDAO, StripedLocks locks, BookDAO catalog) {
+        if (locks == null) {
+            throw new IllegalArgumentException("Locks cannot be null.");
+        }
         this.loanDAO = loanDAO;
+        this.locks = locks;
+        this.availability = new Availability(loanDAO, catalog, locks);
     }
 
+    /**
+     * Checks out a copy of a book. The availability check and the loan save happen under
+     * the book's ISBN lock, so concurrent checkouts of the same title cannot lend more
+     * copies than it has, while checkouts of other titles proceed in parallel. The book's
+     * available copies are then recounted from the loan store.
+     * @throws IllegalStateException if all copies of the book are checked out.
+     */
     public void checkoutBook(Book book, Patron patron, LocalDate loanDate, LocalDate dueDate) {
-        if (loanDAO.isBookCheckedOut(book)) {
-            throw new IllegalStateException("Book is already checked out.");
+        if (book == null) {
+            throw new IllegalArgumentException("Book cannot be null.");
         }
-        Loan loan = new Loan(book, patron, loanDate, dueDate);
-        loanDAO.save(loan);
+        locks.runLocked(book.getIsbn(), () -> {
+            if (!loanDAO.isBookAvailable(book)) {
+                throw new IllegalStateException("All copies of the book are checked out.");
+            }
+            Loan loan = LoanIds.unused(loanDAO, new Loan(book, patron, loanDate, dueDate));
+            loanDAO.save(loan);
+            availability.refresh(book);
+        });
     }
 }
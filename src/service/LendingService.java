@@ -1,33 +1,141 @@
 package service;
 
 import model.Book;
+import model.Isbn;
 import model.Loan;
 import model.Patron;
+import model.Reservation;
+import dao.BookDAO;
+import dao.BulkOperations;
 import dao.LoanDAO;
+import dao.ReservationDAO;
+import util.StripedLocks;
+
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
-
-import dao.ReservationDAO;
-import model.Reservation;
+import java.util.Set;
 
 public class LendingService {
 
+    // Prefix that keeps patron lock keys apart from ISBNs.
+    private static final String PATRON_LOCK_PREFIX = "patron:";
+
     private LoanDAO loanDAO;
     private ReservationDAO reservationDAO;
+    private final StripedLocks locks;
+    private final Availability availability;
 
     public LendingService(LoanDAO loanDAO, ReservationDAO reservationDAO) {
+        this(loanDAO, reservationDAO, StripedLocks.shared());
+    }
+
+    // Services checking out against the same loan store must share their per-ISBN locks.
+    public LendingService(LoanDAO loanDAO, ReservationDAO reservationDAO, StripedLocks locks) {
+        this(loanDAO, reservationDAO, locks, null);
+    }
+
+    /**
+     * Creates a lending service that, after every checkout and return, recounts the
+     * book's available copies from the loan store and writes them to the catalog, so
+     * searches on availability follow lending.
+     * @param loanDAO        The loan DAO.
+     * @param reservationDAO The reservation DAO.
+     * @param locks          The per-ISBN locks shared with other checkout services.
+     * @param catalog        The catalog holding the books (nullable).
+     */
+    public LendingService(LoanDAO loanDAO, ReservationDAO reservationDAO, StripedLocks locks, BookDAO catalog) {
+        if (locks == null) {
+            throw new IllegalArgumentException("Locks cannot be null.");
+        }
         this.loanDAO = loanDAO;
         this.reservationDAO = reservationDAO;
+        this.locks = locks;
+        this.availability = new Availability(loanDAO, catalog, locks);
     }
 
-    // Checkout a book for a patron
+    // Checkout a copy of a book for a patron; the availability check and the save are atomic per ISBN
     public void checkoutBook(Book book, Patron patron, LocalDate loanDate, LocalDate dueDate) {
         validateBookAndPatron(book, patron);
-        if (loanDAO.isBookCheckedOut(book)) {
-            throw new IllegalStateException("Book is already checked out.");
+        locks.runLocked(book.getIsbn(), () -> {
+            if (!loanDAO.isBookAvailable(book)) {
+                throw new IllegalStateException("All copies of the book are checked out.");
+            }
+            Loan loan = LoanIds.unused(loanDAO, new Loan(book, patron, loanDate, dueDate));
+            loanDAO.save(loan);
+            availability.refresh(book);
+        });
+    }
+
+    /**
+     * Checks out a patron's whole stack of books in one transaction. Under the locks of
+     * the patron and of every ISBN in the stack, the borrowing limit is checked once
+     * against the patron's active loans, the availability of every title in one pass,
+     * and the loans are saved in a single batched write. Either every book is checked
+     * out or none is.
+     * @param books    The books to check out (non-empty, each title at most once).
+     * @param patron   The borrowing patron.
+     * @param loanDate The loan date.
+     * @param dueDate  The due date of every loan.
+     * @return The new loans, in the order of the books.
+     * @throws IllegalArgumentException if the input is invalid.
+     * @throws IllegalStateException if the stack exceeds the patron's borrowing limit
+     *                               or any title has no copy available.
+     */
+    public List<Loan> checkoutBooks(List<Book> books, Patron patron, LocalDate loanDate, LocalDate dueDate) {
+        if (books == null || books.isEmpty()) {
+            throw new IllegalArgumentException("Books to check out cannot be null or empty.");
         }
-        Loan loan = new Loan(book, patron, loanDate, dueDate);
-        loanDAO.save(loan);
+        if (patron == null) {
+            throw new IllegalArgumentException("Patron cannot be null.");
+        }
+        List<Loan> loans = new ArrayList<>(books.size());
+        List<String> lockKeys = new ArrayList<>(books.size() + 1);
+        Set<String> titles = new HashSet<>();
+        for (Book book : books) {
+            validateBookAndPatron(book, patron);
+            // Two copies of one title in a batch would both pass one availability check.
+            if (!titles.add(Isbn.canonical(book.getIsbn()))) {
+                throw new IllegalArgumentException("Book " + book.getIsbn() + " appears more than once in the checkout.");
+            }
+            loans.add(new Loan(book, patron, loanDate, dueDate));
+            lockKeys.add(book.getIsbn());
+        }
+        BulkOperations.validateBatch(loans, Loan::getLoanId, "Loan");
+        // The patron's stripe serializes concurrent batches of one patron, so the limit
+        // check and the save cannot interleave.
+        lockKeys.add(PATRON_LOCK_PREFIX + patron.getPatronId());
+
+        locks.runLocked(lockKeys, () -> {
+            int activeLoans = 0;
+            for (Loan loan : loanDAO.findLoansByPatron(patron)) {
+                if (loan.getReturnDate() == null) {
+                    activeLoans++;
+                }
+            }
+            int limit = patron.getMembershipType().getBorrowingLimit();
+            if (activeLoans + books.size() > limit) {
+                throw new IllegalStateException("Checkout would exceed the borrowing limit of " + limit
+                        + " books (" + activeLoans + " already on loan).");
+            }
+            List<String> unavailable = new ArrayList<>();
+            for (Book book : books) {
+                if (!loanDAO.isBookAvailable(book)) {
+                    unavailable.add(book.getTitle());
+                }
+            }
+            if (!unavailable.isEmpty()) {
+                throw new IllegalStateException("All copies are checked out for: " + String.join(", ", unavailable));
+            }
+            loans.replaceAll(loan -> LoanIds.unused(loanDAO, loan));
+            loanDAO.saveAll(loans);
+            for (Book book : books) {
+                availability.refresh(book);
+            }
+        });
+        return loans;
     }
 
     // Return a book
@@ -37,12 +145,13 @@ public class LendingService {
         }
         loan.setReturnDate(returnDate);
         loanDAO.update(loan);
+        availability.refresh(loan.getBook());
     }
 
     // Reserve a book for a patron
     public void reserveBook(Book book, Patron patron) {
         validateBookAndPatron(book, patron);
-        if (isBookCheckedOut(book)) {
+        if (!isBookAvailable(book)) {
             // Check if the book is already reserved
             Optional<Reservation> existingReservation = reservationDAO.findByBookAndPatron(book, patron);
             if (existingReservation.isPresent()) {
@@ -59,6 +168,11 @@ public class LendingService {
         return loanDAO.isBookCheckedOut(book);
     }
 
+    // Check if at least one copy of a book can be checked out
+    public boolean isBookAvailable(Book book) {
+        return loanDAO.isBookAvailable(book);
+    }
+
     // Calculate the late fee for a loan
     public double calculateLateFee(Loan loan, double dailyLateFee) {
         if (loan == null) {
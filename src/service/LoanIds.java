@@ -0,0 +1,34 @@
+package service;
+
+import model.Loan;
+import dao.LoanDAO;
+
+/**
+ * LoanIds gives new loans an ID that is not yet taken in the loan store. A patron may
+ * borrow several copies of one title on the same day, or borrow it again on the day it
+ * was returned; such loans share their ISBN, patron and date and are told apart by
+ * their {@link Loan#getSequence() sequence}.
+ */
+final class LoanIds {
+
+    private LoanIds() {
+    }
+
+    /**
+     * Returns the loan if its ID is free, or otherwise a copy with the lowest sequence
+     * whose ID is free. Callers must hold the book's ISBN lock until the loan is saved,
+     * so no other checkout can take the same ID in between.
+     * @param loanDAO The loan store.
+     * @param loan    A new, not yet saved loan.
+     * @return A loan with an unused ID.
+     */
+    static Loan unused(LoanDAO loanDAO, Loan loan) {
+        Loan candidate = loan;
+        int sequence = loan.getSequence();
+        while (loanDAO.findById(candidate.getLoanId()).isPresent()) {
+            sequence++;
+            candidate = new Loan(loan.getBook(), loan.getPatron(), loan.getLoanDate(), loan.getDueDate(), sequence);
+        }
+        return candidate;
+    }
+}
@@ -1,15 +1,61 @@
 package service;
 
+import model.Book;
+import model.Isbn;
 import model.Loan;
+import dao.BookDAO;
 import dao.LoanDAO;
+import util.StripedLocks;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class ReturnService {
 
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
     private LoanDAO loanDAO;
+    private final int batchSize;
+    private final Availability availability;
 
     public ReturnService(LoanDAO loanDAO) {
+        this(loanDAO, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a return service.
+     * @param loanDAO   The loan DAO.
+     * @param batchSize The number of returns written with one {@link LoanDAO#updateAll} (> 0).
+     */
+    public ReturnService(LoanDAO loanDAO, int batchSize) {
+        this(loanDAO, batchSize, StripedLocks.shared(), null);
+    }
+
+    /**
+     * Creates a return service that, after every return, recounts the book's available
+     * copies from the loan store and writes them to the catalog, so searches on
+     * availability follow lending.
+     * @param loanDAO   The loan DAO.
+     * @param batchSize The number of returns written with one {@link LoanDAO#updateAll} (> 0).
+     * @param locks     The per-ISBN locks shared with the checkout services.
+     * @param catalog   The catalog holding the books (nullable).
+     */
+    public ReturnService(LoanDAO loanDAO, int batchSize, StripedLocks locks, BookDAO catalog) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0.");
+        }
+        if (locks == null) {
+            throw new IllegalArgumentException("Locks cannot be null.");
+        }
         this.loanDAO = loanDAO;
+        this.batchSize = batchSize;
+        this.availability = new Availability(loanDAO, catalog, locks);
     }
 
     public void returnBook(Loan loan, LocalDate returnDate) {
@@ -18,5 +64,126 @@ public class ReturnService {
         }
         loan.setReturnDate(returnDate);
         loanDAO.update(loan);
+        availability.refresh(loan.getBook());
+    }
+
+    /**
+     * Returns the items of a scan feed, e.g. from an automated book drop. Each scan is an
+     * ISBN in any notation and is resolved to the active loan of that title that has been
+     * out longest, so scanning the same ISBN twice closes two loans. The loan is stamped
+     * with the return date and its late fee computed, and closed loans are written with
+     * one {@link LoanDAO#updateAll} per batch, after which the available copies of each
+     * title in the batch are recounted once.
+     *
+     * The feed is pulled only as fast as batches are written, so at most one batch of
+     * resolved loans is held in memory however long the feed is. Scans that cannot be
+     * resolved, and every item of a batch whose write fails, are reported in the result
+     * without stopping the remaining scans.
+     *
+     * @param scans        The scanned ISBNs; read once, not closed.
+     * @param returnDate   The return date stamped on every loan.
+     * @param dailyLateFee The fee per overdue day (>= 0).
+     * @return The returned items and the failures.
+     */
+    public BatchReturnResult returnBooks(Stream<String> scans, LocalDate returnDate, double dailyLateFee) {
+        if (scans == null || returnDate == null) {
+            throw new IllegalArgumentException("Scans and Return Date cannot be null.");
+        }
+        if (dailyLateFee < 0) {
+            throw new IllegalArgumentException("Daily Late Fee cannot be negative.");
+        }
+        BatchReturnResult result = new BatchReturnResult();
+        Batch batch = new Batch();
+        Iterator<String> feed = scans.iterator();
+        while (feed.hasNext()) {
+            String scan = feed.next();
+            if (scan == null || scan.trim().isEmpty()) {
+                result.addFailure(scan, "Empty scan.");
+                continue;
+            }
+            Loan loan = resolve(scan.trim(), batch.claimed);
+            if (loan == null) {
+                result.addFailure(scan, "No active loan for this item.");
+                continue;
+            }
+            // Stamp a copy, so the stored loan changes only once its batch is written.
+            Loan closed = new Loan(loan.getBook(), loan.getPatron(), loan.getLoanDate(), loan.getDueDate(),
+                    loan.getSequence());
+            try {
+                closed.setReturnDate(returnDate);
+            } catch (IllegalArgumentException e) {
+                result.addFailure(scan, e.getMessage());
+                continue;
+            }
+            batch.add(scan, loan, closed);
+            if (batch.size() == batchSize) {
+                write(batch, returnDate, dailyLateFee, result);
+            }
+        }
+        write(batch, returnDate, dailyLateFee, result);
+        return result;
+    }
+
+    // The first active loan of the title that is not already being closed in this batch.
+    private Loan resolve(String isbn, Set<String> claimed) {
+        for (Loan loan : loanDAO.findActiveLoansByIsbn(isbn)) {
+            if (loan.getReturnDate() == null && !claimed.contains(loan.getLoanId())) {
+                return loan;
+            }
+        }
+        return null;
+    }
+
+    private void write(Batch batch, LocalDate returnDate, double dailyLateFee, BatchReturnResult result) {
+        if (batch.size() == 0) {
+            return;
+        }
+        try {
+            loanDAO.updateAll(batch.closed);
+        } catch (RuntimeException e) {
+            for (String scan : batch.scans) {
+                result.addFailure(scan, "Could not record return: " + e.getMessage());
+            }
+            batch.clear();
+            return;
+        }
+        Map<String, Book> titles = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            // Keep references to the open loan held elsewhere consistent with the store.
+            Loan open = batch.open.get(i);
+            open.setReturnDate(returnDate);
+            titles.putIfAbsent(Isbn.canonical(open.getBook().getIsbn()), open.getBook());
+            Loan closed = batch.closed.get(i);
+            result.addReturned(batch.scans.get(i), closed, closed.calculateLateFee(dailyLateFee));
+        }
+        batch.clear();
+        for (Book book : titles.values()) {
+            availability.refresh(book);
+        }
+    }
+
+    private static final class Batch {
+        private final List<String> scans = new ArrayList<>();
+        private final List<Loan> open = new ArrayList<>();
+        private final List<Loan> closed = new ArrayList<>();
+        private final Set<String> claimed = new HashSet<>();
+
+        private void add(String scan, Loan loan, Loan closedLoan) {
+            scans.add(scan);
+            open.add(loan);
+            closed.add(closedLoan);
+            claimed.add(loan.getLoanId());
+        }
+
+        private int size() {
+            return scans.size();
+        }
+
+        private void clear() {
+            scans.clear();
+            open.clear();
+            closed.clear();
+            claimed.clear();
+        }
     }
 }
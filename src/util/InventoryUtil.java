@@ -5,10 +5,15 @@ import model.Book;
 //import model.Loan;
 import dao.InventoryDAO;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class InventoryUtil {
 
+    // Books read per findPage() call when walking the whole inventory.
+    static final int PAGE_SIZE = 500;
+
     private InventoryDAO inventoryDAO;
 
     public InventoryUtil(InventoryDAO inventoryDAO) {
@@ -54,11 +59,48 @@ public class InventoryUtil {
     }
 
     /**
-     * Retrieves the list of all books in the inventory.
+     * Retrieves the list of all books in the inventory, in ISBN order. The list holds the
+     * whole inventory; use {@link #forEachBook(Consumer)} or
+     * {@link #getBooksPage(String, int)} to go through a large catalog.
      *
      * @return The list of books in the inventory.
      */
     public List<Book> getAllBooks() {
-        return inventoryDAO.findAll(); // Retrieve all books from inventory
+        List<Book> books = new ArrayList<>();
+        forEachBook(books::add);
+        return books;
+    }
+
+    /**
+     * Passes every book in the inventory to an action, in ISBN order. The books are read
+     * one page at a time, so only a page of them is held in memory.
+     *
+     * @param action The action to perform on each book.
+     */
+    public void forEachBook(Consumer<? super Book> action) {
+        if (action == null) {
+            throw new IllegalArgumentException("Action cannot be null.");
+        }
+        String afterIsbn = null;
+        List<Book> page;
+        do {
+            page = inventoryDAO.findPage(afterIsbn, PAGE_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterIsbn = page.get(page.size() - 1).getIsbn();
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    /**
+     * Retrieves one page of the inventory in ISBN order, so large catalogs can be
+     * listed without loading every book at once.
+     *
+     * @param afterIsbn The last ISBN of the previous page, or null for the first page.
+     * @param limit     The maximum number of books to return (> 0).
+     * @return The next page of books; an empty list once the inventory is exhausted.
+     */
+    public List<Book> getBooksPage(String afterIsbn, int limit) {
+        return inventoryDAO.findPage(afterIsbn, limit);
     }
 }
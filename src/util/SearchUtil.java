@@ -1,14 +1,23 @@
 package util;
 
 import model.Book;
+import search.BookQuery;
+import search.Tokenizer;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class SearchUtil {
 
     /**
-     * Searches for books by ISBN (exact match).
+     * Searches for books by ISBN (exact match). ISBN-10 and ISBN-13 forms of the same
+     * ISBN, with or without hyphens, match each other. For queries combining several
+     * fields, see {@link search.BookQuery} and {@link search.QueryExecutor}.
      *
      * @param books The list of books to search in.
      * @param isbn  The ISBN to search for (exact match).
@@ -16,9 +25,54 @@ public class SearchUtil {
      */
     public static List<Book> searchBooksByISBN(List<Book> allBooks, String isbn) {
         return allBooks.stream()
-                .filter(book -> book.getIsbn().equals(isbn))
+                .filter(matchesIsbn(isbn))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Searches a stream of books by ISBN (exact match, in any ISBN notation) without first collecting the
+     * whole catalog into a list. The caller remains responsible for closing the stream.
+     *
+     * @param books The books to search in.
+     * @param isbn  The ISBN to search for (exact match).
+     * @return A list of books that match the ISBN.
+     */
+    public static List<Book> searchBooksByISBN(Stream<Book> books, String isbn) {
+        return books
+                .filter(matchesIsbn(isbn))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Searches a stream of books for keywords in the title, author or genre. Every
+     * keyword must match a whole word, ignoring case and accents. This is a linear scan;
+     * {@link search.CatalogIndex} answers the same queries from an inverted index.
+     *
+     * @param books   The books to search in.
+     * @param keyword The keywords to search for.
+     * @return A list of books containing every keyword.
+     */
+    public static List<Book> searchBooksByKeyword(Stream<Book> books, String keyword) {
+        List<String> terms = Tokenizer.tokenize(keyword);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return books
+                .filter(book -> {
+                    Set<String> words = new HashSet<>(Tokenizer.tokenize(book.getTitle()));
+                    words.addAll(Tokenizer.tokenize(book.getAuthor()));
+                    words.addAll(Tokenizer.tokenize(book.getGenre()));
+                    return words.containsAll(terms);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static Predicate<Book> matchesIsbn(String isbn) {
+        if (isbn == null || isbn.trim().isEmpty()) {
+            return book -> book.getIsbn().equals(isbn);
+        }
+        return BookQuery.isbnIs(isbn)::matches;
+    }
+
     // Other search methods...
 }
@@ -0,0 +1,148 @@
+package util;
+
+import model.Isbn;
+
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * StripedLocks maps keys such as ISBNs onto a fixed array of locks. Operations on the
+ * same key always take the same lock and are serialized; operations on different keys
+ * usually take different locks and run in parallel. Unlike a lock per key, the memory
+ * used is fixed and nothing has to be cleaned up.
+ *
+ * ISBNs are striped by their normalized form, so an ISBN-10 and its ISBN-13 share a
+ * lock.
+ */
+public class StripedLocks {
+
+    public static final int DEFAULT_STRIPES = 256;
+
+    private static final StripedLocks SHARED = new StripedLocks(DEFAULT_STRIPES);
+
+    private final ReentrantLock[] locks;
+    private final int mask;
+
+    /**
+     * Creates a set of locks.
+     * @param stripes The number of locks, rounded up to a power of two (> 0).
+     */
+    public StripedLocks(int stripes) {
+        if (stripes <= 0 || stripes > 1 << 16) {
+            throw new IllegalArgumentException("Stripes must be between 1 and 65536.");
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Returns the locks shared by services that do not get their own, so that, for
+     * example, desk and self-service checkouts of one title exclude each other.
+     * @return The shared locks.
+     */
+    public static StripedLocks shared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs an action while holding the lock of a key.
+     * @param key    The key, e.g. an ISBN.
+     * @param action The action.
+     * @param <T>    The result type.
+     * @return The action's result.
+     */
+    public <T> T withLock(String key, Supplier<T> action) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs an action while holding the lock of a key.
+     * @param key    The key, e.g. an ISBN.
+     * @param action The action.
+     */
+    public void runLocked(String key, Runnable action) {
+        withLock(key, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs an action while holding the locks of several keys. The locks are taken in
+     * stripe order, so callers locking overlapping key sets cannot deadlock.
+     * @param keys   The keys, e.g. the ISBNs of a batch.
+     * @param action The action.
+     * @param <T>    The result type.
+     * @return The action's result.
+     */
+    public <T> T withLocks(Collection<String> keys, Supplier<T> action) {
+        if (keys == null) {
+            throw new IllegalArgumentException("Lock keys cannot be null.");
+        }
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (String key : keys) {
+            stripes.add(stripe(key));
+        }
+        ReentrantLock[] acquired = new ReentrantLock[stripes.size()];
+        int count = 0;
+        try {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+                acquired[count++] = locks[stripe];
+            }
+            return action.get();
+        } finally {
+            while (count > 0) {
+                acquired[--count].unlock();
+            }
+        }
+    }
+
+    /**
+     * Runs an action while holding the locks of several keys; see {@link #withLocks}.
+     * @param keys   The keys, e.g. the ISBNs of a batch.
+     * @param action The action.
+     */
+    public void runLocked(Collection<String> keys, Runnable action) {
+        withLocks(keys, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public int stripes() {
+        return locks.length;
+    }
+
+    ReentrantLock lockFor(String key) {
+        return locks[stripe(key)];
+    }
+
+    int stripe(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Lock key cannot be null.");
+        }
+        long isbnKey = Isbn.toKey(key);
+        int hash = isbnKey != Isbn.INVALID_KEY ? Long.hashCode(isbnKey) : key.hashCode();
+        // Spread the high bits so that keys differing only there use different stripes.
+        hash ^= hash >>> 16;
+        hash *= 0x9E3779B1;
+        return (hash ^ (hash >>> 15)) & mask;
+    }
+}
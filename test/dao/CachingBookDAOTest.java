@@ -0,0 +1,73 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.BoundedCache;
+import dao.CachingBookDAO;
+import dao.InMemoryBookDAO;
+import model.Book;
+
+public class CachingBookDAOTest {
+
+    private InMemoryBookDAO backing;
+    private CachingBookDAO bookDAO;
+    private Book gatsby;
+
+    @Before
+    public void setUp() {
+        backing = new InMemoryBookDAO();
+        bookDAO = new CachingBookDAO(backing, 2);
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+        bookDAO.save(gatsby);
+    }
+
+    @Test
+    public void testRepeatedLookupIsServedFromCache() {
+        assertEquals(gatsby, bookDAO.findById("9780743273565").get());
+        assertEquals(gatsby, bookDAO.findById("9780743273565").get());
+        assertEquals(1, bookDAO.cache().missCount());
+        assertEquals(1, bookDAO.cache().hitCount());
+    }
+
+    @Test
+    public void testDeleteInvalidatesCachedBook() {
+        bookDAO.findById("9780743273565");
+        bookDAO.delete("9780743273565");
+        assertFalse(bookDAO.findById("9780743273565").isPresent());
+    }
+
+    @Test
+    public void testUpdateInvalidatesCachedBook() {
+        bookDAO.findById("9780743273565");
+        Book replacement = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Classics", "9780743273565", 1925, 5);
+        bookDAO.update(replacement);
+        assertEquals("Classics", bookDAO.findById("9780743273565").get().getGenre());
+    }
+
+    @Test
+    public void testFrequentlyUsedEntriesSurviveOneOffLookups() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2);
+        for (int i = 0; i < 5; i++) {
+            cache.get("hot");
+        }
+        cache.put("hot", "h");
+        cache.get("warm");
+        cache.put("warm", "w");
+
+        cache.get("cold");
+        cache.put("cold", "c");
+        assertNull(cache.get("cold"));
+        assertEquals("h", cache.get("hot"));
+        assertEquals(1, cache.rejectionCount());
+
+        for (int i = 0; i < 5; i++) {
+            cache.get("new");
+        }
+        cache.put("new", "n");
+        assertEquals("n", cache.get("new"));
+        assertNull(cache.get("warm"));
+        assertEquals(1, cache.evictionCount());
+    }
+}
@@ -0,0 +1,99 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.CachingPatronDAO;
+import dao.PatronDAO;
+import model.Patron;
+import model.PatronType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class CachingPatronDAOTest {
+
+    /**
+     * A map-backed PatronDAO that counts lookups.
+     */
+    private static final class CountingPatronDAO implements PatronDAO {
+        private final Map<String, Patron> patrons = new LinkedHashMap<>();
+        private int lookups;
+
+        @Override
+        public void save(Patron patron) {
+            if (patrons.containsKey(patron.getPatronId())) {
+                throw new IllegalArgumentException("Patron with ID " + patron.getPatronId() + " already exists.");
+            }
+            patrons.put(patron.getPatronId(), patron);
+        }
+
+        @Override
+        public void delete(String patronId) {
+            patrons.remove(patronId);
+        }
+
+        @Override
+        public void update(Patron patron) {
+            if (!patrons.containsKey(patron.getPatronId())) {
+                throw new IllegalArgumentException("Patron with ID " + patron.getPatronId() + " does not exist.");
+            }
+            patrons.put(patron.getPatronId(), patron);
+        }
+
+        @Override
+        public Optional<Patron> findById(String patronId) {
+            lookups++;
+            return Optional.ofNullable(patrons.get(patronId));
+        }
+
+        @Override
+        public List<Patron> findAll() {
+            return new ArrayList<>(patrons.values());
+        }
+    }
+
+    private CountingPatronDAO backing;
+    private CachingPatronDAO patronDAO;
+    private Patron john;
+
+    @Before
+    public void setUp() {
+        backing = new CountingPatronDAO();
+        patronDAO = new CachingPatronDAO(backing, 2);
+        john = new Patron("John Doe", "12345", PatronType.PREMIUM);
+        patronDAO.save(john);
+    }
+
+    @Test
+    public void testRepeatedLookupIsServedFromCache() {
+        assertEquals(john, patronDAO.findById("12345").get());
+        assertEquals(john, patronDAO.findById("12345").get());
+        assertEquals(1, backing.lookups);
+        assertEquals(1, patronDAO.cache().hitCount());
+    }
+
+    @Test
+    public void testWritesInvalidateCachedPatron() {
+        patronDAO.findById("12345");
+        Patron upgraded = new Patron("John Doe", "12345", PatronType.REGULAR);
+        patronDAO.update(upgraded);
+        assertEquals(PatronType.REGULAR, patronDAO.findById("12345").get().getMembershipType());
+
+        patronDAO.deleteAll(Arrays.asList("12345"));
+        assertFalse(patronDAO.findById("12345").isPresent());
+    }
+
+    @Test
+    public void testUnknownPatronIsNotCached() {
+        assertFalse(patronDAO.findById("67890").isPresent());
+        patronDAO.save(new Patron("Jane Roe", "67890", PatronType.REGULAR));
+        assertTrue(patronDAO.findById("67890").isPresent());
+        assertEquals(2, backing.lookups);
+    }
+}
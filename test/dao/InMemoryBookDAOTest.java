@@ -0,0 +1,141 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.InMemoryBookDAO;
+import model.Book;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class InMemoryBookDAOTest {
+
+    private InMemoryBookDAO bookDAO;
+    private Book gatsby;
+    private Book tenderIsTheNight;
+
+    @Before
+    public void setUp() {
+        bookDAO = new InMemoryBookDAO();
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+        tenderIsTheNight = new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 2);
+        bookDAO.save(gatsby);
+        bookDAO.save(tenderIsTheNight);
+    }
+
+    @Test
+    public void testFindById() {
+        assertEquals(gatsby, bookDAO.findById("9780743273565").get());
+        assertFalse(bookDAO.findById("unknown").isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSaveDuplicateThrowsException() {
+        bookDAO.save(new Book("Copy", "Someone", "Fiction", "9780743273565", 2000, 1));
+    }
+
+    @Test
+    public void testSecondaryIndexes() {
+        assertEquals(2, bookDAO.findByAuthor("f. scott fitzgerald").size());
+        assertEquals(2, bookDAO.findByGenre("Fiction").size());
+        assertEquals(1, bookDAO.findByPublicationYear(1934).size());
+    }
+
+    @Test
+    public void testUpdateReindexesBook() {
+        gatsby.setGenre("Classics");
+        gatsby.setPublicationYear(1926);
+        bookDAO.update(gatsby);
+
+        assertEquals(1, bookDAO.findByGenre("Fiction").size());
+        assertEquals(1, bookDAO.findByGenre("Classics").size());
+        assertTrue(bookDAO.findByPublicationYear(1925).isEmpty());
+        assertEquals(1, bookDAO.findByPublicationYear(1926).size());
+    }
+
+    @Test
+    public void testDeleteRemovesFromIndexes() {
+        bookDAO.delete("9780743273565");
+        assertFalse(bookDAO.findById("9780743273565").isPresent());
+        assertEquals(1, bookDAO.findByAuthor("F. Scott Fitzgerald").size());
+        assertTrue(bookDAO.findByPublicationYear(1925).isEmpty());
+        assertEquals(1, bookDAO.findAll().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpdateMissingBookThrowsException() {
+        bookDAO.update(new Book("Unknown", "Nobody", null, "0000000000", 2000, 1));
+    }
+
+    @Test
+    public void testSaveAllIsAllOrNothing() {
+        Book newBook = new Book("This Side of Paradise", "F. Scott Fitzgerald", "Fiction", "9780743272476", 1920, 3);
+        Book duplicate = new Book("Copy", "Someone", "Fiction", "9780743273565", 2000, 1);
+        assertThrows(IllegalArgumentException.class, () -> bookDAO.saveAll(Arrays.asList(newBook, duplicate)));
+        assertFalse(bookDAO.findById("9780743272476").isPresent());
+
+        bookDAO.saveAll(Arrays.asList(newBook));
+        assertEquals(3, bookDAO.findByAuthor("F. Scott Fitzgerald").size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSaveAllRejectsDuplicateIdsInBatch() {
+        Book newBook = new Book("This Side of Paradise", "F. Scott Fitzgerald", "Fiction", "9780743272476", 1920, 3);
+        bookDAO.saveAll(Arrays.asList(newBook, newBook));
+    }
+
+    @Test
+    public void testFindPageWalksIsbnOrder() {
+        Book paradise = new Book("This Side of Paradise", "F. Scott Fitzgerald", "Fiction", "9780743272476", 1920, 3);
+        bookDAO.save(paradise);
+
+        List<Book> first = bookDAO.findPage(null, 2);
+        assertEquals(Arrays.asList(tenderIsTheNight, paradise), first);
+        List<Book> second = bookDAO.findPage(first.get(1).getIsbn(), 2);
+        assertEquals(Arrays.asList(gatsby), second);
+        assertTrue(bookDAO.findPage(gatsby.getIsbn(), 2).isEmpty());
+    }
+
+    @Test
+    public void testStreamAllSeesEveryBook() {
+        try (Stream<Book> books = bookDAO.streamAll()) {
+            assertEquals(2, books.count());
+        }
+    }
+
+    @Test
+    public void testIsbn10AndIsbn13FindSameBook() {
+        assertEquals(gatsby, bookDAO.findById("0-7432-7356-7").get());
+        assertThrows(IllegalArgumentException.class,
+                () -> bookDAO.save(new Book("Copy", "Someone", "Fiction", "0743273567", 2000, 1)));
+
+        bookDAO.delete("978-0-7432-7356-5");
+        assertFalse(bookDAO.findById("9780743273565").isPresent());
+        assertEquals(1, bookDAO.size());
+    }
+
+    @Test
+    public void testRangeQueriesReturnValueOrder() {
+        Book paradise = new Book("This Side of Paradise", "F. Scott Fitzgerald", "Fiction", "9780743272476", 1920, 30);
+        bookDAO.save(paradise);
+
+        assertEquals(Arrays.asList(paradise, gatsby), bookDAO.findByPublicationYearBetween(1900, 1930));
+        assertEquals(Arrays.asList(tenderIsTheNight, gatsby, paradise),
+                bookDAO.findRange(InMemoryBookDAO.RangeField.PUBLICATION_YEAR, 0, 3000, true, 10));
+        assertEquals(Arrays.asList(paradise),
+                bookDAO.findRange(InMemoryBookDAO.RangeField.TOTAL_COPIES, 21, Integer.MAX_VALUE, false, 10));
+        assertEquals(2, bookDAO.countRange(InMemoryBookDAO.RangeField.AVAILABLE_COPIES, 1, 5));
+    }
+
+    @Test
+    public void testRangeIndexFollowsUpdates() {
+        gatsby.borrowBook();
+        bookDAO.update(gatsby);
+        assertEquals(Arrays.asList(gatsby),
+                bookDAO.findRange(InMemoryBookDAO.RangeField.AVAILABLE_COPIES, 4, 4, false, 10));
+        assertTrue(bookDAO.findRange(InMemoryBookDAO.RangeField.AVAILABLE_COPIES, 5, 5, false, 10).isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.InMemoryLoanDAO;
+import model.Book;
+import model.Loan;
+import model.Patron;
+import model.PatronType;
+
+import java.time.LocalDate;
+
+public class InMemoryLoanDAOTest {
+
+    private InMemoryLoanDAO loanDAO;
+    private Book book;
+    private Patron patron;
+    private Loan loan;
+
+    @Before
+    public void setUp() {
+        loanDAO = new InMemoryLoanDAO();
+        book = new Book("Effective Java", "Joshua Bloch", "Programming", "978-0134685991", 2018, 5);
+        patron = new Patron("John Doe", "12345", PatronType.PREMIUM);
+        LocalDate loanDate = LocalDate.of(2024, 1, 10);
+        loan = new Loan(book, patron, loanDate, loanDate.plusWeeks(2));
+    }
+
+    @Test
+    public void testSaveMarksBookCheckedOut() {
+        assertFalse(loanDAO.isBookCheckedOut(book));
+        loanDAO.save(loan);
+        assertTrue(loanDAO.isBookCheckedOut(book));
+        assertEquals(1, loanDAO.countActiveLoans(book.getIsbn()));
+        assertEquals(1, loanDAO.findLoansByPatron(patron).size());
+    }
+
+    @Test
+    public void testReturnedLoanNoLongerActive() {
+        loanDAO.save(loan);
+        loan.setReturnDate(LocalDate.of(2024, 1, 20));
+        loanDAO.update(loan);
+
+        assertFalse(loanDAO.isBookCheckedOut(book));
+        assertEquals(0, loanDAO.countActiveLoans(book.getIsbn()));
+        assertEquals(1, loanDAO.findLoansByPatron(patron).size());
+    }
+
+    @Test
+    public void testAvailableUntilEveryCopyIsOnLoan() {
+        Book twoCopies = new Book("Refactoring", "Martin Fowler", "Programming", "978-0134757599", 2018, 2);
+        LocalDate loanDate = LocalDate.of(2024, 1, 10);
+        Loan first = new Loan(twoCopies, patron, loanDate, loanDate.plusWeeks(2));
+        Loan second = new Loan(twoCopies, new Patron("Jane Roe", "67890", PatronType.REGULAR), loanDate, loanDate.plusWeeks(2));
+
+        loanDAO.save(first);
+        assertTrue(loanDAO.isBookCheckedOut(twoCopies));
+        assertTrue(loanDAO.isBookAvailable(twoCopies));
+        loanDAO.save(second);
+        assertEquals(2, loanDAO.countActiveLoans(twoCopies));
+        assertFalse(loanDAO.isBookAvailable(twoCopies));
+
+        first.setReturnDate(loanDate.plusDays(3));
+        loanDAO.update(first);
+        assertTrue(loanDAO.isBookAvailable(twoCopies));
+    }
+
+    @Test
+    public void testDeleteRemovesLoan() {
+        loanDAO.save(loan);
+        loanDAO.delete(loan.getLoanId());
+
+        assertFalse(loanDAO.isBookCheckedOut(book));
+        assertTrue(loanDAO.findLoansByPatron(patron).isEmpty());
+        assertFalse(loanDAO.findById(loan.getLoanId()).isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpdateMissingLoanThrowsException() {
+        loanDAO.update(loan);
+    }
+}
@@ -0,0 +1,72 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.MappedBookDAO;
+import model.Book;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class MappedBookDAOTest {
+
+    private Path file;
+    private MappedBookDAO bookDAO;
+    private Book book;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("catalog", ".dat");
+        Files.delete(file);
+        bookDAO = new MappedBookDAO(file);
+        book = new Book("The Great Gatsby", "F. Scott Fitzgerald", null, "9780743273565", 1925, 5);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        bookDAO.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testSaveAndFindById() {
+        bookDAO.save(book);
+        Book found = bookDAO.findById("9780743273565").get();
+        assertEquals("The Great Gatsby", found.getTitle());
+        assertNull(found.getGenre());
+        assertEquals(5, found.getAvailableCopies());
+    }
+
+    @Test
+    public void testUpdateAvailableCopiesInPlace() {
+        bookDAO.save(book);
+        bookDAO.updateAvailableCopies("9780743273565", 2);
+        assertEquals(2, bookDAO.findById("9780743273565").get().getAvailableCopies());
+    }
+
+    @Test
+    public void testCatalogSurvivesReopen() {
+        bookDAO.save(book);
+        bookDAO.save(new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 2));
+        bookDAO.delete("9780684801544");
+        bookDAO.close();
+
+        bookDAO = new MappedBookDAO(file);
+        assertEquals(1, bookDAO.size());
+        assertTrue(bookDAO.findById("9780743273565").isPresent());
+        assertFalse(bookDAO.findById("9780684801544").isPresent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOversizedTitleThrowsException() {
+        StringBuilder title = new StringBuilder();
+        for (int i = 0; i < MappedBookDAO.MAX_TITLE_BYTES + 1; i++) {
+            title.append('x');
+        }
+        bookDAO.save(new Book(title.toString(), "Author", "Genre", "12345", 2020, 1));
+    }
+}
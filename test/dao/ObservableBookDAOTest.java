@@ -0,0 +1,161 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.ChangeEvent;
+import dao.InMemoryBookDAO;
+import dao.ObservableBookDAO;
+import model.Book;
+import search.CatalogIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ObservableBookDAOTest {
+
+    private InMemoryBookDAO backing;
+    private ObservableBookDAO bookDAO;
+    private List<ChangeEvent<Book>> events;
+    private Book gatsby;
+
+    @Before
+    public void setUp() {
+        backing = new InMemoryBookDAO();
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+        backing.save(gatsby);
+        bookDAO = new ObservableBookDAO(backing);
+        events = new CopyOnWriteArrayList<>();
+        bookDAO.addListener(events::add);
+    }
+
+    private void awaitDelivery() throws InterruptedException {
+        assertTrue(bookDAO.notifier().awaitDelivery(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testEventsCarryBeforeAndAfterSnapshots() throws InterruptedException {
+        Book revised = new Book(gatsby);
+        revised.setTitle("Trimalchio");
+        bookDAO.update(revised);
+        awaitDelivery();
+
+        ChangeEvent<Book> event = events.get(0);
+        assertEquals(ChangeEvent.Type.UPDATE, event.getType());
+        assertEquals("9780743273565", event.getKey());
+        assertEquals("The Great Gatsby", event.getBefore().getTitle());
+        assertEquals("Trimalchio", event.getAfter().getTitle());
+
+        revised.setTitle("Under the Red, White, and Blue");
+        assertEquals("Trimalchio", event.getAfter().getTitle());
+    }
+
+    @Test
+    public void testEventsArriveInWriteOrder() throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            bookDAO.save(new Book("Volume " + i, "Author", "Fiction", "B-" + i, 2000, 1));
+        }
+        bookDAO.delete("0-7432-7356-7");
+        awaitDelivery();
+
+        assertEquals(501, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).getSequence());
+        }
+        ChangeEvent<Book> last = events.get(500);
+        assertEquals(ChangeEvent.Type.DELETE, last.getType());
+        assertEquals(gatsby, last.getBefore());
+        assertNull(last.getAfter());
+    }
+
+    @Test
+    public void testFailedWritePublishesNothing() throws InterruptedException {
+        try {
+            bookDAO.save(gatsby);
+            fail("Duplicate save should fail.");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        awaitDelivery();
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testFailingListenerDoesNotStopDelivery() throws InterruptedException {
+        bookDAO.addListener(event -> {
+            throw new IllegalStateException("listener failure");
+        });
+        bookDAO.saveAll(Arrays.asList(
+                new Book("1984", "George Orwell", "Dystopian", "9780451524935", 1949, 4),
+                new Book("Animal Farm", "George Orwell", "Satire", "9780451526342", 1945, 1)));
+        awaitDelivery();
+
+        assertEquals(2, events.size());
+        assertEquals(2, bookDAO.notifier().failedDeliveries());
+    }
+
+    @Test
+    public void testCatalogIndexFollowsChanges() throws InterruptedException {
+        CatalogIndex index = new CatalogIndex();
+        index.indexAll(bookDAO.findAll());
+        bookDAO.addListener(index.changeListener());
+
+        bookDAO.save(new Book("1984", "George Orwell", "Dystopian", "9780451524935", 1949, 4));
+        bookDAO.delete(gatsby.getIsbn());
+        awaitDelivery();
+
+        assertEquals(1, index.search("orwell").size());
+        assertTrue(index.search("gatsby").isEmpty());
+    }
+
+    @Test
+    public void testConcurrentWritesKeepPerBookOrder() throws InterruptedException {
+        int writers = 8;
+        int updates = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int w = 0; w < writers; w++) {
+            String isbn = "W-" + w;
+            bookDAO.save(new Book("Volume", "Author", "Fiction", isbn, 2000, 1));
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 1; i <= updates; i++) {
+                    bookDAO.update(new Book("Volume", "Author", "Fiction", isbn, 2000, i));
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        awaitDelivery();
+
+        assertEquals(writers * (updates + 1), events.size());
+        for (int w = 0; w < writers; w++) {
+            String isbn = "W-" + w;
+            List<ChangeEvent<Book>> ofBook = new ArrayList<>();
+            for (ChangeEvent<Book> event : events) {
+                if (event.getKey().equals(isbn)) {
+                    ofBook.add(event);
+                }
+            }
+            assertEquals(ChangeEvent.Type.INSERT, ofBook.get(0).getType());
+            for (int i = 1; i <= updates; i++) {
+                ChangeEvent<Book> event = ofBook.get(i);
+                assertEquals(Math.max(1, i - 1), event.getBefore().getTotalCopies());
+                assertEquals(i, event.getAfter().getTotalCopies());
+                assertTrue(event.getSequence() > ofBook.get(i - 1).getSequence());
+            }
+        }
+    }
+}
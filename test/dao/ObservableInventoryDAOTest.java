@@ -0,0 +1,95 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.ChangeEvent;
+import dao.ObservableInventoryDAO;
+import dao.jdbc.JdbcDatabase;
+import dao.jdbc.JdbcInventoryDAO;
+import model.Book;
+import model.Inventory;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+public class ObservableInventoryDAOTest {
+
+    private JdbcDatabase database;
+    private ObservableInventoryDAO inventoryDAO;
+    private List<ChangeEvent<Inventory>> events;
+    private Book gatsby;
+
+    @Before
+    public void setUp() {
+        database = JdbcDatabase.open("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", 2);
+        inventoryDAO = new ObservableInventoryDAO(new JdbcInventoryDAO(database));
+        events = new CopyOnWriteArrayList<>();
+        inventoryDAO.addListener(events::add);
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    private void awaitDelivery() throws InterruptedException {
+        assertTrue(inventoryDAO.notifier().awaitDelivery(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testWritesPublishCopyCounts() throws InterruptedException {
+        inventoryDAO.save(gatsby);
+        inventoryDAO.updateInventory(new Inventory("9780743273565", 5, 3));
+        gatsby.setTotalCopies(7);
+        inventoryDAO.update(gatsby);
+        inventoryDAO.delete("9780743273565");
+        awaitDelivery();
+
+        assertEquals(4, events.size());
+        assertEquals(ChangeEvent.Type.INSERT, events.get(0).getType());
+        assertNull(events.get(0).getBefore());
+        assertEquals(5, events.get(0).getAfter().getAvailableCopies());
+
+        assertEquals(ChangeEvent.Type.UPDATE, events.get(1).getType());
+        assertEquals(5, events.get(1).getBefore().getAvailableCopies());
+        assertEquals(3, events.get(1).getAfter().getAvailableCopies());
+
+        assertEquals(ChangeEvent.Type.UPDATE, events.get(2).getType());
+        assertEquals(3, events.get(2).getBefore().getAvailableCopies());
+        assertEquals(7, events.get(2).getAfter().getTotalCopies());
+
+        assertEquals(ChangeEvent.Type.DELETE, events.get(3).getType());
+        assertEquals("9780743273565", events.get(3).getKey());
+        assertEquals(7, events.get(3).getBefore().getTotalCopies());
+        assertNull(events.get(3).getAfter());
+    }
+
+    @Test
+    public void testFailedWritesPublishNothing() throws InterruptedException {
+        try {
+            inventoryDAO.updateInventory(new Inventory("9780743273565", 5, 5));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        inventoryDAO.delete("9780743273565");
+        awaitDelivery();
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testKeysAreCanonicalIsbns() throws InterruptedException {
+        Book hyphenated = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "978-0-7432-7356-5", 1925, 5);
+        inventoryDAO.save(hyphenated);
+        awaitDelivery();
+
+        assertEquals("9780743273565", events.get(0).getKey());
+    }
+}
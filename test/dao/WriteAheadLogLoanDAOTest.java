@@ -0,0 +1,153 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.WriteAheadLogLoanDAO;
+import model.Book;
+import model.Loan;
+import model.Patron;
+import model.PatronType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class WriteAheadLogLoanDAOTest {
+
+    private Path directory;
+    private Book book;
+    private Patron patron;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("loans");
+        book = new Book("Effective Java", "Joshua Bloch", "Programming", "978-0134685991", 2018, 5);
+        patron = new Patron("John Doe", "12345", PatronType.PREMIUM);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void testLoansSurviveRestart() {
+        Loan returned = new Loan(book, patron, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15));
+        Loan active = new Loan(book, patron, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 15));
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory)) {
+            loanDAO.save(returned);
+            loanDAO.save(active);
+            returned.setReturnDate(LocalDate.of(2024, 1, 10));
+            loanDAO.update(returned);
+        }
+
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory)) {
+            assertEquals(2, loanDAO.findAll().size());
+            assertEquals(LocalDate.of(2024, 1, 10), loanDAO.findById(returned.getLoanId()).get().getReturnDate());
+            assertTrue(loanDAO.isBookCheckedOut(book));
+            assertEquals(2, loanDAO.findLoansByPatron(patron).size());
+        }
+    }
+
+    @Test
+    public void testSameDayLoansKeepTheirSequence() {
+        LocalDate today = LocalDate.of(2024, 1, 1);
+        Loan second = new Loan(book, patron, today, today.plusDays(14), 1);
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory)) {
+            loanDAO.save(new Loan(book, patron, today, today.plusDays(14)));
+            loanDAO.save(second);
+            second.setReturnDate(today);
+            loanDAO.update(second);
+        }
+
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory)) {
+            assertEquals(2, loanDAO.findAll().size());
+            Loan stored = loanDAO.findById(second.getLoanId()).get();
+            assertEquals(1, stored.getSequence());
+            assertEquals(today, stored.getReturnDate());
+        }
+    }
+
+    @Test
+    public void testSnapshotAndLogTailAreReplayed() {
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory, 10)) {
+            LocalDate start = LocalDate.of(2024, 1, 1);
+            for (int i = 0; i < 25; i++) {
+                loanDAO.save(new Loan(book, patron, start.plusDays(i), start.plusDays(i + 14)));
+            }
+            loanDAO.delete(new Loan(book, patron, start, start.plusDays(14)).getLoanId());
+        }
+
+        assertTrue(Files.exists(directory.resolve("loans.snapshot")));
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory, 10)) {
+            assertEquals(24, loanDAO.findAll().size());
+        }
+    }
+
+    @Test
+    public void testTornTailIsDiscarded() throws IOException {
+        Loan loan = new Loan(book, patron, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 15));
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory)) {
+            loanDAO.save(loan);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".wal") && path.toFile().length() > 0)
+                    .findFirst().get();
+        }
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory)) {
+            assertEquals(1, loanDAO.findAll().size());
+            assertTrue(loanDAO.findById(loan.getLoanId()).isPresent());
+        }
+    }
+
+    @Test
+    public void testSnapshotHoldsLoggedStateNotLaterChanges() {
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        Loan loan = new Loan(book, patron, start, start.plusDays(14));
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory, 3)) {
+            loanDAO.save(loan);
+            // Changed on the live object but never written with update.
+            loan.setReturnDate(start.plusDays(10));
+            // The third record starts a snapshot, well after the change above.
+            loanDAO.save(new Loan(book, patron, start.plusDays(1), start.plusDays(15)));
+            loanDAO.save(new Loan(book, patron, start.plusDays(2), start.plusDays(16)));
+        }
+
+        assertTrue(Files.exists(directory.resolve("loans.snapshot")));
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory, 3)) {
+            assertEquals(3, loanDAO.findAll().size());
+            assertNull(loanDAO.findById(loan.getLoanId()).get().getReturnDate());
+            assertNull(loanDAO.lastSnapshotFailure());
+        }
+    }
+
+    @Test
+    public void testSnapshotFailureIsRecordedAndLogIsKept() throws IOException {
+        // A directory in the way of the temporary snapshot file makes the snapshot fail.
+        Files.createDirectory(directory.resolve("loans.snapshot.tmp"));
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        WriteAheadLogLoanDAO failing = new WriteAheadLogLoanDAO(directory, 5);
+        for (int i = 0; i < 5; i++) {
+            failing.save(new Loan(book, patron, start.plusDays(i), start.plusDays(i + 14)));
+        }
+        failing.close();
+        assertNotNull(failing.lastSnapshotFailure());
+
+        assertFalse(Files.exists(directory.resolve("loans.snapshot")));
+        try (WriteAheadLogLoanDAO loanDAO = new WriteAheadLogLoanDAO(directory, 5)) {
+            assertEquals(5, loanDAO.findAll().size());
+        }
+    }
+}
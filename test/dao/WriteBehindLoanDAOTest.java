@@ -0,0 +1,106 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.InMemoryLoanDAO;
+import dao.WriteBehindLoanDAO;
+import model.Book;
+import model.Loan;
+import model.Patron;
+import model.PatronType;
+
+import java.time.LocalDate;
+
+public class WriteBehindLoanDAOTest {
+
+    private InMemoryLoanDAO backing;
+    private WriteBehindLoanDAO loanDAO;
+    private Book book;
+    private Loan loan;
+
+    @Before
+    public void setUp() {
+        backing = new InMemoryLoanDAO();
+        loanDAO = new WriteBehindLoanDAO(backing, 100, 100, 60_000);
+        book = new Book("Effective Java", "Joshua Bloch", "Programming", "978-0134685991", 2018, 5);
+        Patron patron = new Patron("John Doe", "12345", PatronType.PREMIUM);
+        LocalDate loanDate = LocalDate.of(2024, 1, 10);
+        loan = new Loan(book, patron, loanDate, loanDate.plusWeeks(2));
+    }
+
+    @After
+    public void tearDown() {
+        loanDAO.close();
+    }
+
+    @Test
+    public void testWritesAreBufferedUntilFlush() {
+        loanDAO.save(loan);
+        assertFalse(backing.findById(loan.getLoanId()).isPresent());
+        assertTrue(loanDAO.findById(loan.getLoanId()).isPresent());
+
+        loanDAO.flush();
+        assertTrue(backing.findById(loan.getLoanId()).isPresent());
+        assertEquals(0, loanDAO.pendingWrites());
+    }
+
+    @Test
+    public void testRepeatedUpdatesAreCoalesced() {
+        loanDAO.save(loan);
+        loanDAO.flush();
+
+        loan.setReturnDate(LocalDate.of(2024, 1, 20));
+        loanDAO.update(loan);
+        loanDAO.update(loan);
+        assertEquals(1, loanDAO.pendingWrites());
+        assertEquals(1, loanDAO.coalescedWrites());
+
+        // Answered from the buffer; the backing store has not been written yet.
+        assertFalse(loanDAO.isBookCheckedOut(book));
+        assertTrue(backing.isBookCheckedOut(book));
+        assertEquals(1, loanDAO.pendingWrites());
+    }
+
+    @Test
+    public void testLendingLookupsSeeBufferedWritesWithoutFlushing() {
+        Patron jane = new Patron("Jane Roe", "67890", PatronType.REGULAR);
+        Loan janes = new Loan(book, jane, loan.getLoanDate(), loan.getDueDate().plusDays(1));
+        loanDAO.save(loan);
+        loanDAO.flush();
+        loanDAO.save(janes);
+
+        assertEquals(2, loanDAO.countActiveLoans(book));
+        assertEquals(1, backing.countActiveLoans(book));
+        assertEquals(loan.getLoanId(), loanDAO.findActiveLoansByIsbn("9780134685991").get(0).getLoanId());
+        assertEquals(1, loanDAO.findLoansByPatron(jane).size());
+
+        loanDAO.delete(loan.getLoanId());
+        assertEquals(1, loanDAO.countActiveLoans(book));
+        assertTrue(loanDAO.findLoansByPatron(loan.getPatron()).isEmpty());
+        assertEquals(2, loanDAO.pendingWrites());
+    }
+
+    @Test
+    public void testSaveThenDeleteNeverReachesBackingStore() {
+        loanDAO.save(loan);
+        loanDAO.delete(loan.getLoanId());
+        assertFalse(loanDAO.findById(loan.getLoanId()).isPresent());
+        assertEquals(0, loanDAO.pendingWrites());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateSaveIsRejectedImmediately() {
+        loanDAO.save(loan);
+        loanDAO.save(loan);
+    }
+
+    @Test
+    public void testCloseDrainsBuffer() {
+        loanDAO.save(loan);
+        loanDAO.close();
+        assertTrue(backing.findById(loan.getLoanId()).isPresent());
+    }
+}
@@ -0,0 +1,124 @@
+package test.dao;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.PatronDAO;
+import dao.WriteBehindPatronDAO;
+import model.Patron;
+import model.PatronType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public class WriteBehindPatronDAOTest {
+
+    /**
+     * A map-backed PatronDAO that counts bulk writes and can be made unavailable.
+     */
+    private static final class RecordingPatronDAO implements PatronDAO {
+        private final Map<String, Patron> patrons = new LinkedHashMap<>();
+        private int bulkWrites;
+        private volatile boolean unavailable;
+
+        @Override
+        public synchronized void save(Patron patron) {
+            if (patrons.containsKey(patron.getPatronId())) {
+                throw new IllegalArgumentException("Patron with ID " + patron.getPatronId() + " already exists.");
+            }
+            patrons.put(patron.getPatronId(), patron);
+        }
+
+        @Override
+        public synchronized void delete(String patronId) {
+            patrons.remove(patronId);
+        }
+
+        @Override
+        public synchronized void update(Patron patron) {
+            patrons.put(patron.getPatronId(), patron);
+        }
+
+        @Override
+        public synchronized void saveAll(Collection<Patron> batch) {
+            if (unavailable) {
+                throw new IllegalStateException("store unavailable");
+            }
+            bulkWrites++;
+            PatronDAO.super.saveAll(batch);
+        }
+
+        @Override
+        public synchronized Optional<Patron> findById(String patronId) {
+            return Optional.ofNullable(patrons.get(patronId));
+        }
+
+        @Override
+        public synchronized List<Patron> findAll() {
+            return new ArrayList<>(patrons.values());
+        }
+    }
+
+    private RecordingPatronDAO backing;
+    private WriteBehindPatronDAO patronDAO;
+    private Patron john;
+
+    @Before
+    public void setUp() {
+        backing = new RecordingPatronDAO();
+        patronDAO = new WriteBehindPatronDAO(backing, 100, 100, 60_000);
+        john = new Patron("John Doe", "12345", PatronType.PREMIUM);
+    }
+
+    @After
+    public void tearDown() {
+        backing.unavailable = false;
+        patronDAO.close();
+    }
+
+    @Test
+    public void testWritesAreBufferedAndBatched() {
+        patronDAO.save(john);
+        patronDAO.save(new Patron("Jane Roe", "67890", PatronType.REGULAR));
+        assertFalse(backing.findById("12345").isPresent());
+        assertTrue(patronDAO.findById("12345").isPresent());
+
+        patronDAO.flush();
+        assertEquals(2, backing.findAll().size());
+        assertEquals(1, backing.bulkWrites);
+    }
+
+    @Test
+    public void testFindAllFlushesFirst() {
+        patronDAO.save(john);
+        assertEquals(1, patronDAO.findAll().size());
+        assertEquals(0, patronDAO.pendingWrites());
+    }
+
+    @Test
+    public void testDeleteHidesBufferedPatron() {
+        patronDAO.save(john);
+        patronDAO.flush();
+        patronDAO.delete("12345");
+        assertFalse(patronDAO.findById("12345").isPresent());
+        assertTrue(backing.findById("12345").isPresent());
+    }
+
+    @Test
+    public void testFailedFlushKeepsWritesBuffered() {
+        backing.unavailable = true;
+        patronDAO.save(john);
+        assertThrows(IllegalStateException.class, () -> patronDAO.flush());
+        assertEquals(1, patronDAO.pendingWrites());
+
+        backing.unavailable = false;
+        patronDAO.flush();
+        assertTrue(backing.findById("12345").isPresent());
+    }
+}
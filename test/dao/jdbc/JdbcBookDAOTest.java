@@ -0,0 +1,84 @@
+package test.dao.jdbc;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.jdbc.JdbcBookDAO;
+import dao.jdbc.JdbcDatabase;
+import model.Book;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class JdbcBookDAOTest {
+
+    private JdbcDatabase database;
+    private JdbcBookDAO bookDAO;
+    private Book gatsby;
+    private Book tenderIsTheNight;
+
+    @Before
+    public void setUp() {
+        database = JdbcDatabase.open("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", 2);
+        bookDAO = new JdbcBookDAO(database);
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", null, "9780743273565", 1925, 5);
+        tenderIsTheNight = new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 2);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testSaveAndFindById() {
+        gatsby.borrowBook();
+        bookDAO.save(gatsby);
+        Book found = bookDAO.findById("9780743273565").get();
+        assertEquals("The Great Gatsby", found.getTitle());
+        assertNull(found.getGenre());
+        assertEquals(4, found.getAvailableCopies());
+        assertFalse(bookDAO.findById("unknown").isPresent());
+    }
+
+    @Test
+    public void testDuplicateSaveIsRejected() {
+        bookDAO.save(gatsby);
+        assertThrows(IllegalArgumentException.class, () -> bookDAO.save(gatsby));
+    }
+
+    @Test
+    public void testUpdateAllIsAllOrNothing() {
+        bookDAO.save(gatsby);
+        gatsby.setTitle("Trimalchio");
+        Book unknown = new Book("1984", "George Orwell", "Dystopian", "9780451524935", 1949, 4);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> bookDAO.updateAll(Arrays.asList(gatsby, unknown)));
+        assertTrue(e.getMessage().contains("9780451524935"));
+        assertEquals("The Great Gatsby", bookDAO.findById("9780743273565").get().getTitle());
+
+        bookDAO.updateAll(Arrays.asList(gatsby));
+        assertEquals("Trimalchio", bookDAO.findById("9780743273565").get().getTitle());
+    }
+
+    @Test
+    public void testPagingAndStreaming() {
+        bookDAO.saveAll(Arrays.asList(gatsby, tenderIsTheNight));
+
+        List<Book> first = bookDAO.findPage(null, 1);
+        assertEquals("9780684801544", first.get(0).getIsbn());
+        assertEquals("9780743273565", bookDAO.findPage("9780684801544", 10).get(0).getIsbn());
+        try (Stream<Book> books = bookDAO.streamAll()) {
+            assertEquals(Arrays.asList("9780684801544", "9780743273565"),
+                    books.map(Book::getIsbn).sorted().collect(Collectors.toList()));
+        }
+        bookDAO.deleteAll(Arrays.asList("9780684801544"));
+        assertEquals(1, bookDAO.findAll().size());
+    }
+}
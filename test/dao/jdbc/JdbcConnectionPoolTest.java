@@ -0,0 +1,59 @@
+package test.dao.jdbc;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import dao.jdbc.JdbcConnectionPool;
+
+import java.sql.Connection;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class JdbcConnectionPoolTest {
+
+    private static String url() {
+        return "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    @Test
+    public void testConnectionsAndStatementsAreReused() {
+        JdbcConnectionPool pool = new JdbcConnectionPool(url(), 1);
+        try {
+            AtomicReference<Object> first = new AtomicReference<>();
+            pool.execute(connection -> {
+                first.set(connection.prepare("SELECT 1"));
+                return null;
+            });
+            pool.execute(connection -> {
+                assertSame(first.get(), connection.prepare("SELECT 1"));
+                return null;
+            });
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testConnectionReleasedAfterCloseIsNotPooled() throws Exception {
+        JdbcConnectionPool pool = new JdbcConnectionPool(url(), 1);
+        AtomicReference<Connection> borrowed = new AtomicReference<>();
+        pool.execute(connection -> {
+            borrowed.set(connection.connection());
+            pool.close();
+            return null;
+        });
+        assertTrue(borrowed.get().isClosed());
+        assertThrows(IllegalStateException.class, () -> pool.execute(connection -> null));
+    }
+
+    @Test
+    public void testSqlErrorsAreRethrownUnchecked() {
+        JdbcConnectionPool pool = new JdbcConnectionPool(url(), 1);
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> pool.execute(connection -> connection.prepare("SELECT * FROM missing").executeQuery()));
+        } finally {
+            pool.close();
+        }
+    }
+}
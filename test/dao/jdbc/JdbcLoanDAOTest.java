@@ -0,0 +1,109 @@
+package test.dao.jdbc;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.jdbc.JdbcBookDAO;
+import dao.jdbc.JdbcDatabase;
+import dao.jdbc.JdbcLoanDAO;
+import dao.jdbc.JdbcPatronDAO;
+import model.Book;
+import model.Loan;
+import model.Patron;
+import model.PatronType;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.UUID;
+
+public class JdbcLoanDAOTest {
+
+    private JdbcDatabase database;
+    private JdbcBookDAO bookDAO;
+    private JdbcLoanDAO loanDAO;
+    private Book book;
+    private Patron john;
+    private Patron jane;
+    private LocalDate loanDate;
+
+    @Before
+    public void setUp() {
+        database = JdbcDatabase.open("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", 2);
+        bookDAO = new JdbcBookDAO(database);
+        loanDAO = new JdbcLoanDAO(database);
+        JdbcPatronDAO patronDAO = new JdbcPatronDAO(database);
+        book = new Book("Effective Java", "Joshua Bloch", "Programming", "978-0134685991", 2018, 2);
+        john = new Patron("John Doe", "12345", PatronType.PREMIUM);
+        jane = new Patron("Jane Roe", "67890", PatronType.REGULAR);
+        bookDAO.save(book);
+        patronDAO.saveAll(Arrays.asList(john, jane));
+        loanDate = LocalDate.of(2024, 1, 10);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testActiveLoansAreCountedAndOrdered() {
+        Loan janes = new Loan(book, jane, loanDate.plusDays(1), loanDate.plusDays(15));
+        Loan johns = new Loan(book, john, loanDate, loanDate.plusWeeks(2));
+        loanDAO.saveAll(Arrays.asList(janes, johns));
+
+        assertTrue(loanDAO.isBookCheckedOut(book));
+        assertEquals(2, loanDAO.countActiveLoans(book));
+        assertFalse(loanDAO.isBookAvailable(book));
+        assertEquals(johns.getLoanId(), loanDAO.findActiveLoansByIsbn("9780134685991").get(0).getLoanId());
+        // The same title in ISBN-10 notation.
+        Book isbn10 = new Book("Effective Java", "Joshua Bloch", "Programming", "0134685997", 2018, 2);
+        assertEquals(2, loanDAO.countActiveLoans(isbn10));
+        assertTrue(loanDAO.isBookCheckedOut(isbn10));
+        assertEquals(1, loanDAO.findLoansByPatron(jane).size());
+
+        johns.setReturnDate(loanDate.plusDays(3));
+        loanDAO.update(johns);
+        assertEquals(1, loanDAO.countActiveLoans(book));
+        assertEquals(loanDate.plusDays(3), loanDAO.findById(johns.getLoanId()).get().getReturnDate());
+    }
+
+    @Test
+    public void testUpdateAllIsAllOrNothing() {
+        Loan johns = new Loan(book, john, loanDate, loanDate.plusWeeks(2));
+        loanDAO.save(johns);
+        johns.setReturnDate(loanDate.plusDays(3));
+        Loan unsaved = new Loan(book, jane, loanDate, loanDate.plusWeeks(2));
+
+        assertThrows(IllegalArgumentException.class, () -> loanDAO.updateAll(Arrays.asList(johns, unsaved)));
+        assertNull(loanDAO.findById(johns.getLoanId()).get().getReturnDate());
+    }
+
+    @Test
+    public void testLoansKeepTheirBookAndPatron() {
+        Loan johns = new Loan(book, john, loanDate, loanDate.plusWeeks(2));
+        loanDAO.save(johns);
+
+        // Foreign keys keep loans from losing their book, which would hide them from joined queries.
+        assertThrows(IllegalArgumentException.class, () -> bookDAO.delete(book.getIsbn()));
+        assertEquals(1, loanDAO.findAll().size());
+        Book unstored = new Book("Clean Code", "Robert C. Martin", "Programming", "978-0132350884", 2008, 3);
+        assertThrows(IllegalArgumentException.class,
+                () -> loanDAO.save(new Loan(unstored, john, loanDate, loanDate.plusWeeks(2))));
+    }
+
+    @Test
+    public void testSameDayLoansKeepTheirSequence() {
+        Loan first = new Loan(book, john, loanDate, loanDate.plusWeeks(2));
+        Loan second = new Loan(book, john, loanDate, loanDate.plusWeeks(2), 1);
+        loanDAO.saveAll(Arrays.asList(first, second));
+
+        Loan stored = loanDAO.findById(second.getLoanId()).get();
+        assertEquals(1, stored.getSequence());
+        assertEquals(second.getLoanId(), stored.getLoanId());
+        assertEquals(2, loanDAO.countActiveLoans(book));
+        assertThrows(IllegalArgumentException.class,
+                () -> loanDAO.save(new Loan(book, john, loanDate, loanDate.plusWeeks(2), 1)));
+    }
+}
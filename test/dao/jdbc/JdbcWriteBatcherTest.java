@@ -0,0 +1,94 @@
+package test.dao.jdbc;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.jdbc.JdbcConnectionPool;
+import dao.jdbc.JdbcWriteBatcher;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+public class JdbcWriteBatcherTest {
+
+    private static final String INSERT = "INSERT INTO items (id) VALUES (?)";
+    private static final String UPDATE = "UPDATE items SET label = ? WHERE id = ?";
+
+    private JdbcConnectionPool pool;
+    private JdbcWriteBatcher batcher;
+
+    @Before
+    public void setUp() {
+        pool = new JdbcConnectionPool("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", 2);
+        pool.execute(connection -> {
+            try (Statement statement = connection.connection().createStatement()) {
+                statement.execute("CREATE TABLE items (id INT PRIMARY KEY, label VARCHAR(16))");
+            }
+            return null;
+        });
+        batcher = new JdbcWriteBatcher(pool, 5_000, 64);
+    }
+
+    @After
+    public void tearDown() {
+        batcher.close();
+        pool.close();
+    }
+
+    private int count(String where) {
+        return pool.execute(connection -> {
+            try (Statement statement = connection.connection().createStatement();
+                 ResultSet row = statement.executeQuery("SELECT COUNT(*) FROM items WHERE " + where)) {
+                row.next();
+                return row.getInt(1);
+            }
+        });
+    }
+
+    @Test
+    public void testBadWriteFailsOnlyItsOwnCaller() throws Exception {
+        batcher.write(INSERT, statement -> statement.setInt(1, 0));
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            int id = i;
+            results.add(writers.submit(() -> batcher.write(INSERT, statement -> statement.setInt(1, id))));
+        }
+        int rejected = 0;
+        for (Future<Integer> result : results) {
+            try {
+                assertEquals(1, (int) result.get(10, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+                rejected++;
+            }
+        }
+        writers.shutdown();
+
+        assertEquals(1, rejected);
+        assertEquals(32, count("1 = 1"));
+    }
+
+    @Test
+    public void testUpdateAllRollsBackWhenARowIsMissing() {
+        batcher.writeAll(INSERT, Arrays.asList(statement -> statement.setInt(1, 1), statement -> statement.setInt(1, 2)));
+
+        JdbcWriteBatcher.MissingRowsException e = assertThrows(JdbcWriteBatcher.MissingRowsException.class,
+                () -> batcher.updateAll(UPDATE, Arrays.asList(
+                        statement -> { statement.setString(1, "x"); statement.setInt(2, 1); },
+                        statement -> { statement.setString(1, "x"); statement.setInt(2, 3); })));
+        assertArrayEquals(new int[] {1}, e.rows());
+        assertEquals(0, count("label = 'x'"));
+    }
+}
@@ -6,6 +6,9 @@ import org.junit.Test;
 
 import model.Book;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class BookTest {
 
     public Book validBook;
@@ -128,10 +131,27 @@ public class BookTest {
     }
 
     @Test
-    public void testSetTotalCopiesReducesAvailableCopiesIfExceeds() {
+    public void testSetTotalCopiesKeepsCopiesOnLoan() {
         validBook.borrowBook(); // Available copies = 4
-        validBook.setTotalCopies(3); // Total copies < available copies
+        validBook.setTotalCopies(3); // One copy is still on loan
+        assertEquals(3, validBook.getTotalCopies());
+        assertEquals(2, validBook.getAvailableCopies());
+
+        validBook.setTotalCopies(6);
+        assertEquals(5, validBook.getAvailableCopies());
+        validBook.returnBook();
+        assertEquals(6, validBook.getAvailableCopies());
+    }
+
+    @Test
+    public void testSetTotalCopiesBelowCopiesOnLoanIsRejected() {
+        validBook.borrowBook();
+        validBook.borrowBook();
+        assertThrows(IllegalArgumentException.class, () -> validBook.setTotalCopies(1));
+        assertEquals(5, validBook.getTotalCopies());
         assertEquals(3, validBook.getAvailableCopies());
+        validBook.setTotalCopies(2);
+        assertEquals(0, validBook.getAvailableCopies());
     }
 
     // Ensuring unimplemented method throws exception
@@ -139,4 +159,39 @@ public class BookTest {
     public void testSetAvailableThrowsException() {
         assertThrows(UnsupportedOperationException.class, () -> validBook.setAvailable(true));
     }
+
+    // Concurrent borrowing never lends more copies than exist
+    @Test
+    public void testConcurrentBorrowsNeverOversell() throws InterruptedException {
+        AtomicInteger borrowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[16];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 1000; i++) {
+                    try {
+                        validBook.borrowBook();
+                        borrowed.incrementAndGet();
+                        validBook.returnBook();
+                        borrowed.decrementAndGet();
+                    } catch (IllegalStateException e) {
+                        // All copies lent out; try again.
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, borrowed.get());
+        assertEquals(5, validBook.getAvailableCopies());
+        assertEquals(5, validBook.getTotalCopies());
+    }
 }
@@ -6,6 +6,9 @@ import org.junit.Test;
 
 import model.Inventory;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class InventoryTest {
 
     private Inventory inventory;
@@ -88,4 +91,36 @@ public class InventoryTest {
         String expected = "Inventory{isbn='9780743273565', totalCopies=10, availableCopies=5}";
         assertEquals(expected, inventory.toString());
     }
+
+    @Test
+    public void testConcurrentBorrowsStopAtZero() throws InterruptedException {
+        AtomicInteger borrowed = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[16];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    try {
+                        inventory.borrowBook();
+                        borrowed.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        // No copies left.
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(5, borrowed.get());
+        assertEquals(0, inventory.getAvailableCopies());
+        assertFalse(inventory.isAvailable());
+    }
 }
@@ -0,0 +1,51 @@
+package test.model;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import model.Book;
+import model.Isbn;
+
+public class IsbnTest {
+
+    @Test
+    public void testIsbn10AndIsbn13NormalizeToSameKey() {
+        assertEquals(9780743273565L, Isbn.toKey("0-7432-7356-7"));
+        assertEquals(9780743273565L, Isbn.toKey("978-0-7432-7356-5"));
+        assertEquals(Isbn.parse("0743273567"), Isbn.parse("9780743273565"));
+    }
+
+    @Test
+    public void testIsbn10WithCheckCharacterX() {
+        assertEquals("9780804429573", Isbn.parse("0-8044-2957-X").toIsbn13());
+        assertEquals("080442957X", Isbn.parse("9780804429573").toIsbn10());
+    }
+
+    @Test
+    public void testInvalidChecksumsAreRejected() {
+        assertEquals(Isbn.INVALID_KEY, Isbn.toKey("9780743273566"));
+        assertEquals(Isbn.INVALID_KEY, Isbn.toKey("0743273568"));
+        assertEquals(Isbn.INVALID_KEY, Isbn.toKey("978-0134685991X"));
+        assertEquals(Isbn.INVALID_KEY, Isbn.toKey("not an isbn"));
+        assertFalse(Isbn.isValid(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseInvalidIsbnThrowsException() {
+        Isbn.parse("12345");
+    }
+
+    @Test
+    public void testToIsbn10() {
+        assertEquals("0743273567", Isbn.parse("9780743273565").toIsbn10());
+        assertNull(Isbn.parse("9791234567896").toIsbn10());
+    }
+
+    @Test
+    public void testBooksWithEquivalentIsbnsAreEqual() {
+        Book isbn13 = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+        Book isbn10 = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "0-7432-7356-7", 1925, 5);
+        assertEquals(isbn13, isbn10);
+        assertEquals(isbn13.hashCode(), isbn10.hashCode());
+    }
+}
@@ -87,6 +87,24 @@ public class LoanTest {
         assertEquals(expectedLoanId, loan.getLoanId());
     }
 
+    @Test
+    public void testLoanIdUsesTheCanonicalIsbn() {
+        Book hyphenated = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "978-0-7432-7356-5", 1925, 5);
+        Loan sameTitle = new Loan(hyphenated, patron, LocalDate.of(2024, 12, 1), LocalDate.of(2024, 12, 15));
+        assertEquals(loan.getLoanId(), sameTitle.getLoanId());
+    }
+
+    @Test
+    public void testSequenceDistinguishesSameDayLoans() {
+        Loan secondCopy = new Loan(book, patron, LocalDate.of(2024, 12, 1), LocalDate.of(2024, 12, 15), 1);
+        assertEquals(1, secondCopy.getSequence());
+        assertEquals("9780743273565-P001-2024-12-01-1", secondCopy.getLoanId());
+        assertNotEquals(loan.getLoanId(), secondCopy.getLoanId());
+        assertNotEquals(loan, secondCopy);
+        assertThrows(IllegalArgumentException.class,
+                () -> new Loan(book, patron, LocalDate.of(2024, 12, 1), LocalDate.of(2024, 12, 15), -1));
+    }
+
     @Test
     public void testEqualsAndHashCode() {
         Loan sameLoan = new Loan(book, patron, LocalDate.of(2024, 12, 1), LocalDate.of(2024, 12, 15));
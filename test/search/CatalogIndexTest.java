@@ -0,0 +1,132 @@
+package test.search;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Book;
+import search.CatalogIndex;
+import search.Ranking;
+import search.SearchResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class CatalogIndexTest {
+
+    private CatalogIndex index;
+    private Book gatsby;
+    private Book tenderIsTheNight;
+    private Book solitude;
+
+    @Before
+    public void setUp() {
+        index = new CatalogIndex();
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+        tenderIsTheNight = new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 2);
+        solitude = new Book("One Hundred Years of Solitude", "Gabriel Garc\u00eda M\u00e1rquez", "Magical Realism",
+                "9780060883287", 1967, 3);
+        index.indexAll(Arrays.asList(gatsby, tenderIsTheNight, solitude));
+    }
+
+    @Test
+    public void testAndQueryRequiresEveryTerm() {
+        assertEquals(Arrays.asList(gatsby, tenderIsTheNight), index.search("fitzgerald fiction"));
+        assertEquals(Arrays.asList(gatsby), index.search("Fitzgerald GATSBY"));
+        assertTrue(index.search("fitzgerald solitude").isEmpty());
+    }
+
+    @Test
+    public void testOrQueryUnitesGroups() {
+        assertEquals(Arrays.asList(gatsby, solitude), index.search("gatsby OR marquez"));
+    }
+
+    @Test
+    public void testPhraseRequiresAdjacentWords() {
+        assertEquals(Arrays.asList(gatsby), index.search("\"great gatsby\""));
+        assertTrue(index.search("\"gatsby great\"").isEmpty());
+        assertEquals(Arrays.asList(solitude), index.search("\"magical realism\""));
+    }
+
+    @Test
+    public void testAccentsAreFolded() {
+        assertEquals(Arrays.asList(solitude), index.search("garcia"));
+    }
+
+    @Test
+    public void testReindexAndRemove() {
+        gatsby.setGenre("Classics");
+        index.index(gatsby);
+        assertEquals(Arrays.asList(gatsby), index.search("classics"));
+        assertEquals(Arrays.asList(tenderIsTheNight), index.search("fiction"));
+
+        index.remove("9780743273565");
+        assertTrue(index.search("gatsby").isEmpty());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void testFuzzySearchToleratesTypos() {
+        assertEquals(Arrays.asList(gatsby, tenderIsTheNight), index.searchFuzzy("fitzgerlad", 10));
+        assertEquals(Arrays.asList(gatsby), index.searchFuzzy("fitzgerald gatbsy", 10));
+        assertEquals(Arrays.asList(solitude), index.searchFuzzy("marques", 10));
+        assertTrue(index.search("fitzgerlad").isEmpty());
+    }
+
+    @Test
+    public void testFuzzySearchKeepsShortWordsExact() {
+        assertEquals(Arrays.asList(tenderIsTheNight), index.searchFuzzy("nigth is", 10));
+        assertTrue(index.searchFuzzy("nigth iz", 10).isEmpty());
+    }
+
+    @Test
+    public void testFacetCountsCoverAllHits() {
+        tenderIsTheNight.borrowBook();
+        tenderIsTheNight.borrowBook();
+        index.updateAvailability(tenderIsTheNight);
+
+        SearchResult result = index.searchWithFacets("fitzgerald OR solitude", 1);
+        assertEquals(1, result.getBooks().size());
+        assertEquals(3, result.getTotalHits());
+        assertEquals(Integer.valueOf(2), result.getGenreCounts().get("Fiction"));
+        assertEquals(Integer.valueOf(1), result.getGenreCounts().get("Magical Realism"));
+        assertEquals(Arrays.asList(1920, 1930, 1960), new ArrayList<>(result.getDecadeCounts().keySet()));
+        assertEquals(2, result.getAvailableCount());
+
+        index.remove(gatsby.getIsbn());
+        assertNull(index.searchWithFacets("fitzgerald", 10).getDecadeCounts().get(1920));
+    }
+
+    @Test
+    public void testRankedSearchOrdersByRelevance() {
+        Book repeated = new Book("History of History", "Smith", "Nonfiction", "9780000000019", 2001, 1);
+        Book shortTitle = new Book("History", "Jones", "Nonfiction", "9780000000026", 2002, 1);
+        Book longTitle = new Book("A Very Long and Thorough History of Nearly Everything Ever Written", "Brown",
+                "Nonfiction", "9780000000033", 2003, 1);
+        index.indexAll(Arrays.asList(longTitle, shortTitle, repeated));
+
+        assertEquals(Arrays.asList(repeated, shortTitle, longTitle), index.searchRanked("history", 10));
+        assertEquals(Arrays.asList(repeated, shortTitle), index.searchRanked("history", 2));
+        assertEquals(Arrays.asList(shortTitle), index.searchRanked("history jones", 10));
+    }
+
+    @Test
+    public void testRankedSearchAppliesBoosts() {
+        // The shorter title and author field wins without boosts.
+        assertEquals(Arrays.asList(gatsby, tenderIsTheNight), index.searchRanked("fitzgerald", 10));
+
+        gatsby.setAvailableCopies(0);
+        assertEquals(Arrays.asList(tenderIsTheNight, gatsby),
+                index.searchRanked("fitzgerald", 10, Ranking.BM25.withAvailabilityBoost(1)));
+
+        gatsby.setAvailableCopies(5);
+        tenderIsTheNight.setTotalCopies(50);
+        assertEquals(Arrays.asList(tenderIsTheNight, gatsby),
+                index.searchRanked("fitzgerald", 10, Ranking.BM25.withPopularityBoost(1)));
+    }
+
+    @Test
+    public void testGenreWordsMatchButDoNotScore() {
+        assertEquals(Arrays.asList(gatsby, tenderIsTheNight), index.searchRanked("fiction", 10));
+    }
+}
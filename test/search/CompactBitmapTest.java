@@ -0,0 +1,54 @@
+package test.search;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import search.CompactBitmap;
+
+public class CompactBitmapTest {
+
+    @Test
+    public void testAddRemoveAcrossChunks() {
+        CompactBitmap bitmap = new CompactBitmap();
+        bitmap.add(3);
+        bitmap.add(70_000);
+        bitmap.add(3);
+        assertEquals(2, bitmap.cardinality());
+        assertTrue(bitmap.contains(70_000));
+
+        bitmap.remove(70_000);
+        assertFalse(bitmap.contains(70_000));
+        assertEquals(1, bitmap.cardinality());
+    }
+
+    @Test
+    public void testDenseChunkSwitchesToBitsetAndBack() {
+        CompactBitmap dense = new CompactBitmap();
+        for (int i = 0; i < 10_000; i += 2) {
+            dense.add(i);
+        }
+        assertEquals(5_000, dense.cardinality());
+        for (int i = 0; i < 2_000; i += 2) {
+            dense.remove(i);
+        }
+        assertEquals(4_000, dense.cardinality());
+        assertTrue(dense.contains(9_998));
+        assertFalse(dense.contains(1_000));
+    }
+
+    @Test
+    public void testAndCardinality() {
+        CompactBitmap evens = new CompactBitmap();
+        CompactBitmap threes = new CompactBitmap();
+        for (int i = 0; i < 30_000; i++) {
+            if (i % 2 == 0) {
+                evens.add(i);
+            }
+            if (i % 3 == 0) {
+                threes.add(i);
+            }
+        }
+        assertEquals(5_000, evens.andCardinality(threes));
+        assertEquals(2, evens.andCardinality(CompactBitmap.of(new int[] {1, 6, 12, 99_999})));
+    }
+}
@@ -0,0 +1,213 @@
+package test.search;
+
+import static org.junit.Assert.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.InMemoryBookDAO;
+import model.Book;
+import search.CatalogIndex;
+import search.PersistentCatalogIndex;
+import search.Ranking;
+import search.SearchResult;
+import search.SearchResultCache;
+import service.BookService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class PersistentCatalogIndexTest {
+
+    private Path directory;
+    private PersistentCatalogIndex index;
+    private Book gatsby;
+    private Book tenderIsTheNight;
+    private Book nineteenEightyFour;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("catalog-index");
+        index = new PersistentCatalogIndex(directory, 100);
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+        tenderIsTheNight = new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 2);
+        nineteenEightyFour = new Book("1984", "George Orwell", "Dystopian", "9780451524935", 1949, 4);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        index.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static List<String> titles(List<Book> books) {
+        return books.stream().map(Book::getTitle).collect(Collectors.toList());
+    }
+
+    private static List<String> isbns(Book... books) {
+        return Arrays.stream(books).map(Book::getIsbn).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSearchesMergedSegmentAfterReopen() {
+        index.indexAll(Arrays.asList(gatsby, tenderIsTheNight, nineteenEightyFour));
+        index.close();
+
+        index = new PersistentCatalogIndex(directory, 100);
+        assertEquals(3, index.segmentSize());
+        assertEquals(0, index.pendingChanges());
+        assertEquals(isbns(gatsby, tenderIsTheNight), index.searchIsbns("fitzgerald"));
+        assertEquals(isbns(gatsby), index.searchIsbns("\"great gatsby\""));
+        assertEquals(isbns(gatsby, nineteenEightyFour), index.searchIsbns("gatsby OR orwell"));
+        assertTrue(index.searchIsbns("\"gatsby great\"").isEmpty());
+    }
+
+    @Test
+    public void testDeltaHidesOlderVersions() {
+        index.indexAll(Arrays.asList(gatsby, tenderIsTheNight));
+        index.merge();
+
+        Book retitled = new Book("Trimalchio", "F. Scott Fitzgerald", "Fiction", "0-7432-7356-7", 1925, 5);
+        index.index(retitled);
+        index.remove(tenderIsTheNight.getIsbn());
+        index.index(nineteenEightyFour);
+
+        assertEquals(isbns(gatsby), index.searchIsbns("fitzgerald"));
+        assertTrue(index.searchIsbns("gatsby").isEmpty());
+        assertEquals(3, index.pendingChanges());
+
+        index.merge();
+        assertEquals(2, index.segmentSize());
+        assertEquals(isbns(gatsby, nineteenEightyFour), index.searchIsbns("fitzgerald OR orwell"));
+    }
+
+    @Test
+    public void testBackgroundMergeKeepsOneSegment() throws Exception {
+        for (int i = 0; i < 250; i++) {
+            index.index(new Book("Volume " + i, "Author", "Fiction", "B-" + i, 2000, 1));
+        }
+        index.close();
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(file -> file.toString().endsWith(".seg")).count());
+        }
+        index = new PersistentCatalogIndex(directory, 100);
+        assertEquals(250, index.segmentSize());
+        assertEquals(250, index.searchIsbns("volume").size());
+        assertEquals(10, index.searchIsbns("author", 10).size());
+        assertNull(index.lastMergeFailure());
+    }
+
+    @Test
+    public void testOnlyACleanCloseLeavesTheIndexCurrent() {
+        assertFalse(index.isCurrent());
+        index.index(gatsby);
+        index.close();
+
+        index = new PersistentCatalogIndex(directory, 100);
+        assertTrue(index.isCurrent());
+        index.index(tenderIsTheNight);
+        assertFalse(index.isCurrent());
+
+        // Reopened without closing, as after a crash: the buffered change is gone.
+        PersistentCatalogIndex crashed = index;
+        index = new PersistentCatalogIndex(directory, 100);
+        assertFalse(index.isCurrent());
+        assertEquals(isbns(gatsby), index.searchIsbns("fitzgerald"));
+        crashed.close();
+    }
+
+    @Test
+    public void testBookServiceRebuildsAnIndexThatIsNotCurrent() {
+        InMemoryBookDAO bookDAO = new InMemoryBookDAO();
+        bookDAO.saveAll(Arrays.asList(gatsby, nineteenEightyFour));
+        index.index(tenderIsTheNight);
+        index.close();
+        index = new PersistentCatalogIndex(directory, 100);
+        index.index(gatsby); // lost with the process
+
+        index = new PersistentCatalogIndex(directory, 100);
+        BookService bookService = new BookService(bookDAO, index);
+        assertEquals(Arrays.asList("The Great Gatsby"), titles(bookService.searchBooks("fitzgerald")));
+        assertEquals(2, index.segmentSize());
+
+        bookService.addBook(tenderIsTheNight);
+        index.close();
+        index = new PersistentCatalogIndex(directory, 100);
+        new BookService(bookDAO, index);
+        assertTrue(index.isCurrent());
+        assertEquals(3, index.segmentSize());
+    }
+
+    @Test
+    public void testBookServiceReturnsTheCatalogsCurrentBooks() {
+        InMemoryBookDAO bookDAO = new InMemoryBookDAO();
+        bookDAO.saveAll(Arrays.asList(gatsby, tenderIsTheNight));
+        BookService bookService = new BookService(bookDAO, index);
+        gatsby.borrowBook();
+
+        List<Book> found = bookService.searchBooks("gatsby");
+        assertEquals(1, found.size());
+        assertSame(bookDAO.findById(gatsby.getIsbn()).get(), found.get(0));
+        assertEquals(4, found.get(0).getAvailableCopies());
+    }
+
+    @Test
+    public void testFuzzyRankedAndFacetedSearchesSpanAllLayers() {
+        index.indexAll(Arrays.asList(gatsby, nineteenEightyFour));
+        index.merge();
+        index.index(tenderIsTheNight);
+
+        assertEquals(isbns(gatsby, tenderIsTheNight), index.searchIsbnsFuzzy("fitzgerlad", 10));
+        assertEquals(isbns(tenderIsTheNight), index.searchIsbnsRanked("fitzgerald night", 1, Ranking.BM25));
+        SearchResult result = index.searchWithFacets("fitzgerald OR orwell", 1,
+                isbn -> isbn.equals(gatsby.getIsbn()) ? Optional.empty() : Optional.of(nineteenEightyFour));
+        assertEquals(3, result.getTotalHits());
+        assertEquals(Integer.valueOf(2), result.getGenreCounts().get("Fiction"));
+        assertEquals(Integer.valueOf(1), result.getDecadeCounts().get(1940));
+        assertEquals(Arrays.asList(nineteenEightyFour), result.getBooks());
+    }
+
+    @Test
+    public void testBookServiceSearchesLikeWithACatalogIndex() {
+        InMemoryBookDAO bookDAO = new InMemoryBookDAO();
+        bookDAO.saveAll(Arrays.asList(gatsby, tenderIsTheNight, nineteenEightyFour));
+        BookService persistent = new BookService(bookDAO, index);
+        BookService inMemory = new BookService(bookDAO, new CatalogIndex());
+
+        assertEquals(inMemory.searchBooksFuzzy("fitzgerlad", 10), persistent.searchBooksFuzzy("fitzgerlad", 10));
+        Ranking ranking = Ranking.BM25.withAvailabilityBoost(0.5);
+        assertEquals(inMemory.searchBooksRanked("fitzgerald OR orwell", 2, ranking),
+                persistent.searchBooksRanked("fitzgerald OR orwell", 2, ranking));
+        assertEquals(inMemory.searchBooksWithFacets("fitzgerald OR 1984", 2).toString(),
+                persistent.searchBooksWithFacets("fitzgerald OR 1984", 2).toString());
+    }
+
+    @Test
+    public void testBookServiceCachesPersistentIndexSearches() {
+        InMemoryBookDAO bookDAO = new InMemoryBookDAO();
+        bookDAO.save(gatsby);
+        SearchResultCache cache = new SearchResultCache(100);
+        BookService bookService = new BookService(bookDAO, index, cache);
+
+        assertEquals(Arrays.asList(gatsby), bookService.searchBooks("fitzgerald"));
+        assertEquals(Arrays.asList(gatsby), bookService.searchBooks("fitzgerald"));
+        assertEquals(1, cache.hitCount());
+
+        bookService.addBook(tenderIsTheNight);
+        assertEquals(Arrays.asList(gatsby, tenderIsTheNight), bookService.searchBooks("fitzgerald"));
+        assertEquals(1, cache.invalidationCount());
+        assertEquals(1, index.pendingChanges());
+    }
+}
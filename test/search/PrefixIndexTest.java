@@ -0,0 +1,51 @@
+package test.search;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import model.Book;
+import search.PrefixIndex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PrefixIndexTest {
+
+    @Test
+    public void testSuggestsMostPopularTitlesFirst() {
+        PrefixIndex index = PrefixIndex.ofTitles(Arrays.asList(
+                new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5),
+                new Book("The Grapes of Wrath", "John Steinbeck", "Fiction", "9780143039433", 1939, 9),
+                new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 2)));
+
+        assertEquals(Arrays.asList("The Grapes of Wrath", "The Great Gatsby"), index.suggest("the gr", 5));
+        assertEquals(Arrays.asList("The Grapes of Wrath"), index.suggest("THE GR", 1));
+        assertTrue(index.suggest("xyz", 5).isEmpty());
+    }
+
+    @Test
+    public void testAuthorsAggregatePopularity() {
+        PrefixIndex index = PrefixIndex.ofAuthors(Arrays.asList(
+                new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5),
+                new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 5),
+                new Book("Farewell, My Lovely", "Raymond Chandler", "Mystery", "9780394758275", 1940, 8)));
+
+        assertEquals(2, index.size());
+        assertEquals(Arrays.asList("F. Scott Fitzgerald"), index.suggest("f", 10));
+    }
+
+    @Test
+    public void testLargeRangesUsePrecomputedRanking() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            books.add(new Book("Volume " + i, "Author", "Reference", "isbn-" + i, 2000, 1 + i % 97));
+        }
+        PrefixIndex index = PrefixIndex.ofTitles(books);
+
+        List<String> top = index.suggest("vol", 3);
+        assertEquals(Arrays.asList("Volume 193", "Volume 290", "Volume 387"), top);
+        assertEquals(Arrays.asList("Volume 193", "Volume 290"), index.suggest("volume ", 2));
+        assertEquals(Arrays.asList("Volume 96"), index.suggest("volume 9", 1));
+    }
+}
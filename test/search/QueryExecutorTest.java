@@ -0,0 +1,121 @@
+package test.search;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.CachingBookDAO;
+import dao.InMemoryBookDAO;
+import dao.ObservableBookDAO;
+import model.Book;
+import search.BookQuery;
+import search.BookSearch;
+import search.CatalogIndex;
+import search.QueryExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class QueryExecutorTest {
+
+    private InMemoryBookDAO bookDAO;
+    private CatalogIndex index;
+    private QueryExecutor executor;
+    private Book gatsby;
+    private Book tenderIsTheNight;
+    private Book nineteenEightyFour;
+    private Book animalFarm;
+
+    @Before
+    public void setUp() {
+        bookDAO = new InMemoryBookDAO();
+        index = new CatalogIndex();
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+        tenderIsTheNight = new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 2);
+        nineteenEightyFour = new Book("1984", "George Orwell", "Dystopian", "9780451524935", 1949, 4);
+        animalFarm = new Book("Animal Farm", "George Orwell", "Satire", "9780451526342", 1945, 1);
+        for (Book book : Arrays.asList(gatsby, tenderIsTheNight, nineteenEightyFour, animalFarm)) {
+            bookDAO.save(book);
+            index.index(book);
+        }
+        executor = new QueryExecutor(bookDAO, index);
+    }
+
+    @Test
+    public void testAndCombinesFieldPredicates() {
+        BookQuery query = BookQuery.and(BookQuery.authorIs("george orwell"), BookQuery.yearBetween(1940, 1946));
+        assertEquals(Arrays.asList(animalFarm), executor.execute(BookSearch.of(query)));
+    }
+
+    @Test
+    public void testOrAndNot() {
+        BookQuery query = BookQuery.or(BookQuery.genreIs("Satire"),
+                BookQuery.and(BookQuery.authorIs("F. Scott Fitzgerald"), BookQuery.not(BookQuery.titleHas("gatsby"))));
+        List<Book> result = executor.execute(BookSearch.of(query).sortBy(BookSearch.SortField.TITLE, false));
+        assertEquals(Arrays.asList(animalFarm, tenderIsTheNight), result);
+    }
+
+    @Test
+    public void testSortAndLimit() {
+        BookSearch search = BookSearch.of(BookQuery.yearBetween(1900, 2000))
+                .sortBy(BookSearch.SortField.PUBLICATION_YEAR, true)
+                .limit(2);
+        assertEquals(Arrays.asList(nineteenEightyFour, animalFarm), executor.execute(search));
+    }
+
+    @Test
+    public void testAvailabilityIsCheckedOnLiveCopies() {
+        animalFarm.borrowBook();
+        BookQuery query = BookQuery.and(BookQuery.authorIs("George Orwell"), BookQuery.available());
+        assertEquals(Arrays.asList(nineteenEightyFour), executor.execute(BookSearch.of(query)));
+    }
+
+    @Test
+    public void testIsbnPredicateAcceptsIsbn10() {
+        assertEquals(Arrays.asList(gatsby), executor.execute(BookSearch.of(BookQuery.isbnIs("0-7432-7356-7"))));
+    }
+
+    @Test
+    public void testDecoratedDaoKeepsItsIndexes() {
+        QueryExecutor decorated = new QueryExecutor(new ObservableBookDAO(new CachingBookDAO(bookDAO, 16)));
+        BookQuery query = BookQuery.authorIs("George Orwell");
+        assertEquals("index: " + query + " (2 candidates)", decorated.explain(query));
+        assertEquals(executor.execute(BookSearch.of(query)), decorated.execute(BookSearch.of(query)));
+    }
+
+    @Test
+    public void testPlannerPrefersNarrowestIndex() {
+        BookQuery query = BookQuery.and(BookQuery.yearBetween(1900, 2000), BookQuery.titleHas("farm"));
+        assertEquals("index: title has 'farm' (1 candidates)", executor.explain(query));
+    }
+
+    @Test
+    public void testPlannerScansWhenNoIndexApplies() {
+        assertEquals("parallel scan", executor.explain(BookQuery.not(BookQuery.genreIs("Fiction"))));
+        assertEquals("parallel scan", executor.explain(BookQuery.or(BookQuery.genreIs("Fiction"), BookQuery.available())));
+        assertEquals("parallel scan", new QueryExecutor(bookDAO).explain(BookQuery.titleHas("gatsby")));
+    }
+
+    @Test
+    public void testParallelScanMatchesSequentialFilter() {
+        List<Book> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Book book = new Book("Volume " + i, "Author " + (i % 7), "Genre " + (i % 3), "B-" + i, 1900 + i % 100, 1);
+            bookDAO.save(book);
+        }
+        BookQuery query = BookQuery.and(BookQuery.not(BookQuery.genreIs("Genre 1")), BookQuery.available());
+        for (Book book : bookDAO.findAll()) {
+            if (query.matches(book)) {
+                expected.add(book);
+            }
+        }
+        assertEquals("parallel scan", executor.explain(query));
+        assertEquals(expected, executor.execute(BookSearch.of(query)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyTitleWordsAreRejected() {
+        BookQuery.titleHas("  ");
+    }
+}
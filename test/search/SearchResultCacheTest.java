@@ -0,0 +1,104 @@
+package test.search;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Book;
+import search.CatalogIndex;
+import search.SearchResultCache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SearchResultCacheTest {
+
+    private CatalogIndex index;
+    private SearchResultCache cache;
+    private AtomicInteger searches;
+    private Book gatsby;
+    private Book nineteenEightyFour;
+
+    @Before
+    public void setUp() {
+        index = new CatalogIndex();
+        cache = new SearchResultCache(100);
+        searches = new AtomicInteger();
+        gatsby = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 5);
+        nineteenEightyFour = new Book("1984", "George Orwell", "Dystopian", "9780451524935", 1949, 4);
+        index.indexAll(Arrays.asList(gatsby, nineteenEightyFour));
+    }
+
+    private List<Book> search(String query) {
+        return cache.get(query, q -> {
+            searches.incrementAndGet();
+            return index.search(q);
+        });
+    }
+
+    @Test
+    public void testNormalizedQueriesShareAnEntry() {
+        assertEquals(Arrays.asList(gatsby), search("Gatsby  FITZGERALD"));
+        assertEquals(Arrays.asList(gatsby), search("fitzgerald gatsby"));
+        assertEquals(1, searches.get());
+        assertEquals(1, cache.hitCount());
+        assertEquals(0.5, cache.hitRate(), 1e-9);
+    }
+
+    @Test
+    public void testChangeEvictsOnlyAffectedQueries() {
+        search("gatsby");
+        search("orwell");
+        search("fiction OR dystopian");
+
+        Book tender = new Book("Tender Is the Night", "F. Scott Fitzgerald", "Fiction", "9780684801544", 1934, 2);
+        index.index(tender);
+        cache.bookChanged(tender);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.invalidationCount());
+        assertEquals(Arrays.asList(gatsby, nineteenEightyFour, tender), search("fiction OR dystopian"));
+        assertEquals(4, searches.get());
+    }
+
+    @Test
+    public void testUpdateEvictsQueriesThatReturnedTheOldVersion() {
+        search("gatsby");
+        search("orwell");
+
+        gatsby.setTitle("Trimalchio");
+        index.index(gatsby);
+        cache.bookChanged(gatsby);
+
+        assertEquals(1, cache.size());
+        assertTrue(search("gatsby").isEmpty());
+    }
+
+    @Test
+    public void testRemovalEvictsQueriesThatReturnedTheBook() {
+        search("gatsby");
+        search("orwell");
+
+        index.remove(nineteenEightyFour.getIsbn());
+        cache.bookRemoved("0-451-52493-4");
+
+        assertEquals(1, cache.size());
+        assertTrue(search("orwell").isEmpty());
+    }
+
+    @Test
+    public void testWeightBoundEvictsLeastRecentlyUsed() {
+        cache = new SearchResultCache(4);
+        search("gatsby");
+        search("orwell");
+        search("gatsby");
+        search("1984");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(4, cache.weight());
+        search("gatsby");
+        assertEquals(2, cache.hitCount());
+    }
+}
@@ -0,0 +1,117 @@
+package test.search;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import search.TermDictionary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class TermDictionaryTest {
+
+    private static final int RANDOM_TERMS = 20_000;
+
+    private TermDictionary dictionary;
+    private List<String> terms;
+
+    @Before
+    public void setUp() {
+        dictionary = new TermDictionary();
+        // Named terms first, then random ones.
+        terms = new ArrayList<>(Arrays.asList("king", "kind", "kings", "ikng", "ring", "kingdom", "kingdoms",
+                "gatsby", "gadsby", "fitzgerald", "fitzgerlad", "steinbeck"));
+        Set<String> seen = new HashSet<>(terms);
+        Random random = new Random(42);
+        while (terms.size() < RANDOM_TERMS) {
+            char[] word = new char[3 + random.nextInt(10)];
+            for (int i = 0; i < word.length; i++) {
+                word[i] = (char) ('a' + random.nextInt(26));
+            }
+            if (seen.add(new String(word))) {
+                terms.add(new String(word));
+            }
+        }
+        for (String term : terms) {
+            dictionary.add(term);
+        }
+    }
+
+    @Test
+    public void testFindsTermsWithinTheEditDistance() {
+        dictionary = new TermDictionary();
+        for (String term : terms.subList(0, 12)) {
+            dictionary.add(term);
+        }
+        assertEquals(set("king", "kind", "kings", "ikng", "ring"), new HashSet<>(dictionary.similar("king", 1)));
+        assertEquals(set("gatsby", "gadsby"), new HashSet<>(dictionary.similar("gatsby", 1)));
+        assertEquals(set("fitzgerald", "fitzgerlad"), new HashSet<>(dictionary.similar("fitzgeral", 2)));
+        assertEquals(set("kingdom"), new HashSet<>(dictionary.similar("kingdmo", 1)));
+        assertEquals(set("kingdom", "kingdoms"), new HashSet<>(dictionary.similar("kingdomz", 2)));
+    }
+
+    @Test
+    public void testMatchesAFullScan() {
+        List<String> queries = new ArrayList<>(Arrays.asList("king", "kigns", "gatsby", "kingdoms", "steinbek"));
+        for (int i = 0; i < 200; i++) {
+            queries.add(terms.get(i * 97 % terms.size()));
+        }
+        for (String query : queries) {
+            int maxEdits = query.length() <= 7 ? 1 : 2;
+            Set<String> expected = new HashSet<>();
+            for (String term : terms) {
+                if (distance(query, term) <= maxEdits) {
+                    expected.add(term);
+                }
+            }
+            assertEquals(query, expected, new HashSet<>(dictionary.similar(query, maxEdits)));
+        }
+    }
+
+    @Test
+    public void testShortTermsCheckFewCandidates() {
+        // A filter needing one shared trigram would check about 800 terms for each of these.
+        assertTrue(dictionary.countCandidates("king", 1) <= 10);
+        assertTrue(dictionary.countCandidates("kingdoms", 2) <= RANDOM_TERMS / 200);
+        assertTrue(dictionary.countCandidates("kingdomz", 2) <= RANDOM_TERMS / 200);
+        assertTrue(dictionary.countCandidates("gatsbi", 1) <= 10);
+        assertTrue(dictionary.countCandidates("fitzgeral", 2) <= 10);
+    }
+
+    @Test
+    public void testClearForgetsAllTerms() {
+        dictionary.clear();
+        assertTrue(dictionary.similar("king", 1).isEmpty());
+        assertEquals(0, dictionary.countCandidates("kingdoms", 2));
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    // Optimal string alignment distance, computed in full.
+    private static int distance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
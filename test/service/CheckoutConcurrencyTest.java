@@ -0,0 +1,192 @@
+package test.service;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+import dao.InMemoryLoanDAO;
+import model.Book;
+import model.Patron;
+import model.PatronType;
+import service.CheckoutService;
+import service.LendingService;
+import util.StripedLocks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CheckoutConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int TITLES = 8;
+    private static final int ATTEMPTS_PER_THREAD = 200;
+
+    @Test
+    public void testConcurrentCheckoutsNeverOversell() throws Exception {
+        InMemoryLoanDAO loanDAO = new InMemoryLoanDAO();
+        StripedLocks locks = new StripedLocks(16);
+        CheckoutService desk = new CheckoutService(loanDAO, locks);
+        LendingService kiosk = new LendingService(loanDAO, null, locks);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < TITLES; i++) {
+            books.add(new Book("Bestseller " + i, "Author", "Fiction", "HOT-" + i, 2024, 1));
+        }
+        LocalDate today = LocalDate.now();
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger refusals = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                Patron patron = new Patron("Patron " + thread, "P" + thread, PatronType.REGULAR);
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    Book book = books.get((thread + i) % TITLES);
+                    try {
+                        if (thread % 2 == 0) {
+                            desk.checkoutBook(book, patron, today, today.plusWeeks(2));
+                        } else {
+                            kiosk.checkoutBook(book, patron, today, today.plusWeeks(2));
+                        }
+                        successes.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        refusals.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(TITLES, successes.get());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - TITLES, refusals.get());
+        for (Book book : books) {
+            assertEquals(1, loanDAO.countActiveLoans(book.getIsbn()));
+        }
+    }
+
+    @Test
+    public void testConcurrentCheckoutsLendEveryCopyOnce() throws Exception {
+        InMemoryLoanDAO loanDAO = new InMemoryLoanDAO();
+        CheckoutService desk = new CheckoutService(loanDAO, new StripedLocks(16));
+        Book book = new Book("Bestseller", "Author", "Fiction", "HOT-COPIES", 2024, 30);
+        LocalDate today = LocalDate.now();
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Patron patron = new Patron("Patron " + t, "P" + t, PatronType.REGULAR);
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    desk.checkoutBook(book, patron, today, today.plusWeeks(2));
+                    successes.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    // Every copy is on loan.
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(30, successes.get());
+        assertEquals(30, loanDAO.countActiveLoans(book));
+        assertFalse(loanDAO.isBookAvailable(book));
+    }
+
+    @Test
+    public void testOverlappingBatchCheckoutsDoNotDeadlock() throws Exception {
+        InMemoryLoanDAO loanDAO = new InMemoryLoanDAO();
+        LendingService kiosk = new LendingService(loanDAO, null, new StripedLocks(16));
+        List<Book> stack = new ArrayList<>();
+        for (int i = 0; i < TITLES; i++) {
+            stack.add(new Book("Bestseller " + i, "Author", "Fiction", "HOT-" + i, 2024, THREADS / 2));
+        }
+        LocalDate today = LocalDate.now();
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Patron patron = new Patron("Patron " + t, "P" + t, PatronType.PREMIUM);
+            List<Book> books = new ArrayList<>(stack);
+            if (t % 2 == 1) {
+                Collections.reverse(books);
+            }
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    kiosk.checkoutBooks(books, patron, today, today.plusWeeks(2));
+                    successes.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    // Some title ran out of copies; nothing was lent.
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        assertEquals(THREADS / 2, successes.get());
+        for (Book book : stack) {
+            assertEquals(THREADS / 2, loanDAO.countActiveLoans(book));
+        }
+    }
+
+    @Test
+    public void testConcurrentBatchesRespectBorrowingLimit() throws Exception {
+        InMemoryLoanDAO loanDAO = new InMemoryLoanDAO();
+        LendingService kiosk = new LendingService(loanDAO, null, new StripedLocks(16));
+        Patron patron = new Patron("Jane Roe", "67890", PatronType.REGULAR);
+        LocalDate today = LocalDate.now();
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            List<Book> books = new ArrayList<>();
+            books.add(new Book("Left " + t, "Author", "Fiction", "LEFT-" + t, 2024, 1));
+            books.add(new Book("Right " + t, "Author", "Fiction", "RIGHT-" + t, 2024, 1));
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    kiosk.checkoutBooks(books, patron, today, today.plusWeeks(2));
+                    successes.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    // The batch would exceed the borrowing limit.
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Two batches of two fit a regular patron's limit of five; a third would not.
+        assertEquals(2, successes.get());
+        assertEquals(4, loanDAO.findLoansByPatron(patron).size());
+    }
+}
@@ -14,6 +14,9 @@ import service.LendingService;
 import model.Reservation;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 public class LendingServiceTest {
@@ -43,14 +46,14 @@ public class LendingServiceTest {
 
     @Test
     public void testCheckoutBookValid() {
-        Mockito.when(loanDAO.isBookCheckedOut(validBook)).thenReturn(false);
+        Mockito.when(loanDAO.isBookAvailable(validBook)).thenReturn(true);
         lendingService.checkoutBook(validBook, patron, loanDate, dueDate);
         Mockito.verify(loanDAO).save(Mockito.any(Loan.class));
     }
 
     @Test(expected = IllegalStateException.class)
     public void testCheckoutBookAlreadyCheckedOut() {
-        Mockito.when(loanDAO.isBookCheckedOut(validBook)).thenReturn(true);
+        Mockito.when(loanDAO.isBookAvailable(validBook)).thenReturn(false);
         lendingService.checkoutBook(validBook, patron, loanDate, dueDate);
     }
 
@@ -82,7 +85,7 @@ public class LendingServiceTest {
 
     @Test
     public void testReserveBookValid() {
-        Mockito.when(loanDAO.isBookCheckedOut(validBook)).thenReturn(true);
+        Mockito.when(loanDAO.isBookAvailable(validBook)).thenReturn(false);
         Mockito.when(reservationDAO.findByBookAndPatron(validBook, patron)).thenReturn(Optional.empty());
 
         // Creating the Reservation using the proper constructor
@@ -93,17 +96,69 @@ public class LendingServiceTest {
 
     @Test(expected = IllegalStateException.class)
     public void testReserveBookAlreadyReserved() {
-        Mockito.when(loanDAO.isBookCheckedOut(validBook)).thenReturn(true);
+        Mockito.when(loanDAO.isBookAvailable(validBook)).thenReturn(false);
         Mockito.when(reservationDAO.findByBookAndPatron(validBook, patron)).thenReturn(Optional.of(new Reservation(validBook, patron)));
         lendingService.reserveBook(validBook, patron);
     }
 
     @Test(expected = IllegalStateException.class)
     public void testReserveBookNotCheckedOut() {
-        Mockito.when(loanDAO.isBookCheckedOut(validBook)).thenReturn(false);
+        Mockito.when(loanDAO.isBookAvailable(validBook)).thenReturn(true);
         lendingService.reserveBook(validBook, patron);
     }
 
+    @Test
+    public void testCheckoutBooksSavesOneBatch() {
+        Book secondBook = new Book("Clean Code", "Robert C. Martin", "Programming", "978-0132350884", 2008, 3);
+        Mockito.when(loanDAO.findLoansByPatron(patron)).thenReturn(Collections.emptyList());
+        Mockito.when(loanDAO.isBookAvailable(validBook)).thenReturn(true);
+        Mockito.when(loanDAO.isBookAvailable(secondBook)).thenReturn(true);
+
+        List<Loan> loans = lendingService.checkoutBooks(Arrays.asList(validBook, secondBook), patron, loanDate, dueDate);
+        assertEquals(2, loans.size());
+        Mockito.verify(loanDAO).saveAll(loans);
+        Mockito.verify(loanDAO, Mockito.never()).save(Mockito.any(Loan.class));
+    }
+
+    @Test
+    public void testCheckoutBooksUnavailableSavesNothing() {
+        Book secondBook = new Book("Clean Code", "Robert C. Martin", "Programming", "978-0132350884", 2008, 3);
+        Mockito.when(loanDAO.findLoansByPatron(patron)).thenReturn(Collections.emptyList());
+        Mockito.when(loanDAO.isBookAvailable(validBook)).thenReturn(true);
+        Mockito.when(loanDAO.isBookAvailable(secondBook)).thenReturn(false);
+
+        assertThrows(IllegalStateException.class,
+                () -> lendingService.checkoutBooks(Arrays.asList(validBook, secondBook), patron, loanDate, dueDate));
+        Mockito.verify(loanDAO, Mockito.never()).saveAll(Mockito.anyCollection());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCheckoutBooksOverBorrowingLimit() {
+        Patron regular = new Patron("Jane Roe", "67890", PatronType.REGULAR);
+        List<Loan> current = Arrays.asList(
+                new Loan(new Book("A", "Author", "Fiction", "ISBN-A", 2000, 1), regular, loanDate, dueDate),
+                new Loan(new Book("B", "Author", "Fiction", "ISBN-B", 2000, 1), regular, loanDate, dueDate),
+                new Loan(new Book("C", "Author", "Fiction", "ISBN-C", 2000, 1), regular, loanDate, dueDate),
+                new Loan(new Book("D", "Author", "Fiction", "ISBN-D", 2000, 1), regular, loanDate, dueDate));
+        Mockito.when(loanDAO.findLoansByPatron(regular)).thenReturn(current);
+        Book secondBook = new Book("Clean Code", "Robert C. Martin", "Programming", "978-0132350884", 2008, 3);
+        lendingService.checkoutBooks(Arrays.asList(validBook, secondBook), regular, loanDate, dueDate);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCheckoutBooksDuplicateBook() {
+        lendingService.checkoutBooks(Arrays.asList(validBook, validBook), patron, loanDate, dueDate);
+    }
+
+    @Test
+    public void testCheckoutBooksSameTitleInTwoNotations() {
+        Book isbn13 = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "9780743273565", 1925, 1);
+        Book isbn10 = new Book("The Great Gatsby", "F. Scott Fitzgerald", "Fiction", "0-7432-7356-7", 1925, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> lendingService.checkoutBooks(Arrays.asList(isbn13, isbn10), patron, loanDate, dueDate));
+        Mockito.verify(loanDAO, Mockito.never()).saveAll(Mockito.anyCollection());
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void testCalculateLateFeeNullLoan() {
         lendingService.calculateLateFee(null, 1.0);
@@ -0,0 +1,187 @@
+package test.service;
+
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import dao.InMemoryBookDAO;
+import dao.InMemoryLoanDAO;
+import model.Book;
+import model.Loan;
+import model.Patron;
+import model.PatronType;
+import search.CatalogIndex;
+import search.SearchResult;
+import service.BatchReturnResult;
+import service.BookService;
+import service.CheckoutService;
+import service.ReturnService;
+import util.StripedLocks;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+public class ReturnServiceTest {
+
+    private InMemoryLoanDAO loanDAO;
+    private Book effectiveJava;
+    private Book cleanCode;
+    private Patron john;
+    private Patron jane;
+    private LocalDate loanDate;
+
+    @Before
+    public void setUp() {
+        loanDAO = new InMemoryLoanDAO();
+        effectiveJava = new Book("Effective Java", "Joshua Bloch", "Programming", "978-0134685991", 2018, 5);
+        cleanCode = new Book("Clean Code", "Robert C. Martin", "Programming", "978-0132350884", 2008, 3);
+        john = new Patron("John Doe", "12345", PatronType.PREMIUM);
+        jane = new Patron("Jane Roe", "67890", PatronType.REGULAR);
+        loanDate = LocalDate.of(2024, 1, 10);
+    }
+
+    @Test
+    public void testReturnBookValid() {
+        Loan loan = new Loan(effectiveJava, john, loanDate, loanDate.plusWeeks(2));
+        loanDAO.save(loan);
+        new ReturnService(loanDAO).returnBook(loan, loanDate.plusDays(5));
+        assertFalse(loanDAO.isBookCheckedOut(effectiveJava));
+    }
+
+    @Test
+    public void testReturnBooksResolvesScansAndComputesLateFees() {
+        loanDAO.save(new Loan(effectiveJava, john, loanDate, loanDate.plusWeeks(2)));
+        loanDAO.save(new Loan(effectiveJava, jane, loanDate.plusDays(1), loanDate.plusDays(15)));
+        loanDAO.save(new Loan(cleanCode, jane, loanDate, loanDate.plusWeeks(2)));
+
+        // Hyphen-free scans of the same ISBNs; the second Effective Java scan closes the other copy.
+        BatchReturnResult result = new ReturnService(loanDAO, 2).returnBooks(
+                Stream.of("9780134685991", "9780132350884", "9780134685991"),
+                loanDate.plusDays(16), 0.5);
+
+        assertFalse(result.hasFailures());
+        assertEquals(3, result.getReturned().size());
+        assertEquals(john, result.getReturned().get(0).getLoan().getPatron());
+        assertEquals(1.0, result.getReturned().get(0).getLateFee(), 0.0);
+        assertEquals(0.5, result.getReturned().get(2).getLateFee(), 0.0);
+        assertEquals(2.5, result.getTotalLateFees(), 0.0);
+        assertEquals(0, loanDAO.countActiveLoans(effectiveJava));
+        assertEquals(0, loanDAO.countActiveLoans(cleanCode));
+    }
+
+    @Test
+    public void testReturnBooksReportsFailuresWithoutAborting() {
+        loanDAO.save(new Loan(effectiveJava, john, loanDate, loanDate.plusWeeks(2)));
+        loanDAO.save(new Loan(cleanCode, jane, loanDate, loanDate.plusWeeks(2)));
+
+        BatchReturnResult result = new ReturnService(loanDAO).returnBooks(
+                Stream.of("978-0134685991", "unknown", " ", "978-0134685991", "978-0132350884"),
+                loanDate.plusDays(3), 0.5);
+
+        assertEquals(5, result.getProcessedCount());
+        assertEquals(2, result.getReturned().size());
+        assertEquals(3, result.getFailures().size());
+        assertEquals("unknown", result.getFailures().get(0).getScan());
+        assertEquals("978-0134685991", result.getFailures().get(2).getScan());
+        assertFalse(loanDAO.isBookCheckedOut(cleanCode));
+    }
+
+    @Test
+    public void testFailedBatchWriteLeavesLoansOpen() {
+        InMemoryLoanDAO failingDAO = new InMemoryLoanDAO() {
+            private int writes;
+
+            @Override
+            public void updateAll(Collection<Loan> batch) {
+                if (writes++ == 0) {
+                    throw new IllegalStateException("store unavailable");
+                }
+                super.updateAll(batch);
+            }
+        };
+        for (int i = 0; i < 4; i++) {
+            Book book = new Book("Volume " + i, "Author", "Fiction", "VOL-" + i, 2000, 1);
+            failingDAO.save(new Loan(book, john, loanDate, loanDate.plusWeeks(2)));
+        }
+
+        BatchReturnResult result = new ReturnService(failingDAO, 2).returnBooks(
+                IntStream.range(0, 4).mapToObj(i -> "VOL-" + i), loanDate.plusDays(3), 0.5);
+
+        assertEquals(2, result.getReturned().size());
+        assertEquals(2, result.getFailures().size());
+        assertTrue(result.getFailures().get(0).getReason().contains("store unavailable"));
+        assertEquals(1, failingDAO.countActiveLoans("VOL-0"));
+        assertNull(failingDAO.findActiveLoansByIsbn("VOL-0").get(0).getReturnDate());
+        assertEquals(0, failingDAO.countActiveLoans("VOL-3"));
+    }
+
+    @Test
+    public void testCheckoutsAndReturnsKeepAvailableCopiesInSync() {
+        InMemoryBookDAO catalog = new InMemoryBookDAO();
+        Book stored = new Book(effectiveJava);
+        catalog.save(stored);
+        StripedLocks locks = new StripedLocks(16);
+        CheckoutService desk = new CheckoutService(loanDAO, locks, catalog);
+        ReturnService returns = new ReturnService(loanDAO, 2, locks, catalog);
+
+        desk.checkoutBook(effectiveJava, john, loanDate, loanDate.plusWeeks(2));
+        desk.checkoutBook(effectiveJava, jane, loanDate.plusDays(1), loanDate.plusDays(15));
+        assertEquals(3, effectiveJava.getAvailableCopies());
+        assertEquals(3, stored.getAvailableCopies());
+        assertEquals(1, catalog.countRange(InMemoryBookDAO.RangeField.AVAILABLE_COPIES, 3, 3));
+
+        // Scanned in ISBN-10 notation.
+        returns.returnBooks(Stream.of("0134685997"), loanDate.plusDays(5), 0.5);
+        assertEquals(4, effectiveJava.getAvailableCopies());
+        assertEquals(4, stored.getAvailableCopies());
+        assertEquals(1, catalog.countRange(InMemoryBookDAO.RangeField.AVAILABLE_COPIES, 4, 4));
+    }
+
+    @Test
+    public void testCheckoutsAndReturnsUpdateTheAvailableFacet() {
+        InMemoryBookDAO bookDAO = new InMemoryBookDAO();
+        bookDAO.save(new Book(cleanCode));
+        BookService bookService = new BookService(bookDAO, new CatalogIndex());
+        StripedLocks locks = new StripedLocks(16);
+        CheckoutService desk = new CheckoutService(loanDAO, locks, bookService.catalog());
+        ReturnService returns = new ReturnService(loanDAO, 2, locks, bookService.catalog());
+        Patron jim = new Patron("Jim Poe", "24680", PatronType.REGULAR);
+        assertEquals(1, bookService.searchBooksWithFacets("martin", 10).getAvailableCount());
+
+        desk.checkoutBook(cleanCode, john, loanDate, loanDate.plusWeeks(2));
+        desk.checkoutBook(cleanCode, jane, loanDate, loanDate.plusWeeks(2));
+        assertEquals(1, bookService.searchBooksWithFacets("martin", 10).getAvailableCount());
+        desk.checkoutBook(cleanCode, jim, loanDate, loanDate.plusWeeks(2));
+        SearchResult result = bookService.searchBooksWithFacets("martin", 10);
+        assertEquals(1, result.getTotalHits());
+        assertEquals(0, result.getAvailableCount());
+        assertEquals(0, result.getBooks().get(0).getAvailableCopies());
+
+        returns.returnBooks(Stream.of(cleanCode.getIsbn()), loanDate.plusDays(3), 0.5);
+        assertEquals(1, bookService.searchBooksWithFacets("martin", 10).getAvailableCount());
+    }
+
+    @Test
+    public void testSameDayLoansOfOneTitleGetDistinctIds() {
+        StripedLocks locks = new StripedLocks(16);
+        CheckoutService desk = new CheckoutService(loanDAO, locks);
+        ReturnService returns = new ReturnService(loanDAO, 2, locks, null);
+
+        // Two copies for one patron on one day, the second in ISBN-10 notation.
+        desk.checkoutBook(effectiveJava, john, loanDate, loanDate.plusWeeks(2));
+        desk.checkoutBook(new Book(effectiveJava.getTitle(), effectiveJava.getAuthor(), effectiveJava.getGenre(),
+                "0134685997", 2018, 5), john, loanDate, loanDate.plusWeeks(2));
+        assertEquals(2, loanDAO.countActiveLoans(effectiveJava));
+
+        // One copy comes back and is borrowed again the same day.
+        returns.returnBooks(Stream.of("9780134685991"), loanDate, 0.5);
+        desk.checkoutBook(effectiveJava, john, loanDate, loanDate.plusWeeks(2));
+        assertEquals(2, loanDAO.countActiveLoans(effectiveJava));
+        assertEquals(3, loanDAO.findLoansByPatron(john).size());
+        assertTrue(loanDAO.findById("9780134685991-12345-2024-01-10").isPresent());
+        assertTrue(loanDAO.findById("9780134685991-12345-2024-01-10-1").isPresent());
+        assertTrue(loanDAO.findById("9780134685991-12345-2024-01-10-2").isPresent());
+    }
+}